@@ -0,0 +1,62 @@
+package io.electra.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A temporary directory holding the files of one benchmark trial. It is deleted with all of its
+ * content once the trial is over.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+final class BenchmarkDirectory implements AutoCloseable {
+
+  /**
+   * The path of the directory.
+   */
+  private final Path path;
+
+  /**
+   * Create a new empty temporary directory.
+   *
+   * @throws IOException If the directory cannot be created.
+   */
+  BenchmarkDirectory() throws IOException {
+    this.path = Files.createTempDirectory("electra-benchmark");
+  }
+
+  /**
+   * Resolve a file inside the directory.
+   *
+   * @param fileName The name of the file.
+   * @return The path of the file.
+   */
+  Path resolve(String fileName) {
+    return path.resolve(fileName);
+  }
+
+  /**
+   * Delete all files inside the directory but keep the directory itself.
+   *
+   * @throws IOException If a file cannot be deleted.
+   */
+  void clear() throws IOException {
+    try (Stream<Path> paths = Files.list(path)) {
+      for (Path file : (Iterable<Path>) paths::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (Stream<Path> paths = Files.walk(path)) {
+      for (Path file : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+}
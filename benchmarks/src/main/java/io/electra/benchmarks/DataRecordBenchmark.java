@@ -0,0 +1,66 @@
+package io.electra.benchmarks;
+
+import io.electra.core.model.DataBlock;
+import io.electra.core.model.DataBlockHeader;
+import io.electra.core.model.DataRecord;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the assembly of the content of a data record out of its data blocks.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataRecordBenchmark {
+
+  /**
+   * The length of the content.
+   */
+  @Param({"120", "4096", "102400", "1048576"})
+  public int valueSize;
+
+  private DataRecord dataRecord;
+
+  /**
+   * Split the content into blocks of the block chain format, the worst case for the assembly.
+   */
+  @Setup
+  public void setUp() {
+    byte[] content = new byte[valueSize];
+    new Random(42).nextBytes(content);
+
+    dataRecord = new DataRecord(1);
+    for (int offset = 0; offset < content.length;
+        offset += DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE) {
+      int length = Math.min(DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE, content.length - offset);
+      byte[] blockContent = new byte[length];
+      System.arraycopy(content, offset, blockContent, 0, length);
+
+      DataBlock dataBlock = DataBlock.fromDataBlockHeader(new DataBlockHeader(-1, length));
+      dataBlock.setContent(blockContent);
+      dataRecord.addDataBlock(dataBlock);
+    }
+  }
+
+  @Benchmark
+  public byte[] getContent() {
+    return dataRecord.getContent();
+  }
+}
@@ -0,0 +1,146 @@
+package io.electra.benchmarks;
+
+import com.google.common.util.concurrent.Futures;
+import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.exception.IndexScanException;
+import io.electra.core.index.IndexMap;
+import io.electra.core.index.IndexSnapshot;
+import io.electra.core.index.IndexStorageImpl;
+import io.electra.core.model.Index;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to read all indices of an index file or its snapshot on startup.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexStorageBenchmark {
+
+  /**
+   * The amount of indices in the index file.
+   */
+  @Param({"1000000"})
+  public int keyCount;
+
+  private BenchmarkDirectory benchmarkDirectory;
+  private Path indexFilePath;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, FileSystemAccessException {
+    benchmarkDirectory = new BenchmarkDirectory();
+    indexFilePath = benchmarkDirectory.resolve("index.lctr");
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(Index.INDEX_BLOCK_SIZE * 64 * 1024);
+    try (FileChannel fileChannel = FileChannel.open(indexFilePath, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE)) {
+      new Index(-1, 1).toByteBuffer(byteBuffer);
+
+      for (int keyHash = 0; keyHash < keyCount; keyHash++) {
+        if (!byteBuffer.hasRemaining()) {
+          byteBuffer.flip();
+          fileChannel.write(byteBuffer);
+          byteBuffer.clear();
+        }
+
+        new Index(keyHash, keyHash + 1).toByteBuffer(byteBuffer);
+      }
+
+      byteBuffer.flip();
+      fileChannel.write(byteBuffer);
+    }
+
+    IndexMap indices = new IndexMap(keyCount, true);
+    IndexMap indexSlots = new IndexMap(keyCount, true);
+    for (int keyHash = 0; keyHash < keyCount; keyHash++) {
+      indices.put(keyHash, keyHash + 1);
+      indexSlots.put(keyHash, keyHash + 1);
+    }
+
+    IndexSnapshot indexSnapshot = new IndexSnapshot(indexFilePath, false);
+    indexSnapshot.close(indices, indexSlots, Collections.emptyList(), keyCount + 1,
+        Long.MAX_VALUE);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    benchmarkDirectory.close();
+  }
+
+  @Benchmark
+  public List<Index> readIndices()
+      throws FileSystemAccessException, IndexScanException, IOException {
+    try (IndexStorageImpl indexStorage = new IndexStorageImpl(indexFilePath)) {
+      return Futures.getUnchecked(indexStorage.readIndices());
+    }
+  }
+
+  @Benchmark
+  public IndexMap scanIndicesIntoIndexMap()
+      throws FileSystemAccessException, IndexScanException, IOException {
+    IndexMap indexMap = new IndexMap(keyCount, false);
+
+    try (IndexStorageImpl indexStorage = new IndexStorageImpl(indexFilePath)) {
+      indexStorage.scanIndices((indexBlockIndex, index) -> {
+        if (indexBlockIndex > 0) {
+          indexMap.put(index.getKeyHash(), index.getBlockIndex());
+        }
+      });
+    }
+
+    return indexMap;
+  }
+
+  /**
+   * The tables of a loaded snapshot stay mapped until they are collected, so every load is measured
+   * on its own.
+   */
+  @TearDown(Level.Iteration)
+  public void collectIndexSnapshot() {
+    System.gc();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 10)
+  @Measurement(iterations = 20)
+  public IndexMap loadIndexSnapshot() throws FileSystemAccessException, IOException {
+    IndexMap indices = new IndexMap(0, true);
+    IndexMap indexSlots = new IndexMap(0, true);
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(indexFilePath, false)) {
+      if (!indexSnapshot.load(indices, indexSlots, new ArrayDeque<>(), new AtomicInteger(1))) {
+        throw new IllegalStateException("Index snapshot was not loaded.");
+      }
+    }
+
+    return indices;
+  }
+}
@@ -0,0 +1,214 @@
+package io.electra.benchmarks;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.engine.SimpleStorageEngine;
+import io.electra.core.engine.StorageEngine;
+import io.electra.core.engine.VirtualThreadStorageEngine;
+import io.electra.core.filesystem.FileSystemAccessorType;
+import io.electra.core.model.Index;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reads and writes of the {@link SimpleStorageEngine} for different value sizes, on a
+ * single thread, on several concurrent threads and in batches. The engine can run on blocking file
+ * channels and its operations on virtual threads to compare them with the asynchronous channels.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageEngineBenchmark {
+
+  /**
+   * The amount of keys saved before the reads are measured.
+   */
+  private static final int PRESET_KEY_COUNT = 1024;
+
+  /**
+   * The amount of threads of the concurrent variants.
+   */
+  private static final int CONCURRENT_THREADS = 4;
+
+  /**
+   * The amount of keys of the batch variants.
+   */
+  private static final int BATCH_SIZE = 100;
+
+  /**
+   * The length of the values.
+   */
+  @Param({"1", "120", "4096", "1048576"})
+  public int valueSize;
+
+  /**
+   * The size of the value cache, 0 makes every read go to the data file.
+   */
+  @Param({"0", "33554432"})
+  public long dataCacheSize;
+
+  /**
+   * The size of the page cache, 0 makes every read of a value that isn't cached go to the file.
+   */
+  @Param({"8388608"})
+  public long blockCacheSize;
+
+  /**
+   * The amount of threads the file channels run on, 0 uses the JVM's default pool.
+   */
+  @Param({"4"})
+  public int ioThreadCount;
+
+  /**
+   * The way the files are accessed, FILE_CHANNEL does blocking I/O on the calling thread.
+   */
+  @Param({"ASYNCHRONOUS_FILE_CHANNEL"})
+  public FileSystemAccessorType fileSystemAccessorType;
+
+  /**
+   * If every operation runs on a virtual thread of its own, requires Java 21.
+   */
+  @Param({"false"})
+  public boolean virtualThreads;
+
+  private final AtomicInteger nextKeyHash = new AtomicInteger(PRESET_KEY_COUNT);
+  private BenchmarkDirectory benchmarkDirectory;
+  private StorageEngine storageEngine;
+  private byte[] value;
+
+  @Setup(Level.Trial)
+  public void setUpTrial() throws IOException {
+    benchmarkDirectory = new BenchmarkDirectory();
+
+    value = new byte[valueSize];
+    new Random(42).nextBytes(value);
+  }
+
+  /**
+   * Start every iteration with a fresh engine, so the saved values don't pile up across
+   * iterations.
+   */
+  @Setup(Level.Iteration)
+  public void setUpIteration() throws Exception {
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setDataCacheSize(dataCacheSize);
+    configuration.setBlockCacheSize(blockCacheSize);
+    configuration.setIoThreadCount(ioThreadCount);
+    configuration.setFileSystemAccessorType(fileSystemAccessorType);
+    configuration.setExpectedKeyCount(PRESET_KEY_COUNT);
+
+    storageEngine = new SimpleStorageEngine(benchmarkDirectory.resolve("data.lctr"),
+        benchmarkDirectory.resolve("index.lctr"), configuration);
+    if (virtualThreads) {
+      storageEngine = new VirtualThreadStorageEngine(storageEngine);
+    }
+
+    for (int keyHash = 0; keyHash < PRESET_KEY_COUNT; keyHash++) {
+      Futures.getUnchecked(storageEngine.save(keyHash, value));
+    }
+    nextKeyHash.set(PRESET_KEY_COUNT);
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDownIteration() throws IOException {
+    storageEngine.close();
+    benchmarkDirectory.clear();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() throws IOException {
+    benchmarkDirectory.close();
+  }
+
+  @Benchmark
+  public byte[] get() {
+    return Futures.getUnchecked(storageEngine.get(randomPresetKeyHash()));
+  }
+
+  @Benchmark
+  @Threads(CONCURRENT_THREADS)
+  public byte[] getConcurrent() {
+    return Futures.getUnchecked(storageEngine.get(randomPresetKeyHash()));
+  }
+
+  @Benchmark
+  public Index save() {
+    return Futures.getUnchecked(storageEngine.save(nextKeyHash.getAndIncrement(), value));
+  }
+
+  @Benchmark
+  @Threads(CONCURRENT_THREADS)
+  public Index saveConcurrent() {
+    return Futures.getUnchecked(storageEngine.save(nextKeyHash.getAndIncrement(), value));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<byte[]> getBatchOneByOne() {
+    List<ListenableFuture<byte[]>> futures = new ArrayList<>(BATCH_SIZE);
+    for (int keyHash : randomPresetKeyHashes()) {
+      futures.add(storageEngine.get(keyHash));
+    }
+
+    return Futures.getUnchecked(Futures.allAsList(futures));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<byte[]> getAll() {
+    return Futures.getUnchecked(storageEngine.getAll(randomPresetKeyHashes()));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public List<Index> saveAll() {
+    int firstKeyHash = nextKeyHash.getAndAdd(BATCH_SIZE);
+    int[] keyHashes = new int[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      keyHashes[i] = firstKeyHash + i;
+    }
+
+    return Futures.getUnchecked(
+        storageEngine.saveAll(keyHashes, Collections.nCopies(BATCH_SIZE, value)));
+  }
+
+  private static int[] randomPresetKeyHashes() {
+    int[] keyHashes = new int[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      keyHashes[i] = randomPresetKeyHash();
+    }
+
+    return keyHashes;
+  }
+
+  private static int randomPresetKeyHash() {
+    return ThreadLocalRandom.current().nextInt(PRESET_KEY_COUNT);
+  }
+}
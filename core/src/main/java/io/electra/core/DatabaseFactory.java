@@ -1,5 +1,6 @@
 package io.electra.core;
 
+import io.electra.core.configuration.ElectraConfiguration;
 import io.electra.core.exception.DatabaseInitializationException;
 import io.electra.core.exception.EngineInitializationException;
 import java.nio.file.Files;
@@ -16,12 +17,17 @@ public class DatabaseFactory {
 
   public static ElectraDatabase createDatabase(Path databaseFolder)
       throws DatabaseInitializationException {
+    return createDatabase(databaseFolder, new ElectraConfiguration());
+  }
+
+  public static ElectraDatabase createDatabase(Path databaseFolder,
+      ElectraConfiguration configuration) throws DatabaseInitializationException {
     if (!Files.isDirectory(databaseFolder)) {
       throw new IllegalArgumentException("The given database folder is not a directory.");
     }
 
     try {
-      return new ElectraDatabaseImpl(databaseFolder);
+      return new ElectraDatabaseImpl(databaseFolder, configuration);
     } catch (EngineInitializationException e) {
       throw new DatabaseInitializationException("Error loading storage engine", e);
     }
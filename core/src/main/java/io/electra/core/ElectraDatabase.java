@@ -1,5 +1,8 @@
 package io.electra.core;
 
+import io.electra.core.metrics.Metrics;
+import java.io.IOException;
+
 /**
  * Represents one single database.
  *
@@ -7,5 +10,19 @@ package io.electra.core;
  */
 public interface ElectraDatabase extends AutoCloseable {
 
+  /**
+   * Get the latencies and I/O counters of the database. They are registered as JMX beans in the
+   * domain io.electra as well while the database is open.
+   *
+   * @return The metrics.
+   */
+  Metrics getMetrics();
 
+  /**
+   * Run one compaction pass over the data files right away. Fragmented values are moved into
+   * contiguous runs of data blocks and free blocks at the end of the files are cut off.
+   *
+   * @throws IOException If a data file cannot be compacted.
+   */
+  void compact() throws IOException;
 }
@@ -1,27 +1,189 @@
 package io.electra.core;
 
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.engine.ShardedStorageEngine;
 import io.electra.core.engine.SimpleStorageEngine;
 import io.electra.core.engine.StorageEngine;
+import io.electra.core.engine.VirtualThreadStorageEngine;
 import io.electra.core.exception.EngineInitializationException;
+import io.electra.core.filesystem.FileSystemAccessorType;
+import io.electra.core.filesystem.IoExecutor;
+import io.electra.core.metrics.Metrics;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
  */
 public class ElectraDatabaseImpl implements ElectraDatabase {
 
+  /**
+   * The prefix of the folders of the single shards.
+   */
+  private static final String SHARD_FOLDER_PREFIX = "shard-";
+
   private final StorageEngine storageEngine;
 
+  /**
+   * The metrics all shards record into.
+   */
+  private final Metrics metrics;
+
+  /**
+   * If our metrics were registered as JMX beans by this database.
+   */
+  private final boolean mbeansRegistered;
+
   ElectraDatabaseImpl(Path databaseFolder) throws EngineInitializationException {
-    Path indexPath = databaseFolder.resolve("index.lctr");
-    Path dataPath = databaseFolder.resolve("data.lctr");
+    this(databaseFolder, new ElectraConfiguration());
+  }
+
+  ElectraDatabaseImpl(Path databaseFolder, ElectraConfiguration configuration)
+      throws EngineInitializationException {
+    int shardCount = configuration.getShardCount();
+    checkShardCount(databaseFolder, shardCount);
+    if (configuration.isVirtualThreadsEnabled() && !VirtualThreadStorageEngine.isSupported()) {
+      throw new EngineInitializationException("Virtual threads are not supported",
+          new UnsupportedOperationException("Virtual threads require Java 21 or newer."));
+    }
+    metrics = configuration.getMetrics();
+
+    StorageEngine engine = shardCount == 1 ? createStorageEngine(databaseFolder, configuration)
+        : createShardedStorageEngine(databaseFolder, configuration);
+    storageEngine = configuration.isVirtualThreadsEnabled()
+        ? new VirtualThreadStorageEngine(engine) : engine;
+
+    IoExecutor ioExecutor = configuration.getFileSystemAccessorType()
+        == FileSystemAccessorType.ASYNCHRONOUS_FILE_CHANNEL ? configuration.getIoExecutor() : null;
+    mbeansRegistered = registerMBeans(metrics, ioExecutor, databaseFolder);
+  }
+
+  /**
+   * Register the given metrics and I/O executor as JMX beans named after the given database
+   * folder.
+   *
+   * @param metrics The metrics.
+   * @param ioExecutor The I/O executor or null if the database doesn't use one.
+   * @param databaseFolder The database folder.
+   * @return If the beans were registered.
+   */
+  private static boolean registerMBeans(Metrics metrics, IoExecutor ioExecutor,
+      Path databaseFolder) {
+    try {
+      metrics.registerMBeans(databaseFolder.toAbsolutePath().toString(), ioExecutor);
+      return true;
+    } catch (JMException e) {
+      // Another open database uses the same folder name, the metrics stay available anyway.
+      return false;
+    }
+  }
+
+  /**
+   * Create a storage engine that spreads the key hashes over the configured amount of shards,
+   * every shard keeps its files in a folder of its own.
+   *
+   * @param databaseFolder The database folder.
+   * @param configuration The configuration.
+   * @return The storage engine.
+   * @throws EngineInitializationException If a shard cannot be created.
+   */
+  private static StorageEngine createShardedStorageEngine(Path databaseFolder,
+      ElectraConfiguration configuration) throws EngineInitializationException {
+    int shardCount = configuration.getShardCount();
+
+    List<StorageEngine> shards = new ArrayList<>(shardCount);
+    try {
+      for (int i = 0; i < shardCount; i++) {
+        Path shardFolder = Files.createDirectories(databaseFolder.resolve(SHARD_FOLDER_PREFIX + i));
+        shards.add(createStorageEngine(shardFolder, configuration));
+      }
+    } catch (EngineInitializationException | IOException e) {
+      closeQuietly(shards);
+      throw new EngineInitializationException("Error creating shards", e);
+    }
+
+    return new ShardedStorageEngine(shards);
+  }
 
-    storageEngine = new SimpleStorageEngine(dataPath, indexPath);
+  /**
+   * Create a storage engine that keeps its files in the given folder.
+   *
+   * @param folder The folder.
+   * @param configuration The configuration.
+   * @return The storage engine.
+   * @throws EngineInitializationException If the engine cannot be created.
+   */
+  private static StorageEngine createStorageEngine(Path folder,
+      ElectraConfiguration configuration) throws EngineInitializationException {
+    Path indexPath = folder.resolve("index.lctr");
+    Path dataPath = folder.resolve("data.lctr");
+    Path writeAheadLogPath = folder.resolve("wal.lctr");
+
+    return new SimpleStorageEngine(dataPath, indexPath, writeAheadLogPath, configuration);
+  }
+
+  /**
+   * Make sure an existing database is opened with the shard count it was created with, as key
+   * hashes would end up in different shards otherwise.
+   *
+   * @param databaseFolder The database folder.
+   * @param shardCount The configured shard count.
+   * @throws EngineInitializationException If the database has a different shard count.
+   */
+  private static void checkShardCount(Path databaseFolder, int shardCount)
+      throws EngineInitializationException {
+    int existingShardCount = 0;
+
+    try (DirectoryStream<Path> shardFolders = Files
+        .newDirectoryStream(databaseFolder, SHARD_FOLDER_PREFIX + "*")) {
+      for (Path shardFolder : shardFolders) {
+        if (Files.isDirectory(shardFolder)) {
+          existingShardCount++;
+        }
+      }
+    } catch (IOException e) {
+      throw new EngineInitializationException("Error reading shard folders", e);
+    }
+
+    boolean mismatch = existingShardCount > 0
+        ? shardCount == 1 || existingShardCount != shardCount
+        : shardCount != 1 && Files.exists(databaseFolder.resolve("data.lctr"));
+    if (mismatch) {
+      throw new EngineInitializationException("Database was created with a different shard count",
+          new IllegalStateException("Configured shard count is " + shardCount));
+    }
+  }
+
+  private static void closeQuietly(List<StorageEngine> storageEngines) {
+    for (StorageEngine storageEngine : storageEngines) {
+      try {
+        storageEngine.close();
+      } catch (IOException e) {
+        // The original error is more important.
+      }
+    }
+  }
+
+  @Override
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void compact() throws IOException {
+    storageEngine.compact();
   }
 
   @Override
   public void close() throws IOException {
+    if (mbeansRegistered) {
+      metrics.unregisterMBeans();
+    }
     storageEngine.close();
   }
 }
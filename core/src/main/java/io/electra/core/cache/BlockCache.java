@@ -0,0 +1,296 @@
+package io.electra.core.cache;
+
+import io.electra.core.index.IndexMap;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps recently read and written pages of the data file in memory. A page is an aligned group of
+ * data blocks, so one read from disk brings in a whole neighbourhood of blocks that chains and
+ * extents are likely to visit next.
+ *
+ * <p>The pages live off heap in one arena per stripe. Every stripe maps page numbers to frames of
+ * its arena and evicts with the CLOCK algorithm: a frame that was used since the hand passed it
+ * the last time gets a second chance.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class BlockCache {
+
+  /**
+   * The size of one page in bytes.
+   */
+  public static final int PAGE_SIZE = 4096;
+
+  /**
+   * The amount of stripes, has to be a power of two.
+   */
+  private static final int STRIPE_COUNT = 16;
+
+  /**
+   * The stripes of the cache.
+   */
+  private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+  /**
+   * The amount of reads answered by the cache.
+   */
+  private final LongAdder hitCount = new LongAdder();
+
+  /**
+   * The amount of reads that had to go to disk.
+   */
+  private final LongAdder missCount = new LongAdder();
+
+  /**
+   * Create a new block cache.
+   *
+   * @param maximumSize The maximum size of all cached pages in bytes.
+   */
+  public BlockCache(long maximumSize) {
+    int frameCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE / PAGE_SIZE,
+        maximumSize / PAGE_SIZE / STRIPE_COUNT));
+
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new Stripe(frameCount);
+    }
+  }
+
+  /**
+   * Get the position of the page that contains the given position.
+   *
+   * @param position The position in the file.
+   * @return The position of the page.
+   */
+  public static long getPagePosition(long position) {
+    return position - position % PAGE_SIZE;
+  }
+
+  /**
+   * Check if a range lies within one page and can be served by the cache.
+   *
+   * @param position The position of the range.
+   * @param length The length of the range.
+   * @return If the range is cacheable.
+   */
+  public static boolean isCacheable(long position, int length) {
+    return length > 0 && length <= PAGE_SIZE && position % PAGE_SIZE + length <= PAGE_SIZE;
+  }
+
+  /**
+   * Read the range at the given position out of the cache into the remaining space of the given
+   * buffer, which will be flipped afterwards. Like a read from disk, the buffer will contain less
+   * data if the range reaches beyond the end of the file.
+   *
+   * @param position The position of the range.
+   * @param target The buffer to read into, the range it spans has to be cacheable.
+   * @return If the page was cached, otherwise the buffer is left untouched.
+   */
+  public boolean read(long position, ByteBuffer target) {
+    boolean cached = getStripe(position / PAGE_SIZE).read(position, target);
+
+    if (cached) {
+      hitCount.increment();
+    } else {
+      missCount.increment();
+    }
+
+    return cached;
+  }
+
+  /**
+   * Get the current write generation of the page that contains the given position. Has to be read
+   * before a page is read from disk.
+   *
+   * @param position The position.
+   * @return The generation.
+   */
+  public long getGeneration(long position) {
+    return getStripe(position / PAGE_SIZE).generation.get();
+  }
+
+  /**
+   * Cache a page read from disk, unless its stripe was written since the given generation.
+   *
+   * @param pagePosition The position of the page.
+   * @param page The content of the page, may be shorter than a page at the end of the file.
+   * @param generation The generation before the page was read.
+   */
+  public void fill(long pagePosition, ByteBuffer page, long generation) {
+    getStripe(pagePosition / PAGE_SIZE).fill(pagePosition, page, generation);
+  }
+
+  /**
+   * Apply a write to all cached pages it touches. Has to be called before the write is issued and
+   * once more when it completed, as pages may be filled with the old content in between.
+   *
+   * @param position The position of the write.
+   * @param content The written content, its position won't be changed.
+   */
+  public void write(long position, ByteBuffer content) {
+    long offset = 0;
+    while (offset < content.remaining()) {
+      long pagePosition = getPagePosition(position + offset);
+      int length = (int) Math.min(content.remaining() - offset,
+          pagePosition + PAGE_SIZE - position - offset);
+
+      ByteBuffer part = content.duplicate();
+      part.position(content.position() + (int) offset);
+      part.limit(part.position() + length);
+      getStripe(pagePosition / PAGE_SIZE).write(position + offset, part);
+
+      offset += length;
+    }
+  }
+
+  /**
+   * Drop all cached pages.
+   */
+  public void invalidateAll() {
+    for (Stripe stripe : stripes) {
+      stripe.invalidateAll();
+    }
+  }
+
+  /**
+   * Get the amount of reads that were answered by the cache.
+   *
+   * @return The hit count.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Get the amount of reads that had to go to disk.
+   *
+   * @return The miss count.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  private Stripe getStripe(long pageNumber) {
+    int hash = (int) (pageNumber ^ (pageNumber >>> 32)) * 0x9E3779B9;
+    return stripes[(hash >>> 16) & (STRIPE_COUNT - 1)];
+  }
+
+  /**
+   * One stripe of the cache with its own arena and lock.
+   */
+  private static final class Stripe {
+
+    private final ByteBuffer arena;
+    private final IndexMap frames;
+    private final int[] framePageNumbers;
+    private final int[] frameLengths;
+    private final boolean[] referenced;
+    private final AtomicLong generation = new AtomicLong();
+    private int hand;
+
+    Stripe(int frameCount) {
+      arena = ByteBuffer.allocateDirect(frameCount * PAGE_SIZE);
+      frames = new IndexMap(frameCount, false);
+      framePageNumbers = new int[frameCount];
+      frameLengths = new int[frameCount];
+      referenced = new boolean[frameCount];
+      Arrays.fill(framePageNumbers, -1);
+    }
+
+    synchronized boolean read(long position, ByteBuffer target) {
+      int frame = frames.get(toPageNumber(position));
+      if (frame == IndexMap.NO_VALUE) {
+        return false;
+      }
+
+      referenced[frame] = true;
+      int pageOffset = (int) (position % PAGE_SIZE);
+      int available = Math.max(0, Math.min(target.remaining(), frameLengths[frame] - pageOffset));
+
+      ByteBuffer source = arena.duplicate();
+      source.position(frame * PAGE_SIZE + pageOffset);
+      source.limit(source.position() + available);
+      target.put(source);
+      target.flip();
+      return true;
+    }
+
+    synchronized void fill(long pagePosition, ByteBuffer page, long expectedGeneration) {
+      if (generation.get() != expectedGeneration) {
+        return;
+      }
+
+      int pageNumber = toPageNumber(pagePosition);
+      int frame = frames.get(pageNumber);
+      if (frame == IndexMap.NO_VALUE) {
+        frame = evict();
+        frames.put(pageNumber, frame);
+        framePageNumbers[frame] = pageNumber;
+      }
+
+      ByteBuffer target = arena.duplicate();
+      target.position(frame * PAGE_SIZE);
+      target.put(page.duplicate());
+      frameLengths[frame] = page.remaining();
+      referenced[frame] = true;
+    }
+
+    synchronized void write(long position, ByteBuffer content) {
+      generation.incrementAndGet();
+
+      int frame = frames.get(toPageNumber(position));
+      if (frame == IndexMap.NO_VALUE) {
+        return;
+      }
+
+      int pageOffset = (int) (position % PAGE_SIZE);
+      if (pageOffset > frameLengths[frame]) {
+        // The write leaves a gap behind the cached content whose content we don't know.
+        frames.remove(framePageNumbers[frame]);
+        framePageNumbers[frame] = -1;
+        return;
+      }
+
+      ByteBuffer target = arena.duplicate();
+      target.position(frame * PAGE_SIZE + pageOffset);
+      target.put(content.duplicate());
+      frameLengths[frame] = Math.max(frameLengths[frame], pageOffset + content.remaining());
+    }
+
+    synchronized void invalidateAll() {
+      generation.incrementAndGet();
+      frames.clear();
+      Arrays.fill(framePageNumbers, -1);
+      Arrays.fill(referenced, false);
+    }
+
+    /**
+     * Move the clock hand to the next frame that wasn't referenced since the last round and free
+     * it.
+     */
+    private int evict() {
+      while (true) {
+        int frame = hand;
+        hand = (hand + 1) % framePageNumbers.length;
+
+        int pageNumber = framePageNumbers[frame];
+        if (pageNumber != -1 && referenced[frame]) {
+          referenced[frame] = false;
+          continue;
+        }
+
+        if (pageNumber != -1) {
+          frames.remove(pageNumber);
+          framePageNumbers[frame] = -1;
+        }
+        return frame;
+      }
+    }
+
+    private static int toPageNumber(long position) {
+      return Math.toIntExact(position / PAGE_SIZE);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package io.electra.core.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The highest cache, it holds the values of recently and frequently read key hashes so reads of
+ * hot keys never touch the data storage. Its size is bounded by the total bytes of the cached
+ * values and it admits and evicts values based on their access frequency (W-TinyLFU), so a burst of
+ * one time reads can't flush the hot keys.
+ *
+ * <p>Values read from disk may only be cached if no write to their key happened while they were
+ * read. Every key belongs to one of a fixed amount of generation counters that writes increment,
+ * a read caches its value only if the generation of its key did not change in the meantime.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class DataCache {
+
+  /**
+   * The estimated memory overhead of one entry in bytes, so small values are not weighed for free.
+   */
+  private static final int ENTRY_OVERHEAD = 64;
+
+  /**
+   * The amount of generation counters, has to be a power of two.
+   */
+  private static final int GENERATION_COUNT = 1024;
+
+  /**
+   * The cached values keyed by their key hash.
+   */
+  private final Cache<Integer, byte[]> cache;
+
+  /**
+   * The write generations of the keys.
+   */
+  private final AtomicLongArray generations = new AtomicLongArray(GENERATION_COUNT);
+
+  /**
+   * Create a new data cache.
+   *
+   * @param maximumSize The maximum total size of all cached values in bytes.
+   */
+  public DataCache(long maximumSize) {
+    cache = Caffeine.newBuilder()
+        .maximumWeight(maximumSize)
+        .weigher((Integer keyHash, byte[] value) -> ENTRY_OVERHEAD + value.length)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Get the cached value of the given key hash. The returned array is owned by the caller.
+   *
+   * @param keyHash The hash of the key.
+   * @return The value or null if it isn't cached.
+   */
+  public byte[] get(int keyHash) {
+    byte[] value = cache.getIfPresent(keyHash);
+    return value == null ? null : value.clone();
+  }
+
+  /**
+   * Get the current write generation of the given key hash. Has to be read before the value is
+   * read from disk.
+   *
+   * @param keyHash The hash of the key.
+   * @return The generation.
+   */
+  public long getGeneration(int keyHash) {
+    return generations.get(getGenerationIndex(keyHash));
+  }
+
+  /**
+   * Cache the given value read from disk, unless the key hash was written since the given
+   * generation was read.
+   *
+   * @param keyHash The hash of the key.
+   * @param value The value, it must not be modified afterwards.
+   * @param generation The generation of the key before the value was read.
+   */
+  public void put(int keyHash, byte[] value, long generation) {
+    cache.asMap().compute(keyHash, (key, currentValue) ->
+        getGeneration(keyHash) == generation ? value : currentValue);
+  }
+
+  /**
+   * Drop the cached value of the given key hash, has to be called for every write to it.
+   *
+   * @param keyHash The hash of the key.
+   */
+  public void invalidate(int keyHash) {
+    cache.asMap().compute(keyHash, (key, currentValue) -> {
+      generations.incrementAndGet(getGenerationIndex(keyHash));
+      return null;
+    });
+  }
+
+  /**
+   * Drop all cached values.
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Get the amount of reads that were answered by the cache.
+   *
+   * @return The hit count.
+   */
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  /**
+   * Get the amount of reads that had to go to the data storage.
+   *
+   * @return The miss count.
+   */
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  /**
+   * Get the total weight of all cached values, after pending evictions were performed.
+   *
+   * @return The weighted size in bytes.
+   */
+  long getWeightedSize() {
+    cache.cleanUp();
+    return cache.policy().eviction().orElseThrow().weightedSize().orElse(0);
+  }
+
+  private static int getGenerationIndex(int keyHash) {
+    return (keyHash ^ (keyHash >>> 16)) & (GENERATION_COUNT - 1);
+  }
+}
@@ -0,0 +1,523 @@
+package io.electra.core.configuration;
+
+import io.electra.core.filesystem.FileSystemAccessorType;
+import io.electra.core.filesystem.IoExecutor;
+import io.electra.core.metrics.Metrics;
+
+/**
+ * Holds all tunable settings of a database. Every setting has a sane default, so a fresh instance
+ * can be used as is.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class ElectraConfiguration {
+
+  /**
+   * The default size of one memory mapped file segment.
+   */
+  public static final int DEFAULT_MEMORY_MAPPED_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The default amount of keys the index map is sized for initially.
+   */
+  public static final int DEFAULT_EXPECTED_KEY_COUNT = 1024;
+
+  /**
+   * The default size of the write ahead log that triggers a checkpoint.
+   */
+  public static final long DEFAULT_WRITE_AHEAD_LOG_CHECKPOINT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * The default maximum total size of all values in the data cache.
+   */
+  public static final long DEFAULT_DATA_CACHE_SIZE = 32 * 1024 * 1024;
+
+  /**
+   * The default maximum size of all pages in the block cache.
+   */
+  public static final long DEFAULT_BLOCK_CACHE_SIZE = 8 * 1024 * 1024;
+
+  /**
+   * The default amount of bytes the compactor moves per second.
+   */
+  public static final long DEFAULT_COMPACTION_RATE = 8 * 1024 * 1024;
+
+  /**
+   * The default amount of index writes after which a new index snapshot is taken.
+   */
+  public static final long DEFAULT_INDEX_SNAPSHOT_TAIL_LENGTH = 1024 * 1024;
+
+  /**
+   * The default maximum amount of threads that run file operations at once.
+   */
+  public static final int DEFAULT_IO_THREAD_COUNT =
+      Math.max(4, Runtime.getRuntime().availableProcessors());
+
+  /**
+   * The strategy used to access the data and index files.
+   */
+  private FileSystemAccessorType fileSystemAccessorType =
+      FileSystemAccessorType.ASYNCHRONOUS_FILE_CHANNEL;
+
+  /**
+   * The size of one memory mapped file segment in bytes.
+   */
+  private int memoryMappedSegmentSize = DEFAULT_MEMORY_MAPPED_SEGMENT_SIZE;
+
+  /**
+   * The amount of keys the index map is sized for initially.
+   */
+  private int expectedKeyCount = DEFAULT_EXPECTED_KEY_COUNT;
+
+  /**
+   * If the index map should be allocated off heap.
+   */
+  private boolean offHeapIndexMap;
+
+  /**
+   * If modifying operations are recorded in a write ahead log.
+   */
+  private boolean writeAheadLogEnabled = true;
+
+  /**
+   * The size of the write ahead log in bytes that triggers a checkpoint.
+   */
+  private long writeAheadLogCheckpointSize = DEFAULT_WRITE_AHEAD_LOG_CHECKPOINT_SIZE;
+
+  /**
+   * The amount of independent shards the key hash space is partitioned into.
+   */
+  private int shardCount = 1;
+
+  /**
+   * The maximum total size of all values in the data cache in bytes.
+   */
+  private long dataCacheSize = DEFAULT_DATA_CACHE_SIZE;
+
+  /**
+   * The maximum size of all pages in the block cache in bytes.
+   */
+  private long blockCacheSize = DEFAULT_BLOCK_CACHE_SIZE;
+
+  /**
+   * The metrics the storages record into.
+   */
+  private Metrics metrics = new Metrics();
+
+  /**
+   * The delay between two background compaction passes in milliseconds, 0 disables them.
+   */
+  private long compactionInterval;
+
+  /**
+   * The maximum amount of bytes the compactor moves per second.
+   */
+  private long compactionRate = DEFAULT_COMPACTION_RATE;
+
+  /**
+   * If the indices are loaded from a snapshot instead of scanning the index file.
+   */
+  private boolean indexSnapshotEnabled = true;
+
+  /**
+   * The amount of index writes after which a new index snapshot is taken.
+   */
+  private long indexSnapshotTailLength = DEFAULT_INDEX_SNAPSHOT_TAIL_LENGTH;
+
+  /**
+   * The maximum amount of threads that run file operations at once, 0 uses the JVM's default
+   * pool.
+   */
+  private int ioThreadCount = DEFAULT_IO_THREAD_COUNT;
+
+  /**
+   * The executor the asynchronous file channels run on, created on first use if it wasn't set.
+   */
+  private IoExecutor ioExecutor;
+
+  /**
+   * If every operation runs on a virtual thread of its own.
+   */
+  private boolean virtualThreadsEnabled;
+
+  /**
+   * Get the strategy used to access the data and index files.
+   *
+   * @return The file system accessor type.
+   */
+  public FileSystemAccessorType getFileSystemAccessorType() {
+    return fileSystemAccessorType;
+  }
+
+  /**
+   * Set the strategy used to access the data and index files.
+   *
+   * @param fileSystemAccessorType The file system accessor type.
+   */
+  public void setFileSystemAccessorType(FileSystemAccessorType fileSystemAccessorType) {
+    this.fileSystemAccessorType = fileSystemAccessorType;
+  }
+
+  /**
+   * Get the size of one memory mapped file segment in bytes.
+   *
+   * @return The segment size.
+   */
+  public int getMemoryMappedSegmentSize() {
+    return memoryMappedSegmentSize;
+  }
+
+  /**
+   * Set the size of one memory mapped file segment in bytes.
+   *
+   * @param memoryMappedSegmentSize The segment size.
+   */
+  public void setMemoryMappedSegmentSize(int memoryMappedSegmentSize) {
+    if (memoryMappedSegmentSize <= 0) {
+      throw new IllegalArgumentException("Segment size has to be positive.");
+    }
+
+    this.memoryMappedSegmentSize = memoryMappedSegmentSize;
+  }
+
+  /**
+   * Get the amount of keys the index map is sized for initially.
+   *
+   * @return The expected key count.
+   */
+  public int getExpectedKeyCount() {
+    return expectedKeyCount;
+  }
+
+  /**
+   * Set the amount of keys the index map is sized for initially. Sizing the map up front avoids
+   * growing it while the indices are loaded.
+   *
+   * @param expectedKeyCount The expected key count.
+   */
+  public void setExpectedKeyCount(int expectedKeyCount) {
+    if (expectedKeyCount < 0) {
+      throw new IllegalArgumentException("Expected key count can't be negative.");
+    }
+
+    this.expectedKeyCount = expectedKeyCount;
+  }
+
+  /**
+   * Check if the index map should be allocated off heap.
+   *
+   * @return If the index map is off heap.
+   */
+  public boolean isOffHeapIndexMap() {
+    return offHeapIndexMap;
+  }
+
+  /**
+   * Set if the index map should be allocated off heap.
+   *
+   * @param offHeapIndexMap If the index map is off heap.
+   */
+  public void setOffHeapIndexMap(boolean offHeapIndexMap) {
+    this.offHeapIndexMap = offHeapIndexMap;
+  }
+
+  /**
+   * Check if modifying operations are recorded in a write ahead log.
+   *
+   * @return If the write ahead log is enabled.
+   */
+  public boolean isWriteAheadLogEnabled() {
+    return writeAheadLogEnabled;
+  }
+
+  /**
+   * Set if modifying operations are recorded in a write ahead log. Without it, operations that
+   * were in flight during a crash may be lost or leave dangling indices.
+   *
+   * @param writeAheadLogEnabled If the write ahead log is enabled.
+   */
+  public void setWriteAheadLogEnabled(boolean writeAheadLogEnabled) {
+    this.writeAheadLogEnabled = writeAheadLogEnabled;
+  }
+
+  /**
+   * Get the size of the write ahead log in bytes that triggers a checkpoint.
+   *
+   * @return The checkpoint size.
+   */
+  public long getWriteAheadLogCheckpointSize() {
+    return writeAheadLogCheckpointSize;
+  }
+
+  /**
+   * Set the size of the write ahead log in bytes that triggers a checkpoint. A checkpoint syncs
+   * the data and index files and truncates the log.
+   *
+   * @param writeAheadLogCheckpointSize The checkpoint size.
+   */
+  public void setWriteAheadLogCheckpointSize(long writeAheadLogCheckpointSize) {
+    if (writeAheadLogCheckpointSize <= 0) {
+      throw new IllegalArgumentException("Checkpoint size has to be positive.");
+    }
+
+    this.writeAheadLogCheckpointSize = writeAheadLogCheckpointSize;
+  }
+
+  /**
+   * Get the amount of independent shards the key hash space is partitioned into.
+   *
+   * @return The shard count.
+   */
+  public int getShardCount() {
+    return shardCount;
+  }
+
+  /**
+   * Set the amount of independent shards the key hash space is partitioned into. Every shard has
+   * its own files, allocator and write ahead log. The shard count of a database can't be changed
+   * once it was created.
+   *
+   * @param shardCount The shard count.
+   */
+  public void setShardCount(int shardCount) {
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Shard count has to be positive.");
+    }
+
+    this.shardCount = shardCount;
+  }
+
+  /**
+   * Get the maximum total size of all values in the data cache in bytes.
+   *
+   * @return The data cache size.
+   */
+  public long getDataCacheSize() {
+    return dataCacheSize;
+  }
+
+  /**
+   * Set the maximum total size of all values in the data cache in bytes. Every shard has its own
+   * data cache of this size, 0 disables the cache.
+   *
+   * @param dataCacheSize The data cache size.
+   */
+  public void setDataCacheSize(long dataCacheSize) {
+    if (dataCacheSize < 0) {
+      throw new IllegalArgumentException("Data cache size can't be negative.");
+    }
+
+    this.dataCacheSize = dataCacheSize;
+  }
+
+  /**
+   * Get the maximum size of all pages in the block cache in bytes.
+   *
+   * @return The block cache size.
+   */
+  public long getBlockCacheSize() {
+    return blockCacheSize;
+  }
+
+  /**
+   * Set the maximum size of all pages in the block cache in bytes. The block cache is allocated
+   * off heap and not used for memory mapped access, 0 disables it.
+   *
+   * @param blockCacheSize The block cache size.
+   */
+  public void setBlockCacheSize(long blockCacheSize) {
+    if (blockCacheSize < 0) {
+      throw new IllegalArgumentException("Block cache size can't be negative.");
+    }
+
+    this.blockCacheSize = blockCacheSize;
+  }
+
+  /**
+   * Get the metrics the storages record into.
+   *
+   * @return The metrics.
+   */
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Set the metrics the storages record into. All shards of a database share these metrics, as do
+   * databases opened with the same configuration.
+   *
+   * @param metrics The metrics.
+   */
+  public void setMetrics(Metrics metrics) {
+    if (metrics == null) {
+      throw new IllegalArgumentException("Metrics can't be null.");
+    }
+
+    this.metrics = metrics;
+  }
+
+  /**
+   * Get the delay between two background compaction passes in milliseconds.
+   *
+   * @return The compaction interval or 0 if there is no background compaction.
+   */
+  public long getCompactionInterval() {
+    return compactionInterval;
+  }
+
+  /**
+   * Set the delay between two background compaction passes in milliseconds. A pass moves
+   * fragmented records into contiguous runs and records at the end of the data file into free
+   * runs before them, then cuts the free blocks at the end of the file off. 0 disables background
+   * compaction, passes can still be run explicitly.
+   *
+   * @param compactionInterval The compaction interval.
+   */
+  public void setCompactionInterval(long compactionInterval) {
+    if (compactionInterval < 0) {
+      throw new IllegalArgumentException("Compaction interval can't be negative.");
+    }
+
+    this.compactionInterval = compactionInterval;
+  }
+
+  /**
+   * Get the maximum amount of bytes the compactor moves per second.
+   *
+   * @return The compaction rate.
+   */
+  public long getCompactionRate() {
+    return compactionRate;
+  }
+
+  /**
+   * Set the maximum amount of bytes the compactor moves per second. Every move blocks modifying
+   * operations of its shard for a moment, the rate keeps the compactor from starving them.
+   *
+   * @param compactionRate The compaction rate.
+   */
+  public void setCompactionRate(long compactionRate) {
+    if (compactionRate <= 0) {
+      throw new IllegalArgumentException("Compaction rate has to be positive.");
+    }
+
+    this.compactionRate = compactionRate;
+  }
+
+  /**
+   * Check if the indices are loaded from a snapshot instead of scanning the index file.
+   *
+   * @return If index snapshots are enabled.
+   */
+  public boolean isIndexSnapshotEnabled() {
+    return indexSnapshotEnabled;
+  }
+
+  /**
+   * Set if the indices are loaded from a snapshot instead of scanning the index file. The
+   * snapshot holds the in memory index tables as they are and a tail of the index writes since
+   * it was taken, so opening takes time in the length of the tail instead of the amount of keys.
+   *
+   * @param indexSnapshotEnabled If index snapshots are enabled.
+   */
+  public void setIndexSnapshotEnabled(boolean indexSnapshotEnabled) {
+    this.indexSnapshotEnabled = indexSnapshotEnabled;
+  }
+
+  /**
+   * Get the amount of index writes after which a new index snapshot is taken.
+   *
+   * @return The maximum tail length.
+   */
+  public long getIndexSnapshotTailLength() {
+    return indexSnapshotTailLength;
+  }
+
+  /**
+   * Set the amount of index writes after which a new index snapshot is taken. Snapshots are taken
+   * by checkpoints, which block modifying operations while the index tables are written.
+   *
+   * @param indexSnapshotTailLength The maximum tail length.
+   */
+  public void setIndexSnapshotTailLength(long indexSnapshotTailLength) {
+    if (indexSnapshotTailLength <= 0) {
+      throw new IllegalArgumentException("Index snapshot tail length has to be positive.");
+    }
+
+    this.indexSnapshotTailLength = indexSnapshotTailLength;
+  }
+
+  /**
+   * Get the maximum amount of threads that run file operations at once.
+   *
+   * @return The I/O thread count or 0 if the JVM's default pool is used.
+   */
+  public int getIoThreadCount() {
+    return ioThreadCount;
+  }
+
+  /**
+   * Set the maximum amount of threads that run file operations at once. The threads run the reads
+   * and writes of the asynchronous file channels and everything that is done once they complete,
+   * so the count bounds the amount of operations the disks see at once. Operations beyond it are
+   * queued, {@link IoExecutor#getQueueDepth()} tells how many. 0 uses the JVM's default pool,
+   * which grows without bound. The count is ignored once the executor was created or set.
+   *
+   * @param ioThreadCount The I/O thread count.
+   */
+  public synchronized void setIoThreadCount(int ioThreadCount) {
+    if (ioThreadCount < 0) {
+      throw new IllegalArgumentException("I/O thread count can't be negative.");
+    }
+
+    this.ioThreadCount = ioThreadCount;
+  }
+
+  /**
+   * Get the executor the asynchronous file channels run on. Unless one was set, all databases
+   * opened with this configuration share one that is created on the first call.
+   *
+   * @return The executor or null if the JVM's default pool is used.
+   */
+  public synchronized IoExecutor getIoExecutor() {
+    if (ioExecutor == null && ioThreadCount > 0) {
+      ioExecutor = new IoExecutor(ioThreadCount);
+    }
+
+    return ioExecutor;
+  }
+
+  /**
+   * Set the executor the asynchronous file channels run on. Setting the same executor on multiple
+   * configurations makes their databases share one pool of I/O threads.
+   *
+   * @param ioExecutor The executor.
+   */
+  public synchronized void setIoExecutor(IoExecutor ioExecutor) {
+    if (ioExecutor == null) {
+      throw new IllegalArgumentException("I/O executor can't be null.");
+    }
+
+    this.ioExecutor = ioExecutor;
+  }
+
+  /**
+   * Check if every operation runs on a virtual thread of its own.
+   *
+   * @return If virtual threads are enabled.
+   */
+  public boolean isVirtualThreadsEnabled() {
+    return virtualThreadsEnabled;
+  }
+
+  /**
+   * Set if every operation runs on a virtual thread of its own. This requires Java 21 or newer and
+   * is meant to be combined with {@link FileSystemAccessorType#FILE_CHANNEL}, so the operations do
+   * their blocking file work on their virtual threads.
+   *
+   * @param virtualThreadsEnabled If virtual threads are enabled.
+   */
+  public void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+    this.virtualThreadsEnabled = virtualThreadsEnabled;
+  }
+}
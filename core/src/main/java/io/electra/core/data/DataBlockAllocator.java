@@ -0,0 +1,221 @@
+package io.electra.core.data;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps track of all free data blocks in memory, so blocks can be handed out without reading any
+ * block header from disk. Free blocks inside the file are held as runs of contiguous blocks, every
+ * block at or behind the end of file block index is free as well.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class DataBlockAllocator {
+
+  /**
+   * The free runs inside the file, mapped from their first block index to their length.
+   */
+  private final NavigableMap<Integer, Integer> freeRuns = new TreeMap<>();
+
+  /**
+   * The index of the first block behind the last used block.
+   */
+  private int endOfFileBlockIndex;
+
+  /**
+   * The amount of free blocks inside the file.
+   */
+  private long freeBlockCount;
+
+  /**
+   * Create a new allocator.
+   *
+   * @param endOfFileBlockIndex The index of the first block behind the last used block.
+   */
+  public DataBlockAllocator(int endOfFileBlockIndex) {
+    this.endOfFileBlockIndex = endOfFileBlockIndex;
+  }
+
+  /**
+   * Allocate the given amount of contiguous blocks. The first free run that is big enough will be
+   * used, if there is none the blocks will be taken from the end of the file.
+   *
+   * @param blockCount The amount of blocks.
+   * @return The index of the first allocated block.
+   */
+  public synchronized int allocateContiguous(int blockCount) {
+    checkBlockCount(blockCount);
+
+    for (Map.Entry<Integer, Integer> freeRun : freeRuns.entrySet()) {
+      if (freeRun.getValue() >= blockCount) {
+        int blockIndex = freeRun.getKey();
+        takeFromRun(blockIndex, freeRun.getValue(), blockCount);
+        return blockIndex;
+      }
+    }
+
+    int blockIndex = endOfFileBlockIndex;
+    endOfFileBlockIndex += blockCount;
+    return blockIndex;
+  }
+
+  /**
+   * Allocate the given amount of blocks regardless of whether they are contiguous. Free runs are
+   * used in ascending order before blocks get taken from the end of the file.
+   *
+   * @param blockCount The amount of blocks.
+   * @return The indices of the allocated blocks in ascending order.
+   */
+  public synchronized int[] allocate(int blockCount) {
+    checkBlockCount(blockCount);
+
+    int[] blockIndices = new int[blockCount];
+    int allocated = 0;
+
+    Iterator<Map.Entry<Integer, Integer>> iterator = freeRuns.entrySet().iterator();
+    while (allocated < blockCount && iterator.hasNext()) {
+      Map.Entry<Integer, Integer> freeRun = iterator.next();
+      int taken = Math.min(freeRun.getValue(), blockCount - allocated);
+
+      for (int i = 0; i < taken; i++) {
+        blockIndices[allocated++] = freeRun.getKey() + i;
+      }
+
+      iterator.remove();
+      freeBlockCount -= freeRun.getValue();
+      if (taken < freeRun.getValue()) {
+        addRun(freeRun.getKey() + taken, freeRun.getValue() - taken);
+        break;
+      }
+    }
+
+    while (allocated < blockCount) {
+      blockIndices[allocated++] = endOfFileBlockIndex++;
+    }
+
+    return blockIndices;
+  }
+
+  /**
+   * Give the given contiguous blocks back. Adjacent free runs are merged, runs reaching the end of
+   * the file will shrink it.
+   *
+   * @param blockIndex The index of the first block.
+   * @param blockCount The amount of blocks.
+   * @throws IllegalStateException If any of the blocks is free already.
+   */
+  public synchronized void free(int blockIndex, int blockCount) {
+    checkBlockCount(blockCount);
+
+    int start = blockIndex;
+    int length = blockCount;
+
+    Map.Entry<Integer, Integer> floor = freeRuns.floorEntry(start);
+    if (floor != null && floor.getKey() + floor.getValue() > start) {
+      throw new IllegalStateException("Tried to free block " + start + " which is already free.");
+    }
+
+    Integer ceiling = freeRuns.ceilingKey(start);
+    if (ceiling != null && ceiling < start + blockCount) {
+      throw new IllegalStateException("Tried to free block " + ceiling
+          + " which is already free.");
+    }
+
+    if (floor != null && floor.getKey() + floor.getValue() == start) {
+      removeRun(floor.getKey());
+      start = floor.getKey();
+      length += floor.getValue();
+    }
+
+    Integer higherLength = freeRuns.get(blockIndex + blockCount);
+    if (higherLength != null) {
+      removeRun(blockIndex + blockCount);
+      length += higherLength;
+    }
+
+    if (start + length >= endOfFileBlockIndex) {
+      endOfFileBlockIndex = Math.min(endOfFileBlockIndex, start);
+      return;
+    }
+
+    addRun(start, length);
+  }
+
+  /**
+   * Check if there is a free run of at least the given amount of blocks that begins before the
+   * given block.
+   *
+   * @param blockCount The amount of blocks.
+   * @param blockIndex The block the run has to begin before.
+   * @return If there is such a run.
+   */
+  public synchronized boolean hasFreeRun(int blockCount, int blockIndex) {
+    for (int runLength : freeRuns.headMap(blockIndex).values()) {
+      if (runLength >= blockCount) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Get the index of the first block behind the last used block.
+   *
+   * @return The end of file block index.
+   */
+  public synchronized int getEndOfFileBlockIndex() {
+    return endOfFileBlockIndex;
+  }
+
+  /**
+   * Get the amount of free blocks inside the file.
+   *
+   * @return The amount of free blocks.
+   */
+  public synchronized long getFreeBlockCount() {
+    return freeBlockCount;
+  }
+
+  /**
+   * Get a copy of all free runs inside the file, mapped from their first block index to their
+   * length.
+   *
+   * @return The free runs.
+   */
+  public synchronized NavigableMap<Integer, Integer> getFreeRuns() {
+    return new TreeMap<>(freeRuns);
+  }
+
+  /**
+   * Take the given amount of blocks from the start of the given free run.
+   *
+   * @param blockIndex The first block of the run.
+   * @param runLength The length of the run.
+   * @param blockCount The amount of blocks to take.
+   */
+  private void takeFromRun(int blockIndex, int runLength, int blockCount) {
+    removeRun(blockIndex);
+
+    if (runLength > blockCount) {
+      addRun(blockIndex + blockCount, runLength - blockCount);
+    }
+  }
+
+  private void addRun(int blockIndex, int blockCount) {
+    freeRuns.put(blockIndex, blockCount);
+    freeBlockCount += blockCount;
+  }
+
+  private void removeRun(int blockIndex) {
+    freeBlockCount -= freeRuns.remove(blockIndex);
+  }
+
+  private void checkBlockCount(int blockCount) {
+    if (blockCount <= 0) {
+      throw new IllegalArgumentException("Block count has to be positive.");
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package io.electra.core.data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Holds back freed data blocks until every reader that could still see them is done. Readers
+ * enter the current epoch before they look up an index and exit it once they read the data. A
+ * free is tagged with the current epoch, which is closed at the same time, and runs once all
+ * readers of that epoch and of every earlier one exited. Readers that entered later can't reach
+ * the freed blocks anymore, so they never hold a free back.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class DataBlockReclaimer {
+
+  /**
+   * The epochs that still have readers or frees, the oldest first. The last one is the current
+   * epoch new readers enter.
+   */
+  private final Deque<Epoch> epochs = new ArrayDeque<>();
+
+  public DataBlockReclaimer() {
+    epochs.add(new Epoch());
+  }
+
+  /**
+   * Enter the current epoch as a reader. Every call has to be followed by exactly one call of
+   * {@link #exit(Epoch)} once the reader is done.
+   *
+   * @return The epoch the reader entered.
+   */
+  public synchronized Epoch enter() {
+    Epoch epoch = epochs.getLast();
+    epoch.readerCount++;
+    return epoch;
+  }
+
+  /**
+   * Exit the given epoch as a reader and run all frees that don't have to wait anymore.
+   *
+   * @param epoch The epoch the reader entered.
+   */
+  public void exit(Epoch epoch) {
+    List<Runnable> frees;
+    synchronized (this) {
+      epoch.readerCount--;
+      frees = collectReclaimable();
+    }
+
+    frees.forEach(Runnable::run);
+  }
+
+  /**
+   * Run the given free once all readers that are active right now are done. It runs right away
+   * if there are none.
+   *
+   * @param free The free.
+   */
+  public void retire(Runnable free) {
+    synchronized (this) {
+      Epoch epoch = epochs.getLast();
+      if (epochs.size() > 1 || epoch.readerCount > 0) {
+        epoch.frees.add(free);
+        epochs.add(new Epoch());
+        return;
+      }
+    }
+
+    free.run();
+  }
+
+  /**
+   * Run all frees that are held back, no matter if their readers are done. Only used once all
+   * readers are known to be gone.
+   */
+  public void reclaimAll() {
+    List<Runnable> frees = new ArrayList<>();
+    synchronized (this) {
+      for (Epoch epoch : epochs) {
+        frees.addAll(epoch.frees);
+        epoch.frees.clear();
+      }
+
+      Epoch current = epochs.getLast();
+      epochs.clear();
+      epochs.add(current);
+    }
+
+    frees.forEach(Runnable::run);
+  }
+
+  /**
+   * Get the amount of readers that are active right now.
+   *
+   * @return The amount of active readers.
+   */
+  public synchronized int getActiveReaderCount() {
+    int readerCount = 0;
+    for (Epoch epoch : epochs) {
+      readerCount += epoch.readerCount;
+    }
+
+    return readerCount;
+  }
+
+  /**
+   * Get the amount of frees that are held back by active readers.
+   *
+   * @return The amount of pending frees.
+   */
+  public synchronized int getPendingFreeCount() {
+    int freeCount = 0;
+    for (Epoch epoch : epochs) {
+      freeCount += epoch.frees.size();
+    }
+
+    return freeCount;
+  }
+
+  /**
+   * Remove all closed epochs at the head that have no readers left.
+   *
+   * @return The frees of the removed epochs.
+   */
+  private List<Runnable> collectReclaimable() {
+    List<Runnable> frees = Collections.emptyList();
+    while (epochs.size() > 1 && epochs.getFirst().readerCount == 0) {
+      if (frees.isEmpty()) {
+        frees = new ArrayList<>();
+      }
+      frees.addAll(epochs.removeFirst().frees);
+    }
+
+    return frees;
+  }
+
+  /**
+   * The readers that entered and the frees that were retired between two frees.
+   */
+  public static final class Epoch {
+
+    /**
+     * The amount of readers of this epoch that are still active.
+     */
+    private int readerCount;
+
+    /**
+     * The frees that wait for the readers of this and all earlier epochs.
+     */
+    private final List<Runnable> frees = new ArrayList<>();
+
+    private Epoch() {
+    }
+  }
+}
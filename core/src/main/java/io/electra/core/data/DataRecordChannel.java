@@ -0,0 +1,265 @@
+package io.electra.core.data;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.electra.core.exception.MalformedHeaderException;
+import io.electra.core.model.DataBlock;
+import io.electra.core.model.DataBlockHeader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A channel that streams the content of a data record. The data blocks are read lazily in chunks
+ * of a fixed size with a bounded amount of reads in flight, so the memory used by one channel
+ * doesn't depend on the size of the record.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DataRecordChannel implements ReadableByteChannel {
+
+  /**
+   * The maximum amount of content bytes fetched by one read.
+   */
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The maximum amount of reads in flight.
+   */
+  static final int READAHEAD = 2;
+
+  /**
+   * The data storage we read from.
+   */
+  private final DataStorageImpl dataStorage;
+
+  /**
+   * The reads in flight in the order of their content.
+   */
+  private final Deque<PendingRead> pendingReads = new ArrayDeque<>(READAHEAD);
+
+  /**
+   * The index of the next data block whose header has to be read or -1.
+   */
+  private int nextDataBlockIndex;
+
+  /**
+   * If a header is in flight, the data block following it isn't known until it completed.
+   */
+  private boolean headerPending;
+
+  /**
+   * The position of the content of the current data block that hasn't been requested yet.
+   */
+  private long contentPosition;
+
+  /**
+   * The amount of content of the current data block that hasn't been requested yet.
+   */
+  private int remainingContentLength;
+
+  /**
+   * The amount of data blocks visited, to detect chains running in a circle.
+   */
+  private int dataBlockCount;
+
+  /**
+   * The content that is currently consumed or null.
+   */
+  private ByteBuffer currentBuffer;
+
+  /**
+   * The content of the current buffer that hasn't been consumed yet.
+   */
+  private ByteBuffer currentContent;
+
+  /**
+   * If the channel is open.
+   */
+  private boolean open = true;
+
+  /**
+   * Create a new channel streaming the data record beginning at the given data block.
+   *
+   * @param dataStorage The data storage.
+   * @param firstDataBlockIndex The index of the first data block.
+   */
+  DataRecordChannel(DataStorageImpl dataStorage, int firstDataBlockIndex) {
+    this.dataStorage = dataStorage;
+    this.nextDataBlockIndex = firstDataBlockIndex;
+    requestReads();
+  }
+
+  @Override
+  public synchronized int read(ByteBuffer target) throws IOException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+
+    while (currentContent == null || !currentContent.hasRemaining()) {
+      releaseCurrentBuffer();
+      requestReads();
+
+      PendingRead pendingRead = pendingReads.poll();
+      if (pendingRead == null) {
+        return -1;
+      }
+
+      consume(pendingRead);
+    }
+
+    int length = Math.min(target.remaining(), currentContent.remaining());
+    ByteBuffer content = currentContent.duplicate();
+    content.limit(content.position() + length);
+    target.put(content);
+    currentContent.position(currentContent.position() + length);
+    return length;
+  }
+
+  /**
+   * Issue reads until the readahead is exhausted or the rest of the record is unknown.
+   */
+  private void requestReads() {
+    while (pendingReads.size() < READAHEAD) {
+      if (remainingContentLength > 0) {
+        int length = Math.min(CHUNK_SIZE, remainingContentLength);
+        pendingReads.add(new PendingRead(dataStorage.read(contentPosition, length), length));
+        contentPosition += length;
+        remainingContentLength -= length;
+      } else if (nextDataBlockIndex != -1 && !headerPending) {
+        long position = (long) DataBlock.DATA_BLOCK_SIZE * nextDataBlockIndex;
+        pendingReads.add(new PendingRead(dataStorage.read(position, DataBlock.DATA_BLOCK_SIZE),
+            -1));
+        headerPending = true;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Wait for the given read and make its content the current one.
+   *
+   * @param pendingRead The read.
+   * @throws IOException If the read failed or the data is malformed.
+   */
+  private void consume(PendingRead pendingRead) throws IOException {
+    try {
+      currentBuffer = pendingRead.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new ClosedByInterruptException();
+    } catch (ExecutionException e) {
+      throw new IOException("Error while reading data", e.getCause());
+    }
+
+    currentContent = currentBuffer.duplicate();
+
+    if (pendingRead.length >= 0) {
+      if (currentContent.remaining() != pendingRead.length) {
+        throw new IOException("Data block ends behind the end of the data file.");
+      }
+      return;
+    }
+
+    consumeHeader();
+  }
+
+  /**
+   * Parse the header at the beginning of the current content and continue with the data block it
+   * describes.
+   *
+   * @throws IOException If the data block is malformed.
+   */
+  private void consumeHeader() throws IOException {
+    headerPending = false;
+    long position = (long) DataBlock.DATA_BLOCK_SIZE * nextDataBlockIndex;
+
+    DataBlockHeader dataBlockHeader;
+    try {
+      dataBlockHeader = DataBlockHeader.fromByteBuffer(currentContent);
+    } catch (MalformedHeaderException e) {
+      throw new IOException("Data block " + nextDataBlockIndex + " is not in use.", e);
+    }
+
+    int contentLength = dataBlockHeader.getContentLength();
+    int available = currentContent.remaining();
+    if (contentLength < 0 || contentLength > DataBlock.MAX_EXTENT_CONTENT_LENGTH
+        || (contentLength > available && available + DataBlockHeader.DATA_BLOCK_HEADER_SIZE
+        < DataBlock.DATA_BLOCK_SIZE)
+        || ++dataBlockCount > dataStorage.getDataBlockAllocator().getEndOfFileBlockIndex()) {
+      throw new IOException("Data block " + nextDataBlockIndex + " is not in use.");
+    }
+
+    currentContent.limit(currentContent.position() + Math.min(contentLength, available));
+    contentPosition = position + DataBlock.DATA_BLOCK_SIZE;
+    remainingContentLength = contentLength - currentContent.remaining();
+    nextDataBlockIndex = dataBlockHeader.getNextDataBlockIndex();
+  }
+
+  /**
+   * Hand the current buffer back to the data storage.
+   */
+  private void releaseCurrentBuffer() {
+    if (currentBuffer != null) {
+      dataStorage.release(currentBuffer);
+      currentBuffer = null;
+      currentContent = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!open) {
+      return;
+    }
+
+    open = false;
+    releaseCurrentBuffer();
+
+    // Reads can't be cancelled, their buffers are released once they completed.
+    for (PendingRead pendingRead : pendingReads) {
+      ListenableFuture<ByteBuffer> future = pendingRead.future;
+      future.addListener(() -> {
+        try {
+          dataStorage.release(future.get());
+        } catch (InterruptedException | ExecutionException ignored) {
+          // Failed reads have no buffer to release.
+        }
+      }, MoreExecutors.directExecutor());
+    }
+    pendingReads.clear();
+  }
+
+  /**
+   * A read in flight.
+   */
+  private static final class PendingRead {
+
+    /**
+     * The future of the read content.
+     */
+    private final ListenableFuture<ByteBuffer> future;
+
+    /**
+     * The amount of content bytes requested or -1 if the read starts with a data block header.
+     */
+    private final int length;
+
+    PendingRead(ListenableFuture<ByteBuffer> future, int length) {
+      this.future = future;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package io.electra.core.data;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.electra.core.model.DataBlock;
+import io.electra.core.model.DataBlockHeader;
+import io.electra.core.model.DataFileHeader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Writes a data record of unknown length from a channel. The content is read in chunks of a fixed
+ * size and written into extents that are allocated one after another, a bounded amount of chunks
+ * is in flight at once. The header of an extent is written once the following extent is known.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DataRecordWriter {
+
+  /**
+   * The amount of bytes read from the channel at once.
+   */
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The maximum amount of chunk and header writes in flight.
+   */
+  private static final int MAX_WRITES_IN_FLIGHT = 4;
+
+  /**
+   * The amount of blocks of the first extent, later extents double in size.
+   */
+  private static final int INITIAL_EXTENT_BLOCK_COUNT = 8 * 1024;
+
+  /**
+   * The data storage we write to.
+   */
+  private final DataStorageImpl dataStorage;
+
+  /**
+   * All extents allocated so far as pairs of their first block and their block count.
+   */
+  private final List<int[]> extents = new ArrayList<>();
+
+  /**
+   * The writes in flight in the order they were issued.
+   */
+  private final Deque<ListenableFuture<?>> writes = new ArrayDeque<>(MAX_WRITES_IN_FLIGHT + 1);
+
+  /**
+   * The amount of blocks of the next extent.
+   */
+  private int nextExtentBlockCount = INITIAL_EXTENT_BLOCK_COUNT;
+
+  /**
+   * The index of the first block of the current extent.
+   */
+  private int extentBlockIndex = -1;
+
+  /**
+   * The content capacity of the current extent.
+   */
+  private int extentCapacity;
+
+  /**
+   * The amount of content written into the current extent.
+   */
+  private int extentContentLength;
+
+  /**
+   * Create a new writer.
+   *
+   * @param dataStorage The data storage.
+   */
+  DataRecordWriter(DataStorageImpl dataStorage) {
+    this.dataStorage = dataStorage;
+  }
+
+  /**
+   * Write the given first chunk and the rest of the given channel. Blocks until the channel is
+   * exhausted and all chunks are written. The allocated blocks are freed again if anything fails.
+   *
+   * @param firstChunk The first chunk, it is released by the writer.
+   * @param channel The channel of the rest of the content.
+   * @return The index of the first data block.
+   * @throws IOException If the channel cannot be read or a write failed.
+   */
+  int write(ByteBuffer firstChunk, ReadableByteChannel channel) throws IOException {
+    try {
+      ByteBuffer chunk = firstChunk;
+      boolean endOfStream = false;
+
+      while (!endOfStream) {
+        append(chunk);
+
+        chunk = dataStorage.allocateBuffer(CHUNK_SIZE);
+        try {
+          endOfStream = readChunk(channel, chunk);
+        } catch (IOException | RuntimeException e) {
+          dataStorage.release(chunk);
+          throw e;
+        }
+        chunk.flip();
+      }
+
+      append(chunk);
+      finishExtent(-1);
+      awaitWrites(0);
+      return extents.get(0)[0];
+    } catch (IOException | RuntimeException e) {
+      awaitWritesQuietly();
+      for (int[] extent : extents) {
+        dataStorage.getDataBlockAllocator().free(extent[0], extent[1]);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Read from the given channel until the given buffer is full or the channel is exhausted.
+   *
+   * @param channel The channel.
+   * @param chunk The buffer.
+   * @return If the end of the channel was reached.
+   * @throws IOException If the channel cannot be read.
+   */
+  static boolean readChunk(ReadableByteChannel channel, ByteBuffer chunk) throws IOException {
+    while (chunk.hasRemaining()) {
+      if (channel.read(chunk) == -1) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Write the given chunk into the current extent, opening new extents whenever it is full. The
+   * chunk is released once all of its writes completed.
+   *
+   * @param chunk The chunk.
+   * @throws IOException If a previous write failed.
+   */
+  private void append(ByteBuffer chunk) throws IOException {
+    List<ListenableFuture<Integer>> pieceWrites = new ArrayList<>(2);
+
+    try {
+      while (chunk.hasRemaining()) {
+        if (extentBlockIndex == -1 || extentContentLength == extentCapacity) {
+          openExtent();
+        }
+
+        int length = Math.min(chunk.remaining(), extentCapacity - extentContentLength);
+        long position = (long) DataBlock.DATA_BLOCK_SIZE * extentBlockIndex
+            + DataBlockHeader.DATA_BLOCK_HEADER_SIZE + extentContentLength;
+
+        // Read only views are never taken into the buffer pool, only the chunk itself is.
+        ByteBuffer piece = chunk.asReadOnlyBuffer();
+        piece.limit(piece.position() + length);
+        pieceWrites.add(dataStorage.write(position, piece));
+
+        chunk.position(chunk.position() + length);
+        extentContentLength += length;
+      }
+    } finally {
+      ListenableFuture<?> chunkWrite = Futures.whenAllComplete(pieceWrites)
+          .call(() -> Futures.allAsList(pieceWrites).get(), MoreExecutors.directExecutor());
+      chunkWrite.addListener(() -> dataStorage.release(chunk), MoreExecutors.directExecutor());
+      writes.add(chunkWrite);
+    }
+
+    awaitWrites(MAX_WRITES_IN_FLIGHT - 1);
+  }
+
+  /**
+   * Allocate the next extent and link the current one to it.
+   */
+  private void openExtent() {
+    int blockCount;
+    int dataBlockIndex;
+
+    if (dataStorage.getFormatVersion() < DataFileHeader.FORMAT_VERSION_EXTENT) {
+      blockCount = 1;
+      dataBlockIndex = dataStorage.getDataBlockAllocator().allocate(1)[0];
+    } else {
+      blockCount = nextExtentBlockCount;
+      dataBlockIndex = dataStorage.getDataBlockAllocator().allocateContiguous(blockCount);
+
+      int maxBlockCount = DataBlock.getBlockCount(DataBlock.MAX_EXTENT_CONTENT_LENGTH);
+      nextExtentBlockCount = Math.min(maxBlockCount, nextExtentBlockCount * 2);
+    }
+    extents.add(new int[]{dataBlockIndex, blockCount});
+
+    if (extentBlockIndex != -1) {
+      finishExtent(dataBlockIndex);
+    }
+
+    extentBlockIndex = dataBlockIndex;
+    extentCapacity = Math.min(dataStorage.getMaxContentLength(),
+        blockCount * DataBlock.DATA_BLOCK_SIZE - DataBlockHeader.DATA_BLOCK_HEADER_SIZE);
+    extentContentLength = 0;
+  }
+
+  /**
+   * Write the header of the current extent. The last extent gives back the blocks it doesn't
+   * span.
+   *
+   * @param nextDataBlockIndex The index of the next extent or -1.
+   */
+  private void finishExtent(int nextDataBlockIndex) {
+    DataBlockHeader dataBlockHeader = new DataBlockHeader(nextDataBlockIndex, extentContentLength);
+    ByteBuffer byteBuffer = dataBlockHeader
+        .toByteBuffer(dataStorage.allocateBuffer(DataBlockHeader.DATA_BLOCK_HEADER_SIZE));
+    byteBuffer.flip();
+    writes.add(dataStorage
+        .write((long) DataBlock.DATA_BLOCK_SIZE * extentBlockIndex, byteBuffer));
+
+    if (nextDataBlockIndex != -1) {
+      return;
+    }
+
+    int[] extent = extents.get(extents.size() - 1);
+    int usedBlockCount = DataBlock.getBlockCount(extentContentLength);
+    if (usedBlockCount < extent[1]) {
+      dataStorage.getDataBlockAllocator()
+          .free(extent[0] + usedBlockCount, extent[1] - usedBlockCount);
+      extent[1] = usedBlockCount;
+    }
+  }
+
+  /**
+   * Wait for the oldest writes until at most the given amount is in flight.
+   *
+   * @param maxWrites The maximum amount of writes in flight.
+   * @throws IOException If a write failed.
+   */
+  private void awaitWrites(int maxWrites) throws IOException {
+    while (writes.size() > maxWrites) {
+      await(writes.poll());
+    }
+  }
+
+  /**
+   * Wait for all writes in flight and ignore their failures, so no write is pending when their
+   * blocks are freed.
+   */
+  private void awaitWritesQuietly() {
+    try {
+      Futures.whenAllComplete(writes).call(() -> null, MoreExecutors.directExecutor()).get();
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Wait for the given write.
+   *
+   * @param future The future of the write.
+   * @throws IOException If the write failed.
+   */
+  private static void await(ListenableFuture<?> future) throws IOException {
+    try {
+      Futures.getUnchecked(future);
+    } catch (UncheckedExecutionException e) {
+      throw new IOException("Error while writing data", e.getCause());
+    }
+  }
+}
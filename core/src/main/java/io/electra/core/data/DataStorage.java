@@ -1,9 +1,12 @@
 package io.electra.core.data;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.exception.FileSystemAccessException;
 import io.electra.core.model.DataRecord;
 import io.electra.core.model.Index;
 import io.electra.core.storage.Storage;
-import java.util.concurrent.Future;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
@@ -11,19 +14,133 @@ import java.util.concurrent.Future;
 public interface DataStorage extends Storage {
 
   /**
-   * Read a data record beginning with the data block the given index is pointing at.
+   * Read a data record beginning with the data block the given index is pointing at. The chain of
+   * data blocks is followed asynchronously, no thread will be blocked between two blocks.
    *
    * @param index The index.
    * @return The future of the data record.
    */
-  Future<DataRecord> readDataRecord(Index index);
+  ListenableFuture<DataRecord> readDataRecord(Index index);
 
   /**
-   * Write the given data indexed by the given index.
+   * Read the data records the given indices are pointing at. The first data blocks of all records
+   * are read in the order of their position in the file, blocks close to each other are fetched
+   * with one single read and all reads are issued at once.
+   *
+   * @param indices The indices.
+   * @return The future of the data records in the order of the indices.
+   */
+  ListenableFuture<List<DataRecord>> readDataRecords(List<Index> indices);
+
+  /**
+   * Open a channel streaming the data record beginning with the data block the given index is
+   * pointing at. Data blocks are read lazily in chunks with a bounded readahead, so the memory
+   * used doesn't depend on the size of the record. Reads of the channel block until the next
+   * chunk is available. The channel has to be closed once it is no longer needed.
+   *
+   * @param index The index.
+   * @return The channel.
+   */
+  ReadableByteChannel openDataRecordChannel(Index index);
+
+  /**
+   * Write the given data into newly allocated data blocks. The block index of the given index
+   * will be set to the first allocated block before this method returns.
    *
    * @param index The index.
    * @param data The data.
    * @return The future of the index.
    */
-  Future<Index> writeData(Index index, byte[] data);
+  ListenableFuture<Index> writeData(Index index, byte[] data);
+
+  /**
+   * Write the content of the given channel, whose length is unknown, into newly allocated data
+   * blocks. The channel is read in chunks of a fixed size and the blocks are allocated and written
+   * as the content arrives, so the memory used doesn't depend on the length of the content. Blocks
+   * until the channel is exhausted and all blocks are written. The allocated blocks are freed again
+   * if the channel or a write fails.
+   *
+   * @param index The index.
+   * @param channel The channel.
+   * @return The future of the index pointing at the first data block.
+   */
+  ListenableFuture<Index> writeData(Index index, ReadableByteChannel channel);
+
+  /**
+   * Replace the data the given index is pointing at. If the new data fits into the data blocks
+   * of the old data they will be overwritten in place and surplus blocks are freed. Otherwise the
+   * data is written into newly allocated data blocks and the old ones are left untouched, they
+   * have to be freed via {@link #removeData(Index)} once no index points at them anymore. The block
+   * index of the given index will be set to the first block of the new data.
+   *
+   * @param index The index.
+   * @param data The new data.
+   * @return The future of the index.
+   */
+  ListenableFuture<Index> updateData(Index index, byte[] data);
+
+  /**
+   * Free all data blocks of the data the given index is pointing at, so they can be allocated by
+   * later writes. The blocks are handed out again once all readers of the {@link
+   * #getDataBlockReclaimer() reclaimer} that were active when they got freed are done.
+   *
+   * @param index The index.
+   * @return The future of the index.
+   */
+  ListenableFuture<Index> removeData(Index index);
+
+  /**
+   * Check if the data the given index is pointing at is worth relocating. That is the case if it
+   * is spread over several runs of blocks or if there is a free run closer to the start of the
+   * file that can hold it. Data longer than one extent is never relocated.
+   *
+   * @param index The index.
+   * @return The future of whether the data is worth relocating.
+   */
+  ListenableFuture<Boolean> isRelocatable(Index index);
+
+  /**
+   * Copy the data the given index is pointing at into one contiguous run of free blocks as close
+   * to the start of the file as possible, if it is worth relocating. The old data blocks are left
+   * untouched and have to be freed via {@link #removeData(Index)} once no index points at them
+   * anymore.
+   * The data must not be modified while it is relocated.
+   *
+   * @param index The index.
+   * @return The future of the relocation or of null if the data is not worth relocating.
+   */
+  ListenableFuture<Relocation> relocateData(Index index);
+
+  /**
+   * Cut the free data blocks at the end of the data file off.
+   *
+   * @return The amount of bytes the file shrunk by.
+   * @throws FileSystemAccessException If the file cannot be truncated.
+   */
+  long truncateFreeDataBlocks() throws FileSystemAccessException;
+
+  /**
+   * Load all free data blocks into memory by following the on disk free list. This will read the
+   * block headers of the free list once, all later allocations happen in memory. The list ends
+   * at the first block that isn't the start of a free run.
+   *
+   * @param firstFreeDataBlockIndex The index of the first free data block.
+   * @throws FileSystemAccessException If the file cannot be accessed.
+   */
+  void loadFreeDataBlocks(int firstFreeDataBlockIndex) throws FileSystemAccessException;
+
+  /**
+   * Write the free data blocks back to the on disk free list.
+   *
+   * @return The future of the index pointing to the first free data block.
+   */
+  ListenableFuture<Index> writeFreeDataBlocks();
+
+  /**
+   * Get the reclaimer all readers of the data have to enter, freed blocks are held back until the
+   * readers that could still see them are done.
+   *
+   * @return The data block reclaimer.
+   */
+  DataBlockReclaimer getDataBlockReclaimer();
 }
@@ -1,32 +1,151 @@
 package io.electra.core.data;
 
 import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.JdkFutureAdapters;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.electra.core.cache.BlockCache;
+import io.electra.core.configuration.ElectraConfiguration;
 import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.exception.MalformedDataException;
+import io.electra.core.filesystem.FileSystemAccessorType;
+import io.electra.core.metrics.Metrics;
 import io.electra.core.model.DataBlock;
 import io.electra.core.model.DataBlockHeader;
+import io.electra.core.model.DataFileHeader;
 import io.electra.core.model.DataRecord;
 import io.electra.core.model.Index;
 import io.electra.core.storage.AbstractFileSystemStorage;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
  */
 public class DataStorageImpl extends AbstractFileSystemStorage implements DataStorage {
 
+  /**
+   * The maximum length of one write covering several data blocks that directly follow each other.
+   */
+  static final int MAX_GATHERED_WRITE_LENGTH = 1024 * 1024;
+
+  /**
+   * The maximum length of one read covering the first data blocks of several records of a batch,
+   * if there is no block cache. Otherwise a read covers at most one page.
+   */
+  static final int MAX_BATCH_READ_LENGTH = 64 * 1024;
+
+  /**
+   * The maximum distance between the first data blocks of two records of a batch that are still
+   * fetched with one read, larger gaps are cheaper to skip with a read of their own.
+   */
+  static final int MAX_BATCH_READ_GAP = 4096;
+
+  /**
+   * The on disk format version of the data file.
+   */
+  private volatile int formatVersion;
+
+  /**
+   * The in memory map of all free data blocks.
+   */
+  private volatile DataBlockAllocator dataBlockAllocator;
+
+  /**
+   * Holds freed data blocks back until the readers that could still see them are done.
+   */
+  private final DataBlockReclaimer dataBlockReclaimer = new DataBlockReclaimer();
+
+  /**
+   * The cache of recently read and written pages or null if it is disabled.
+   */
+  private final BlockCache blockCache;
+
+  /**
+   * The metrics we record the shape of read data records into.
+   */
+  private final Metrics metrics;
+
   public DataStorageImpl(Path dataFilePath) throws FileSystemAccessException {
-    super(dataFilePath);
+    this(dataFilePath, new ElectraConfiguration());
+  }
+
+  public DataStorageImpl(Path dataFilePath, ElectraConfiguration configuration)
+      throws FileSystemAccessException {
+    super(dataFilePath, configuration);
+    metrics = configuration.getMetrics();
+
+    // Memory mapped files are served from the page cache of the operating system already.
+    boolean cacheable = configuration.getFileSystemAccessorType()
+        != FileSystemAccessorType.MEMORY_MAPPED;
+    blockCache = cacheable && configuration.getBlockCacheSize() > 0
+        ? new BlockCache(configuration.getBlockCacheSize()) : null;
+
+    formatVersion = readDataFileHeader().getFormatVersion();
+    dataBlockAllocator = new DataBlockAllocator(getEndOfFileBlockIndex());
+  }
+
+  /**
+   * Read the header of the data file. Empty files will be initialized with a header of the
+   * current format version.
+   *
+   * @return The data file header.
+   * @throws FileSystemAccessException If the length of the file cannot be read.
+   */
+  private DataFileHeader readDataFileHeader() throws FileSystemAccessException {
+    if (getFileSystemAccessor().getFileLength() == 0) {
+      return writeDataFileHeader();
+    }
+
+    ByteBuffer byteBuffer = Futures
+        .getUnchecked(getFileSystemAccessor().read(0, DataBlock.DATA_BLOCK_SIZE));
+    try {
+      return DataFileHeader.fromByteBuffer(byteBuffer);
+    } finally {
+      getFileSystemAccessor().release(byteBuffer);
+    }
+  }
+
+  /**
+   * Write a data file header of the current format version into the first data block.
+   *
+   * @return The data file header.
+   */
+  private DataFileHeader writeDataFileHeader() {
+    DataFileHeader dataFileHeader = new DataFileHeader(DataFileHeader.FORMAT_VERSION_EXTENT);
+    Futures.getUnchecked(write(0, dataFileHeader.toByteBuffer()));
+    return dataFileHeader;
+  }
+
+  /**
+   * Get the index of the first data block behind the end of the file. The first block is always
+   * reserved for the data file header.
+   *
+   * @return The end of file block index.
+   * @throws FileSystemAccessException If the length of the file cannot be read.
+   */
+  private int getEndOfFileBlockIndex() throws FileSystemAccessException {
+    long fileLength = getFileSystemAccessor().getFileLength();
+    long blockCount = (fileLength + DataBlock.DATA_BLOCK_SIZE - 1) / DataBlock.DATA_BLOCK_SIZE;
+    return Math.toIntExact(Math.max(1, blockCount));
   }
 
   @Override
   protected void doClear() {
+    if (blockCache != null) {
+      blockCache.invalidateAll();
+    }
 
+    formatVersion = writeDataFileHeader().getFormatVersion();
+    dataBlockAllocator = new DataBlockAllocator(1);
   }
 
   @Override
@@ -35,87 +154,622 @@ public class DataStorageImpl extends AbstractFileSystemStorage implements DataSt
   }
 
   @Override
-  public Future<DataRecord> readDataRecord(Index index) {
-
+  public ListenableFuture<DataRecord> readDataRecord(Index index) {
     int dataBlockIndex = index.getBlockIndex();
     DataRecord dataRecord = new DataRecord(dataBlockIndex);
-    return readDataRecord(dataRecord);
+    return readDataRecord(dataRecord, dataBlockIndex);
   }
 
   /**
-   * Fully read the given data record.
+   * Fully read the given data record beginning at the given data block. Blocks that are already
+   * available are consumed in a loop, for all others the traversal continues in the callback of
+   * the pending read. That way no thread ever waits for a block and immediately available blocks
+   * won't grow the stack.
    *
    * @param dataRecord The data record.
+   * @param dataBlockIndex The index of the next data block to read or -1.
    * @return The future of the full data record.
    */
-  private Future<DataRecord> readDataRecord(DataRecord dataRecord) {
-    DataBlock lastDataBlock = dataRecord.getLastDataBlock();
+  private ListenableFuture<DataRecord> readDataRecord(DataRecord dataRecord,
+      int dataBlockIndex) {
+    int nextDataBlockIndex = dataBlockIndex;
+
+    while (nextDataBlockIndex != -1) {
+      ListenableFuture<DataBlock> dataBlockFuture = readDataBlock(nextDataBlockIndex);
+
+      if (!dataBlockFuture.isDone()) {
+        return Futures.transformAsync(dataBlockFuture, input -> {
+          dataRecord.addDataBlock(Objects.requireNonNull(input));
+          return readDataRecord(dataRecord, input.getNextDataBlockIndex());
+        }, MoreExecutors.directExecutor());
+      }
+
+      DataBlock dataBlock;
+      try {
+        dataBlock = Futures.getDone(dataBlockFuture);
+      } catch (ExecutionException e) {
+        return Futures.immediateFailedFuture(e.getCause());
+      }
+
+      dataRecord.addDataBlock(dataBlock);
+      nextDataBlockIndex = dataBlock.getNextDataBlockIndex();
+    }
+
+    metrics.getBlocksPerRecord().record(dataRecord.getDataBlocks().size());
+    return Futures.immediateFuture(dataRecord);
+  }
 
-    if (lastDataBlock == null) {
-      return Futures.lazyTransform(readDataBlock(dataRecord.getFirstDataBlockIndex()), input -> {
-        dataRecord.addDataBlock(input);
-        return Futures.getUnchecked(readDataRecord(dataRecord));
-      });
+  @Override
+  public ListenableFuture<List<DataRecord>> readDataRecords(List<Index> indices) {
+    if (indices.isEmpty()) {
+      return Futures.immediateFuture(Collections.emptyList());
     }
 
-    int nextDataBlockIndex = lastDataBlock.getNextDataBlockIndex();
+    Integer[] order = new Integer[indices.size()];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, Comparator.comparingInt(i -> indices.get(i).getBlockIndex()));
+
+    List<ListenableFuture<List<DataRecord>>> batchFutures = new ArrayList<>();
+    int start = 0;
+    while (start < order.length) {
+      int firstDataBlockIndex = indices.get(order[start]).getBlockIndex();
+      int end = start + 1;
+
+      while (end < order.length) {
+        int previousDataBlockIndex = indices.get(order[end - 1]).getBlockIndex();
+        int dataBlockIndex = indices.get(order[end]).getBlockIndex();
+        long gap = (long) DataBlock.DATA_BLOCK_SIZE * (dataBlockIndex - previousDataBlockIndex - 1);
+        long length = (long) DataBlock.DATA_BLOCK_SIZE * (dataBlockIndex - firstDataBlockIndex + 1);
+        if (gap > MAX_BATCH_READ_GAP || length > MAX_BATCH_READ_LENGTH) {
+          break;
+        }
+
+        // Reads within one page are served by the block cache, larger ones would bypass it.
+        if (blockCache != null && BlockCache.getPagePosition(getDataBlockPositionByIndex(
+            firstDataBlockIndex)) != BlockCache.getPagePosition(
+            getDataBlockPositionByIndex(dataBlockIndex))) {
+          break;
+        }
+        end++;
+      }
+
+      List<Index> batch = new ArrayList<>(end - start);
+      for (int i = start; i < end; i++) {
+        batch.add(indices.get(order[i]));
+      }
+      batchFutures.add(readDataRecordBatch(batch));
+      start = end;
+    }
+
+    return Futures.transform(Futures.allAsList(batchFutures), input -> {
+      DataRecord[] dataRecords = new DataRecord[order.length];
+      int position = 0;
+      for (List<DataRecord> batch : Objects.requireNonNull(input)) {
+        for (DataRecord dataRecord : batch) {
+          dataRecords[order[position++]] = dataRecord;
+        }
+      }
+
+      return Arrays.asList(dataRecords);
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Read the data records of the given indices, sorted by their first data block, whose first
+   * data blocks are all fetched with one read. Records continuing behind that read are completed
+   * like {@link #readDataRecord(DataRecord, int)}.
+   *
+   * @param batch The indices.
+   * @return The future of the data records in the order of the indices.
+   */
+  private ListenableFuture<List<DataRecord>> readDataRecordBatch(List<Index> batch) {
+    int firstDataBlockIndex = batch.get(0).getBlockIndex();
+    int lastDataBlockIndex = batch.get(batch.size() - 1).getBlockIndex();
+    long position = getDataBlockPositionByIndex(firstDataBlockIndex);
+    ListenableFuture<ByteBuffer> batchFuture = read(position,
+        DataBlock.DATA_BLOCK_SIZE * (lastDataBlockIndex - firstDataBlockIndex + 1));
+
+    return Futures.transformAsync(batchFuture, input -> {
+      ByteBuffer byteBuffer = Objects.requireNonNull(input);
+      List<ListenableFuture<DataRecord>> dataRecordFutures = new ArrayList<>(batch.size());
+
+      try {
+        for (Index index : batch) {
+          int dataBlockIndex = index.getBlockIndex();
+          int offset = DataBlock.DATA_BLOCK_SIZE * (dataBlockIndex - firstDataBlockIndex);
+          ByteBuffer dataBlockBuffer = byteBuffer.duplicate();
+          dataBlockBuffer.position(Math.min(dataBlockBuffer.limit(),
+              dataBlockBuffer.position() + offset));
+
+          DataRecord dataRecord = new DataRecord(dataBlockIndex);
+          ListenableFuture<DataBlock> dataBlockFuture =
+              parseDataBlock(getDataBlockPositionByIndex(dataBlockIndex), dataBlockBuffer);
+          dataRecordFutures.add(Futures.transformAsync(dataBlockFuture, dataBlock -> {
+            dataRecord.addDataBlock(Objects.requireNonNull(dataBlock));
+            return readDataRecord(dataRecord, dataBlock.getNextDataBlockIndex());
+          }, MoreExecutors.directExecutor()));
+        }
+      } finally {
+        getFileSystemAccessor().release(byteBuffer);
+      }
+
+      return Futures.allAsList(dataRecordFutures);
+    }, MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ReadableByteChannel openDataRecordChannel(Index index) {
+    return new DataRecordChannel(this, index.getBlockIndex());
+  }
+
+  @Override
+  public void loadFreeDataBlocks(int firstFreeDataBlockIndex) throws FileSystemAccessException {
+    int endOfFileBlockIndex = getEndOfFileBlockIndex();
+    DataBlockAllocator allocator = new DataBlockAllocator(endOfFileBlockIndex);
+
+    int dataBlockIndex = firstFreeDataBlockIndex;
+    while (dataBlockIndex > 0 && dataBlockIndex < endOfFileBlockIndex) {
+      DataBlockHeader dataBlockHeader = Futures.getUnchecked(readDataBlockHeader(dataBlockIndex));
+
+      // Only free runs carry a negative length, anything else means the list is stale.
+      if (dataBlockHeader == null || dataBlockHeader.getContentLength() >= 0) {
+        break;
+      }
+
+      int runLength = -dataBlockHeader.getContentLength();
 
-    if (nextDataBlockIndex == -1) {
-      return Futures.immediateFuture(dataRecord);
+      try {
+        allocator.free(dataBlockIndex, Math.min(runLength, endOfFileBlockIndex - dataBlockIndex));
+      } catch (IllegalStateException e) {
+        // The free list runs in a circle, everything reachable is known already.
+        break;
+      }
+
+      dataBlockIndex = dataBlockHeader.getNextDataBlockIndex();
     }
 
-    return Futures.lazyTransform(readDataBlock(nextDataBlockIndex), input -> {
-      dataRecord.addDataBlock(input);
-      return Futures.getUnchecked(readDataRecord(dataRecord));
+    dataBlockAllocator = allocator;
+  }
+
+  @Override
+  public ListenableFuture<Index> writeFreeDataBlocks() {
+    DataBlockAllocator allocator = dataBlockAllocator;
+    int endOfFileBlockIndex = allocator.getEndOfFileBlockIndex();
+
+    List<Integer> runStarts = new ArrayList<>();
+    List<Integer> runLengths = new ArrayList<>();
+    allocator.getFreeRuns().forEach((blockIndex, blockCount) -> {
+      runStarts.add(blockIndex);
+      runLengths.add(blockCount);
     });
+
+    try {
+      int fileEndBlockIndex = getEndOfFileBlockIndex();
+      if (endOfFileBlockIndex < fileEndBlockIndex) {
+        // The file has not been shrunk yet, the blocks behind the last used one form a run too.
+        runStarts.add(endOfFileBlockIndex);
+        runLengths.add(fileEndBlockIndex - endOfFileBlockIndex);
+      }
+    } catch (FileSystemAccessException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+
+    List<ListenableFuture<Integer>> writeFutures = new ArrayList<>(runStarts.size());
+    for (int i = 0; i < runStarts.size(); i++) {
+      int next = i == runStarts.size() - 1 ? -1 : runStarts.get(i + 1);
+      DataBlockHeader dataBlockHeader = new DataBlockHeader(next, -runLengths.get(i));
+      ByteBuffer byteBuffer = dataBlockHeader.toByteBuffer(
+          getFileSystemAccessor().allocate(DataBlockHeader.DATA_BLOCK_HEADER_SIZE));
+      byteBuffer.flip();
+
+      writeFutures.add(write(getDataBlockPositionByIndex(runStarts.get(i)), byteBuffer));
+    }
+
+    int firstFreeDataBlockIndex = runStarts.isEmpty() ? endOfFileBlockIndex : runStarts.get(0);
+    return Futures.transform(Futures.allAsList(writeFutures),
+        input -> new Index(-1, firstFreeDataBlockIndex), MoreExecutors.directExecutor());
   }
 
   @Override
-  public Future<Index> writeData(Index index, byte[] data) {
-    int dataBlockIndex = index.getBlockIndex();
-    int neededBlocks = (int) Math.ceil((double) data.length / 120);
-    DataRecord dataRecord = new DataRecord(dataBlockIndex);
+  public ListenableFuture<Index> writeData(Index index, byte[] data) {
+    return writeData(index, data, formatVersion >= DataFileHeader.FORMAT_VERSION_EXTENT);
+  }
+
+  /**
+   * Write the given data into newly allocated data blocks.
+   *
+   * @param index The index.
+   * @param data The data.
+   * @param contiguous If the data blocks have to form one contiguous run.
+   * @return The future of the index.
+   */
+  private ListenableFuture<Index> writeData(Index index, byte[] data, boolean contiguous) {
+    int[] contentLengths = splitContent(data.length, getMaxContentLength());
+    int[] dataBlockIndices = allocateDataBlocks(contentLengths, contiguous);
 
-    int[] freeBlocks = new int[neededBlocks];
+    index.setBlockIndex(dataBlockIndices[0]);
+    DataRecord dataRecord = new DataRecord(dataBlockIndices[0]);
 
-    DataBlockHeader dataBlockHeader;
+    int contentPosition = 0;
+    for (int i = 0; i < dataBlockIndices.length; i++) {
+      int next = i == (dataBlockIndices.length - 1) ? -1 : dataBlockIndices[i + 1];
+      int contentLength = contentLengths[i];
 
-    for (int i = 0; i < freeBlocks.length; i++) {
-      freeBlocks[i] = dataBlockIndex;
+      dataRecord.addDataBlock(createDataBlock(next, data, contentPosition, contentLength));
+      contentPosition += contentLength;
+    }
 
-      dataBlockHeader = Futures.getUnchecked(readDataBlockHeader(dataBlockIndex));
+    return Futures.transform(writeDataBlocks(dataBlockIndices, dataRecord.getDataBlocks()),
+        input -> index, MoreExecutors.directExecutor());
+  }
 
-      if (dataBlockHeader == null) {
-        dataBlockIndex++;
-      } else {
-        dataBlockIndex = dataBlockHeader.getNextDataBlockIndex();
+  @Override
+  public ListenableFuture<Index> writeData(Index index, ReadableByteChannel channel) {
+    ByteBuffer firstChunk = allocateBuffer(DataRecordWriter.CHUNK_SIZE);
+
+    try {
+      if (DataRecordWriter.readChunk(channel, firstChunk)) {
+        // Short content is known completely, it is allocated and written at once.
+        firstChunk.flip();
+        byte[] data = new byte[firstChunk.remaining()];
+        firstChunk.get(data);
+        release(firstChunk);
+        return writeData(index, data);
       }
+    } catch (IOException | RuntimeException e) {
+      release(firstChunk);
+      return Futures.immediateFailedFuture(e);
     }
 
-    for (int i = 0; i < freeBlocks.length; i++) {
-      int next = i == (freeBlocks.length - 1) ? -1 : freeBlocks[i + 1];
+    firstChunk.flip();
+    try {
+      index.setBlockIndex(new DataRecordWriter(this).write(firstChunk, channel));
+      return Futures.immediateFuture(index);
+    } catch (IOException | RuntimeException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+  }
 
-      int end = DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE * (i + 1);
+  @Override
+  public ListenableFuture<Index> updateData(Index index, byte[] data) {
+    ListenableFuture<List<Extent>> extentsFuture =
+        readExtents(new ArrayList<>(), index.getBlockIndex());
 
-      byte[] bytes = Arrays.copyOfRange(data, DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE * i,
-          Math.min(data.length, end));
+    return Futures.transformAsync(extentsFuture, extents -> {
+      int[] contentLengths = fitContent(Objects.requireNonNull(extents), data.length);
 
-      dataBlockHeader = new DataBlockHeader(next, bytes.length);
-      DataBlock dataBlock = DataBlock.fromDataBlockHeader(dataBlockHeader);
-      dataBlock.setContent(bytes);
+      if (contentLengths == null) {
+        // The old data stays readable until the caller swapped its index and removed it.
+        return writeData(index, data);
+      }
 
-      dataRecord.addDataBlock(dataBlock);
+      int[] dataBlockIndices = new int[contentLengths.length];
+      List<DataBlock> dataBlocks = new ArrayList<>(contentLengths.length);
+      int contentPosition = 0;
+      for (int i = 0; i < contentLengths.length; i++) {
+        int next = i == contentLengths.length - 1 ? -1 : extents.get(i + 1).dataBlockIndex;
+
+        dataBlockIndices[i] = extents.get(i).dataBlockIndex;
+        dataBlocks.add(createDataBlock(next, data, contentPosition, contentLengths[i]));
+        contentPosition += contentLengths[i];
+      }
+
+      return Futures.transform(writeDataBlocks(dataBlockIndices, dataBlocks), input -> {
+        List<Extent> surplusExtents = new ArrayList<>();
+        for (int i = 0; i < contentLengths.length; i++) {
+          // Extents that shrunk give back the blocks they don't span anymore.
+          Extent extent = extents.get(i);
+          int usedBlockCount = DataBlock.getBlockCount(contentLengths[i]);
+          if (usedBlockCount < extent.blockCount) {
+            surplusExtents.add(new Extent(extent.dataBlockIndex + usedBlockCount,
+                extent.blockCount - usedBlockCount));
+          }
+        }
+
+        surplusExtents.addAll(extents.subList(contentLengths.length, extents.size()));
+        freeExtents(surplusExtents);
+        return index;
+      }, MoreExecutors.directExecutor());
+    }, MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ListenableFuture<Index> removeData(Index index) {
+    ListenableFuture<List<Extent>> extentsFuture =
+        readExtents(new ArrayList<>(), index.getBlockIndex());
+
+    return Futures.transform(extentsFuture, extents -> {
+      freeExtents(Objects.requireNonNull(extents));
+      return index;
+    }, MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ListenableFuture<Boolean> isRelocatable(Index index) {
+    return Futures.transform(readExtents(new ArrayList<>(), index.getBlockIndex()),
+        extents -> isRelocatable(Objects.requireNonNull(extents)), MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ListenableFuture<Relocation> relocateData(Index index) {
+    int previousBlockIndex = index.getBlockIndex();
+    ListenableFuture<List<Extent>> extentsFuture =
+        readExtents(new ArrayList<>(), previousBlockIndex);
+
+    return Futures.transformAsync(extentsFuture, extents -> {
+      if (!isRelocatable(Objects.requireNonNull(extents))) {
+        return Futures.immediateFuture(null);
+      }
+
+      int fragmentCount = getFragmentCount(extents);
+      ListenableFuture<DataRecord> dataRecordFuture = readDataRecord(index);
+
+      return Futures.transformAsync(dataRecordFuture, dataRecord -> {
+        byte[] data = Objects.requireNonNull(dataRecord).getContent();
+        Index relocatedIndex = new Index(index.getKeyHash(), -1);
+
+        return Futures.transform(writeData(relocatedIndex, data, true),
+            input -> new Relocation(previousBlockIndex, relocatedIndex.getBlockIndex(),
+                fragmentCount, data.length), MoreExecutors.directExecutor());
+      }, MoreExecutors.directExecutor());
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Check if data consisting of the given extents is worth relocating.
+   *
+   * @param extents The extents.
+   * @return If the data is worth relocating.
+   */
+  private boolean isRelocatable(List<Extent> extents) {
+    int blockCount = 0;
+    for (Extent extent : extents) {
+      blockCount += extent.blockCount;
     }
 
-    ListenableFuture[] writeFutures = new ListenableFuture[dataRecord.getDataBlocks().size()];
-    for (int i = 0; i < dataRecord.getDataBlocks().size(); i++) {
-      writeFutures[i] = JdkFutureAdapters
-          .listenInPoolThread(writeDataBlock(freeBlocks[i], dataRecord.getDataBlocks().get(i)));
+    if (blockCount > DataBlock.getBlockCount(DataBlock.MAX_EXTENT_CONTENT_LENGTH)) {
+      return false;
     }
 
-    int finalDataBlockIndex = dataBlockIndex;
-    return Futures.lazyTransform(Futures.allAsList(writeFutures),
-        input -> new Index(-1, finalDataBlockIndex));
+    return getFragmentCount(extents) > 1
+        || dataBlockAllocator.hasFreeRun(blockCount, extents.get(0).dataBlockIndex);
+  }
+
+  /**
+   * Get the amount of contiguous runs of blocks the given extents are spread over.
+   *
+   * @param extents The extents.
+   * @return The fragment count.
+   */
+  private static int getFragmentCount(List<Extent> extents) {
+    int fragmentCount = 1;
+    for (int i = 1; i < extents.size(); i++) {
+      Extent previous = extents.get(i - 1);
+      if (extents.get(i).dataBlockIndex != previous.dataBlockIndex + previous.blockCount) {
+        fragmentCount++;
+      }
+    }
+
+    return fragmentCount;
+  }
+
+  @Override
+  public long truncateFreeDataBlocks() throws FileSystemAccessException {
+    DataBlockAllocator allocator = dataBlockAllocator;
+
+    // Allocations behind the last used block have to wait until the file is cut off.
+    synchronized (allocator) {
+      long length = (long) allocator.getEndOfFileBlockIndex() * DataBlock.DATA_BLOCK_SIZE;
+      long fileLength = getFileSystemAccessor().getFileLength();
+      if (length >= fileLength) {
+        return 0;
+      }
+
+      getFileSystemAccessor().truncate(length);
+      return fileLength - length;
+    }
+  }
+
+  /**
+   * Distribute content of the given length over the given extents in order, filling each one up
+   * to its capacity.
+   *
+   * @param extents The extents.
+   * @param length The length of the content.
+   * @return The content lengths of the used extents or null if the content doesn't fit.
+   */
+  private int[] fitContent(List<Extent> extents, int length) {
+    List<Integer> contentLengths = new ArrayList<>();
+    int remaining = length;
+
+    for (Extent extent : extents) {
+      int capacity = extent.blockCount * DataBlock.DATA_BLOCK_SIZE
+          - DataBlockHeader.DATA_BLOCK_HEADER_SIZE;
+      int contentLength = Math.min(capacity, remaining);
+
+      contentLengths.add(contentLength);
+      remaining -= contentLength;
+
+      if (remaining == 0) {
+        return contentLengths.stream().mapToInt(Integer::intValue).toArray();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Free all given extents once the readers that are active right now are done.
+   *
+   * @param extents The extents.
+   */
+  private void freeExtents(List<Extent> extents) {
+    if (extents.isEmpty()) {
+      return;
+    }
+
+    // A clear in between replaces the allocator, the blocks belong to the one they came from.
+    DataBlockAllocator allocator = dataBlockAllocator;
+    dataBlockReclaimer.retire(() -> {
+      for (Extent extent : extents) {
+        allocator.free(extent.dataBlockIndex, extent.blockCount);
+      }
+    });
+  }
+
+  /**
+   * Collect the extents of the data beginning at the given data block. Only the block headers are
+   * read, the traversal works like {@link #readDataRecord(DataRecord, int)}.
+   *
+   * @param extents The already collected extents.
+   * @param dataBlockIndex The index of the next data block or -1.
+   * @return The future of all extents.
+   */
+  private ListenableFuture<List<Extent>> readExtents(List<Extent> extents, int dataBlockIndex) {
+    int nextDataBlockIndex = dataBlockIndex;
+
+    while (nextDataBlockIndex != -1) {
+      int currentDataBlockIndex = nextDataBlockIndex;
+      ListenableFuture<DataBlockHeader> headerFuture = readDataBlockHeader(currentDataBlockIndex);
+
+      if (!headerFuture.isDone()) {
+        return Futures.transformAsync(headerFuture, input -> {
+          addExtent(extents, currentDataBlockIndex, input);
+          return readExtents(extents, Objects.requireNonNull(input).getNextDataBlockIndex());
+        }, MoreExecutors.directExecutor());
+      }
+
+      DataBlockHeader dataBlockHeader;
+      try {
+        dataBlockHeader = Futures.getDone(headerFuture);
+        addExtent(extents, currentDataBlockIndex, dataBlockHeader);
+      } catch (ExecutionException e) {
+        return Futures.immediateFailedFuture(e.getCause());
+      } catch (MalformedDataException e) {
+        return Futures.immediateFailedFuture(e);
+      }
+
+      nextDataBlockIndex = dataBlockHeader.getNextDataBlockIndex();
+    }
+
+    return Futures.immediateFuture(extents);
+  }
+
+  /**
+   * Add the extent described by the given header to the given extents.
+   *
+   * @param extents The extents.
+   * @param dataBlockIndex The index of the first block of the extent.
+   * @param dataBlockHeader The header of the extent.
+   */
+  private void addExtent(List<Extent> extents, int dataBlockIndex,
+      DataBlockHeader dataBlockHeader) {
+    if (dataBlockHeader == null || dataBlockHeader.getContentLength() < 0
+        || dataBlockIndex < 1 || extents.size() >= dataBlockAllocator.getEndOfFileBlockIndex()) {
+      throw new MalformedDataException("Data block " + dataBlockIndex + " is not in use.");
+    }
+
+    extents.add(new Extent(dataBlockIndex,
+        DataBlock.getBlockCount(dataBlockHeader.getContentLength())));
+  }
+
+  /**
+   * Create a data block holding the given part of the given data.
+   *
+   * @param next The index of the next data block or -1.
+   * @param data The data.
+   * @param offset The position of the content in the data.
+   * @param contentLength The length of the content.
+   * @return The data block.
+   */
+  private DataBlock createDataBlock(int next, byte[] data, int offset, int contentLength) {
+    byte[] bytes = Arrays.copyOfRange(data, offset, offset + contentLength);
+
+    DataBlockHeader dataBlockHeader = new DataBlockHeader(next, bytes.length);
+    DataBlock dataBlock = DataBlock.fromDataBlockHeader(dataBlockHeader);
+    dataBlock.setContent(bytes);
+    return dataBlock;
+  }
+
+  /**
+   * Split content of the given length into the content lengths of the single data blocks. There
+   * will always be at least one data block, even for empty content.
+   *
+   * @param length The length of the content.
+   * @param maxContentLength The maximum content length of one data block.
+   * @return The content lengths.
+   */
+  private int[] splitContent(int length, int maxContentLength) {
+    int blockCount = length / maxContentLength + (length % maxContentLength == 0 ? 0 : 1);
+    int[] contentLengths = new int[Math.max(1, blockCount)];
+
+    for (int i = 0; i < contentLengths.length; i++) {
+      contentLengths[i] = Math.min(maxContentLength, length - i * maxContentLength);
+    }
+
+    return contentLengths;
+  }
+
+  /**
+   * Allocate the data blocks for data blocks of the given content lengths. Files of the extent
+   * format get one contiguous run for all extents, block chain files take single blocks from
+   * wherever they are free unless a contiguous run is requested.
+   *
+   * @param contentLengths The content lengths of the data blocks.
+   * @param contiguous If the data blocks have to form one contiguous run.
+   * @return The indices of the first block of each data block.
+   */
+  private int[] allocateDataBlocks(int[] contentLengths, boolean contiguous) {
+    if (!contiguous) {
+      return dataBlockAllocator.allocate(contentLengths.length);
+    }
+
+    int blockCount = 0;
+    for (int contentLength : contentLengths) {
+      blockCount += DataBlock.getBlockCount(contentLength);
+    }
+
+    int[] dataBlockIndices = new int[contentLengths.length];
+    int dataBlockIndex = dataBlockAllocator.allocateContiguous(blockCount);
+
+    for (int i = 0; i < contentLengths.length; i++) {
+      dataBlockIndices[i] = dataBlockIndex;
+      dataBlockIndex += DataBlock.getBlockCount(contentLengths[i]);
+    }
+
+    return dataBlockIndices;
+  }
+
+  /**
+   * Get the allocator keeping track of all free data blocks.
+   *
+   * @return The data block allocator.
+   */
+  public DataBlockAllocator getDataBlockAllocator() {
+    return dataBlockAllocator;
+  }
+
+  /**
+   * Get the maximum content length of one data block. Files of the block chain format only
+   * support single blocks, files of the extent format store content in contiguous extents.
+   *
+   * @return The maximum content length.
+   */
+  int getMaxContentLength() {
+    if (formatVersion < DataFileHeader.FORMAT_VERSION_EXTENT) {
+      return DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE;
+    }
+
+    return DataBlock.MAX_EXTENT_CONTENT_LENGTH;
+  }
+
+  /**
+   * Get the on disk format version of the data file.
+   *
+   * @return The format version.
+   */
+  public int getFormatVersion() {
+    return formatVersion;
   }
 
   /**
@@ -124,38 +778,136 @@ public class DataStorageImpl extends AbstractFileSystemStorage implements DataSt
    * @param dataBlockIndex The data block index.
    * @return The future of the data block header.
    */
-  private Future<DataBlockHeader> readDataBlockHeader(int dataBlockIndex) {
-    Future<ByteBuffer> resultFuture = getFileSystemAccessor()
-        .read(getDataBlockPositionByIndex(dataBlockIndex), 8);
-    return Futures.lazyTransform(resultFuture, input -> {
-      if (!Objects.requireNonNull(input).hasRemaining()) {
-        return null;
-      }
+  private ListenableFuture<DataBlockHeader> readDataBlockHeader(int dataBlockIndex) {
+    long dataBlockPosition = getDataBlockPositionByIndex(dataBlockIndex);
+    ListenableFuture<ByteBuffer> resultFuture =
+        read(dataBlockPosition, DataBlockHeader.DATA_BLOCK_HEADER_SIZE);
+    return Futures.transform(resultFuture, input -> {
+      try {
+        if (!Objects.requireNonNull(input).hasRemaining()) {
+          return null;
+        }
 
-      return DataBlockHeader.fromByteBuffer(Objects.requireNonNull(input));
-    });
+        return DataBlockHeader.fromByteBuffer(input);
+      } finally {
+        getFileSystemAccessor().release(input);
+      }
+    }, MoreExecutors.directExecutor());
   }
 
   /**
-   * Read a single data block from the file system.
+   * Read a single data block from the file system. As data blocks have a fixed size the header
+   * and the content are fetched with one single read and parsed in place. If the data block is an
+   * extent spanning further blocks, the rest of its content is fetched with one more read. The
+   * content is copied out of the read buffers, so they are released right after parsing.
    *
    * @param dataBlockIndex The index of the data block we want to read.
    * @return The data block.
    */
-  private Future<DataBlock> readDataBlock(int dataBlockIndex) {
-    Future<DataBlockHeader> dataBlockHeaderFuture = readDataBlockHeader(dataBlockIndex);
+  private ListenableFuture<DataBlock> readDataBlock(int dataBlockIndex) {
+    long dataBlockPosition = getDataBlockPositionByIndex(dataBlockIndex);
+    ListenableFuture<ByteBuffer> dataBlockFuture =
+        read(dataBlockPosition, DataBlock.DATA_BLOCK_SIZE);
+
+    return Futures.transformAsync(dataBlockFuture, input -> {
+      ByteBuffer byteBuffer = Objects.requireNonNull(input);
+      try {
+        return parseDataBlock(dataBlockPosition, byteBuffer);
+      } finally {
+        getFileSystemAccessor().release(byteBuffer);
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Parse the data block at the position of the given buffer, which holds at least the first
+   * block of it unless the file ends before. If the data block is an extent reaching behind the
+   * buffer, the rest of its content is fetched with one more read. The buffer is consumed before
+   * this returns, so it can be released right away.
+   *
+   * @param dataBlockPosition The position of the data block in the file.
+   * @param byteBuffer The buffer.
+   * @return The future of the data block.
+   */
+  private ListenableFuture<DataBlock> parseDataBlock(long dataBlockPosition,
+      ByteBuffer byteBuffer) {
+    int available = byteBuffer.remaining() - DataBlockHeader.DATA_BLOCK_HEADER_SIZE;
+    int contentLength = available < 0 ? 0 : byteBuffer.getInt(byteBuffer.position() + 4);
 
-    return Futures.lazyTransform(dataBlockHeaderFuture, input -> {
-      long contentPosition = getDataBlockPositionByIndex(dataBlockIndex) + 8;
-      int contentLength = Objects.requireNonNull(input).getContentLength();
+    if (contentLength <= available || contentLength > DataBlock.MAX_EXTENT_CONTENT_LENGTH
+        || byteBuffer.remaining() < DataBlock.DATA_BLOCK_SIZE) {
+      return Futures.immediateFuture(DataBlock.fromByteBuffer(byteBuffer));
+    }
 
-      Future<ByteBuffer> contentFuture = getFileSystemAccessor()
-          .read(contentPosition, contentLength);
+    ByteBuffer dataBlockBuffer = getFileSystemAccessor()
+        .allocate(DataBlockHeader.DATA_BLOCK_HEADER_SIZE + contentLength);
+    int length = byteBuffer.remaining();
+    dataBlockBuffer.put(byteBuffer);
 
-      ByteBuffer contentBuffer = Futures.getUnchecked(contentFuture);
+    ListenableFuture<ByteBuffer> extentFuture =
+        read(dataBlockPosition + length, contentLength - available);
 
-      return DataBlock.fromDataBlockHeaderAndContentBuffer(input, contentBuffer);
-    });
+    return Futures.transform(extentFuture, extentBuffer -> {
+      dataBlockBuffer.put(Objects.requireNonNull(extentBuffer));
+      dataBlockBuffer.flip();
+      getFileSystemAccessor().release(extentBuffer);
+
+      try {
+        return DataBlock.fromByteBuffer(dataBlockBuffer);
+      } finally {
+        getFileSystemAccessor().release(dataBlockBuffer);
+      }
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Write the given data blocks. Data blocks directly following each other in the file are
+   * serialized into one buffer and written with one single write, the tails of their last blocks
+   * are padded with zeros.
+   *
+   * @param dataBlockIndices The indices of the first block of each data block.
+   * @param dataBlocks The data blocks.
+   * @return The future of the written bytes of every write.
+   */
+  private ListenableFuture<List<Integer>> writeDataBlocks(int[] dataBlockIndices,
+      List<DataBlock> dataBlocks) {
+    List<ListenableFuture<Integer>> writeFutures = new ArrayList<>();
+
+    int start = 0;
+    while (start < dataBlocks.size()) {
+      int end = start + 1;
+      long length = dataBlocks.get(start).getByteBufferLength();
+      while (end < dataBlocks.size() && dataBlockIndices[end]
+          == dataBlockIndices[end - 1] + dataBlocks.get(end - 1).getBlockCount()) {
+        long runLength = (long) DataBlock.DATA_BLOCK_SIZE
+            * (dataBlockIndices[end] - dataBlockIndices[start])
+            + dataBlocks.get(end).getByteBufferLength();
+        if (runLength > MAX_GATHERED_WRITE_LENGTH) {
+          break;
+        }
+        length = runLength;
+        end++;
+      }
+
+      if (end - start == 1) {
+        writeFutures.add(writeDataBlock(dataBlockIndices[start], dataBlocks.get(start)));
+      } else {
+        ByteBuffer byteBuffer = getFileSystemAccessor().allocate((int) length);
+        for (int i = start; i < end; i++) {
+          int offset = DataBlock.DATA_BLOCK_SIZE * (dataBlockIndices[i] - dataBlockIndices[start]);
+          while (byteBuffer.position() < offset) {
+            byteBuffer.put((byte) 0);
+          }
+          dataBlocks.get(i).toByteBuffer(byteBuffer);
+        }
+        byteBuffer.flip();
+        writeFutures.add(write(getDataBlockPositionByIndex(dataBlockIndices[start]), byteBuffer));
+      }
+
+      start = end;
+    }
+
+    return Futures.allAsList(writeFutures);
   }
 
   /**
@@ -165,9 +917,111 @@ public class DataStorageImpl extends AbstractFileSystemStorage implements DataSt
    * @param dataBlock The data block.
    * @return The future of the written bytes.
    */
-  private Future<Integer> writeDataBlock(int dataBlockIndex, DataBlock dataBlock) {
+  private ListenableFuture<Integer> writeDataBlock(int dataBlockIndex, DataBlock dataBlock) {
     long dataBlockPositionByIndex = getDataBlockPositionByIndex(dataBlockIndex);
-    return getFileSystemAccessor().write(dataBlockPositionByIndex, dataBlock.toByteBuffer());
+    ByteBuffer byteBuffer = dataBlock.toByteBuffer(
+        getFileSystemAccessor().allocate(dataBlock.getByteBufferLength()));
+    byteBuffer.flip();
+    return write(dataBlockPositionByIndex, byteBuffer);
+  }
+
+  /**
+   * Read the given range of the data file. Ranges within one page are served by the block cache,
+   * on a miss the whole page is read and cached. The content has to be released via the file
+   * system accessor once it has been consumed.
+   *
+   * @param position The position.
+   * @param length The amount of bytes.
+   * @return The future of the content.
+   */
+  ListenableFuture<ByteBuffer> read(long position, int length) {
+    if (blockCache == null || !BlockCache.isCacheable(position, length)) {
+      return getFileSystemAccessor().read(position, length);
+    }
+
+    ByteBuffer cachedContent = getFileSystemAccessor().allocate(length);
+    if (blockCache.read(position, cachedContent)) {
+      return Futures.immediateFuture(cachedContent);
+    }
+    getFileSystemAccessor().release(cachedContent);
+
+    long pagePosition = BlockCache.getPagePosition(position);
+    long generation = blockCache.getGeneration(pagePosition);
+    ListenableFuture<ByteBuffer> pageFuture = getFileSystemAccessor()
+        .read(pagePosition, BlockCache.PAGE_SIZE);
+
+    return Futures.transform(pageFuture, input -> {
+      ByteBuffer page = Objects.requireNonNull(input);
+      blockCache.fill(pagePosition, page, generation);
+
+      int offset = (int) (position - pagePosition);
+      page.position(Math.min(page.limit(), page.position() + offset));
+      page.limit(Math.min(page.limit(), page.position() + length));
+
+      ByteBuffer content = getFileSystemAccessor().allocate(page.remaining());
+      content.put(page);
+      content.flip();
+      getFileSystemAccessor().release(page);
+      return content;
+    }, MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Get a buffer to fill and pass to {@link #write(long, ByteBuffer)}.
+   *
+   * @param length The length.
+   * @return The byte buffer.
+   */
+  ByteBuffer allocateBuffer(int length) {
+    return getFileSystemAccessor().allocate(length);
+  }
+
+  /**
+   * Hand back a buffer returned by {@link #read(long, int)} or {@link #allocateBuffer(int)}.
+   *
+   * @param byteBuffer The byte buffer.
+   */
+  void release(ByteBuffer byteBuffer) {
+    getFileSystemAccessor().release(byteBuffer);
+  }
+
+  /**
+   * Write the given content at the given position of the data file and keep the cached pages it
+   * touches up to date. The content is released via the file system accessor once the write
+   * completed.
+   *
+   * @param position The position.
+   * @param content The content.
+   * @return The future of the amount of bytes written.
+   */
+  ListenableFuture<Integer> write(long position, ByteBuffer content) {
+    ByteBuffer cacheContent = content.duplicate();
+    if (blockCache != null) {
+      blockCache.write(position, cacheContent);
+    }
+
+    ListenableFuture<Integer> writeFuture = getFileSystemAccessor().write(position, content);
+    writeFuture.addListener(() -> {
+      if (blockCache != null) {
+        blockCache.write(position, cacheContent);
+      }
+      getFileSystemAccessor().release(content);
+    }, MoreExecutors.directExecutor());
+    return writeFuture;
+  }
+
+  @Override
+  public DataBlockReclaimer getDataBlockReclaimer() {
+    return dataBlockReclaimer;
+  }
+
+  /**
+   * Get the cache of recently read and written pages.
+   *
+   * @return The block cache or null if it is disabled.
+   */
+  public BlockCache getBlockCache() {
+    return blockCache;
   }
 
   /**
@@ -178,6 +1032,27 @@ public class DataStorageImpl extends AbstractFileSystemStorage implements DataSt
    * @return The data block position.
    */
   private long getDataBlockPositionByIndex(int dataBlockIndex) {
-    return DataBlock.DATA_BLOCK_SIZE * dataBlockIndex;
+    return (long) DataBlock.DATA_BLOCK_SIZE * dataBlockIndex;
+  }
+
+  /**
+   * A run of contiguous data blocks that is occupied by one data block of a record.
+   */
+  private static final class Extent {
+
+    /**
+     * The index of the first block.
+     */
+    private final int dataBlockIndex;
+
+    /**
+     * The amount of blocks.
+     */
+    private final int blockCount;
+
+    Extent(int dataBlockIndex, int blockCount) {
+      this.dataBlockIndex = dataBlockIndex;
+      this.blockCount = blockCount;
+    }
   }
 }
@@ -0,0 +1,82 @@
+package io.electra.core.data;
+
+/**
+ * The result of moving the data of one record into a contiguous run of data blocks.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class Relocation {
+
+  /**
+   * The index of the first data block the data was moved away from.
+   */
+  private final int previousBlockIndex;
+
+  /**
+   * The index of the first data block the data was moved to.
+   */
+  private final int blockIndex;
+
+  /**
+   * The amount of contiguous runs the data was spread over before.
+   */
+  private final int fragmentCount;
+
+  /**
+   * The length of the data in bytes.
+   */
+  private final int length;
+
+  /**
+   * Create a new relocation.
+   *
+   * @param previousBlockIndex The index of the first data block the data was moved away from.
+   * @param blockIndex The index of the first data block the data was moved to.
+   * @param fragmentCount The amount of contiguous runs the data was spread over before.
+   * @param length The length of the data in bytes.
+   */
+  public Relocation(int previousBlockIndex, int blockIndex, int fragmentCount, int length) {
+    this.previousBlockIndex = previousBlockIndex;
+    this.blockIndex = blockIndex;
+    this.fragmentCount = fragmentCount;
+    this.length = length;
+  }
+
+  /**
+   * Get the index of the first data block the data was moved away from. Those blocks are left
+   * untouched by the relocation.
+   *
+   * @return The previous block index.
+   */
+  public int getPreviousBlockIndex() {
+    return previousBlockIndex;
+  }
+
+  /**
+   * Get the index of the first data block the data was moved to.
+   *
+   * @return The block index.
+   */
+  public int getBlockIndex() {
+    return blockIndex;
+  }
+
+  /**
+   * Get the amount of contiguous runs the data was spread over before, the relocated data always
+   * occupies one run.
+   *
+   * @return The fragment count.
+   */
+  public int getFragmentCount() {
+    return fragmentCount;
+  }
+
+  /**
+   * Get the length of the data in bytes.
+   *
+   * @return The length.
+   */
+  public int getLength() {
+    return length;
+  }
+}
@@ -1,5 +1,6 @@
 package io.electra.core.engine;
 
+import io.electra.core.configuration.ElectraConfiguration;
 import io.electra.core.data.DataStorage;
 import io.electra.core.data.DataStorageImpl;
 import io.electra.core.exception.EngineInitializationException;
@@ -8,7 +9,6 @@ import io.electra.core.index.IndexStorage;
 import io.electra.core.index.IndexStorageImpl;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.concurrent.Future;
 
 /**
  * The abstraction of a storage engine that will always has to hold references to the data storage
@@ -36,9 +36,22 @@ public abstract class AbstractStorageEngine implements StorageEngine {
    */
   public AbstractStorageEngine(Path dataStoragePath, Path indexStoragePath)
       throws EngineInitializationException {
+    this(dataStoragePath, indexStoragePath, new ElectraConfiguration());
+  }
+
+  /**
+   * Create a new storage engine by its underlying data and index storage file paths and the
+   * configuration the storages should be created with.
+   *
+   * @param dataStoragePath The data storage file path.
+   * @param indexStoragePath The index storage file path.
+   * @param configuration The configuration.
+   */
+  public AbstractStorageEngine(Path dataStoragePath, Path indexStoragePath,
+      ElectraConfiguration configuration) throws EngineInitializationException {
     try {
-      this.indexStorage = new IndexStorageImpl(indexStoragePath);
-      this.dataStorage = new DataStorageImpl(dataStoragePath);
+      this.indexStorage = new IndexStorageImpl(indexStoragePath, configuration);
+      this.dataStorage = new DataStorageImpl(dataStoragePath, configuration);
     } catch (FileSystemAccessException e) {
       throw new EngineInitializationException("Error creating engine", e);
     }
@@ -55,7 +68,7 @@ public abstract class AbstractStorageEngine implements StorageEngine {
   /**
    * Will be called when the storage engine gets closed via {@link #close()}.
    */
-  abstract void doClose();
+  abstract void doClose() throws IOException;
 
   /**
    * Get the data storage.
@@ -74,6 +87,4 @@ public abstract class AbstractStorageEngine implements StorageEngine {
   public IndexStorage getIndexStorage() {
     return indexStorage;
   }
-
-  public abstract Future<byte[]> get(int keyHash);
 }
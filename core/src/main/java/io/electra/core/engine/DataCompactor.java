@@ -0,0 +1,174 @@
+package io.electra.core.engine;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.data.Relocation;
+import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.index.IndexMap;
+import io.electra.core.metrics.Metrics;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts the data file of a storage engine. A pass visits all records from the end of the file
+ * to its start and moves every record that is spread over several runs of blocks or that fits into
+ * a free run before it into one contiguous run as close to the start as possible. The free blocks
+ * gather at the end of the file that way and are cut off once the pass is done.
+ *
+ * <p>Moves are rate limited, as modifying operations of a record have to wait while it is moved.
+ * The old blocks of a moved record are freed once the reads that started before the move are
+ * done, later reads don't hold them back.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DataCompactor implements Closeable {
+
+  /**
+   * The storage engine whose data file we compact.
+   */
+  private final SimpleStorageEngine storageEngine;
+
+  /**
+   * The metrics we report moved records and truncated bytes to.
+   */
+  private final Metrics metrics;
+
+  /**
+   * Limits the amount of bytes moved per second.
+   */
+  private final RateLimiter rateLimiter;
+
+  /**
+   * Runs passes in the background or null if there is no background compaction.
+   */
+  private final ScheduledExecutorService compactionExecutor;
+
+  /**
+   * If the compactor was closed, a running pass stops at the next record.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Create a new compactor that runs passes in the configured interval.
+   *
+   * @param storageEngine The storage engine.
+   * @param configuration The configuration.
+   */
+  DataCompactor(SimpleStorageEngine storageEngine, ElectraConfiguration configuration) {
+    this.storageEngine = storageEngine;
+    this.metrics = configuration.getMetrics();
+    this.rateLimiter = RateLimiter.create(configuration.getCompactionRate());
+
+    long compactionInterval = configuration.getCompactionInterval();
+    if (compactionInterval == 0) {
+      compactionExecutor = null;
+      return;
+    }
+
+    compactionExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("electra-compaction-%d").setDaemon(true).build());
+    compactionExecutor.scheduleWithFixedDelay(this::compactQuietly, compactionInterval,
+        compactionInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Run one compaction pass.
+   *
+   * @throws IOException If a record cannot be moved or the file cannot be truncated.
+   */
+  synchronized void compact() throws IOException {
+    long[] records = getRecordsByBlockIndex();
+    for (int i = records.length - 1; i >= 0 && !closed; i--) {
+      int keyHash = (int) records[i];
+      int blockIndex = (int) (records[i] >>> 32);
+
+      Relocation relocation = storageEngine.relocate(keyHash, blockIndex);
+      if (relocation != null) {
+        metrics.recordRelocation(relocation.getFragmentCount(), relocation.getLength());
+        rateLimiter.acquire(Math.max(1, relocation.getLength()));
+      }
+    }
+
+    try {
+      metrics.recordTruncation(storageEngine.getDataStorage().truncateFreeDataBlocks());
+    } catch (FileSystemAccessException e) {
+      throw new IOException("Error while truncating data file", e);
+    }
+  }
+
+  /**
+   * Run one compaction pass in the background, failures are retried by the next pass.
+   */
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (IOException | RuntimeException e) {
+      // Records that could not be moved stay where they are.
+    }
+  }
+
+  /**
+   * Get all records sorted by the index of their first data block. Each record is packed into
+   * one long with the block index in the upper and the key hash in the lower half.
+   *
+   * @return The records.
+   */
+  private long[] getRecordsByBlockIndex() {
+    RecordCollector recordCollector = new RecordCollector(storageEngine.getIndices().size());
+    storageEngine.getIndices().forEach(recordCollector);
+
+    long[] records = Arrays.copyOf(recordCollector.records, recordCollector.recordCount);
+    Arrays.sort(records);
+    return records;
+  }
+
+  /**
+   * Stop compacting, a running pass is finished first.
+   */
+  @Override
+  public void close() {
+    closed = true;
+
+    if (compactionExecutor != null) {
+      compactionExecutor.shutdown();
+      try {
+        compactionExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // Entering the monitor waits for a pass that was started directly, it stops at the next
+    // record already.
+    synchronized (this) {
+      closed = true;
+    }
+  }
+
+  /**
+   * Collects the entries of an index map as packed longs.
+   */
+  private static final class RecordCollector implements IndexMap.EntryVisitor {
+
+    private long[] records;
+    private int recordCount;
+
+    RecordCollector(int expectedRecordCount) {
+      records = new long[Math.max(16, expectedRecordCount)];
+    }
+
+    @Override
+    public void visit(int keyHash, int blockIndex) {
+      if (recordCount == records.length) {
+        records = Arrays.copyOf(records, recordCount * 2);
+      }
+
+      records[recordCount++] = (long) blockIndex << 32 | (keyHash & 0xFFFFFFFFL);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package io.electra.core.engine;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.electra.core.model.Index;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A storage engine that partitions the key hash space across independent shards. As every shard
+ * has its own files, allocator and write ahead log, operations on different shards never contend
+ * with each other.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class ShardedStorageEngine implements StorageEngine {
+
+  /**
+   * The shards, a key hash always belongs to the same shard.
+   */
+  private final StorageEngine[] shards;
+
+  /**
+   * Create a new sharded storage engine. The order of the shards must never change for existing
+   * data.
+   *
+   * @param shards The shards.
+   */
+  public ShardedStorageEngine(List<? extends StorageEngine> shards) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("There has to be at least one shard.");
+    }
+
+    this.shards = shards.toArray(new StorageEngine[0]);
+  }
+
+  /**
+   * Get the shard the given key hash belongs to.
+   *
+   * @param keyHash The hash of the key.
+   * @return The shard.
+   */
+  StorageEngine getShard(int keyHash) {
+    return shards[getShardIndex(keyHash)];
+  }
+
+  private int getShardIndex(int keyHash) {
+    // Spread the bits, the shards would only see a few distinct low bits of poor key hashes.
+    int hash = keyHash * 0x9E3779B9;
+    return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+  }
+
+  /**
+   * Split the given key hashes by their shards, keeping their order.
+   *
+   * @param keyHashes The hashes of the keys.
+   * @return The key hashes of every shard.
+   */
+  private int[][] partition(int[] keyHashes) {
+    int[] counts = new int[shards.length];
+    for (int keyHash : keyHashes) {
+      counts[getShardIndex(keyHash)]++;
+    }
+
+    int[][] shardKeyHashes = new int[shards.length][];
+    for (int shard = 0; shard < shards.length; shard++) {
+      shardKeyHashes[shard] = new int[counts[shard]];
+      counts[shard] = 0;
+    }
+    for (int keyHash : keyHashes) {
+      int shard = getShardIndex(keyHash);
+      shardKeyHashes[shard][counts[shard]++] = keyHash;
+    }
+
+    return shardKeyHashes;
+  }
+
+  /**
+   * Put the results of all shards back into the order of the given key hashes.
+   *
+   * @param keyHashes The hashes of the keys.
+   * @param shardResults The results of every shard in the order of its key hashes.
+   * @param <T> The result type.
+   * @return The results in the order of the key hashes.
+   */
+  private <T> List<T> merge(int[] keyHashes, List<List<T>> shardResults) {
+    int[] positions = new int[shards.length];
+    List<T> results = new ArrayList<>(keyHashes.length);
+    for (int keyHash : keyHashes) {
+      int shard = getShardIndex(keyHash);
+      results.add(shardResults.get(shard).get(positions[shard]++));
+    }
+
+    return results;
+  }
+
+  /**
+   * Get the amount of shards.
+   *
+   * @return The shard count.
+   */
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  @Override
+  public ListenableFuture<byte[]> get(int keyHash) {
+    return getShard(keyHash).get(keyHash);
+  }
+
+  @Override
+  public ListenableFuture<List<byte[]>> getAll(int[] keyHashes) {
+    int[][] shardKeyHashes = partition(keyHashes);
+    List<ListenableFuture<List<byte[]>>> shardFutures = new ArrayList<>(shards.length);
+    for (int shard = 0; shard < shards.length; shard++) {
+      shardFutures.add(shardKeyHashes[shard].length == 0
+          ? Futures.immediateFuture(Collections.emptyList())
+          : shards[shard].getAll(shardKeyHashes[shard]));
+    }
+
+    return Futures.transform(Futures.allAsList(shardFutures),
+        input -> merge(keyHashes, Objects.requireNonNull(input)), MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ReadableByteChannel getChannel(int keyHash) {
+    return getShard(keyHash).getChannel(keyHash);
+  }
+
+  @Override
+  public ListenableFuture<Index> save(int keyHash, byte[] value) {
+    return getShard(keyHash).save(keyHash, value);
+  }
+
+  /**
+   * Save the given values on their shards. Every shard reserves its own part of the key hashes, a
+   * part rejected by one shard doesn't roll back the parts accepted by earlier shards.
+   */
+  @Override
+  public ListenableFuture<List<Index>> saveAll(int[] keyHashes, List<byte[]> values) {
+    if (keyHashes.length != values.size()) {
+      throw new IllegalArgumentException("There has to be one value per key hash.");
+    }
+
+    int[][] shardKeyHashes = partition(keyHashes);
+    List<List<byte[]>> shardValues = new ArrayList<>(shards.length);
+    for (int[] keyHashesOfShard : shardKeyHashes) {
+      shardValues.add(new ArrayList<>(keyHashesOfShard.length));
+    }
+    for (int i = 0; i < keyHashes.length; i++) {
+      shardValues.get(getShardIndex(keyHashes[i])).add(values.get(i));
+    }
+
+    List<ListenableFuture<List<Index>>> shardFutures = new ArrayList<>(shards.length);
+    for (int shard = 0; shard < shards.length; shard++) {
+      shardFutures.add(shardKeyHashes[shard].length == 0
+          ? Futures.immediateFuture(Collections.emptyList())
+          : shards[shard].saveAll(shardKeyHashes[shard], shardValues.get(shard)));
+    }
+
+    return Futures.transform(Futures.allAsList(shardFutures),
+        input -> merge(keyHashes, Objects.requireNonNull(input)), MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ListenableFuture<Index> save(int keyHash, ReadableByteChannel channel) {
+    return getShard(keyHash).save(keyHash, channel);
+  }
+
+  @Override
+  public ListenableFuture<Index> update(int keyHash, byte[] value) {
+    return getShard(keyHash).update(keyHash, value);
+  }
+
+  @Override
+  public ListenableFuture<Index> remove(int keyHash) {
+    return getShard(keyHash).remove(keyHash);
+  }
+
+  @Override
+  public void compact() throws IOException {
+    for (StorageEngine shard : shards) {
+      shard.compact();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException exception = null;
+
+    for (StorageEngine shard : shards) {
+      try {
+        shard.close();
+      } catch (IOException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+
+    if (exception != null) {
+      throw exception;
+    }
+  }
+}
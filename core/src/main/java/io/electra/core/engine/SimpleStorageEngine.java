@@ -1,16 +1,51 @@
 package io.electra.core.engine;
 
-import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.AsyncCallable;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.electra.core.cache.DataCache;
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.data.DataBlockReclaimer;
+import io.electra.core.data.Relocation;
 import io.electra.core.exception.EngineInitializationException;
+import io.electra.core.exception.FileSystemAccessException;
 import io.electra.core.exception.IndexScanException;
+import io.electra.core.exception.WriteAheadLogException;
+import io.electra.core.filesystem.IoExecutor;
+import io.electra.core.index.IndexMap;
+import io.electra.core.index.IndexSnapshot;
+import io.electra.core.metrics.Histogram;
+import io.electra.core.metrics.Metrics;
 import io.electra.core.model.DataRecord;
 import io.electra.core.model.Index;
+import io.electra.core.wal.LogRecord;
+import io.electra.core.wal.LogRecordType;
+import io.electra.core.wal.WriteAheadLog;
+import io.electra.core.wal.WriteAheadLogImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.Future;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
@@ -18,9 +53,100 @@ import java.util.concurrent.Future;
 public class SimpleStorageEngine extends AbstractStorageEngine {
 
   /**
-   * All currently known indices.
+   * The first data block indices of all currently known key hashes.
    */
-  private final Map<Integer, Index> indices = Maps.newConcurrentMap();
+  private final IndexMap indices;
+
+  /**
+   * The index file slots of all currently known key hashes.
+   */
+  private final IndexMap indexSlots;
+
+  /**
+   * Index file slots that were freed by removals and can be reused.
+   */
+  private final Queue<Integer> freeIndexSlots = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The first index file slot behind all used ones.
+   */
+  private final AtomicInteger nextIndexSlot = new AtomicInteger(1);
+
+  /**
+   * Held shared by every modifying operation until it is applied and exclusively by checkpoints,
+   * so the log is never truncated while an operation is only durable in the log.
+   */
+  private final StampedLock checkpointLock = new StampedLock();
+
+  /**
+   * If a checkpoint is scheduled already.
+   */
+  private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+
+  /**
+   * The write ahead log or null if it is disabled.
+   */
+  private final WriteAheadLog writeAheadLog;
+
+  /**
+   * Applies operations once their log record is durable, so the thread flushing the log never
+   * does their file work, or null if there is no write ahead log.
+   */
+  private final ExecutorService applyExecutor;
+
+  /**
+   * The I/O executor the apply executor was acquired from or null if it is owned by the engine.
+   */
+  private final IoExecutor applyIoExecutor;
+
+  /**
+   * The size of the write ahead log that triggers a checkpoint.
+   */
+  private final long writeAheadLogCheckpointSize;
+
+  /**
+   * Runs checkpoints outside of the threads completing operations or null if there is neither a
+   * write ahead log nor an index snapshot.
+   */
+  private final ExecutorService checkpointExecutor;
+
+  /**
+   * The snapshot the indices are loaded from or null if it is disabled.
+   */
+  private final IndexSnapshot indexSnapshot;
+
+  /**
+   * The amount of index writes that triggers a new index snapshot.
+   */
+  private final long indexSnapshotTailLength;
+
+  /**
+   * The cache of recently read values or null if it is disabled.
+   */
+  private final DataCache dataCache;
+
+  /**
+   * The metrics we record the latency of all operations into.
+   */
+  private final Metrics metrics;
+
+  /**
+   * Every get and open channel is a reader of it, freed data blocks are held back until the
+   * readers that could still see them are done.
+   */
+  private final DataBlockReclaimer dataBlockReclaimer;
+
+  /**
+   * The future of the last modifying operation of every key hash that has one in flight. Each
+   * operation waits for the one before it, so no two of them work on the data of a key at once.
+   */
+  private final ConcurrentMap<Integer, ListenableFuture<Void>> keyOperations =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Moves records into contiguous runs and cuts free blocks off the end of the data file.
+   */
+  private final DataCompactor dataCompactor;
 
   /**
    * The index pointing to the first free data block.
@@ -29,68 +155,996 @@ public class SimpleStorageEngine extends AbstractStorageEngine {
 
   public SimpleStorageEngine(Path dataStoragePath, Path indexStoragePath)
       throws EngineInitializationException {
-    super(dataStoragePath, indexStoragePath);
+    this(dataStoragePath, indexStoragePath, new ElectraConfiguration());
+  }
 
+  public SimpleStorageEngine(Path dataStoragePath, Path indexStoragePath,
+      ElectraConfiguration configuration) throws EngineInitializationException {
+    this(dataStoragePath, indexStoragePath, Paths.get(dataStoragePath + ".wal"), configuration);
+  }
+
+  public SimpleStorageEngine(Path dataStoragePath, Path indexStoragePath,
+      Path writeAheadLogPath, ElectraConfiguration configuration)
+      throws EngineInitializationException {
+    super(dataStoragePath, indexStoragePath, configuration);
+
+    metrics = configuration.getMetrics();
+    dataBlockReclaimer = getDataStorage().getDataBlockReclaimer();
+    indices = new IndexMap(configuration.getExpectedKeyCount(),
+        configuration.isOffHeapIndexMap());
+    indexSlots = new IndexMap(configuration.getExpectedKeyCount(),
+        configuration.isOffHeapIndexMap());
+
+    indexSnapshotTailLength = configuration.getIndexSnapshotTailLength();
+    try {
+      if (configuration.isIndexSnapshotEnabled()) {
+        indexSnapshot = new IndexSnapshot(indexStoragePath,
+            configuration.isWriteAheadLogEnabled());
+      } else {
+        indexSnapshot = null;
+        // A snapshot left behind would miss everything written from now on.
+        IndexSnapshot.delete(indexStoragePath);
+      }
+    } catch (FileSystemAccessException e) {
+      throw new EngineInitializationException("Error while opening index snapshot", e);
+    }
     readIndices();
+
+    long dataCacheSize = configuration.getDataCacheSize();
+    dataCache = dataCacheSize > 0 ? new DataCache(dataCacheSize) : null;
+
+    writeAheadLogCheckpointSize = configuration.getWriteAheadLogCheckpointSize();
+    if (configuration.isWriteAheadLogEnabled()) {
+      try {
+        writeAheadLog = new WriteAheadLogImpl(writeAheadLogPath);
+        writeAheadLog.replay(this::replay);
+        checkpoint();
+      } catch (WriteAheadLogException | FileSystemAccessException e) {
+        throw new EngineInitializationException("Error while recovering from write ahead log", e);
+      }
+
+    } else {
+      writeAheadLog = null;
+    }
+
+    if (writeAheadLog == null) {
+      applyExecutor = null;
+      applyIoExecutor = null;
+    } else if (configuration.isVirtualThreadsEnabled()) {
+      // Blocking file work of every operation runs on a virtual thread of its own.
+      applyExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+      applyIoExecutor = null;
+    } else if (configuration.getIoExecutor() != null) {
+      applyIoExecutor = configuration.getIoExecutor();
+      applyExecutor = applyIoExecutor.acquire();
+    } else {
+      applyExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+          .setNameFormat("electra-apply-%d").setDaemon(true).build());
+      applyIoExecutor = null;
+    }
+
+    if (writeAheadLog != null || indexSnapshot != null) {
+      checkpointExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("electra-checkpoint-%d").setDaemon(true).build());
+    } else {
+      checkpointExecutor = null;
+    }
+
+    dataCompactor = new DataCompactor(this, configuration);
   }
 
   void readIndices() throws EngineInitializationException {
-    Future<List<Index>> listFuture = null;
+    if (!readIndexSnapshot()) {
+      scanIndices();
+    }
 
     try {
-      listFuture = getIndexStorage().readIndices();
+      if (indexSnapshot != null) {
+        indexSnapshot.markOpen();
+      }
+      getDataStorage().loadFreeDataBlocks(freeDataBlockIndex.getBlockIndex());
+      invalidateFreeDataBlocks();
+    } catch (FileSystemAccessException e) {
+      throw new EngineInitializationException("Error while reading free data blocks", e);
+    }
+  }
+
+  /**
+   * Load the indices from the index snapshot. The snapshot of a new index file belongs to another
+   * database and is never loaded.
+   *
+   * @return If the indices were loaded.
+   */
+  private boolean readIndexSnapshot() {
+    if (indexSnapshot == null || getIndexStorage().hadToCreateFile()) {
+      return false;
+    }
+
+    try {
+      if (indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot)) {
+        freeDataBlockIndex = Futures.getUnchecked(getIndexStorage().readIndex(0));
+        return true;
+      }
+    } catch (FileSystemAccessException | UncheckedExecutionException e) {
+      // The index file is scanned instead.
+    }
+
+    indices.clear();
+    indexSlots.clear();
+    freeIndexSlots.clear();
+    nextIndexSlot.set(1);
+    return false;
+  }
+
+  /**
+   * Read all indices by scanning the whole index file.
+   *
+   * @throws EngineInitializationException If the index file cannot be read.
+   */
+  private void scanIndices() throws EngineInitializationException {
+    try {
+      getIndexStorage().scanIndices((indexBlockIndex, index) -> {
+        if (indexBlockIndex == 0) {
+          freeDataBlockIndex = index;
+          return;
+        }
+
+        nextIndexSlot.set(indexBlockIndex + 1);
+
+        // The first data block holds the data file header, so block 0 marks a slot never written.
+        if (index.isEmpty() || index.getBlockIndex() <= 0) {
+          freeIndexSlots.add(indexBlockIndex);
+          return;
+        }
+
+        indices.put(index.getKeyHash(), index.getBlockIndex());
+        indexSlots.put(index.getKeyHash(), indexBlockIndex);
+      });
     } catch (IndexScanException e) {
       throw new EngineInitializationException("Error while reading initial indices", e);
     }
+  }
+
+  /**
+   * Apply a record of the write ahead log. The old data blocks of the affected key are never
+   * touched, as the crash may have left them half written. They are lost for reuse instead.
+   *
+   * @param logRecord The log record.
+   */
+  private void replay(LogRecord logRecord) {
+    int keyHash = logRecord.getKeyHash();
+
+    if (logRecord.getType() == LogRecordType.REMOVE) {
+      int indexSlot = indexSlots.remove(keyHash);
+      if (indexSlot == IndexMap.NO_VALUE) {
+        return;
+      }
+
+      Index index = new Index(keyHash, indices.remove(keyHash));
+      index.setEmpty(true);
+      Futures.getUnchecked(writeIndex(indexSlot, index));
+      freeIndexSlots.add(indexSlot);
+      return;
+    }
+
+    int indexSlot = indexSlots.get(keyHash);
+    if (indexSlot == IndexMap.NO_VALUE) {
+      indexSlot = allocateIndexSlot();
+      indexSlots.put(keyHash, indexSlot);
+    }
+
+    if (logRecord.getType() == LogRecordType.LINK) {
+      // The data was synced before the record was logged.
+      Index index = new Index(keyHash, ByteBuffer.wrap(logRecord.getValue()).getInt());
+      indices.put(keyHash, index.getBlockIndex());
+      Futures.getUnchecked(writeIndex(indexSlot, index));
+      return;
+    }
+
+    Index index = Futures.getUnchecked(
+        getDataStorage().writeData(new Index(keyHash, -1), logRecord.getValue()));
+    indices.put(keyHash, index.getBlockIndex());
+    Futures.getUnchecked(writeIndex(indexSlot, index));
+  }
+
+  /**
+   * Clear the on disk free list while the engine is running, no matter if the write ahead log is
+   * enabled. The free blocks are only known in memory until the engine gets closed, a crash will
+   * make them unusable but never lets two records share a block.
+   *
+   * @throws FileSystemAccessException If the index file cannot be synced.
+   */
+  private void invalidateFreeDataBlocks() throws FileSystemAccessException {
+    Futures.getUnchecked(getIndexStorage().writeIndex(0, new Index(-1, -1)));
+    getIndexStorage().force();
+  }
+
+  /**
+   * Make all applied operations durable in the data and index storages and truncate the write
+   * ahead log. A new index snapshot is taken if the tail of the current one grew too long,
+   * otherwise the tail is forced along with the storages. Waits for all operations that are in
+   * flight.
+   *
+   * @throws FileSystemAccessException If the storages or the index snapshot cannot be synced.
+   * @throws WriteAheadLogException If the log cannot be truncated.
+   */
+  public void checkpoint() throws FileSystemAccessException, WriteAheadLogException {
+    if (writeAheadLog == null && indexSnapshot == null) {
+      return;
+    }
+
+    long stamp = checkpointLock.writeLock();
+    try {
+      if (writeAheadLog != null) {
+        getDataStorage().force();
+        getIndexStorage().force();
+      }
+
+      if (indexSnapshot != null) {
+        if (indexSnapshot.isSnapshotNeeded(indexSnapshotTailLength)) {
+          indexSnapshot.write(indices, indexSlots, freeIndexSlots, nextIndexSlot.get());
+        } else if (writeAheadLog != null) {
+          indexSnapshot.force();
+        }
+      }
+
+      if (writeAheadLog != null) {
+        writeAheadLog.truncate();
+      }
+    } finally {
+      checkpointLock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Schedule a checkpoint if the write ahead log or the tail of the index snapshot grew beyond
+   * their configured size.
+   */
+  private void scheduleCheckpointIfNeeded() {
+    boolean writeAheadLogFull = writeAheadLog != null
+        && writeAheadLog.getSize() >= writeAheadLogCheckpointSize;
+    boolean indexSnapshotFull = indexSnapshot != null
+        && indexSnapshot.getTailLength() >= indexSnapshotTailLength;
+
+    if (!writeAheadLogFull && !indexSnapshotFull
+        || !checkpointScheduled.compareAndSet(false, true)) {
+      return;
+    }
+
+    checkpointExecutor.execute(() -> {
+      try {
+        checkpoint();
+      } catch (FileSystemAccessException | WriteAheadLogException e) {
+        // The log keeps growing and the next operation tries again.
+      } finally {
+        checkpointScheduled.set(false);
+      }
+    });
+  }
+
+  /**
+   * Run the given modifying operation of a key hash. The operation is recorded in the write ahead
+   * log first and the cached value of the key hash is dropped. The caller takes the checkpoint
+   * lock when the operation is submitted, as the operation may be applied on a thread that must
+   * not wait for a checkpoint. The lock is released once the operation is applied.
+   *
+   * @param stamp The stamp of the read lock of the checkpoint lock.
+   * @param logRecord The log record.
+   * @param operation The operation applying the record.
+   * @param <T> The result type of the operation.
+   * @return The future of the result of the operation.
+   */
+  private <T> ListenableFuture<T> logged(long stamp, LogRecord logRecord,
+      AsyncCallable<T> operation) {
+    if (dataCache != null) {
+      // Invalidate again once applied, reads in between may have cached the old value. The caller
+      // is only notified afterwards, so its next read can't race the invalidation.
+      dataCache.invalidate(logRecord.getKeyHash());
+      ListenableFuture<T> appliedFuture = appendAndApply(stamp, logRecord, operation);
+      SettableFuture<T> resultFuture = SettableFuture.create();
+      appliedFuture.addListener(() -> {
+        dataCache.invalidate(logRecord.getKeyHash());
+        resultFuture.setFuture(appliedFuture);
+      }, MoreExecutors.directExecutor());
+      return resultFuture;
+    }
+
+    return appendAndApply(stamp, logRecord, operation);
+  }
+
+  /**
+   * Append the given record to the write ahead log, if there is one, and apply the given
+   * operation on the apply executor once the record is durable.
+   *
+   * @param stamp The stamp of the read lock of the checkpoint lock, it is released once the
+   *     operation is applied.
+   * @param logRecord The log record.
+   * @param operation The operation applying the record.
+   * @param <T> The result type of the operation.
+   * @return The future of the result of the operation.
+   */
+  private <T> ListenableFuture<T> appendAndApply(long stamp, LogRecord logRecord,
+      AsyncCallable<T> operation) {
+    ListenableFuture<T> resultFuture = writeAheadLog == null
+        ? Futures.submitAsync(operation, MoreExecutors.directExecutor())
+        : Futures.transformAsync(writeAheadLog.append(logRecord), input -> operation.call(),
+            applyExecutor);
+
+    resultFuture.addListener(() -> {
+      checkpointLock.unlockRead(stamp);
+      scheduleCheckpointIfNeeded();
+    }, MoreExecutors.directExecutor());
+    return resultFuture;
+  }
+
+  @Override
+  void doClose() throws IOException {
+    dataCompactor.close();
+
+    if (checkpointExecutor != null) {
+      checkpointExecutor.shutdown();
+      try {
+        checkpointExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // Wait for all operations in flight, nothing new can be logged once the lock is taken.
+    long stamp = checkpointLock.writeLock();
+    try {
+      if (dataCache != null) {
+        dataCache.invalidateAll();
+      }
+
+      // Reads have to be done by now, so blocks that are still held back are free for good.
+      dataBlockReclaimer.reclaimAll();
+      Index index = Futures.getUnchecked(getDataStorage().writeFreeDataBlocks());
+      freeDataBlockIndex.setBlockIndex(index.getBlockIndex());
+      Futures.getUnchecked(getIndexStorage().writeIndex(0, freeDataBlockIndex));
+
+      if (writeAheadLog != null || indexSnapshot != null) {
+        getDataStorage().force();
+        getIndexStorage().force();
+      }
+
+      if (indexSnapshot != null) {
+        indexSnapshot.close(indices, indexSlots, freeIndexSlots, nextIndexSlot.get(),
+            indexSnapshotTailLength);
+      }
+
+      if (writeAheadLog != null) {
+        writeAheadLog.truncate();
+        writeAheadLog.close();
+      }
+    } catch (FileSystemAccessException | WriteAheadLogException e) {
+      throw new IOException("Error while writing checkpoint", e);
+    } finally {
+      indices.clear();
+      indexSlots.clear();
+      freeIndexSlots.clear();
+      checkpointLock.unlockWrite(stamp);
+      closeApplyExecutor();
+    }
+  }
+
+  /**
+   * Stop the apply executor, all operations were applied already.
+   */
+  private void closeApplyExecutor() {
+    if (applyIoExecutor != null) {
+      applyIoExecutor.release();
+    } else if (applyExecutor != null) {
+      applyExecutor.shutdown();
+    }
+  }
+
+  @Override
+  public ListenableFuture<byte[]> get(int keyHash) {
+    long startTime = System.nanoTime();
+    long generation = dataCache != null ? dataCache.getGeneration(keyHash) : 0;
+    DataBlockReclaimer.Epoch epoch = dataBlockReclaimer.enter();
+    int blockIndex = indices.get(keyHash);
+
+    if (blockIndex == IndexMap.NO_VALUE) {
+      dataBlockReclaimer.exit(epoch);
+      metrics.getGetLatency().record(System.nanoTime() - startTime);
+      return Futures.immediateFuture(null);
+    }
+
+    if (dataCache != null) {
+      byte[] value = dataCache.get(keyHash);
+      if (value != null) {
+        dataBlockReclaimer.exit(epoch);
+        metrics.getGetLatency().record(System.nanoTime() - startTime);
+        return Futures.immediateFuture(value);
+      }
+    }
+
+    ListenableFuture<DataRecord> dataRecordFuture =
+        getDataStorage().readDataRecord(new Index(keyHash, blockIndex));
+    dataRecordFuture.addListener(() -> dataBlockReclaimer.exit(epoch),
+        MoreExecutors.directExecutor());
+
+    return Futures.transform(dataRecordFuture, input -> {
+      byte[] value = Objects.requireNonNull(input).getContent();
+      if (dataCache != null) {
+        dataCache.put(keyHash, value, generation);
+        value = value.clone();
+      }
+
+      metrics.getGetLatency().record(System.nanoTime() - startTime);
+      return value;
+    }, MoreExecutors.directExecutor());
+  }
 
-    List<Index> indices = Futures.getUnchecked(listFuture);
-    for (Index index : indices) {
-      if (index.getKeyHash() == -1) {
-        freeDataBlockIndex = index;
+  @Override
+  public ListenableFuture<List<byte[]>> getAll(int[] keyHashes) {
+    long startTime = System.nanoTime();
+    byte[][] values = new byte[keyHashes.length][];
+    long[] generations = new long[keyHashes.length];
+    int[] readPositions = new int[keyHashes.length];
+    List<Index> readIndices = new ArrayList<>(keyHashes.length);
+    DataBlockReclaimer.Epoch epoch = dataBlockReclaimer.enter();
+
+    for (int i = 0; i < keyHashes.length; i++) {
+      int keyHash = keyHashes[i];
+      generations[i] = dataCache != null ? dataCache.getGeneration(keyHash) : 0;
+      int blockIndex = indices.get(keyHash);
+
+      if (blockIndex == IndexMap.NO_VALUE) {
         continue;
       }
 
-      this.indices.put(index.getKeyHash(), index);
+      if (dataCache != null) {
+        values[i] = dataCache.get(keyHash);
+        if (values[i] != null) {
+          continue;
+        }
+      }
+
+      readPositions[readIndices.size()] = i;
+      readIndices.add(new Index(keyHash, blockIndex));
+    }
+
+    if (readIndices.isEmpty()) {
+      dataBlockReclaimer.exit(epoch);
+      metrics.getGetAllLatency().record(System.nanoTime() - startTime);
+      return Futures.immediateFuture(Arrays.asList(values));
+    }
+
+    ListenableFuture<List<DataRecord>> dataRecordsFuture =
+        getDataStorage().readDataRecords(readIndices);
+    dataRecordsFuture.addListener(() -> dataBlockReclaimer.exit(epoch),
+        MoreExecutors.directExecutor());
+
+    return Futures.transform(dataRecordsFuture, input -> {
+      List<DataRecord> dataRecords = Objects.requireNonNull(input);
+      for (int j = 0; j < dataRecords.size(); j++) {
+        int i = readPositions[j];
+        byte[] value = dataRecords.get(j).getContent();
+        if (dataCache != null) {
+          dataCache.put(keyHashes[i], value, generations[i]);
+          value = value.clone();
+        }
+        values[i] = value;
+      }
+
+      metrics.getGetAllLatency().record(System.nanoTime() - startTime);
+      return Arrays.asList(values);
+    }, MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ReadableByteChannel getChannel(int keyHash) {
+    DataBlockReclaimer.Epoch epoch = dataBlockReclaimer.enter();
+    int blockIndex = indices.get(keyHash);
+
+    if (blockIndex == IndexMap.NO_VALUE) {
+      dataBlockReclaimer.exit(epoch);
+      return null;
     }
+
+    return new ReaderChannel(
+        getDataStorage().openDataRecordChannel(new Index(keyHash, blockIndex)), epoch);
+  }
+
+  /**
+   * Get the cache of recently read values.
+   *
+   * @return The data cache or null if it is disabled.
+   */
+  public DataCache getDataCache() {
+    return dataCache;
   }
 
   @Override
-  void doClose() {
-    indices.clear();
+  public ListenableFuture<Index> save(int keyHash, byte[] value) {
+    long startTime = System.nanoTime();
+    long stamp = checkpointLock.readLock();
+    int indexSlot;
+    try {
+      indexSlot = reserveIndexSlot(keyHash);
+    } catch (IllegalStateException e) {
+      checkpointLock.unlockRead(stamp);
+      throw e;
+    }
+
+    return timed(metrics.getSaveLatency(), startTime, save(stamp, indexSlot, keyHash, value));
+  }
+
+  @Override
+  public ListenableFuture<List<Index>> saveAll(int[] keyHashes, List<byte[]> values) {
+    if (keyHashes.length != values.size()) {
+      throw new IllegalArgumentException("There has to be one value per key hash.");
+    }
+
+    if (keyHashes.length == 0) {
+      return Futures.immediateFuture(Collections.emptyList());
+    }
 
-    Futures.getUnchecked(getIndexStorage().writeIndex(0, freeDataBlockIndex));
+    long startTime = System.nanoTime();
+    long[] stamps = new long[keyHashes.length];
+    int[] reservedSlots = new int[keyHashes.length];
+    int reservedCount = 0;
+
+    // While a read lock is held the write lock can't be, so the further read locks are granted
+    // right away instead of queueing behind a waiting checkpoint.
+    stamps[0] = checkpointLock.readLock();
+    for (int i = 1; i < keyHashes.length; i++) {
+      stamps[i] = checkpointLock.tryReadLock();
+    }
+
+    try {
+      for (; reservedCount < keyHashes.length; reservedCount++) {
+        reservedSlots[reservedCount] = reserveIndexSlot(keyHashes[reservedCount]);
+      }
+    } catch (IllegalStateException e) {
+      // Nothing was logged yet, so the batch is dropped as a whole.
+      for (int i = 0; i < reservedCount; i++) {
+        indexSlots.remove(keyHashes[i]);
+        freeIndexSlots.add(reservedSlots[i]);
+      }
+      for (long stamp : stamps) {
+        checkpointLock.unlockRead(stamp);
+      }
+      throw e;
+    }
+
+    List<ListenableFuture<Index>> indexFutures = new ArrayList<>(keyHashes.length);
+    for (int i = 0; i < keyHashes.length; i++) {
+      indexFutures.add(save(stamps[i], reservedSlots[i], keyHashes[i], values.get(i)));
+    }
+
+    return timed(metrics.getSaveAllLatency(), startTime, Futures.allAsList(indexFutures));
+  }
+
+  /**
+   * Log and save the given value into the given reserved index file slot.
+   *
+   * @param stamp The stamp of the read lock of the checkpoint lock.
+   * @param indexSlot The reserved index file slot.
+   * @param keyHash The hash of the key.
+   * @param value The value.
+   * @return The future of the index.
+   */
+  private ListenableFuture<Index> save(long stamp, int indexSlot, int keyHash, byte[] value) {
+    LogRecord logRecord = new LogRecord(LogRecordType.SAVE, keyHash, value);
+    return serialized(keyHash, () -> logged(stamp, logRecord, () -> {
+      Index index = new Index(keyHash, -1);
+      ListenableFuture<Index> indexFuture = getDataStorage().writeData(index, value);
+
+      return Futures.transformAsync(indexFuture, input -> {
+        indices.put(keyHash, index.getBlockIndex());
+        return writeIndex(indexSlot, index);
+      }, MoreExecutors.directExecutor());
+    }));
+  }
+
+  @Override
+  public ListenableFuture<Index> save(int keyHash, ReadableByteChannel channel) {
+    long startTime = System.nanoTime();
+    checkAbsent(keyHash);
+
+    // The channel is streamed before the index slot is reserved, so checkpoints don't wait for it.
+    Index index;
+    try {
+      index = Futures.getUnchecked(getDataStorage().writeData(new Index(keyHash, -1), channel));
+      if (writeAheadLog != null) {
+        // The log only links the key to the data, so the data has to be durable first.
+        getDataStorage().force();
+      }
+    } catch (UncheckedExecutionException | FileSystemAccessException e) {
+      return Futures.immediateFailedFuture(e.getCause() != null ? e.getCause() : e);
+    }
+
+    long stamp = checkpointLock.readLock();
+    int indexSlot;
+    try {
+      indexSlot = reserveIndexSlot(keyHash);
+    } catch (IllegalStateException e) {
+      checkpointLock.unlockRead(stamp);
+      getDataStorage().removeData(index);
+      throw e;
+    }
+
+    LogRecord logRecord = createLinkRecord(keyHash, index.getBlockIndex());
+    return timed(metrics.getSaveLatency(), startTime,
+        serialized(keyHash, () -> logged(stamp, logRecord, () -> {
+          indices.put(keyHash, index.getBlockIndex());
+          return writeIndex(indexSlot, index);
+        })));
   }
 
   @Override
-  public Future<byte[]> get(int keyHash) {
-    Index index = indices.get(keyHash);
+  public ListenableFuture<Index> update(int keyHash, byte[] value) {
+    long startTime = System.nanoTime();
+    // Saves reserve the slot right away, so the key is known before its save got applied.
+    int indexSlot = indexSlots.get(keyHash);
+
+    if (indexSlot == IndexMap.NO_VALUE) {
+      throw new IllegalStateException("Tried to update value with key hash " + keyHash
+          + " but there is no index with that hash.");
+    }
+
+    LogRecord logRecord = new LogRecord(LogRecordType.UPDATE, keyHash, value);
+    long stamp = checkpointLock.readLock();
+    return timed(metrics.getUpdateLatency(), startTime,
+        serialized(keyHash, () -> logged(stamp, logRecord, () -> {
+          // The data may have been moved by the compactor before the operation got applied.
+          int currentBlockIndex = indices.get(keyHash);
+          if (currentBlockIndex == IndexMap.NO_VALUE) {
+            return Futures.immediateFailedFuture(createRemovedWhileUpdatedException(keyHash));
+          }
+
+          Index index = new Index(keyHash, currentBlockIndex);
+          ListenableFuture<Index> indexFuture = getDataStorage().updateData(index, value);
+
+          return Futures.transformAsync(indexFuture, input -> {
+            if (index.getBlockIndex() == currentBlockIndex) {
+              return Futures.immediateFuture(index);
+            }
 
-    if (index == null) {
+            // The old data is only freed once no index points at it anymore.
+            indices.put(keyHash, index.getBlockIndex());
+            Index previousIndex = new Index(keyHash, currentBlockIndex);
+            return Futures.transform(Futures.transformAsync(writeIndex(indexSlot, index),
+                written -> getDataStorage().removeData(previousIndex),
+                MoreExecutors.directExecutor()), removed -> index, MoreExecutors.directExecutor());
+          }, MoreExecutors.directExecutor());
+        })));
+  }
+
+  @Override
+  public ListenableFuture<Index> remove(int keyHash) {
+    long startTime = System.nanoTime();
+    // Held until the removal is applied, so index snapshots never see it half done.
+    long stamp = checkpointLock.readLock();
+    int indexSlot = indexSlots.remove(keyHash);
+
+    if (indexSlot == IndexMap.NO_VALUE) {
+      checkpointLock.unlockRead(stamp);
+      metrics.getRemoveLatency().record(System.nanoTime() - startTime);
       return Futures.immediateFuture(null);
     }
 
-    Future<DataRecord> dataRecordFuture = getDataStorage().readDataRecord(index);
+    LogRecord logRecord = new LogRecord(LogRecordType.REMOVE, keyHash, new byte[0]);
+    return timed(metrics.getRemoveLatency(), startTime,
+        serialized(keyHash, () -> logged(stamp, logRecord, () -> {
+          // The save of the key is applied by now, unless it failed and left only its slot.
+          int blockIndex = indices.remove(keyHash);
+          Index index = new Index(keyHash, blockIndex);
+          index.setEmpty(true);
+
+          ListenableFuture<Index> writeFuture = writeIndex(indexSlot, index);
+          ListenableFuture<Index> removeFuture = blockIndex == IndexMap.NO_VALUE ? writeFuture
+              : Futures.transformAsync(writeFuture, input -> getDataStorage().removeData(index),
+                  MoreExecutors.directExecutor());
 
-    return Futures
-        .lazyTransform(dataRecordFuture, input -> Objects.requireNonNull(input).getContent());
+          return Futures.transform(removeFuture, input -> {
+            freeIndexSlots.add(indexSlot);
+            return index;
+          }, MoreExecutors.directExecutor());
+        })));
+  }
+
+  /**
+   * Run the given modifying operation of a key hash once all operations of that key hash that
+   * were submitted before are done. Operations of an idle key hash run right away on the calling
+   * thread.
+   *
+   * @param keyHash The hash of the key.
+   * @param operation The operation.
+   * @param <T> The result type of the operation.
+   * @return The future of the result of the operation.
+   */
+  private <T> ListenableFuture<T> serialized(int keyHash, AsyncCallable<T> operation) {
+    SettableFuture<Void> done = SettableFuture.create();
+    ListenableFuture<Void> previous = keyOperations.put(keyHash, done);
+    SettableFuture<T> resultFuture = SettableFuture.create();
+
+    Runnable run = () -> {
+      ListenableFuture<T> operationFuture =
+          Futures.submitAsync(operation, MoreExecutors.directExecutor());
+      operationFuture.addListener(() -> {
+        keyOperations.remove(keyHash, done);
+        done.set(null);
+      }, MoreExecutors.directExecutor());
+
+      // The operation holds the checkpoint lock until it is applied, so it runs to its end even
+      // if the caller gave up on it.
+      resultFuture.setFuture(Futures.nonCancellationPropagating(operationFuture));
+    };
+
+    if (previous == null) {
+      run.run();
+    } else {
+      previous.addListener(run, MoreExecutors.directExecutor());
+    }
+    return resultFuture;
+  }
+
+  /**
+   * Create the exception an update fails with if its key hash was removed before it got applied.
+   *
+   * @param keyHash The hash of the key.
+   * @return The exception.
+   */
+  private static IllegalStateException createRemovedWhileUpdatedException(int keyHash) {
+    return new IllegalStateException("Value with key hash " + keyHash
+        + " was removed while it got updated.");
+  }
+
+  /**
+   * Record the time from the given start until the given future completes into the given
+   * histogram.
+   *
+   * @param latency The histogram.
+   * @param startTime The {@link System#nanoTime()} the operation started at.
+   * @param future The future of the operation.
+   * @param <T> The result type of the operation.
+   * @return The future of the result of the operation, completed once the latency is recorded.
+   */
+  private static <T> ListenableFuture<T> timed(Histogram latency, long startTime,
+      ListenableFuture<T> future) {
+    // Waiters of a future are released before its listeners run, so the caller is only notified
+    // once the latency is recorded.
+    SettableFuture<T> resultFuture = SettableFuture.create();
+    future.addListener(() -> {
+      latency.record(System.nanoTime() - startTime);
+      resultFuture.setFuture(future);
+    }, MoreExecutors.directExecutor());
+    return resultFuture;
+  }
+
+  /**
+   * Write the given index into the given index file slot and record the write in the tail of the
+   * index snapshot.
+   *
+   * @param indexSlot The index file slot.
+   * @param index The index.
+   * @return The future of the written index.
+   */
+  private ListenableFuture<Index> writeIndex(int indexSlot, Index index) {
+    if (indexSnapshot != null) {
+      indexSnapshot.append(indexSlot, index);
+    }
+
+    return getIndexStorage().writeIndex(indexSlot, index);
+  }
+
+  /**
+   * Create a log record that links the given key hash to the data beginning at the given block.
+   *
+   * @param keyHash The hash of the key.
+   * @param blockIndex The index of the first data block.
+   * @return The log record.
+   */
+  private static LogRecord createLinkRecord(int keyHash, int blockIndex) {
+    byte[] value = ByteBuffer.allocate(4).putInt(blockIndex).array();
+    return new LogRecord(LogRecordType.LINK, keyHash, value);
   }
 
   @Override
-  public Future<Index> save(int keyHash, byte[] value) {
-    if (indices.containsKey(keyHash)) {
+  public void compact() throws IOException {
+    dataCompactor.compact();
+  }
+
+  /**
+   * Move the data of the given key hash into one contiguous run if it is worth it. Only modifying
+   * operations of the key hash wait while the data is copied, the checkpoint lock is only held to
+   * log the move as a link of the key hash to the new blocks and to switch the index. Gets
+   * continue to read the old blocks, which are left untouched and freed once these gets are done.
+   *
+   * @param keyHash The hash of the key.
+   * @param blockIndex The index of the first data block the key hash is expected to point at.
+   * @return The relocation or null if the data was not moved.
+   * @throws IOException If the data cannot be moved.
+   */
+  Relocation relocate(int keyHash, int blockIndex) throws IOException {
+    Index index = new Index(keyHash, blockIndex);
+    // A removal submitted from now on drops the slot right away but is applied after the move.
+    int indexSlot = indexSlots.get(keyHash);
+    if (indexSlot == IndexMap.NO_VALUE) {
+      return null;
+    }
+
+    try {
+      // Check without blocking anyone first, most records don't have to be moved.
+      if (!Futures.getUnchecked(getDataStorage().isRelocatable(index))) {
+        return null;
+      }
+    } catch (UncheckedExecutionException e) {
+      throw new IOException("Error while reading data of key hash " + keyHash, e.getCause());
+    }
+
+    SettableFuture<Void> keyReleased = awaitKey(keyHash);
+    long stamp = 0;
+    try {
+      if (indices.get(keyHash) != blockIndex) {
+        return null;
+      }
+
+      Relocation relocation = Futures.getUnchecked(getDataStorage().relocateData(index));
+      if (relocation == null) {
+        return null;
+      }
+
+      Index relocatedIndex = new Index(keyHash, relocation.getBlockIndex());
+      try {
+        if (writeAheadLog != null) {
+          getDataStorage().force();
+        }
+
+        // Operations waiting for the key hold the lock already, so waiting for it while holding
+        // the key could deadlock with a checkpoint. A running checkpoint drops the move instead,
+        // a later pass tries again.
+        stamp = checkpointLock.tryReadLock();
+        if (stamp == 0 || indexSlots.get(keyHash) != indexSlot) {
+          getDataStorage().removeData(relocatedIndex);
+          return null;
+        }
+
+        if (writeAheadLog != null) {
+          Futures.getUnchecked(writeAheadLog.append(
+              createLinkRecord(keyHash, relocation.getBlockIndex())));
+        }
+      } catch (UncheckedExecutionException | FileSystemAccessException e) {
+        getDataStorage().removeData(relocatedIndex);
+        throw e;
+      }
+
+      indices.put(keyHash, relocation.getBlockIndex());
+      Futures.getUnchecked(writeIndex(indexSlot, relocatedIndex));
+
+      getDataStorage().removeData(index);
+      return relocation;
+    } catch (UncheckedExecutionException | FileSystemAccessException e) {
+      throw new IOException("Error while moving data of key hash " + keyHash,
+          e.getCause() != null ? e.getCause() : e);
+    } finally {
+      if (stamp != 0) {
+        checkpointLock.unlockRead(stamp);
+        scheduleCheckpointIfNeeded();
+      }
+      keyReleased.set(null);
+    }
+  }
+
+  /**
+   * Wait until all modifying operations of the given key hash that were submitted before are done
+   * and hold later ones back until the returned future is completed. Used by callers that work on
+   * the data of the key on their own thread.
+   *
+   * @param keyHash The hash of the key.
+   * @return The future to complete once the key is released.
+   */
+  private SettableFuture<Void> awaitKey(int keyHash) {
+    SettableFuture<Void> keyAcquired = SettableFuture.create();
+    SettableFuture<Void> keyReleased = SettableFuture.create();
+    serialized(keyHash, () -> {
+      keyAcquired.set(null);
+      return keyReleased;
+    });
+
+    Futures.getUnchecked(keyAcquired);
+    return keyReleased;
+  }
+
+  /**
+   * Get the first data block indices of all currently known key hashes.
+   *
+   * @return The indices.
+   */
+  IndexMap getIndices() {
+    return indices;
+  }
+
+  /**
+   * Reserve an index file slot for the given new key hash.
+   *
+   * @param keyHash The hash of the key.
+   * @return The index file slot.
+   * @throws IllegalStateException If there is already an index with that hash.
+   */
+  private int reserveIndexSlot(int keyHash) {
+    int indexSlot = allocateIndexSlot();
+    if (indexSlots.putIfAbsent(keyHash, indexSlot) != IndexMap.NO_VALUE) {
+      freeIndexSlots.add(indexSlot);
       throw new IllegalStateException("Tried to save value with key hash " + keyHash
           + " but there is already an index with that hash.");
     }
 
-    Index index = new Index(keyHash, freeDataBlockIndex.getBlockIndex());
-    indices.put(keyHash, index);
-    getIndexStorage().writeIndex(indices.size() + 2, index);
+    return indexSlot;
+  }
 
-    Future<Index> indexFuture = getDataStorage().writeData(index, value);
+  /**
+   * Check that there is no index with the given key hash yet.
+   *
+   * @param keyHash The hash of the key.
+   * @throws IllegalStateException If there is already an index with that hash.
+   */
+  private void checkAbsent(int keyHash) {
+    if (indexSlots.containsKey(keyHash)) {
+      throw new IllegalStateException("Tried to save value with key hash " + keyHash
+          + " but there is already an index with that hash.");
+    }
+  }
 
-    return Futures.lazyTransform(indexFuture, input -> {
-      freeDataBlockIndex.setBlockIndex(Objects.requireNonNull(input).getBlockIndex());
-      return index;
-    });
+  /**
+   * Get a free index file slot, slots of removed indices are reused first.
+   *
+   * @return The index file slot.
+   */
+  private int allocateIndexSlot() {
+    Integer indexSlot = freeIndexSlots.poll();
+    return indexSlot != null ? indexSlot : nextIndexSlot.getAndIncrement();
+  }
+
+  /**
+   * A channel that counts as an active reader until it is closed.
+   */
+  private final class ReaderChannel implements ReadableByteChannel {
+
+    /**
+     * The channel streaming the data record.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * The epoch of the data block reclaimer the channel entered.
+     */
+    private final DataBlockReclaimer.Epoch epoch;
+
+    /**
+     * If the channel was closed already.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    ReaderChannel(ReadableByteChannel channel, DataBlockReclaimer.Epoch epoch) {
+      this.channel = channel;
+      this.epoch = epoch;
+    }
+
+    @Override
+    public int read(ByteBuffer target) throws IOException {
+      return channel.read(target);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        channel.close();
+      } finally {
+        if (closed.compareAndSet(false, true)) {
+          dataBlockReclaimer.exit(epoch);
+        }
+      }
+    }
   }
 }
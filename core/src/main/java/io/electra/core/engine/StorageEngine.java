@@ -1,8 +1,11 @@
 package io.electra.core.engine;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.electra.core.model.Index;
 import java.io.Closeable;
-import java.util.concurrent.Future;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
 
 /**
  * The engine is the part that puts together index and data and will perform sequence operations
@@ -12,6 +15,35 @@ import java.util.concurrent.Future;
  */
 public interface StorageEngine extends Closeable {
 
+  /**
+   * Get the value of the given key hash.
+   *
+   * @param keyHash The hash of the key.
+   * @return The future of the value or of null if there is no value.
+   */
+  ListenableFuture<byte[]> get(int keyHash);
+
+  /**
+   * Get the values of the given key hashes with as few reads as possible. The data blocks of all
+   * values are read in the order of their position in the data file, blocks close to each other
+   * are fetched with one single read and all reads are issued at once.
+   *
+   * @param keyHashes The hashes of the keys.
+   * @return The future of the values in the order of the key hashes, null for missing values.
+   */
+  ListenableFuture<List<byte[]>> getAll(int[] keyHashes);
+
+  /**
+   * Open a channel streaming the value of the given key hash without materializing it. The value
+   * is read lazily with a bounded readahead and bypasses the value cache. Wrap the channel with
+   * {@link java.nio.channels.Channels#newInputStream(ReadableByteChannel)} to get a stream. The
+   * channel has to be closed once it is no longer needed.
+   *
+   * @param keyHash The hash of the key.
+   * @return The channel or null if there is no value.
+   */
+  ReadableByteChannel getChannel(int keyHash);
+
   /**
    * Save the given value for the given key hash.
    *
@@ -19,5 +51,55 @@ public interface StorageEngine extends Closeable {
    * @param value The value.
    * @return The future of the index.
    */
-  Future<Index> save(int keyHash, byte[] value);
+  ListenableFuture<Index> save(int keyHash, byte[] value);
+
+  /**
+   * Save the given values for the given key hashes. All key hashes are reserved before any value
+   * is written, so a key hash that exists already rejects the batch as a whole. The values are
+   * logged and written concurrently.
+   *
+   * @param keyHashes The hashes of the keys.
+   * @param values The values in the order of the key hashes.
+   * @return The future of the indices in the order of the key hashes.
+   * @throws IllegalStateException If there is already an index with one of the hashes or a hash
+   *     is given twice.
+   */
+  ListenableFuture<List<Index>> saveAll(int[] keyHashes, List<byte[]> values);
+
+  /**
+   * Save the content of the given channel, whose length is unknown, for the given key hash. The
+   * content is written into data blocks as it arrives, the index is only published once the
+   * channel is exhausted and all data blocks are written. Blocks while the channel is read.
+   *
+   * @param keyHash The hash of the key.
+   * @param channel The channel of the value.
+   * @return The future of the index.
+   */
+  ListenableFuture<Index> save(int keyHash, ReadableByteChannel channel);
+
+  /**
+   * Replace the value of the given key hash. The value is overwritten in place if it fits into
+   * the data blocks of the old value.
+   *
+   * @param keyHash The hash of the key.
+   * @param value The new value.
+   * @return The future of the index.
+   */
+  ListenableFuture<Index> update(int keyHash, byte[] value);
+
+  /**
+   * Remove the value of the given key hash and free its data blocks.
+   *
+   * @param keyHash The hash of the key.
+   * @return The future of the removed index or of null if there was no value.
+   */
+  ListenableFuture<Index> remove(int keyHash);
+
+  /**
+   * Move fragmented data into contiguous runs of data blocks and cut free data blocks off the end
+   * of the data file. Blocks until the data file was compacted.
+   *
+   * @throws IOException If the data file cannot be compacted.
+   */
+  void compact() throws IOException;
 }
@@ -0,0 +1,148 @@
+package io.electra.core.engine;
+
+import com.google.common.util.concurrent.AsyncCallable;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.model.Index;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A storage engine that runs every operation of another engine on a virtual thread of its own.
+ * Together with the blocking {@link io.electra.core.filesystem.FileChannelFileSystemAccessor} an
+ * operation does its file work on that thread, so many operations can block on the disk at once
+ * without a pool of platform threads. Failures of an operation, including invalid arguments, are
+ * reported through its future. Cancelling that future never interrupts the thread, as an
+ * interrupt in the middle of a read or write would close the file channel for good.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class VirtualThreadStorageEngine implements StorageEngine {
+
+  /**
+   * The engine that does the actual work.
+   */
+  private final StorageEngine storageEngine;
+
+  /**
+   * The executor that runs the operations.
+   */
+  private final ExecutorService executorService;
+
+  /**
+   * If the engine was closed already.
+   */
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /**
+   * Create a new engine that runs the operations of the given engine on virtual threads.
+   *
+   * @param storageEngine The engine that does the actual work.
+   * @throws UnsupportedOperationException If the JVM doesn't support virtual threads.
+   */
+  public VirtualThreadStorageEngine(StorageEngine storageEngine) {
+    this(storageEngine, VirtualThreads.newVirtualThreadPerTaskExecutor());
+  }
+
+  /**
+   * Create a new engine that runs the operations of the given engine on the given executor.
+   *
+   * @param storageEngine The engine that does the actual work.
+   * @param executorService The executor that runs the operations, shut down on close.
+   */
+  VirtualThreadStorageEngine(StorageEngine storageEngine, ExecutorService executorService) {
+    this.storageEngine = storageEngine;
+    this.executorService = executorService;
+  }
+
+  /**
+   * Check if the running JVM supports virtual threads. They are available on Java 21 and newer.
+   *
+   * @return If virtual threads are supported.
+   */
+  public static boolean isSupported() {
+    return VirtualThreads.isSupported();
+  }
+
+  @Override
+  public ListenableFuture<byte[]> get(int keyHash) {
+    return submit(() -> storageEngine.get(keyHash));
+  }
+
+  @Override
+  public ListenableFuture<List<byte[]>> getAll(int[] keyHashes) {
+    return submit(() -> storageEngine.getAll(keyHashes));
+  }
+
+  @Override
+  public ReadableByteChannel getChannel(int keyHash) {
+    return storageEngine.getChannel(keyHash);
+  }
+
+  @Override
+  public ListenableFuture<Index> save(int keyHash, byte[] value) {
+    return submit(() -> storageEngine.save(keyHash, value));
+  }
+
+  @Override
+  public ListenableFuture<List<Index>> saveAll(int[] keyHashes, List<byte[]> values) {
+    return submit(() -> storageEngine.saveAll(keyHashes, values));
+  }
+
+  @Override
+  public ListenableFuture<Index> save(int keyHash, ReadableByteChannel channel) {
+    return submit(() -> storageEngine.save(keyHash, channel));
+  }
+
+  @Override
+  public ListenableFuture<Index> update(int keyHash, byte[] value) {
+    return submit(() -> storageEngine.update(keyHash, value));
+  }
+
+  @Override
+  public ListenableFuture<Index> remove(int keyHash) {
+    return submit(() -> storageEngine.remove(keyHash));
+  }
+
+  /**
+   * Run the given operation on its own thread.
+   *
+   * @param operation The operation.
+   * @param <T> The result type of the operation.
+   * @return The future of the result of the operation, cancelling it doesn't affect the operation.
+   */
+  private <T> ListenableFuture<T> submit(AsyncCallable<T> operation) {
+    return Futures.nonCancellationPropagating(Futures.submitAsync(operation, executorService));
+  }
+
+  @Override
+  public void compact() throws IOException {
+    storageEngine.compact();
+  }
+
+  /**
+   * Wait for all running operations and close the underlying engine. Issuing operations afterwards
+   * throws a {@link java.util.concurrent.RejectedExecutionException}, closing again does nothing.
+   *
+   * @throws IOException If the underlying engine cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+
+    executorService.shutdown();
+    try {
+      executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    storageEngine.close();
+  }
+}
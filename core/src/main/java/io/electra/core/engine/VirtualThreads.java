@@ -0,0 +1,36 @@
+package io.electra.core.engine;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Creates executors that run every task on a virtual thread of its own. Virtual threads are only
+ * available on Java 21 and newer, the multi release jar replaces this class with one that creates
+ * them when running on such a JVM.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+final class VirtualThreads {
+
+  VirtualThreads() {
+    throw new AssertionError("Can't instantiate utility classes.");
+  }
+
+  /**
+   * Check if the running JVM supports virtual threads.
+   *
+   * @return If virtual threads are supported.
+   */
+  static boolean isSupported() {
+    return false;
+  }
+
+  /**
+   * Create a new executor that starts a virtual thread for every task.
+   *
+   * @return The executor.
+   * @throws UnsupportedOperationException If the JVM doesn't support virtual threads.
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+  }
+}
@@ -0,0 +1,11 @@
+package io.electra.core.exception;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class WriteAheadLogException extends Exception {
+
+  public WriteAheadLogException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,184 @@
+package io.electra.core.filesystem;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A thread safe pool of direct byte buffers in power of two size classes. Channels copy heap
+ * buffers into a temporary direct buffer for every operation, pooled direct buffers avoid that
+ * copy and the allocation of a buffer per read or write.
+ *
+ * <p>Buffers are handed out with {@link #acquire(int)} and have to be handed back with
+ * {@link #release(ByteBuffer)} once nobody references them anymore. A buffer must never be
+ * released twice. Requests larger than the biggest size class are served with unpooled heap
+ * buffers, releasing them is a no op.
+ *
+ * <p>A pool can hand out buffers whose memory address is aligned to a given unit instead, as direct
+ * I/O requires. Requests larger than the biggest size class are served with unpooled aligned direct
+ * buffers then.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class DirectByteBufferPool {
+
+  /**
+   * The size of the smallest size class as a power of two.
+   */
+  private static final int MIN_SIZE_CLASS_SHIFT = 6;
+
+  /**
+   * The size of the biggest size class as a power of two.
+   */
+  private static final int MAX_SIZE_CLASS_SHIFT = 20;
+
+  /**
+   * The maximum amount of bytes pooled per size class.
+   */
+  private static final int MAX_POOLED_BYTES_PER_SIZE_CLASS = 1024 * 1024;
+
+  /**
+   * The maximum amount of buffers pooled per size class.
+   */
+  private static final int MAX_POOLED_BUFFERS_PER_SIZE_CLASS = 1024;
+
+  /**
+   * The pooled buffers of all size classes.
+   */
+  private final SizeClass[] sizeClasses = new SizeClass[MAX_SIZE_CLASS_SHIFT
+      - MIN_SIZE_CLASS_SHIFT + 1];
+
+  /**
+   * The unit the addresses of the buffers are aligned to or 0 if they aren't aligned.
+   */
+  private final int alignment;
+
+  /**
+   * Create a new empty pool.
+   */
+  public DirectByteBufferPool() {
+    this(0);
+  }
+
+  /**
+   * Create a new empty pool of buffers whose addresses are aligned to the given unit.
+   *
+   * @param alignment The unit, a power of two, or 0 if the buffers don't have to be aligned.
+   */
+  public DirectByteBufferPool(int alignment) {
+    if (alignment < 0 || Integer.bitCount(alignment) > 1) {
+      throw new IllegalArgumentException("Alignment has to be a power of two.");
+    }
+
+    this.alignment = alignment;
+    for (int i = 0; i < sizeClasses.length; i++) {
+      int bufferSize = 1 << (MIN_SIZE_CLASS_SHIFT + i);
+      int capacity = Math.max(2, Math.min(MAX_POOLED_BUFFERS_PER_SIZE_CLASS,
+          MAX_POOLED_BYTES_PER_SIZE_CLASS / bufferSize));
+      sizeClasses[i] = new SizeClass(bufferSize, capacity, alignment);
+    }
+  }
+
+  /**
+   * Get a buffer with a position of 0 and a limit of the given length. Its content is undefined.
+   *
+   * @param length The length.
+   * @return The byte buffer.
+   */
+  public ByteBuffer acquire(int length) {
+    int sizeClassIndex = getSizeClassIndex(length);
+    if (sizeClassIndex >= sizeClasses.length) {
+      return alignment > 0 ? allocateAligned(length, alignment) : ByteBuffer.allocate(length);
+    }
+
+    ByteBuffer byteBuffer = sizeClasses[sizeClassIndex].poll();
+    byteBuffer.clear();
+    byteBuffer.limit(length);
+    return byteBuffer;
+  }
+
+  /**
+   * Hand the given buffer back to the pool. Buffers that weren't acquired from a pool are ignored.
+   *
+   * @param byteBuffer The byte buffer.
+   */
+  public void release(ByteBuffer byteBuffer) {
+    if (byteBuffer == null || !byteBuffer.isDirect() || byteBuffer.isReadOnly()) {
+      return;
+    }
+
+    int capacity = byteBuffer.capacity();
+    int sizeClassIndex = getSizeClassIndex(capacity);
+    if (sizeClassIndex < sizeClasses.length
+        && sizeClasses[sizeClassIndex].bufferSize == capacity) {
+      sizeClasses[sizeClassIndex].offer(byteBuffer);
+    }
+  }
+
+  /**
+   * Get the amount of buffers currently pooled in the size class of the given length.
+   *
+   * @param length The length.
+   * @return The amount of pooled buffers.
+   */
+  int getPooledBufferCount(int length) {
+    return sizeClasses[getSizeClassIndex(length)].getSize();
+  }
+
+  /**
+   * Allocate a direct buffer of the given capacity whose address is aligned to the given unit.
+   *
+   * @param capacity The capacity.
+   * @param alignment The unit.
+   * @return The byte buffer.
+   */
+  private static ByteBuffer allocateAligned(int capacity, int alignment) {
+    ByteBuffer byteBuffer = ByteBuffer.allocateDirect(capacity + alignment - 1)
+        .alignedSlice(alignment);
+    byteBuffer.limit(capacity);
+    return byteBuffer.slice();
+  }
+
+  private static int getSizeClassIndex(int length) {
+    int shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, length) - 1);
+    return Math.max(0, shift - MIN_SIZE_CLASS_SHIFT);
+  }
+
+  /**
+   * A bounded stack of the pooled buffers of one size.
+   */
+  private static final class SizeClass {
+
+    private final int bufferSize;
+    private final ByteBuffer[] buffers;
+    private final int alignment;
+    private int size;
+
+    SizeClass(int bufferSize, int capacity, int alignment) {
+      this.bufferSize = bufferSize;
+      this.buffers = new ByteBuffer[capacity];
+      this.alignment = alignment;
+    }
+
+    ByteBuffer poll() {
+      synchronized (this) {
+        if (size > 0) {
+          ByteBuffer byteBuffer = buffers[--size];
+          buffers[size] = null;
+          return byteBuffer;
+        }
+      }
+
+      return alignment > 0 ? allocateAligned(bufferSize, alignment)
+          : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    synchronized void offer(ByteBuffer byteBuffer) {
+      if (size < buffers.length) {
+        buffers[size++] = byteBuffer;
+      }
+    }
+
+    synchronized int getSize() {
+      return size;
+    }
+  }
+}
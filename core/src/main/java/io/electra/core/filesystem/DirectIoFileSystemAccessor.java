@@ -0,0 +1,420 @@
+package io.electra.core.filesystem;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Striped;
+import com.sun.nio.file.ExtendedOpenOption;
+import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.metrics.Metrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Low level file access that bypasses the page cache of the operating system. The file is opened
+ * for direct I/O, which only allows reads and writes of whole blocks of the file system from and
+ * into buffers aligned to these blocks. Every operation runs on the calling thread and returns a
+ * completed future.
+ *
+ * <p>Reads are widened to the blocks they touch and the requested range is copied out of the
+ * aligned buffer, so reading a single data block reads the file system block containing it.
+ * Writes that only cover parts of their first or last block read these blocks first and write
+ * them back as a whole. Writes touching the same block are serialized for that, so concurrent
+ * writes of neighbouring data blocks don't lose each other. The file keeps its exact length, a
+ * write that grows the file cuts the padding of its last block off again.
+ *
+ * <p>Without the page cache every read that isn't answered by the block cache goes to the
+ * device, so this should be combined with a block cache that is large enough for the hot data.
+ *
+ * <p>Like in {@link FileChannelFileSystemAccessor}, the interrupt flag of the calling thread is
+ * cleared while the channel is used, as a pending interrupt would close the channel for good.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class DirectIoFileSystemAccessor implements FileSystemAccessor {
+
+  /**
+   * The amount of locks the blocks of the file are striped across.
+   */
+  private static final int BLOCK_LOCK_STRIPES = 64;
+
+  /**
+   * The path of the file we will access.
+   */
+  private final Path filePath;
+
+  /**
+   * The pool of the direct buffers we hand out.
+   */
+  private final DirectByteBufferPool byteBufferPool;
+
+  /**
+   * The metrics we record our reads and writes into.
+   */
+  private final Metrics metrics;
+
+  /**
+   * The current length of the file.
+   */
+  private final AtomicLong fileLength = new AtomicLong();
+
+  /**
+   * The locks of the blocks, held while a block is read and written back by a write.
+   */
+  private final Striped<Lock> blockLocks = Striped.lock(BLOCK_LOCK_STRIPES);
+
+  /**
+   * The lock held by writes that grow the file.
+   */
+  private final Lock growthLock = new ReentrantLock();
+
+  /**
+   * The size of the blocks all reads and writes are aligned to.
+   */
+  private int alignment;
+
+  /**
+   * The pool of the aligned buffers we read into and write from.
+   */
+  private DirectByteBufferPool alignedByteBufferPool;
+
+  /**
+   * Channel used to read from and write to the file.
+   */
+  private FileChannel fileChannel;
+
+  /**
+   * If the file our channel is pointing to had to be created.
+   */
+  private boolean hadToCreateFile;
+
+  /**
+   * Create a new low level file system accessor based on direct I/O.
+   *
+   * @param filePath The path of the file to work on.
+   * @throws FileSystemAccessException If the file system doesn't support direct I/O or the
+   *     underlying channel cannot be created properly.
+   */
+  public DirectIoFileSystemAccessor(Path filePath) throws FileSystemAccessException {
+    this(filePath, new DirectByteBufferPool(), new Metrics());
+  }
+
+  /**
+   * Create a new low level file system accessor based on direct I/O.
+   *
+   * @param filePath The path of the file to work on.
+   * @param byteBufferPool The pool of the buffers to hand out.
+   * @param metrics The metrics to record reads and writes into.
+   * @throws FileSystemAccessException If the file system doesn't support direct I/O or the
+   *     underlying channel cannot be created properly.
+   */
+  public DirectIoFileSystemAccessor(Path filePath, DirectByteBufferPool byteBufferPool,
+      Metrics metrics) throws FileSystemAccessException {
+    this.filePath = filePath;
+    this.byteBufferPool = byteBufferPool;
+    this.metrics = metrics;
+
+    try {
+      initChannel();
+    } catch (IOException | UnsupportedOperationException e) {
+      throw new FileSystemAccessException("Error while accessing file system on low level", e);
+    }
+  }
+
+  /**
+   * Initialize the low level file channel.
+   */
+  private void initChannel() throws IOException {
+    if (!Files.exists(filePath)) {
+      hadToCreateFile = true;
+      Files.createFile(filePath);
+    }
+
+    alignment = Math.toIntExact(Files.getFileStore(filePath).getBlockSize());
+    alignedByteBufferPool = new DirectByteBufferPool(alignment);
+    fileChannel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+        ExtendedOpenOption.DIRECT);
+    fileLength.set(fileChannel.size());
+  }
+
+  /**
+   * Get the size of the blocks all reads and writes are aligned to.
+   *
+   * @return The alignment.
+   */
+  public int getAlignment() {
+    return alignment;
+  }
+
+  @Override
+  public boolean hadToCreateFile() {
+    return hadToCreateFile;
+  }
+
+  @Override
+  public void close() throws IOException {
+    fileChannel.close();
+  }
+
+  @Override
+  public void clear() throws FileSystemAccessException {
+    truncate(0);
+  }
+
+  @Override
+  public void truncate(long length) throws FileSystemAccessException {
+    growthLock.lock();
+    boolean interrupted = Thread.interrupted();
+    try {
+      fileChannel.truncate(length);
+      fileLength.set(Math.min(fileLength.get(), length));
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error truncating channel", e);
+    } finally {
+      growthLock.unlock();
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public ListenableFuture<ByteBuffer> read(long offset, int length) {
+    long startTime = System.nanoTime();
+    metrics.readStarted();
+
+    long alignedOffset = alignDown(offset);
+    int alignedLength = Math.toIntExact(alignUp(offset + length) - alignedOffset);
+    ByteBuffer alignedBuffer = alignedByteBufferPool.acquire(alignedLength);
+
+    boolean interrupted = Thread.interrupted();
+    try {
+      int bytesRead = readBlocks(alignedBuffer, alignedOffset);
+      int contentOffset = (int) (offset - alignedOffset);
+      int contentLength = Math.max(0, Math.min(length, bytesRead - contentOffset));
+
+      ByteBuffer byteBuffer = byteBufferPool.acquire(contentLength);
+      alignedBuffer.limit(contentOffset + contentLength).position(contentOffset);
+      byteBuffer.put(alignedBuffer).flip();
+
+      metrics.readCompleted(startTime, contentLength);
+      return Futures.immediateFuture(byteBuffer);
+    } catch (IOException e) {
+      metrics.readFailed();
+      return Futures.immediateFailedFuture(e);
+    } finally {
+      alignedByteBufferPool.release(alignedBuffer);
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Read whole blocks into the remaining part of the given aligned buffer until it is full or the
+   * end of the file is reached. The buffer's position is left behind the bytes read.
+   *
+   * @param alignedBuffer The aligned buffer.
+   * @param alignedOffset The aligned position to read from.
+   * @return The amount of bytes read.
+   * @throws IOException If the read fails.
+   */
+  private int readBlocks(ByteBuffer alignedBuffer, long alignedOffset) throws IOException {
+    int start = alignedBuffer.position();
+    while (alignedBuffer.hasRemaining()) {
+      int bytesRead = fileChannel.read(alignedBuffer,
+          alignedOffset + alignedBuffer.position() - start);
+      // A read that ends in the middle of a block has reached the end of the file.
+      if (bytesRead <= 0 || bytesRead % alignment != 0) {
+        break;
+      }
+    }
+
+    return alignedBuffer.position() - start;
+  }
+
+  @Override
+  public ListenableFuture<Integer> write(long offset, ByteBuffer content) {
+    int length = content.remaining();
+    long startTime = System.nanoTime();
+    metrics.writeStarted();
+
+    long end = offset + length;
+    // Writing the last block of the file pads it, the padding is cut off again afterwards.
+    boolean writesLastBlock = alignUp(end) > fileLength.get();
+    if (writesLastBlock) {
+      growthLock.lock();
+    }
+
+    List<Lock> locks = lockBlocks(alignDown(offset), alignUp(end));
+    boolean interrupted = Thread.interrupted();
+    try {
+      writeBlocks(offset, content);
+
+      if (writesLastBlock) {
+        long newFileLength = Math.max(fileLength.get(), end);
+        fileChannel.truncate(newFileLength);
+        fileLength.set(newFileLength);
+      }
+    } catch (IOException e) {
+      metrics.writeFailed();
+      return Futures.immediateFailedFuture(e);
+    } finally {
+      for (Lock lock : locks) {
+        lock.unlock();
+      }
+      if (writesLastBlock) {
+        growthLock.unlock();
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    metrics.writeCompleted(startTime, length);
+    return Futures.immediateFuture(length);
+  }
+
+  /**
+   * Write the given content as whole blocks. The first and last block are read before, if the
+   * content only covers parts of them.
+   *
+   * @param offset The position to write the content to.
+   * @param content The data to write.
+   * @throws IOException If a read or the write fails.
+   */
+  private void writeBlocks(long offset, ByteBuffer content) throws IOException {
+    long end = offset + content.remaining();
+    long alignedOffset = alignDown(offset);
+    long alignedEnd = alignUp(end);
+    int alignedLength = Math.toIntExact(alignedEnd - alignedOffset);
+    ByteBuffer alignedBuffer = alignedByteBufferPool.acquire(alignedLength);
+
+    try {
+      boolean partialFirstBlock = offset != alignedOffset;
+      if (partialFirstBlock) {
+        readBlock(alignedBuffer, 0, alignedOffset);
+      }
+      // A single block was read as the first one already.
+      if (end != alignedEnd && (alignedLength > alignment || !partialFirstBlock)) {
+        readBlock(alignedBuffer, alignedLength - alignment, alignedEnd - alignment);
+      }
+
+      alignedBuffer.clear().position((int) (offset - alignedOffset));
+      alignedBuffer.put(content);
+      alignedBuffer.clear().limit(alignedLength);
+
+      while (alignedBuffer.hasRemaining()) {
+        fileChannel.write(alignedBuffer, alignedOffset + alignedBuffer.position());
+      }
+    } finally {
+      alignedByteBufferPool.release(alignedBuffer);
+    }
+  }
+
+  /**
+   * Read a single block into the given part of the aligned buffer. Bytes behind the end of the
+   * file are zeroed.
+   *
+   * @param alignedBuffer The aligned buffer.
+   * @param bufferOffset The aligned position in the buffer to read into.
+   * @param alignedOffset The aligned position of the block in the file.
+   * @throws IOException If the read fails.
+   */
+  private void readBlock(ByteBuffer alignedBuffer, int bufferOffset, long alignedOffset)
+      throws IOException {
+    alignedBuffer.limit(bufferOffset + alignment).position(bufferOffset);
+    readBlocks(alignedBuffer, alignedOffset);
+    while (alignedBuffer.hasRemaining()) {
+      alignedBuffer.put((byte) 0);
+    }
+  }
+
+  /**
+   * Lock all blocks in the given aligned range. The locks are acquired in a consistent order, so
+   * writes of overlapping ranges can't deadlock.
+   *
+   * @param alignedOffset The aligned start of the range.
+   * @param alignedEnd The aligned end of the range.
+   * @return The acquired locks.
+   */
+  private List<Lock> lockBlocks(long alignedOffset, long alignedEnd) {
+    List<Long> blocks = new ArrayList<>();
+    for (long position = alignedOffset; position < alignedEnd; position += alignment) {
+      blocks.add(position / alignment);
+    }
+
+    List<Lock> locks = new ArrayList<>(BLOCK_LOCK_STRIPES);
+    for (Lock lock : blockLocks.bulkGet(blocks)) {
+      if (!locks.contains(lock)) {
+        lock.lock();
+        locks.add(lock);
+      }
+    }
+
+    return locks;
+  }
+
+  /**
+   * Round the given position down to the start of its block.
+   *
+   * @param position The position.
+   * @return The start of the block.
+   */
+  private long alignDown(long position) {
+    return position - position % alignment;
+  }
+
+  /**
+   * Round the given position up to the next block boundary.
+   *
+   * @param position The position.
+   * @return The block boundary.
+   */
+  private long alignUp(long position) {
+    return alignDown(position + alignment - 1);
+  }
+
+  @Override
+  public ByteBuffer allocate(int length) {
+    return byteBufferPool.acquire(length);
+  }
+
+  @Override
+  public void release(ByteBuffer byteBuffer) {
+    byteBufferPool.release(byteBuffer);
+  }
+
+  @Override
+  public long getFileLength() throws FileSystemAccessException {
+    if (!fileChannel.isOpen()) {
+      throw new FileSystemAccessException("Error reading file length",
+          new ClosedChannelException());
+    }
+
+    return fileLength.get();
+  }
+
+  @Override
+  public void force() throws FileSystemAccessException {
+    boolean interrupted = Thread.interrupted();
+    try {
+      fileChannel.force(true);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error syncing channel", e);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
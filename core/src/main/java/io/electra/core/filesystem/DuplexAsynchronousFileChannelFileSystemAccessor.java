@@ -1,14 +1,17 @@
 package io.electra.core.filesystem;
 
-import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.metrics.Metrics;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.concurrent.Future;
+import java.util.EnumSet;
 
 /**
  * Wrapper for low level file access.
@@ -22,6 +25,21 @@ public class DuplexAsynchronousFileChannelFileSystemAccessor implements FileSyst
    */
   private final Path filePath;
 
+  /**
+   * The pool of the direct buffers we read into and write from.
+   */
+  private final DirectByteBufferPool byteBufferPool;
+
+  /**
+   * The metrics we record our reads and writes into.
+   */
+  private final Metrics metrics;
+
+  /**
+   * The executor the channel runs its operations on or null to use the JVM's default pool.
+   */
+  private final IoExecutor ioExecutor;
+
   /**
    * Channel used to read from file.
    */
@@ -40,7 +58,40 @@ public class DuplexAsynchronousFileChannelFileSystemAccessor implements FileSyst
    */
   public DuplexAsynchronousFileChannelFileSystemAccessor(Path filePath)
       throws FileSystemAccessException {
+    this(filePath, new DirectByteBufferPool(), new Metrics());
+  }
+
+  /**
+   * Create a new low level file system accessor based on asynchronous file channels.
+   *
+   * @param filePath The path of the file to work on.
+   * @param byteBufferPool The pool of the buffers to read into.
+   * @param metrics The metrics to record reads and writes into.
+   * @throws FileSystemAccessException If the underlying channels cannot be created properly.
+   */
+  public DuplexAsynchronousFileChannelFileSystemAccessor(Path filePath,
+      DirectByteBufferPool byteBufferPool, Metrics metrics) throws FileSystemAccessException {
+    this(filePath, byteBufferPool, metrics, null);
+  }
+
+  /**
+   * Create a new low level file system accessor based on an asynchronous file channel that runs
+   * its operations on the given executor.
+   *
+   * @param filePath The path of the file to work on.
+   * @param byteBufferPool The pool of the buffers to read into.
+   * @param metrics The metrics to record reads and writes into.
+   * @param ioExecutor The executor to run the operations on or null to use the JVM's default
+   *     pool.
+   * @throws FileSystemAccessException If the underlying channels cannot be created properly.
+   */
+  public DuplexAsynchronousFileChannelFileSystemAccessor(Path filePath,
+      DirectByteBufferPool byteBufferPool, Metrics metrics, IoExecutor ioExecutor)
+      throws FileSystemAccessException {
     this.filePath = filePath;
+    this.byteBufferPool = byteBufferPool;
+    this.metrics = metrics;
+    this.ioExecutor = ioExecutor;
 
     try {
       initChannels();
@@ -58,8 +109,19 @@ public class DuplexAsynchronousFileChannelFileSystemAccessor implements FileSyst
       Files.createFile(filePath);
     }
 
-    inputOutputChannel = AsynchronousFileChannel
-        .open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (ioExecutor == null) {
+      inputOutputChannel = AsynchronousFileChannel
+          .open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      return;
+    }
+
+    try {
+      inputOutputChannel = AsynchronousFileChannel.open(filePath,
+          EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE), ioExecutor.acquire());
+    } catch (IOException | RuntimeException e) {
+      ioExecutor.release();
+      throw e;
+    }
   }
 
   @Override
@@ -69,7 +131,17 @@ public class DuplexAsynchronousFileChannelFileSystemAccessor implements FileSyst
 
   @Override
   public void close() throws IOException {
-    inputOutputChannel.close();
+    if (!inputOutputChannel.isOpen()) {
+      return;
+    }
+
+    try {
+      inputOutputChannel.close();
+    } finally {
+      if (ioExecutor != null) {
+        ioExecutor.release();
+      }
+    }
   }
 
   @Override
@@ -82,18 +154,117 @@ public class DuplexAsynchronousFileChannelFileSystemAccessor implements FileSyst
   }
 
   @Override
-  public Future<ByteBuffer> read(long offset, int length) {
-    ByteBuffer byteBuffer = ByteBuffer.allocate(length);
-    Future<Integer> bytesReadFuture = inputOutputChannel.read(byteBuffer, offset);
-    return Futures.lazyTransform(bytesReadFuture, bytesRead -> {
-      byteBuffer.flip();
-      return byteBuffer;
-    });
+  public void truncate(long length) throws FileSystemAccessException {
+    try {
+      inputOutputChannel.truncate(length);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error truncating channel", e);
+    }
+  }
+
+  @Override
+  public ListenableFuture<ByteBuffer> read(long offset, int length) {
+    ByteBuffer byteBuffer = byteBufferPool.acquire(length);
+    SettableFuture<ByteBuffer> resultFuture = SettableFuture.create();
+    metrics.readStarted();
+    read(offset, byteBuffer, System.nanoTime(), resultFuture);
+    return resultFuture;
+  }
+
+  /**
+   * Read into the given buffer until it is full or the end of the file is reached. The given
+   * future will be completed by the channel's completion handler, no thread waits for the read.
+   *
+   * @param offset The position to read the remaining bytes from.
+   * @param byteBuffer The buffer to read into.
+   * @param startTime The {@link System#nanoTime()} the read was issued at.
+   * @param resultFuture The future to complete once the buffer is filled.
+   */
+  private void read(long offset, ByteBuffer byteBuffer, long startTime,
+      SettableFuture<ByteBuffer> resultFuture) {
+    try {
+      inputOutputChannel.read(byteBuffer, offset, resultFuture,
+          new CompletionHandler<Integer, SettableFuture<ByteBuffer>>() {
+            @Override
+            public void completed(Integer bytesRead, SettableFuture<ByteBuffer> attachment) {
+              if (bytesRead == -1 || !byteBuffer.hasRemaining()) {
+                byteBuffer.flip();
+                metrics.readCompleted(startTime, byteBuffer.remaining());
+                attachment.set(byteBuffer);
+                return;
+              }
+
+              read(offset + bytesRead, byteBuffer, startTime, attachment);
+            }
+
+            @Override
+            public void failed(Throwable throwable, SettableFuture<ByteBuffer> attachment) {
+              byteBufferPool.release(byteBuffer);
+              metrics.readFailed();
+              attachment.setException(throwable);
+            }
+          });
+    } catch (RuntimeException e) {
+      byteBufferPool.release(byteBuffer);
+      metrics.readFailed();
+      resultFuture.setException(e);
+    }
   }
 
   @Override
-  public Future<Integer> write(long offset, ByteBuffer content) {
-    return inputOutputChannel.write(content, offset);
+  public ListenableFuture<Integer> write(long offset, ByteBuffer content) {
+    SettableFuture<Integer> resultFuture = SettableFuture.create();
+    metrics.writeStarted();
+    write(offset, content, content.remaining(), System.nanoTime(), resultFuture);
+    return resultFuture;
+  }
+
+  /**
+   * Write the remaining content of the given buffer. The given future will be completed by the
+   * channel's completion handler once the whole buffer has been written.
+   *
+   * @param offset The position to write the remaining bytes to.
+   * @param content The data to write.
+   * @param length The total amount of bytes to write.
+   * @param startTime The {@link System#nanoTime()} the write was issued at.
+   * @param resultFuture The future to complete once the buffer is written.
+   */
+  private void write(long offset, ByteBuffer content, int length, long startTime,
+      SettableFuture<Integer> resultFuture) {
+    try {
+      inputOutputChannel.write(content, offset, resultFuture,
+          new CompletionHandler<Integer, SettableFuture<Integer>>() {
+            @Override
+            public void completed(Integer bytesWritten, SettableFuture<Integer> attachment) {
+              if (!content.hasRemaining()) {
+                metrics.writeCompleted(startTime, length);
+                attachment.set(length);
+                return;
+              }
+
+              write(offset + bytesWritten, content, length, startTime, attachment);
+            }
+
+            @Override
+            public void failed(Throwable throwable, SettableFuture<Integer> attachment) {
+              metrics.writeFailed();
+              attachment.setException(throwable);
+            }
+          });
+    } catch (RuntimeException e) {
+      metrics.writeFailed();
+      resultFuture.setException(e);
+    }
+  }
+
+  @Override
+  public ByteBuffer allocate(int length) {
+    return byteBufferPool.acquire(length);
+  }
+
+  @Override
+  public void release(ByteBuffer byteBuffer) {
+    byteBufferPool.release(byteBuffer);
   }
 
   @Override
@@ -104,4 +275,13 @@ public class DuplexAsynchronousFileChannelFileSystemAccessor implements FileSyst
       throw new FileSystemAccessException("Error reading file length", e);
     }
   }
+
+  @Override
+  public void force() throws FileSystemAccessException {
+    try {
+      inputOutputChannel.force(true);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error syncing channel", e);
+    }
+  }
 }
@@ -0,0 +1,211 @@
+package io.electra.core.filesystem;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.metrics.Metrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Low level file access based on positional reads and writes of a blocking file channel. Every
+ * operation runs on the calling thread and returns a completed future, so there is no thread pool
+ * and no completion handler involved. This fits callers that run on cheap threads anyway, like
+ * the virtual threads of {@link io.electra.core.engine.VirtualThreadStorageEngine}.
+ *
+ * <p>As for every interruptible channel, interrupting a thread while it reads or writes closes the
+ * channel for good. The interrupt flag of the calling thread is cleared while the channel is used
+ * and restored afterwards, so an interrupt that is pending already doesn't close it, but callers
+ * must still not be interrupted in the middle of an operation.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class FileChannelFileSystemAccessor implements FileSystemAccessor {
+
+  /**
+   * The path of the file we will access.
+   */
+  private final Path filePath;
+
+  /**
+   * The pool of the direct buffers we read into and write from.
+   */
+  private final DirectByteBufferPool byteBufferPool;
+
+  /**
+   * The metrics we record our reads and writes into.
+   */
+  private final Metrics metrics;
+
+  /**
+   * Channel used to read from and write to the file.
+   */
+  private FileChannel fileChannel;
+
+  /**
+   * If the file our channel is pointing to had to be created.
+   */
+  private boolean hadToCreateFile;
+
+  /**
+   * Create a new low level file system accessor based on a blocking file channel.
+   *
+   * @param filePath The path of the file to work on.
+   * @throws FileSystemAccessException If the underlying channel cannot be created properly.
+   */
+  public FileChannelFileSystemAccessor(Path filePath) throws FileSystemAccessException {
+    this(filePath, new DirectByteBufferPool(), new Metrics());
+  }
+
+  /**
+   * Create a new low level file system accessor based on a blocking file channel.
+   *
+   * @param filePath The path of the file to work on.
+   * @param byteBufferPool The pool of the buffers to read into.
+   * @param metrics The metrics to record reads and writes into.
+   * @throws FileSystemAccessException If the underlying channel cannot be created properly.
+   */
+  public FileChannelFileSystemAccessor(Path filePath, DirectByteBufferPool byteBufferPool,
+      Metrics metrics) throws FileSystemAccessException {
+    this.filePath = filePath;
+    this.byteBufferPool = byteBufferPool;
+    this.metrics = metrics;
+
+    try {
+      initChannel();
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while accessing file system on low level", e);
+    }
+  }
+
+  /**
+   * Initialize the low level file channel.
+   */
+  private void initChannel() throws IOException {
+    if (!Files.exists(filePath)) {
+      hadToCreateFile = true;
+      Files.createFile(filePath);
+    }
+
+    fileChannel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  @Override
+  public boolean hadToCreateFile() {
+    return hadToCreateFile;
+  }
+
+  @Override
+  public void close() throws IOException {
+    fileChannel.close();
+  }
+
+  @Override
+  public void clear() throws FileSystemAccessException {
+    truncate(0);
+  }
+
+  @Override
+  public void truncate(long length) throws FileSystemAccessException {
+    boolean interrupted = Thread.interrupted();
+    try {
+      fileChannel.truncate(length);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error truncating channel", e);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public ListenableFuture<ByteBuffer> read(long offset, int length) {
+    ByteBuffer byteBuffer = byteBufferPool.acquire(length);
+    long startTime = System.nanoTime();
+    metrics.readStarted();
+
+    boolean interrupted = Thread.interrupted();
+    try {
+      while (byteBuffer.hasRemaining()) {
+        int bytesRead = fileChannel.read(byteBuffer, offset + byteBuffer.position());
+        if (bytesRead == -1) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      byteBufferPool.release(byteBuffer);
+      metrics.readFailed();
+      return Futures.immediateFailedFuture(e);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    byteBuffer.flip();
+    metrics.readCompleted(startTime, byteBuffer.remaining());
+    return Futures.immediateFuture(byteBuffer);
+  }
+
+  @Override
+  public ListenableFuture<Integer> write(long offset, ByteBuffer content) {
+    int length = content.remaining();
+    long startTime = System.nanoTime();
+    metrics.writeStarted();
+
+    boolean interrupted = Thread.interrupted();
+    try {
+      while (content.hasRemaining()) {
+        fileChannel.write(content, offset + length - content.remaining());
+      }
+    } catch (IOException e) {
+      metrics.writeFailed();
+      return Futures.immediateFailedFuture(e);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    metrics.writeCompleted(startTime, length);
+    return Futures.immediateFuture(length);
+  }
+
+  @Override
+  public ByteBuffer allocate(int length) {
+    return byteBufferPool.acquire(length);
+  }
+
+  @Override
+  public void release(ByteBuffer byteBuffer) {
+    byteBufferPool.release(byteBuffer);
+  }
+
+  @Override
+  public long getFileLength() throws FileSystemAccessException {
+    try {
+      return fileChannel.size();
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error reading file length", e);
+    }
+  }
+
+  @Override
+  public void force() throws FileSystemAccessException {
+    boolean interrupted = Thread.interrupted();
+    try {
+      fileChannel.force(true);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error syncing channel", e);
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -1,9 +1,9 @@
 package io.electra.core.filesystem;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.electra.core.exception.FileSystemAccessException;
 import java.io.Closeable;
 import java.nio.ByteBuffer;
-import java.util.concurrent.Future;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
@@ -25,13 +25,25 @@ public interface FileSystemAccessor extends Closeable {
   void clear() throws FileSystemAccessException;
 
   /**
-   * Read the given amount of bytes from the given offset.
+   * Cut the file we are accessing off at the given length. Nothing behind that length may be read
+   * or written concurrently.
+   *
+   * @param length The new length of the file.
+   * @throws FileSystemAccessException If truncating fails.
+   */
+  void truncate(long length) throws FileSystemAccessException;
+
+  /**
+   * Read the given amount of bytes from the given offset. The returned future completes without
+   * blocking any thread while the read is in flight. Reads beyond the end of the file will result
+   * in a buffer containing less or no data. The returned buffer may be pooled and should be handed
+   * back via {@link #release(ByteBuffer)} once it has been consumed.
    *
    * @param offset The offset.
    * @param length The amount of bytes.
    * @return The byte array.
    */
-  Future<ByteBuffer> read(long offset, int length);
+  ListenableFuture<ByteBuffer> read(long offset, int length);
 
   /**
    * Write the content of the given buffer at the given position.
@@ -40,7 +52,25 @@ public interface FileSystemAccessor extends Closeable {
    * @param content The data to write.
    * @return The future of the amounts of bytes written.
    */
-  Future<Integer> write(long offset, ByteBuffer content);
+  ListenableFuture<Integer> write(long offset, ByteBuffer content);
+
+  /**
+   * Get a buffer with a position of 0 and a limit of the given length to fill and pass to {@link
+   * #write(long, ByteBuffer)}. Its content is undefined. It should be handed back via {@link
+   * #release(ByteBuffer)} once the write completed.
+   *
+   * @param length The length.
+   * @return The byte buffer.
+   */
+  ByteBuffer allocate(int length);
+
+  /**
+   * Hand back a buffer obtained from {@link #read(long, int)} or {@link #allocate(int)}. The buffer
+   * must not be used and must not be released again afterwards.
+   *
+   * @param byteBuffer The byte buffer.
+   */
+  void release(ByteBuffer byteBuffer);
 
   /**
    * Get the length of the file.
@@ -49,4 +79,11 @@ public interface FileSystemAccessor extends Closeable {
    * @throws FileSystemAccessException When the reading fails.
    */
   long getFileLength() throws FileSystemAccessException;
+
+  /**
+   * Force all completed writes and the length of the file down to the storage device.
+   *
+   * @throws FileSystemAccessException When syncing fails.
+   */
+  void force() throws FileSystemAccessException;
 }
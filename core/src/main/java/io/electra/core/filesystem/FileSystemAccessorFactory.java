@@ -0,0 +1,49 @@
+package io.electra.core.filesystem;
+
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.exception.FileSystemAccessException;
+import java.nio.file.Path;
+
+/**
+ * Creates the {@link FileSystemAccessor} that was chosen via the {@link ElectraConfiguration}.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class FileSystemAccessorFactory {
+
+  /**
+   * The buffer pool shared by all accessors.
+   */
+  private static final DirectByteBufferPool BYTE_BUFFER_POOL = new DirectByteBufferPool();
+
+  FileSystemAccessorFactory() {
+    throw new AssertionError("Can't instantiate factories.");
+  }
+
+  /**
+   * Create a new file system accessor for the given file.
+   *
+   * @param filePath The path of the file to work on.
+   * @param configuration The configuration.
+   * @return The file system accessor.
+   * @throws FileSystemAccessException If the accessor cannot access the file.
+   */
+  public static FileSystemAccessor createFileSystemAccessor(Path filePath,
+      ElectraConfiguration configuration) throws FileSystemAccessException {
+    switch (configuration.getFileSystemAccessorType()) {
+      case MEMORY_MAPPED:
+        return new MemoryMappedFileSystemAccessor(filePath,
+            configuration.getMemoryMappedSegmentSize(), configuration.getMetrics());
+      case FILE_CHANNEL:
+        return new FileChannelFileSystemAccessor(filePath, BYTE_BUFFER_POOL,
+            configuration.getMetrics());
+      case DIRECT:
+        return new DirectIoFileSystemAccessor(filePath, BYTE_BUFFER_POOL,
+            configuration.getMetrics());
+      case ASYNCHRONOUS_FILE_CHANNEL:
+      default:
+        return new DuplexAsynchronousFileChannelFileSystemAccessor(filePath, BYTE_BUFFER_POOL,
+            configuration.getMetrics(), configuration.getIoExecutor());
+    }
+  }
+}
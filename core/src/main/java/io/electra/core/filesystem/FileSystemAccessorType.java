@@ -0,0 +1,29 @@
+package io.electra.core.filesystem;
+
+/**
+ * All available low level file access strategies.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public enum FileSystemAccessorType {
+
+  /**
+   * Access via {@link DuplexAsynchronousFileChannelFileSystemAccessor}.
+   */
+  ASYNCHRONOUS_FILE_CHANNEL,
+
+  /**
+   * Access via {@link FileChannelFileSystemAccessor}.
+   */
+  FILE_CHANNEL,
+
+  /**
+   * Access via {@link DirectIoFileSystemAccessor}.
+   */
+  DIRECT,
+
+  /**
+   * Access via {@link MemoryMappedFileSystemAccessor}.
+   */
+  MEMORY_MAPPED
+}
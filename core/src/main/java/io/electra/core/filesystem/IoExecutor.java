@@ -0,0 +1,111 @@
+package io.electra.core.filesystem;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of threads the asynchronous file channels run their reads and writes on. The
+ * completion handlers and all transformations of their futures run on the same threads, so these
+ * threads do all the file work of every database that uses this executor.
+ *
+ * <p>The pool is started by the first accessor that acquires it and shut down once the last one
+ * released it, so it lives exactly as long as the databases that share it.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class IoExecutor implements IoExecutorMXBean {
+
+  /**
+   * The maximum amount of threads that run file operations at once.
+   */
+  private final int maxThreadCount;
+
+  /**
+   * The amount of accessors that currently use the pool.
+   */
+  private int userCount;
+
+  /**
+   * The pool of the current users or null if there are none.
+   */
+  private ThreadPoolExecutor threadPoolExecutor;
+
+  /**
+   * The amount of operations completed by pools that were shut down already.
+   */
+  private long previouslyCompletedTaskCount;
+
+  /**
+   * Create a new executor.
+   *
+   * @param maxThreadCount The maximum amount of threads that run file operations at once.
+   */
+  public IoExecutor(int maxThreadCount) {
+    if (maxThreadCount <= 0) {
+      throw new IllegalArgumentException("Thread count has to be positive.");
+    }
+
+    this.maxThreadCount = maxThreadCount;
+  }
+
+  /**
+   * Start using the pool. Every call has to be followed by exactly one call of {@link #release()}
+   * once the caller closed all channels it opened with the pool.
+   *
+   * @return The pool to open the channels with.
+   */
+  public synchronized ExecutorService acquire() {
+    if (userCount++ == 0) {
+      threadPoolExecutor = new ThreadPoolExecutor(maxThreadCount, maxThreadCount, 0,
+          TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+          .setNameFormat("electra-io-%d").setDaemon(true).build());
+    }
+
+    return threadPoolExecutor;
+  }
+
+  /**
+   * Stop using the pool. The last user shuts it down, operations that are still queued are run
+   * anyway.
+   */
+  public synchronized void release() {
+    if (userCount == 0) {
+      throw new IllegalStateException("Executor isn't acquired.");
+    }
+
+    if (--userCount == 0) {
+      threadPoolExecutor.shutdown();
+      previouslyCompletedTaskCount += threadPoolExecutor.getCompletedTaskCount();
+      threadPoolExecutor = null;
+    }
+  }
+
+  @Override
+  public int getMaxThreadCount() {
+    return maxThreadCount;
+  }
+
+  @Override
+  public synchronized int getThreadCount() {
+    return threadPoolExecutor == null ? 0 : threadPoolExecutor.getPoolSize();
+  }
+
+  @Override
+  public synchronized int getActiveThreadCount() {
+    return threadPoolExecutor == null ? 0 : threadPoolExecutor.getActiveCount();
+  }
+
+  @Override
+  public synchronized int getQueueDepth() {
+    return threadPoolExecutor == null ? 0 : threadPoolExecutor.getQueue().size();
+  }
+
+  @Override
+  public synchronized long getCompletedTaskCount() {
+    return previouslyCompletedTaskCount
+        + (threadPoolExecutor == null ? 0 : threadPoolExecutor.getCompletedTaskCount());
+  }
+}
@@ -0,0 +1,44 @@
+package io.electra.core.filesystem;
+
+/**
+ * The management interface of an {@link IoExecutor}.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public interface IoExecutorMXBean {
+
+  /**
+   * Get the maximum amount of threads that run file operations at once.
+   *
+   * @return The amount of threads.
+   */
+  int getMaxThreadCount();
+
+  /**
+   * Get the amount of threads that are currently alive.
+   *
+   * @return The amount of threads.
+   */
+  int getThreadCount();
+
+  /**
+   * Get the amount of threads that are currently running a file operation or its completion.
+   *
+   * @return The amount of threads.
+   */
+  int getActiveThreadCount();
+
+  /**
+   * Get the amount of file operations that wait for a free thread.
+   *
+   * @return The queue depth.
+   */
+  int getQueueDepth();
+
+  /**
+   * Get the amount of file operations that were run to completion.
+   *
+   * @return The amount of operations.
+   */
+  long getCompletedTaskCount();
+}
@@ -0,0 +1,486 @@
+package io.electra.core.filesystem;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.metrics.Metrics;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Low level file access based on memory mapped segments of the file. Reads that lie within one
+ * segment are answered with a read only slice of the mapping, so they neither need a system call
+ * nor copy any data onto the heap.
+ *
+ * <p>The file is never mapped beyond its actual length, as mapping would grow the file and the
+ * storages rely on reads past the end of the file returning no data. Writes that grow the file go
+ * through the underlying channel. A segment is only remapped once the file reaches at least twice
+ * as far into it as its current mapping, until then its unmapped tail is read and written through
+ * the channel as well. This keeps a growing file from being remapped on every append.
+ *
+ * <p>Java offers no safe way to unmap a mapping while readers may still hold slices of it, so a
+ * replaced mapping is unmapped by the garbage collector once the last slice is gone. As mappings
+ * grow geometrically, the replaced mappings of a segment are smaller than the segment in total.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class MemoryMappedFileSystemAccessor implements FileSystemAccessor {
+
+  /**
+   * The path of the file we will access.
+   */
+  private final Path filePath;
+
+  /**
+   * The maximum size of one mapped segment.
+   */
+  private final int segmentSize;
+
+  /**
+   * The metrics we record our reads and writes into.
+   */
+  private final Metrics metrics;
+
+  /**
+   * The current length of the file.
+   */
+  private final AtomicLong fileLength = new AtomicLong();
+
+  /**
+   * Channel used to map the file and to grow it.
+   */
+  private FileChannel fileChannel;
+
+  /**
+   * The currently mapped segments. A segment may be null or smaller than the segment size when it
+   * was not needed yet or when the file was smaller at the time it was mapped.
+   */
+  private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+  /**
+   * If the file our channel is pointing to had to be created.
+   */
+  private boolean hadToCreateFile;
+
+  /**
+   * The amount of mappings created so far.
+   */
+  private long mapCount;
+
+  /**
+   * Create a new low level file system accessor based on memory mapped file segments.
+   *
+   * @param filePath The path of the file to work on.
+   * @param segmentSize The maximum size of one mapped segment.
+   * @throws FileSystemAccessException If the underlying channel cannot be created properly.
+   */
+  public MemoryMappedFileSystemAccessor(Path filePath, int segmentSize)
+      throws FileSystemAccessException {
+    this(filePath, segmentSize, new Metrics());
+  }
+
+  /**
+   * Create a new low level file system accessor based on memory mapped file segments.
+   *
+   * @param filePath The path of the file to work on.
+   * @param segmentSize The maximum size of one mapped segment.
+   * @param metrics The metrics to record reads and writes into.
+   * @throws FileSystemAccessException If the underlying channel cannot be created properly.
+   */
+  public MemoryMappedFileSystemAccessor(Path filePath, int segmentSize, Metrics metrics)
+      throws FileSystemAccessException {
+    if (segmentSize <= 0) {
+      throw new IllegalArgumentException("Segment size has to be positive.");
+    }
+
+    this.filePath = filePath;
+    this.segmentSize = segmentSize;
+    this.metrics = metrics;
+
+    try {
+      initChannel();
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while accessing file system on low level", e);
+    }
+  }
+
+  /**
+   * Initialize the low level file channel.
+   */
+  private void initChannel() throws IOException {
+    if (!Files.exists(filePath)) {
+      hadToCreateFile = true;
+      Files.createFile(filePath);
+    }
+
+    fileChannel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    fileLength.set(fileChannel.size());
+  }
+
+  @Override
+  public boolean hadToCreateFile() {
+    return hadToCreateFile;
+  }
+
+  @Override
+  public void close() throws IOException {
+    segments = new MappedByteBuffer[0];
+    fileChannel.close();
+  }
+
+  @Override
+  public synchronized void clear() throws FileSystemAccessException {
+    try {
+      fileChannel.truncate(0);
+      segments = new MappedByteBuffer[0];
+      fileLength.set(0);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error truncating channel", e);
+    }
+  }
+
+  @Override
+  public synchronized void truncate(long length) throws FileSystemAccessException {
+    try {
+      fileChannel.truncate(length);
+      // Segments reaching behind the new end must never be accessed again.
+      segments = new MappedByteBuffer[0];
+      fileLength.set(Math.min(fileLength.get(), length));
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error truncating channel", e);
+    }
+  }
+
+  @Override
+  public ListenableFuture<ByteBuffer> read(long offset, int length) {
+    if (!fileChannel.isOpen()) {
+      return Futures.immediateFailedFuture(new ClosedChannelException());
+    }
+
+    long startTime = System.nanoTime();
+    metrics.readStarted();
+
+    try {
+      ByteBuffer byteBuffer = readSegments(offset, length);
+      metrics.readCompleted(startTime, byteBuffer.remaining());
+      return Futures.immediateFuture(byteBuffer);
+    } catch (IOException e) {
+      metrics.readFailed();
+      return Futures.immediateFailedFuture(e);
+    }
+  }
+
+  /**
+   * Read the given range from the mapped segments.
+   *
+   * @param offset The position.
+   * @param length The amount of bytes.
+   * @return The content, shorter than requested if the file ends before.
+   * @throws IOException If mapping a segment fails.
+   */
+  private ByteBuffer readSegments(long offset, int length) throws IOException {
+    long end = Math.min(offset + length, fileLength.get());
+    if (end <= offset) {
+      return ByteBuffer.allocate(0);
+    }
+
+    int segmentIndex = getSegmentIndex(offset);
+    int segmentOffset = getSegmentOffset(offset);
+    int readLength = Math.toIntExact(end - offset);
+
+    if (segmentOffset + readLength <= segmentSize) {
+      MappedByteBuffer segment = getSegment(segmentIndex, segmentOffset + readLength);
+      if (segment != null) {
+        ByteBuffer slice = segment.asReadOnlyBuffer();
+        slice.position(segmentOffset).limit(segmentOffset + readLength);
+        return slice.slice();
+      }
+    }
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(readLength);
+    while (byteBuffer.hasRemaining()) {
+      long position = offset + byteBuffer.position();
+      int chunkOffset = getSegmentOffset(position);
+      int chunkLength = Math.min(byteBuffer.remaining(), segmentSize - chunkOffset);
+
+      MappedByteBuffer segment = getSegment(getSegmentIndex(position), chunkOffset + chunkLength);
+      if (segment == null) {
+        readThroughChannel(byteBuffer, position, chunkLength);
+        continue;
+      }
+
+      ByteBuffer chunk = segment.asReadOnlyBuffer();
+      chunk.position(chunkOffset).limit(chunkOffset + chunkLength);
+      byteBuffer.put(chunk);
+    }
+
+    byteBuffer.flip();
+    return byteBuffer;
+  }
+
+  /**
+   * Read the given amount of bytes via the channel as they are not mapped yet.
+   *
+   * @param byteBuffer The buffer to read into.
+   * @param position The position in the file.
+   * @param length The amount of bytes.
+   * @throws IOException If the read fails or the file ends before.
+   */
+  private void readThroughChannel(ByteBuffer byteBuffer, long position, int length)
+      throws IOException {
+    ByteBuffer chunk = byteBuffer.duplicate();
+    chunk.limit(chunk.position() + length);
+    while (chunk.hasRemaining()) {
+      if (fileChannel.read(chunk, position + chunk.position() - byteBuffer.position()) == -1) {
+        throw new EOFException("Tried to read beyond the end of file.");
+      }
+    }
+
+    byteBuffer.position(chunk.position());
+  }
+
+  @Override
+  public ListenableFuture<Integer> write(long offset, ByteBuffer content) {
+    if (!fileChannel.isOpen()) {
+      return Futures.immediateFailedFuture(new ClosedChannelException());
+    }
+
+    long startTime = System.nanoTime();
+    metrics.writeStarted();
+
+    try {
+      int length = writeSegments(offset, content);
+      metrics.writeCompleted(startTime, length);
+      return Futures.immediateFuture(length);
+    } catch (IOException e) {
+      metrics.writeFailed();
+      return Futures.immediateFailedFuture(e);
+    }
+  }
+
+  /**
+   * Write the given content into the mapped segments or through the channel if it grows the file
+   * or isn't mapped yet.
+   *
+   * @param offset The position.
+   * @param content The data to write.
+   * @return The amount of bytes written.
+   * @throws IOException If the write fails.
+   */
+  private int writeSegments(long offset, ByteBuffer content) throws IOException {
+    int length = content.remaining();
+
+    if (offset + length > fileLength.get()) {
+      return writeThroughChannel(offset, content);
+    }
+
+    while (content.hasRemaining()) {
+      long position = offset + length - content.remaining();
+      int chunkOffset = getSegmentOffset(position);
+      int chunkLength = Math.min(content.remaining(), segmentSize - chunkOffset);
+
+      ByteBuffer chunk = content.duplicate();
+      chunk.limit(chunk.position() + chunkLength);
+
+      MappedByteBuffer segment = getSegment(getSegmentIndex(position), chunkOffset + chunkLength);
+      if (segment == null) {
+        while (chunk.hasRemaining()) {
+          fileChannel.write(chunk, position + chunk.position() - content.position());
+        }
+      } else {
+        ByteBuffer target = segment.duplicate();
+        target.position(chunkOffset);
+        target.put(chunk);
+      }
+
+      content.position(content.position() + chunkLength);
+    }
+
+    return length;
+  }
+
+  /**
+   * Write the given content via the channel as it would grow the file.
+   *
+   * @param offset The position.
+   * @param content The data to write.
+   * @return The amount of bytes written.
+   * @throws IOException If the write fails.
+   */
+  private int writeThroughChannel(long offset, ByteBuffer content) throws IOException {
+    int written = 0;
+    while (content.hasRemaining()) {
+      written += fileChannel.write(content, offset + written);
+    }
+
+    long end = offset + written;
+    fileLength.accumulateAndGet(end, Math::max);
+    return written;
+  }
+
+  /**
+   * Get the segment with the given index that is mapped for at least the given amount of bytes.
+   *
+   * @param segmentIndex The index of the segment.
+   * @param requiredLength The amount of bytes that have to be mapped.
+   * @return The segment or null if the bytes aren't mapped and the segment isn't remapped yet.
+   * @throws IOException If mapping the segment fails.
+   */
+  private MappedByteBuffer getSegment(int segmentIndex, int requiredLength) throws IOException {
+    MappedByteBuffer segment = getMappedSegment(segments, segmentIndex);
+    if (segment != null && segment.capacity() >= requiredLength) {
+      return segment;
+    }
+
+    if (!isRemapDue(segment, getMappableLength(segmentIndex))) {
+      return null;
+    }
+
+    return mapSegment(segmentIndex, requiredLength);
+  }
+
+  /**
+   * Map the segment with the given index as far as the file currently reaches.
+   *
+   * @param segmentIndex The index of the segment.
+   * @param requiredLength The amount of bytes that have to be mapped.
+   * @return The segment or null if the bytes aren't mapped and the segment isn't remapped yet.
+   * @throws IOException If mapping the segment fails.
+   */
+  private synchronized MappedByteBuffer mapSegment(int segmentIndex, int requiredLength)
+      throws IOException {
+    MappedByteBuffer[] currentSegments = segments;
+    MappedByteBuffer currentSegment = getMappedSegment(currentSegments, segmentIndex);
+    if (currentSegment != null && currentSegment.capacity() >= requiredLength) {
+      return currentSegment;
+    }
+
+    long mappedLength = getMappableLength(segmentIndex);
+    if (mappedLength < requiredLength) {
+      throw new IOException("Tried to map segment " + segmentIndex + " beyond the end of file.");
+    }
+
+    if (!isRemapDue(currentSegment, mappedLength)) {
+      return null;
+    }
+
+    MappedByteBuffer segment = fileChannel.map(MapMode.READ_WRITE,
+        (long) segmentIndex * segmentSize, mappedLength);
+    mapCount++;
+
+    MappedByteBuffer[] newSegments = Arrays
+        .copyOf(currentSegments, Math.max(currentSegments.length, segmentIndex + 1));
+    newSegments[segmentIndex] = segment;
+    segments = newSegments;
+    return segment;
+  }
+
+  /**
+   * Get the current mapping of the segment with the given index.
+   *
+   * @param currentSegments The currently mapped segments.
+   * @param segmentIndex The index of the segment.
+   * @return The mapping or null if the segment isn't mapped.
+   */
+  private static MappedByteBuffer getMappedSegment(MappedByteBuffer[] currentSegments,
+      int segmentIndex) {
+    return segmentIndex < currentSegments.length ? currentSegments[segmentIndex] : null;
+  }
+
+  /**
+   * Get the amount of bytes of the segment with the given index the file currently reaches.
+   *
+   * @param segmentIndex The index of the segment.
+   * @return The amount of bytes that can be mapped.
+   */
+  private long getMappableLength(int segmentIndex) {
+    return Math.min(segmentSize, fileLength.get() - (long) segmentIndex * segmentSize);
+  }
+
+  /**
+   * Check if a segment should be mapped again. This is the case once its new mapping would at
+   * least double the current one or cover the whole segment.
+   *
+   * @param segment The current mapping of the segment or null.
+   * @param mappableLength The amount of bytes of the segment that can be mapped.
+   * @return If the segment should be mapped.
+   */
+  private boolean isRemapDue(MappedByteBuffer segment, long mappableLength) {
+    return segment == null || mappableLength >= Math.min(segmentSize, 2L * segment.capacity());
+  }
+
+  /**
+   * Get the amount of mappings created so far, including the ones that were replaced already.
+   *
+   * @return The amount of mappings.
+   */
+  public synchronized long getMapCount() {
+    return mapCount;
+  }
+
+  /**
+   * Get the index of the segment that contains the given position.
+   *
+   * @param position The position in the file.
+   * @return The segment index.
+   */
+  private int getSegmentIndex(long position) {
+    return Math.toIntExact(position / segmentSize);
+  }
+
+  /**
+   * Get the offset of the given position inside its segment.
+   *
+   * @param position The position in the file.
+   * @return The offset inside the segment.
+   */
+  private int getSegmentOffset(long position) {
+    return (int) (position % segmentSize);
+  }
+
+  @Override
+  public ByteBuffer allocate(int length) {
+    return ByteBuffer.allocate(length);
+  }
+
+  @Override
+  public void release(ByteBuffer byteBuffer) {
+    // Reads are served from the mapping, there is nothing to hand back.
+  }
+
+  @Override
+  public long getFileLength() throws FileSystemAccessException {
+    if (!fileChannel.isOpen()) {
+      throw new FileSystemAccessException("Error reading file length",
+          new ClosedChannelException());
+    }
+
+    return fileLength.get();
+  }
+
+  @Override
+  public synchronized void force() throws FileSystemAccessException {
+    try {
+      for (MappedByteBuffer segment : segments) {
+        if (segment != null) {
+          segment.force();
+        }
+      }
+
+      fileChannel.force(true);
+    } catch (IOException | UncheckedIOException e) {
+      throw new FileSystemAccessException("Error syncing channel", e);
+    }
+  }
+}
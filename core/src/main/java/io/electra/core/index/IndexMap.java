@@ -0,0 +1,580 @@
+package io.electra.core.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A concurrent open addressing hash map from an int key hash to a non negative int value, usually
+ * the index of the first data block of a record. Keys and values are stored as pairs of primitive
+ * ints in plain buffers, optionally off heap, so an entry costs no objects at all.
+ *
+ * <p>The map is split into segments that each guard their own table with a {@link StampedLock}.
+ * Reads are optimistic and only fall back to locking when they raced with a write.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class IndexMap {
+
+  /**
+   * The value returned for absent keys.
+   */
+  public static final int NO_VALUE = -1;
+
+  /**
+   * The amount of segments, has to be a power of two.
+   */
+  private static final int SEGMENT_COUNT = 64;
+
+  /**
+   * The smallest capacity of the table of one segment.
+   */
+  private static final int MIN_SEGMENT_CAPACITY = 16;
+
+  /**
+   * The maximum ratio of used slots before a table grows.
+   */
+  private static final float LOAD_FACTOR = 0.75F;
+
+  /**
+   * The amount of bytes copied at once when a table is written to a file.
+   */
+  private static final int WRITE_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The segments of the map.
+   */
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+  /**
+   * If the tables are allocated off heap.
+   */
+  private final boolean offHeap;
+
+  /**
+   * Create a new map.
+   *
+   * @param expectedSize The amount of entries the map should hold without growing.
+   * @param offHeap If the tables should be allocated off heap.
+   */
+  public IndexMap(int expectedSize, boolean offHeap) {
+    this.offHeap = offHeap;
+
+    int segmentCapacity = tableSizeFor((int) (expectedSize / SEGMENT_COUNT / LOAD_FACTOR) + 1);
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(segmentCapacity);
+    }
+  }
+
+  /**
+   * Get the value of the given key.
+   *
+   * @param key The key.
+   * @return The value or {@link #NO_VALUE}.
+   */
+  public int get(int key) {
+    int hash = hash(key);
+    return segmentFor(hash).get(key, hash);
+  }
+
+  /**
+   * Check if there is a value for the given key.
+   *
+   * @param key The key.
+   * @return If there is a value.
+   */
+  public boolean containsKey(int key) {
+    return get(key) != NO_VALUE;
+  }
+
+  /**
+   * Set the value of the given key.
+   *
+   * @param key The key.
+   * @param value The value, has to be non negative.
+   * @return The previous value or {@link #NO_VALUE}.
+   */
+  public int put(int key, int value) {
+    checkValue(value);
+    int hash = hash(key);
+    return segmentFor(hash).put(key, hash, value, false);
+  }
+
+  /**
+   * Set the value of the given key if there is none yet.
+   *
+   * @param key The key.
+   * @param value The value, has to be non negative.
+   * @return The present value or {@link #NO_VALUE} if the given value was set.
+   */
+  public int putIfAbsent(int key, int value) {
+    checkValue(value);
+    int hash = hash(key);
+    return segmentFor(hash).put(key, hash, value, true);
+  }
+
+  /**
+   * Set the value of the given key only if it currently has the given value.
+   *
+   * @param key The key.
+   * @param expectedValue The value the key has to have.
+   * @param value The new value, has to be non negative.
+   * @return If the value was replaced.
+   */
+  public boolean replace(int key, int expectedValue, int value) {
+    checkValue(value);
+    int hash = hash(key);
+    return segmentFor(hash).replace(key, hash, expectedValue, value);
+  }
+
+  /**
+   * Remove the value of the given key.
+   *
+   * @param key The key.
+   * @return The removed value or {@link #NO_VALUE}.
+   */
+  public int remove(int key) {
+    int hash = hash(key);
+    return segmentFor(hash).remove(key, hash);
+  }
+
+  /**
+   * Get the amount of entries.
+   *
+   * @return The amount of entries.
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * Visit all entries. Every segment is locked while it is visited, so the visitor should not
+   * modify the map.
+   *
+   * @param visitor The visitor.
+   */
+  public void forEach(EntryVisitor visitor) {
+    for (Segment segment : segments) {
+      segment.forEach(visitor);
+    }
+  }
+
+  /**
+   * Write all entries to the given file in the layout of the tables, so they can be loaded again
+   * without rehashing. The map should not be modified meanwhile.
+   *
+   * @param channel The file.
+   * @param position The position to write at.
+   * @return The position behind the written entries.
+   * @throws IOException If the file cannot be written.
+   */
+  public long writeTo(FileChannel channel, long position) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    header.putInt(SEGMENT_COUNT).flip();
+    long currentPosition = write(channel, header, position);
+
+    ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_SIZE);
+    for (Segment segment : segments) {
+      currentPosition = segment.writeTo(channel, currentPosition, chunk);
+    }
+
+    return currentPosition;
+  }
+
+  /**
+   * Replace all entries by the ones written to the given file by {@link #writeTo}. The tables of
+   * an off heap map are mapped privately, so they are only read once they are touched and changes
+   * never reach the file. The tables of a heap map are read at once.
+   *
+   * @param channel The file.
+   * @param position The position the entries were written at.
+   * @return The position behind the entries.
+   * @throws IOException If the file cannot be read or doesn't contain a map.
+   */
+  public long readFrom(FileChannel channel, long position) throws IOException {
+    ByteBuffer header = read(channel, position, Integer.BYTES);
+    if (header.getInt() != SEGMENT_COUNT) {
+      throw new IOException("Index map was written with a different segment count.");
+    }
+
+    long currentPosition = position + Integer.BYTES;
+    for (Segment segment : segments) {
+      currentPosition = segment.readFrom(channel, currentPosition);
+    }
+
+    return currentPosition;
+  }
+
+  private ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    if (position + length > channel.size()) {
+      throw new IOException("Index map ends behind the end of the file.");
+    }
+
+    if (offHeap && length > WRITE_CHUNK_SIZE) {
+      return channel.map(FileChannel.MapMode.PRIVATE, position, length);
+    }
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(length);
+    while (byteBuffer.hasRemaining()) {
+      if (channel.read(byteBuffer, position + byteBuffer.position()) == -1) {
+        throw new IOException("Index map ends behind the end of the file.");
+      }
+    }
+
+    byteBuffer.flip();
+    return byteBuffer;
+  }
+
+  private static long write(FileChannel channel, ByteBuffer byteBuffer, long position)
+      throws IOException {
+    long currentPosition = position;
+    while (byteBuffer.hasRemaining()) {
+      currentPosition += channel.write(byteBuffer, currentPosition);
+    }
+
+    return currentPosition;
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments[hash >>> 26 & (SEGMENT_COUNT - 1)];
+  }
+
+  private IntBuffer allocateTable(int capacity) {
+    int bytes = capacity * 2 * Integer.BYTES;
+    ByteBuffer byteBuffer = offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    return byteBuffer.asIntBuffer();
+  }
+
+  private static void checkValue(int value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Values have to be non negative.");
+    }
+  }
+
+  /**
+   * Spread the bits of the key hash, as key hashes may be poorly distributed.
+   */
+  private static int hash(int key) {
+    int hash = key;
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+
+  private static int tableSizeFor(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity, MIN_SEGMENT_CAPACITY) - 1) << 1;
+    return Math.max(size, MIN_SEGMENT_CAPACITY);
+  }
+
+  /**
+   * Visits the entries of an {@link IndexMap}.
+   */
+  @FunctionalInterface
+  public interface EntryVisitor {
+
+    /**
+     * Visit one entry.
+     *
+     * @param key The key.
+     * @param value The value.
+     */
+    void visit(int key, int value);
+  }
+
+  /**
+   * One segment of the map. The table holds pairs of key and value + 1, so a zeroed slot is free.
+   * Removal shifts following entries back instead of leaving tombstones.
+   */
+  private final class Segment {
+
+    private final StampedLock lock = new StampedLock();
+    private volatile IntBuffer table;
+    private volatile int size;
+    private int mask;
+
+    Segment(int capacity) {
+      table = allocateTable(capacity);
+      mask = capacity - 1;
+    }
+
+    int get(int key, int hash) {
+      long stamp = lock.tryOptimisticRead();
+      if (stamp != 0) {
+        int value = find(table, key, hash);
+        if (lock.validate(stamp)) {
+          return value;
+        }
+      }
+
+      stamp = lock.readLock();
+      try {
+        return find(table, key, hash);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    private int find(IntBuffer currentTable, int key, int hash) {
+      int capacity = currentTable.capacity() / 2;
+      int currentMask = capacity - 1;
+
+      int slot = hash & currentMask;
+      for (int i = 0; i < capacity; i++, slot = (slot + 1) & currentMask) {
+        int storedValue = currentTable.get(slot * 2 + 1);
+        if (storedValue == 0) {
+          return NO_VALUE;
+        }
+
+        if (currentTable.get(slot * 2) == key) {
+          return storedValue - 1;
+        }
+      }
+
+      return NO_VALUE;
+    }
+
+    int put(int key, int hash, int value, boolean onlyIfAbsent) {
+      long stamp = lock.writeLock();
+      try {
+        IntBuffer currentTable = table;
+        int slot = hash & mask;
+
+        while (true) {
+          int storedValue = currentTable.get(slot * 2 + 1);
+          if (storedValue == 0) {
+            break;
+          }
+
+          if (currentTable.get(slot * 2) == key) {
+            if (!onlyIfAbsent) {
+              currentTable.put(slot * 2 + 1, value + 1);
+            }
+            return storedValue - 1;
+          }
+
+          slot = (slot + 1) & mask;
+        }
+
+        currentTable.put(slot * 2, key);
+        currentTable.put(slot * 2 + 1, value + 1);
+        size++;
+
+        if (size > (mask + 1) * LOAD_FACTOR) {
+          resize();
+        }
+
+        return NO_VALUE;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    boolean replace(int key, int hash, int expectedValue, int value) {
+      long stamp = lock.writeLock();
+      try {
+        IntBuffer currentTable = table;
+        int slot = hash & mask;
+
+        while (true) {
+          int storedValue = currentTable.get(slot * 2 + 1);
+          if (storedValue == 0) {
+            return false;
+          }
+
+          if (currentTable.get(slot * 2) == key) {
+            if (storedValue - 1 != expectedValue) {
+              return false;
+            }
+
+            currentTable.put(slot * 2 + 1, value + 1);
+            return true;
+          }
+
+          slot = (slot + 1) & mask;
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    int remove(int key, int hash) {
+      long stamp = lock.writeLock();
+      try {
+        IntBuffer currentTable = table;
+        int slot = hash & mask;
+
+        while (true) {
+          int storedValue = currentTable.get(slot * 2 + 1);
+          if (storedValue == 0) {
+            return NO_VALUE;
+          }
+
+          if (currentTable.get(slot * 2) == key) {
+            shiftBack(currentTable, slot);
+            size--;
+            return storedValue - 1;
+          }
+
+          slot = (slot + 1) & mask;
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    /**
+     * Close the gap at the given slot by moving back all following entries of the probe sequence
+     * that would not be found anymore otherwise.
+     */
+    private void shiftBack(IntBuffer currentTable, int freeSlot) {
+      int gap = freeSlot;
+      int slot = gap;
+
+      while (true) {
+        slot = (slot + 1) & mask;
+        int storedValue = currentTable.get(slot * 2 + 1);
+        if (storedValue == 0) {
+          break;
+        }
+
+        int storedKey = currentTable.get(slot * 2);
+        int home = hash(storedKey) & mask;
+
+        // Move the entry only if its home slot is not between the gap and its current slot.
+        if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+          currentTable.put(gap * 2, storedKey);
+          currentTable.put(gap * 2 + 1, storedValue);
+          gap = slot;
+        }
+      }
+
+      currentTable.put(gap * 2, 0);
+      currentTable.put(gap * 2 + 1, 0);
+    }
+
+    private void resize() {
+      IntBuffer oldTable = table;
+      int newCapacity = (mask + 1) * 2;
+      int newMask = newCapacity - 1;
+      IntBuffer newTable = allocateTable(newCapacity);
+
+      for (int i = 0; i < oldTable.capacity() / 2; i++) {
+        int storedValue = oldTable.get(i * 2 + 1);
+        if (storedValue == 0) {
+          continue;
+        }
+
+        int storedKey = oldTable.get(i * 2);
+        int slot = hash(storedKey) & newMask;
+        while (newTable.get(slot * 2 + 1) != 0) {
+          slot = (slot + 1) & newMask;
+        }
+
+        newTable.put(slot * 2, storedKey);
+        newTable.put(slot * 2 + 1, storedValue);
+      }
+
+      mask = newMask;
+      table = newTable;
+    }
+
+    void clear() {
+      long stamp = lock.writeLock();
+      try {
+        table = allocateTable(MIN_SEGMENT_CAPACITY);
+        mask = MIN_SEGMENT_CAPACITY - 1;
+        size = 0;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    long writeTo(FileChannel channel, long position, ByteBuffer chunk) throws IOException {
+      long stamp = lock.readLock();
+      try {
+        ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES);
+        header.putInt(mask + 1).putInt(size).flip();
+        long currentPosition = write(channel, header, position);
+
+        IntBuffer source = table.duplicate();
+        source.clear();
+        while (source.hasRemaining()) {
+          chunk.clear();
+          IntBuffer target = chunk.asIntBuffer();
+          int length = Math.min(target.remaining(), source.remaining());
+
+          IntBuffer part = source.slice();
+          part.limit(length);
+          target.put(part);
+          source.position(source.position() + length);
+
+          chunk.limit(length * Integer.BYTES);
+          currentPosition = write(channel, chunk, currentPosition);
+        }
+
+        return currentPosition;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    long readFrom(FileChannel channel, long position) throws IOException {
+      ByteBuffer header = read(channel, position, 2 * Integer.BYTES);
+      int capacity = header.getInt();
+      int storedSize = header.getInt();
+      if (capacity < MIN_SEGMENT_CAPACITY || Integer.bitCount(capacity) != 1
+          || capacity > Integer.MAX_VALUE / (2 * Integer.BYTES)
+          || storedSize < 0 || storedSize > capacity) {
+        throw new IOException("Index map segment has an invalid capacity or size.");
+      }
+
+      long tablePosition = position + 2 * Integer.BYTES;
+      int tableLength = capacity * 2 * Integer.BYTES;
+      IntBuffer loadedTable = read(channel, tablePosition, tableLength).asIntBuffer();
+
+      long stamp = lock.writeLock();
+      try {
+        table = loadedTable;
+        mask = capacity - 1;
+        size = storedSize;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+
+      return tablePosition + tableLength;
+    }
+
+    void forEach(EntryVisitor visitor) {
+      long stamp = lock.readLock();
+      try {
+        IntBuffer currentTable = table;
+        for (int i = 0; i < currentTable.capacity() / 2; i++) {
+          int storedValue = currentTable.get(i * 2 + 1);
+          if (storedValue != 0) {
+            visitor.visit(currentTable.get(i * 2), storedValue - 1);
+          }
+        }
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+  }
+}
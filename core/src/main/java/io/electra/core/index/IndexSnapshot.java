@@ -0,0 +1,539 @@
+package io.electra.core.index;
+
+import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.model.Index;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A snapshot of the in memory indices of a storage engine next to its index file, plus a tail of
+ * all index writes since the snapshot was taken. Loading both is equivalent to scanning the whole
+ * index file, but the tables of the snapshot are loaded as they are, so only the tail takes time
+ * in the amount of its entries.
+ *
+ * <p>A snapshot is trusted if it was closed cleanly, or if a write ahead log covers everything
+ * after the last time the tail was forced. Snapshots of engines that crashed without a log are
+ * ignored and the index file gets scanned instead.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class IndexSnapshot implements Closeable {
+
+  /**
+   * The first bytes of the snapshot and tail files.
+   */
+  private static final int MAGIC = 0x454C4958;
+
+  /**
+   * The version of the file layout.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * The snapshot was closed cleanly and matches the index file.
+   */
+  private static final int STATE_CLEAN = 0;
+
+  /**
+   * The snapshot is in use by an engine with a write ahead log.
+   */
+  private static final int STATE_LOGGED = 1;
+
+  /**
+   * The snapshot is in use by an engine without a write ahead log.
+   */
+  private static final int STATE_DIRTY = 2;
+
+  /**
+   * The position of the state in the snapshot file.
+   */
+  private static final int STATE_POSITION = 8;
+
+  /**
+   * The size of magic, version, state, generation, next index slot and free slot count.
+   */
+  private static final int HEADER_SIZE = 28;
+
+  /**
+   * The size of magic and generation at the start of the tail file.
+   */
+  private static final int TAIL_HEADER_SIZE = 12;
+
+  /**
+   * The size of one tail entry made of index slot, key hash, block index and empty flag.
+   */
+  private static final int TAIL_ENTRY_SIZE = 16;
+
+  /**
+   * The amount of bytes buffered or read at once.
+   */
+  private static final int BUFFER_SIZE = TAIL_ENTRY_SIZE * 4096;
+
+  /**
+   * The path of the snapshot file.
+   */
+  private final Path snapshotPath;
+
+  /**
+   * The path of the tail file.
+   */
+  private final Path tailPath;
+
+  /**
+   * If the engine records all operations in a write ahead log.
+   */
+  private final boolean logged;
+
+  /**
+   * The channel of the tail file.
+   */
+  private final FileChannel tailChannel;
+
+  /**
+   * The tail entries that have not been written to the tail file yet.
+   */
+  private final ByteBuffer tailBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  /**
+   * The generation of the current snapshot, a tail only belongs to the snapshot of its
+   * generation.
+   */
+  private long generation;
+
+  /**
+   * The position in the tail file behind the last written entry.
+   */
+  private long tailPosition;
+
+  /**
+   * The amount of tail entries since the current snapshot.
+   */
+  private long tailLength;
+
+  /**
+   * If there is a snapshot the tail belongs to.
+   */
+  private boolean snapshotPresent;
+
+  /**
+   * The error writing the tail failed with or null. Only a new snapshot makes the files complete
+   * again.
+   */
+  private IOException tailFailure;
+
+  /**
+   * Open the snapshot and tail files of the given index file.
+   *
+   * @param indexFilePath The path of the index file.
+   * @param logged If the engine records all operations in a write ahead log.
+   * @throws FileSystemAccessException If the tail file cannot be opened.
+   */
+  public IndexSnapshot(Path indexFilePath, boolean logged) throws FileSystemAccessException {
+    this.snapshotPath = getSnapshotPath(indexFilePath);
+    this.tailPath = getTailPath(indexFilePath);
+    this.logged = logged;
+
+    try {
+      tailChannel = FileChannel.open(tailPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while opening index snapshot tail", e);
+    }
+  }
+
+  /**
+   * Load the snapshot and apply its tail. The given state is only complete if the snapshot was
+   * trusted, otherwise it has to be reset before the index file is scanned.
+   *
+   * @param indices The first data block indices of all key hashes.
+   * @param indexSlots The index file slots of all key hashes.
+   * @param freeIndexSlots The free index file slots.
+   * @param nextIndexSlot The first index file slot behind all used ones.
+   * @return If the snapshot was loaded.
+   * @throws FileSystemAccessException If the snapshot cannot be read or is malformed.
+   */
+  public synchronized boolean load(IndexMap indices, IndexMap indexSlots,
+      Queue<Integer> freeIndexSlots, AtomicInteger nextIndexSlot)
+      throws FileSystemAccessException {
+    if (!Files.exists(snapshotPath)) {
+      return false;
+    }
+
+    // Private mappings of the tables need a writable channel, though they never change the file.
+    try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+      if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+        return false;
+      }
+
+      int state = header.getInt();
+      if (state != STATE_CLEAN && (state != STATE_LOGGED || !logged)) {
+        return false;
+      }
+
+      long snapshotGeneration = header.getLong();
+      nextIndexSlot.set(header.getInt());
+      int freeIndexSlotCount = header.getInt();
+      if (freeIndexSlotCount < 0
+          || freeIndexSlotCount > (channel.size() - HEADER_SIZE) / Integer.BYTES) {
+        throw new IOException("Index snapshot has an invalid free slot count.");
+      }
+
+      Set<Integer> freeSlots = new LinkedHashSet<>();
+      ByteBuffer freeSlotBuffer =
+          readFully(channel, HEADER_SIZE, freeIndexSlotCount * Integer.BYTES);
+      while (freeSlotBuffer.hasRemaining()) {
+        freeSlots.add(freeSlotBuffer.getInt());
+      }
+
+      long position = HEADER_SIZE + (long) freeIndexSlotCount * Integer.BYTES;
+      position = indices.readFrom(channel, position);
+      indexSlots.readFrom(channel, position);
+
+      generation = snapshotGeneration;
+      applyTail(indices, indexSlots, freeSlots, nextIndexSlot);
+      snapshotPresent = true;
+
+      freeIndexSlots.addAll(freeSlots);
+      return true;
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while loading index snapshot", e);
+    }
+  }
+
+  /**
+   * Apply all complete entries of the tail, if it belongs to the loaded snapshot. A tail of an
+   * older snapshot is contained in the snapshot already and gets dropped.
+   */
+  private void applyTail(IndexMap indices, IndexMap indexSlots, Set<Integer> freeSlots,
+      AtomicInteger nextIndexSlot) throws IOException {
+    long tailSize = tailChannel.size();
+    if (tailSize < TAIL_HEADER_SIZE) {
+      resetTail();
+      return;
+    }
+
+    ByteBuffer header = readFully(tailChannel, 0, TAIL_HEADER_SIZE);
+    if (header.getInt() != MAGIC || header.getLong() != generation) {
+      resetTail();
+      return;
+    }
+
+    long entriesEnd = tailSize - (tailSize - TAIL_HEADER_SIZE) % TAIL_ENTRY_SIZE;
+    long position = TAIL_HEADER_SIZE;
+    while (position < entriesEnd) {
+      int length = (int) Math.min(BUFFER_SIZE, entriesEnd - position);
+      ByteBuffer entries = readFully(tailChannel, position, length);
+      position += length;
+
+      while (entries.hasRemaining()) {
+        int indexSlot = entries.getInt();
+        int keyHash = entries.getInt();
+        int blockIndex = entries.getInt();
+        boolean empty = entries.getInt() != 0;
+
+        nextIndexSlot.set(Math.max(nextIndexSlot.get(), indexSlot + 1));
+        if (empty) {
+          // The key may have been saved into another slot before the old one was cleared.
+          if (indexSlots.get(keyHash) == indexSlot) {
+            indices.remove(keyHash);
+            indexSlots.remove(keyHash);
+          }
+          freeSlots.add(indexSlot);
+        } else {
+          freeSlots.remove(indexSlot);
+          indices.put(keyHash, blockIndex);
+          indexSlots.put(keyHash, indexSlot);
+        }
+        tailLength++;
+      }
+    }
+
+    // A torn entry at the end is overwritten by the next one.
+    tailPosition = entriesEnd;
+  }
+
+  /**
+   * Mark the snapshot as in use, so it isn't trusted anymore after a crash without a write ahead
+   * log. A snapshot that wasn't loaded is stale and gets deleted.
+   *
+   * @throws FileSystemAccessException If the snapshot cannot be written.
+   */
+  public synchronized void markOpen() throws FileSystemAccessException {
+    try {
+      if (!snapshotPresent) {
+        Files.deleteIfExists(snapshotPath);
+        resetTail();
+        return;
+      }
+
+      writeState(logged ? STATE_LOGGED : STATE_DIRTY);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while opening index snapshot", e);
+    }
+  }
+
+  /**
+   * Record a write to the index file. The entry is buffered until the buffer is full or the tail
+   * is forced.
+   *
+   * @param indexSlot The index file slot.
+   * @param index The written index.
+   */
+  public synchronized void append(int indexSlot, Index index) {
+    if (!tailBuffer.hasRemaining()) {
+      flushTail();
+    }
+
+    tailBuffer.putInt(indexSlot);
+    tailBuffer.putInt(index.getKeyHash());
+    tailBuffer.putInt(index.getBlockIndex());
+    tailBuffer.putInt(index.isEmpty() ? 1 : 0);
+    tailLength++;
+  }
+
+  /**
+   * Check if a new snapshot should be taken, because there is none yet, the tail grew beyond the
+   * given length or could not be written.
+   *
+   * @param maxTailLength The maximum amount of tail entries.
+   * @return If a new snapshot should be taken.
+   */
+  public synchronized boolean isSnapshotNeeded(long maxTailLength) {
+    return !snapshotPresent || tailFailure != null || tailLength >= maxTailLength;
+  }
+
+  /**
+   * Get the amount of index writes since the current snapshot.
+   *
+   * @return The tail length.
+   */
+  public synchronized long getTailLength() {
+    return tailLength;
+  }
+
+  /**
+   * Force all tail entries down to the storage device.
+   *
+   * @throws FileSystemAccessException If the tail cannot be written.
+   */
+  public synchronized void force() throws FileSystemAccessException {
+    flushTail();
+    if (tailFailure != null) {
+      throw new FileSystemAccessException("Error while writing index snapshot tail", tailFailure);
+    }
+
+    try {
+      tailChannel.force(false);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while forcing index snapshot tail", e);
+    }
+  }
+
+  /**
+   * Take a new snapshot of the given state and start a new tail. The state must not be modified
+   * meanwhile. The snapshot is written next to the old one and replaces it once it is durable.
+   *
+   * @param indices The first data block indices of all key hashes.
+   * @param indexSlots The index file slots of all key hashes.
+   * @param freeIndexSlots The free index file slots.
+   * @param nextIndexSlot The first index file slot behind all used ones.
+   * @throws FileSystemAccessException If the snapshot cannot be written.
+   */
+  public synchronized void write(IndexMap indices, IndexMap indexSlots,
+      Collection<Integer> freeIndexSlots, int nextIndexSlot) throws FileSystemAccessException {
+    write(indices, indexSlots, freeIndexSlots, nextIndexSlot,
+        logged ? STATE_LOGGED : STATE_DIRTY);
+  }
+
+  private void write(IndexMap indices, IndexMap indexSlots, Collection<Integer> freeIndexSlots,
+      int nextIndexSlot, int state) throws FileSystemAccessException {
+    Path temporaryPath = Paths.get(snapshotPath + ".tmp");
+    long nextGeneration = generation + 1;
+
+    try {
+      try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        Integer[] freeSlots = freeIndexSlots.toArray(new Integer[0]);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + freeSlots.length * Integer.BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(state).putLong(nextGeneration)
+            .putInt(nextIndexSlot).putInt(freeSlots.length);
+        for (Integer freeSlot : freeSlots) {
+          header.putInt(freeSlot);
+        }
+        header.flip();
+
+        long position = writeFully(channel, 0, header);
+        position = indices.writeTo(channel, position);
+        indexSlots.writeTo(channel, position);
+        channel.force(true);
+      }
+
+      Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while writing index snapshot", e);
+    }
+
+    // Everything in the old tail is part of the new snapshot now.
+    generation = nextGeneration;
+    snapshotPresent = true;
+    tailFailure = null;
+    resetTailQuietly();
+  }
+
+  /**
+   * Take a final snapshot if needed, otherwise force the tail, and mark the snapshot as closed
+   * cleanly. The index file has to be forced before.
+   *
+   * @param indices The first data block indices of all key hashes.
+   * @param indexSlots The index file slots of all key hashes.
+   * @param freeIndexSlots The free index file slots.
+   * @param nextIndexSlot The first index file slot behind all used ones.
+   * @param maxTailLength The maximum amount of tail entries.
+   * @throws FileSystemAccessException If the snapshot cannot be written.
+   */
+  public synchronized void close(IndexMap indices, IndexMap indexSlots,
+      Collection<Integer> freeIndexSlots, int nextIndexSlot, long maxTailLength)
+      throws FileSystemAccessException {
+    try {
+      if (isSnapshotNeeded(maxTailLength)) {
+        write(indices, indexSlots, freeIndexSlots, nextIndexSlot, STATE_CLEAN);
+      } else {
+        force();
+        writeState(STATE_CLEAN);
+      }
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while closing index snapshot", e);
+    } finally {
+      closeQuietly();
+    }
+  }
+
+  /**
+   * Close the tail file without marking the snapshot as closed cleanly.
+   *
+   * @throws IOException If the tail file cannot be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    tailChannel.close();
+  }
+
+  /**
+   * Delete the snapshot and tail files of the given index file.
+   *
+   * @param indexFilePath The path of the index file.
+   * @throws FileSystemAccessException If the files cannot be deleted.
+   */
+  public static void delete(Path indexFilePath) throws FileSystemAccessException {
+    try {
+      Files.deleteIfExists(getSnapshotPath(indexFilePath));
+      Files.deleteIfExists(getTailPath(indexFilePath));
+    } catch (IOException e) {
+      throw new FileSystemAccessException("Error while deleting index snapshot", e);
+    }
+  }
+
+  /**
+   * Get the path of the snapshot file of the given index file.
+   *
+   * @param indexFilePath The path of the index file.
+   * @return The path of the snapshot file.
+   */
+  public static Path getSnapshotPath(Path indexFilePath) {
+    return Paths.get(indexFilePath + ".snapshot");
+  }
+
+  /**
+   * Get the path of the tail file of the given index file.
+   *
+   * @param indexFilePath The path of the index file.
+   * @return The path of the tail file.
+   */
+  public static Path getTailPath(Path indexFilePath) {
+    return Paths.get(indexFilePath + ".snapshot.tail");
+  }
+
+  private void writeState(int state) throws IOException {
+    try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.WRITE)) {
+      ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+      byteBuffer.putInt(state).flip();
+      writeFully(channel, STATE_POSITION, byteBuffer);
+      channel.force(false);
+    }
+  }
+
+  private void flushTail() {
+    tailBuffer.flip();
+    try {
+      tailPosition = writeFully(tailChannel, tailPosition, tailBuffer);
+    } catch (IOException e) {
+      tailFailure = e;
+    } finally {
+      tailBuffer.clear();
+    }
+  }
+
+  private void resetTail() throws IOException {
+    tailBuffer.clear();
+    tailChannel.truncate(0);
+
+    ByteBuffer header = ByteBuffer.allocate(TAIL_HEADER_SIZE);
+    header.putInt(MAGIC).putLong(generation).flip();
+    tailPosition = writeFully(tailChannel, 0, header);
+    tailLength = 0;
+  }
+
+  private void resetTailQuietly() {
+    try {
+      resetTail();
+    } catch (IOException e) {
+      tailFailure = e;
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      tailChannel.close();
+    } catch (IOException e) {
+      // The snapshot itself is complete.
+    }
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(length);
+    while (byteBuffer.hasRemaining()) {
+      if (channel.read(byteBuffer, position + byteBuffer.position()) == -1) {
+        throw new IOException("Index snapshot ends unexpectedly.");
+      }
+    }
+
+    byteBuffer.flip();
+    return byteBuffer;
+  }
+
+  private static long writeFully(FileChannel channel, long position, ByteBuffer byteBuffer)
+      throws IOException {
+    long currentPosition = position;
+    while (byteBuffer.hasRemaining()) {
+      currentPosition += channel.write(byteBuffer, currentPosition);
+    }
+
+    return currentPosition;
+  }
+}
@@ -1,10 +1,10 @@
 package io.electra.core.index;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import io.electra.core.exception.IndexScanException;
 import io.electra.core.model.Index;
 import io.electra.core.storage.Storage;
 import java.util.List;
-import java.util.concurrent.Future;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
@@ -17,7 +17,7 @@ public interface IndexStorage extends Storage {
    * @param indexBlockIndex The index of the index in the file.
    * @return The future of the read index.
    */
-  Future<Index> readIndex(int indexBlockIndex);
+  ListenableFuture<Index> readIndex(int indexBlockIndex);
 
   /**
    * Write an index at the given block index.
@@ -26,7 +26,7 @@ public interface IndexStorage extends Storage {
    * @param index The index to write.
    * @return The future of the written index.
    */
-  Future<Index> writeIndex(int indexBlockIndex, Index index);
+  ListenableFuture<Index> writeIndex(int indexBlockIndex, Index index);
 
   /**
    * Read all indices from disk. The first index will be the index pointing to the first free data
@@ -34,5 +34,21 @@ public interface IndexStorage extends Storage {
    *
    * @return The indices.
    */
-  Future<List<Index>> readIndices() throws IndexScanException;
+  ListenableFuture<List<Index>> readIndices() throws IndexScanException;
+
+  /**
+   * Read all indices from disk and hand them to the given visitor in file order. The file is read
+   * sequentially in large chunks, so this is the preferred way of loading all indices at once.
+   *
+   * @param indexVisitor The visitor.
+   * @throws IndexScanException If the index file cannot be read.
+   */
+  void scanIndices(IndexVisitor indexVisitor) throws IndexScanException;
+
+  /**
+   * Check if the index file didn't exist before the storage was opened.
+   *
+   * @return If the index file was created.
+   */
+  boolean hadToCreateFile();
 }
@@ -1,17 +1,19 @@
 package io.electra.core.index;
 
 import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.JdkFutureAdapters;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.electra.core.configuration.ElectraConfiguration;
 import io.electra.core.exception.FileSystemAccessException;
 import io.electra.core.exception.IndexScanException;
+import io.electra.core.metrics.Metrics;
 import io.electra.core.model.Index;
 import io.electra.core.storage.AbstractFileSystemStorage;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Future;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
@@ -23,11 +25,28 @@ public class IndexStorageImpl extends AbstractFileSystemStorage implements Index
    */
   private static final Index DEFAULT_EMPTY_INDEX = new Index(-1, 1);
 
+  /**
+   * The amount of bytes read at once when scanning all indices. It is a multiple of the index
+   * block size, so no index is split across two chunks.
+   */
+  private static final int INDEX_SCAN_CHUNK_SIZE = Index.INDEX_BLOCK_SIZE * 64 * 1024;
+
+  /**
+   * The metrics we record the latency of index writes into.
+   */
+  private final Metrics metrics;
+
   public IndexStorageImpl(Path indexFilePath) throws FileSystemAccessException {
-    super(indexFilePath);
+    this(indexFilePath, new ElectraConfiguration());
+  }
+
+  public IndexStorageImpl(Path indexFilePath, ElectraConfiguration configuration)
+      throws FileSystemAccessException {
+    super(indexFilePath, configuration);
+    metrics = configuration.getMetrics();
 
     if (getFileSystemAccessor().hadToCreateFile()) {
-      writeIndex(0, DEFAULT_EMPTY_INDEX);
+      Futures.getUnchecked(writeIndex(0, DEFAULT_EMPTY_INDEX));
     }
   }
 
@@ -42,39 +61,90 @@ public class IndexStorageImpl extends AbstractFileSystemStorage implements Index
   }
 
   @Override
-  public Future<Index> readIndex(int indexBlockIndex) {
+  public ListenableFuture<Index> readIndex(int indexBlockIndex) {
     long positionByIndex = getIndexBlockPositionByIndex(indexBlockIndex);
-    Future<ByteBuffer> bufferFuture = getFileSystemAccessor()
+    ListenableFuture<ByteBuffer> bufferFuture = getFileSystemAccessor()
         .read(positionByIndex, Index.INDEX_BLOCK_SIZE);
-    return Futures.lazyTransform(bufferFuture, Index::fromByteBuffer);
+    return Futures.transform(bufferFuture, byteBuffer -> {
+      try {
+        return Index.fromByteBuffer(byteBuffer);
+      } finally {
+        getFileSystemAccessor().release(byteBuffer);
+      }
+    }, MoreExecutors.directExecutor());
   }
 
   @Override
-  public Future<Index> writeIndex(int indexBlockIndex, Index index) {
+  public ListenableFuture<Index> writeIndex(int indexBlockIndex, Index index) {
     long positionByIndex = getIndexBlockPositionByIndex(indexBlockIndex);
-    ByteBuffer byteBuffer = index.toByteBuffer();
-    Future<Integer> writeFuture = getFileSystemAccessor().write(positionByIndex, byteBuffer);
-    return Futures.lazyTransform(writeFuture, input -> index);
+    ByteBuffer byteBuffer = index.toByteBuffer(getFileSystemAccessor()
+        .allocate(Index.INDEX_BLOCK_SIZE));
+    byteBuffer.flip();
+    long startTime = System.nanoTime();
+    ListenableFuture<Integer> writeFuture = getFileSystemAccessor()
+        .write(positionByIndex, byteBuffer);
+    writeFuture.addListener(() -> {
+      metrics.getIndexWriteLatency().record(System.nanoTime() - startTime);
+      getFileSystemAccessor().release(byteBuffer);
+    }, MoreExecutors.directExecutor());
+    return Futures.transform(writeFuture, input -> index, MoreExecutors.directExecutor());
+  }
+
+  @Override
+  public ListenableFuture<List<Index>> readIndices() throws IndexScanException {
+    List<Index> indices = new ArrayList<>();
+    scanIndices((indexBlockIndex, index) -> indices.add(index));
+    return Futures.immediateFuture(indices);
   }
 
   @Override
-  public Future<List<Index>> readIndices() throws IndexScanException {
+  public void scanIndices(IndexVisitor indexVisitor) throws IndexScanException {
     try {
       long fileLength = getFileSystemAccessor().getFileLength();
-      long indexCount = fileLength / Index.INDEX_BLOCK_SIZE;
+      long scanLength = fileLength - fileLength % Index.INDEX_BLOCK_SIZE;
 
-      List<ListenableFuture<Index>> futureList = new ArrayList<>();
+      long position = 0;
+      int indexBlockIndex = 0;
+      ListenableFuture<ByteBuffer> chunkFuture = readIndexChunk(position, scanLength);
 
-      for (long i = 0; i < indexCount; i++) {
-        futureList.add(JdkFutureAdapters.listenInPoolThread(readIndex(Math.toIntExact(i))));
-      }
+      while (chunkFuture != null) {
+        ByteBuffer chunk = Futures.getUnchecked(chunkFuture);
 
-      return Futures.allAsList(futureList);
-    } catch (FileSystemAccessException e) {
+        // Request the next chunk before decoding this one, so disk and decoding overlap.
+        position += INDEX_SCAN_CHUNK_SIZE;
+        chunkFuture = readIndexChunk(position, scanLength);
+
+        while (chunk.remaining() >= Index.INDEX_BLOCK_SIZE) {
+          indexVisitor.visit(indexBlockIndex++, Index.fromByteBuffer(chunk));
+        }
+        getFileSystemAccessor().release(chunk);
+      }
+    } catch (FileSystemAccessException | UncheckedExecutionException e) {
       throw new IndexScanException("Error while scanning all indices", e);
     }
   }
 
+  @Override
+  public boolean hadToCreateFile() {
+    return getFileSystemAccessor().hadToCreateFile();
+  }
+
+  /**
+   * Read the chunk of the index file beginning at the given position.
+   *
+   * @param position The position of the chunk.
+   * @param scanLength The length of the part of the file that contains whole indices.
+   * @return The future of the chunk or null if the position is behind the scanned part.
+   */
+  private ListenableFuture<ByteBuffer> readIndexChunk(long position, long scanLength) {
+    if (position >= scanLength) {
+      return null;
+    }
+
+    int chunkLength = (int) Math.min(INDEX_SCAN_CHUNK_SIZE, scanLength - position);
+    return getFileSystemAccessor().read(position, chunkLength);
+  }
+
   /**
    * Get the final position of an index block by its index. The position will always be index block
    * size * index block index.
@@ -83,6 +153,6 @@ public class IndexStorageImpl extends AbstractFileSystemStorage implements Index
    * @return The index block position.
    */
   private long getIndexBlockPositionByIndex(int indexBlockIndex) {
-    return Index.INDEX_BLOCK_SIZE * indexBlockIndex;
+    return (long) Index.INDEX_BLOCK_SIZE * indexBlockIndex;
   }
 }
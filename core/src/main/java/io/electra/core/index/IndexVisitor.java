@@ -0,0 +1,20 @@
+package io.electra.core.index;
+
+import io.electra.core.model.Index;
+
+/**
+ * Receives the indices read by {@link IndexStorage#scanIndices(IndexVisitor)} one after another.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+@FunctionalInterface
+public interface IndexVisitor {
+
+  /**
+   * Visit the index found at the given index block index.
+   *
+   * @param indexBlockIndex The index of the index in the file.
+   * @param index The index.
+   */
+  void visit(int indexBlockIndex, Index index);
+}
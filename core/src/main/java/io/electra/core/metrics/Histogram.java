@@ -0,0 +1,155 @@
+package io.electra.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non negative values with log linear buckets. Values below 64 get a
+ * bucket of their own, every power of two above is split into 32 buckets, so percentiles are
+ * accurate to about 3%. Recording a value never allocates or locks.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class Histogram implements HistogramMXBean {
+
+  /**
+   * The amount of bits of a value that select the bucket within its power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+
+  /**
+   * The amount of buckets per power of two.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * The amount of buckets, enough for every positive long.
+   */
+  private static final int BUCKET_COUNT = getBucketIndex(Long.MAX_VALUE) + 1;
+
+  /**
+   * The amount of values per bucket.
+   */
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * The amount of recorded values.
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * The sum of all recorded values.
+   */
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * The highest recorded value.
+   */
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Record the given value, negative values are recorded as 0.
+   *
+   * @param value The value.
+   */
+  public void record(long value) {
+    long recordedValue = Math.max(0, value);
+
+    buckets.incrementAndGet(getBucketIndex(recordedValue));
+    count.increment();
+    sum.add(recordedValue);
+
+    long currentMax = max.get();
+    while (recordedValue > currentMax && !max.compareAndSet(currentMax, recordedValue)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * Get the value below which the given percentage of the recorded values lies. The result is the
+   * highest value of the bucket the percentile falls into, capped at the highest recorded value.
+   *
+   * @param percentile The percentile between 0 and 100.
+   * @return The value or 0 if nothing was recorded.
+   */
+  public long getValueAtPercentile(double percentile) {
+    long totalCount = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      totalCount += buckets.get(i);
+    }
+
+    if (totalCount == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * totalCount));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(max.get(), getHighestValue(i));
+      }
+    }
+
+    return max.get();
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public double getMean() {
+    long currentCount = count.sum();
+    return currentCount == 0 ? 0 : (double) sum.sum() / currentCount;
+  }
+
+  @Override
+  public long getMax() {
+    return max.get();
+  }
+
+  @Override
+  public long getPercentile50() {
+    return getValueAtPercentile(50);
+  }
+
+  @Override
+  public long getPercentile99() {
+    return getValueAtPercentile(99);
+  }
+
+  @Override
+  public long getPercentile999() {
+    return getValueAtPercentile(99.9);
+  }
+
+  /**
+   * Get the index of the bucket of the given value.
+   *
+   * @param value The non negative value.
+   * @return The bucket index.
+   */
+  static int getBucketIndex(long value) {
+    int magnitude = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+    return magnitude * SUB_BUCKET_COUNT + (int) (value >>> magnitude);
+  }
+
+  /**
+   * Get the highest value that falls into the bucket with the given index.
+   *
+   * @param bucketIndex The bucket index.
+   * @return The highest value.
+   */
+  static long getHighestValue(int bucketIndex) {
+    if (bucketIndex < 2 * SUB_BUCKET_COUNT) {
+      return bucketIndex;
+    }
+
+    int magnitude = bucketIndex / SUB_BUCKET_COUNT - 1;
+    long lowestValue = (long) (bucketIndex - magnitude * SUB_BUCKET_COUNT) << magnitude;
+    return lowestValue + (1L << magnitude) - 1;
+  }
+}
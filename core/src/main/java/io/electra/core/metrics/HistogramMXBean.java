@@ -0,0 +1,51 @@
+package io.electra.core.metrics;
+
+/**
+ * The management interface of a {@link Histogram}.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public interface HistogramMXBean {
+
+  /**
+   * Get the amount of recorded values.
+   *
+   * @return The amount of values.
+   */
+  long getCount();
+
+  /**
+   * Get the mean of all recorded values.
+   *
+   * @return The mean or 0 if nothing was recorded.
+   */
+  double getMean();
+
+  /**
+   * Get the highest recorded value.
+   *
+   * @return The highest value or 0 if nothing was recorded.
+   */
+  long getMax();
+
+  /**
+   * Get the median of the recorded values.
+   *
+   * @return The median.
+   */
+  long getPercentile50();
+
+  /**
+   * Get the 99th percentile of the recorded values.
+   *
+   * @return The 99th percentile.
+   */
+  long getPercentile99();
+
+  /**
+   * Get the 99.9th percentile of the recorded values.
+   *
+   * @return The 99.9th percentile.
+   */
+  long getPercentile999();
+}
@@ -0,0 +1,427 @@
+package io.electra.core.metrics;
+
+import io.electra.core.filesystem.IoExecutorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects the latencies and I/O counters of a database. Latencies are recorded in nanoseconds.
+ * Recording never allocates, so the storages can record on every operation.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class Metrics implements MetricsMXBean {
+
+  /**
+   * The domain of the JMX beans.
+   */
+  private static final String JMX_DOMAIN = "io.electra";
+
+  /**
+   * The latency of getting a value.
+   */
+  private final Histogram getLatency = new Histogram();
+
+  /**
+   * The latency of saving a value.
+   */
+  private final Histogram saveLatency = new Histogram();
+
+  /**
+   * The latency of getting a batch of values.
+   */
+  private final Histogram getAllLatency = new Histogram();
+
+  /**
+   * The latency of saving a batch of values.
+   */
+  private final Histogram saveAllLatency = new Histogram();
+
+  /**
+   * The latency of updating a value.
+   */
+  private final Histogram updateLatency = new Histogram();
+
+  /**
+   * The latency of removing a value.
+   */
+  private final Histogram removeLatency = new Histogram();
+
+  /**
+   * The latency of single file reads.
+   */
+  private final Histogram readLatency = new Histogram();
+
+  /**
+   * The latency of single file writes.
+   */
+  private final Histogram writeLatency = new Histogram();
+
+  /**
+   * The latency of writing an index.
+   */
+  private final Histogram indexWriteLatency = new Histogram();
+
+  /**
+   * The amount of data blocks of every data record read.
+   */
+  private final Histogram blocksPerRecord = new Histogram();
+
+  /**
+   * The amount of bytes read.
+   */
+  private final LongAdder bytesRead = new LongAdder();
+
+  /**
+   * The amount of bytes written.
+   */
+  private final LongAdder bytesWritten = new LongAdder();
+
+  /**
+   * The amount of reads.
+   */
+  private final LongAdder readCount = new LongAdder();
+
+  /**
+   * The amount of writes.
+   */
+  private final LongAdder writeCount = new LongAdder();
+
+  /**
+   * The amount of reads in flight.
+   */
+  private final LongAdder pendingReads = new LongAdder();
+
+  /**
+   * The amount of writes in flight.
+   */
+  private final LongAdder pendingWrites = new LongAdder();
+
+  /**
+   * The amount of records moved by the compactor.
+   */
+  private final LongAdder relocatedRecords = new LongAdder();
+
+  /**
+   * The amount of bytes moved by the compactor.
+   */
+  private final LongAdder relocatedBytes = new LongAdder();
+
+  /**
+   * The amount of fragments removed by the compactor.
+   */
+  private final LongAdder removedFragments = new LongAdder();
+
+  /**
+   * The amount of bytes cut off the data file by the compactor.
+   */
+  private final LongAdder truncatedBytes = new LongAdder();
+
+  /**
+   * The names of the registered JMX beans.
+   */
+  private final List<ObjectName> registeredNames = new ArrayList<>();
+
+  /**
+   * Record that a read was issued.
+   */
+  public void readStarted() {
+    pendingReads.increment();
+  }
+
+  /**
+   * Record that a read completed.
+   *
+   * @param startTime The {@link System#nanoTime()} the read was issued at.
+   * @param bytes The amount of bytes read.
+   */
+  public void readCompleted(long startTime, int bytes) {
+    readLatency.record(System.nanoTime() - startTime);
+    pendingReads.decrement();
+    readCount.increment();
+    bytesRead.add(bytes);
+  }
+
+  /**
+   * Record that a read failed.
+   */
+  public void readFailed() {
+    pendingReads.decrement();
+  }
+
+  /**
+   * Record that a write was issued.
+   */
+  public void writeStarted() {
+    pendingWrites.increment();
+  }
+
+  /**
+   * Record that a write completed.
+   *
+   * @param startTime The {@link System#nanoTime()} the write was issued at.
+   * @param bytes The amount of bytes written.
+   */
+  public void writeCompleted(long startTime, int bytes) {
+    writeLatency.record(System.nanoTime() - startTime);
+    pendingWrites.decrement();
+    writeCount.increment();
+    bytesWritten.add(bytes);
+  }
+
+  /**
+   * Record that a write failed.
+   */
+  public void writeFailed() {
+    pendingWrites.decrement();
+  }
+
+  /**
+   * Record that the compactor moved a record.
+   *
+   * @param fragmentCount The amount of runs the record was spread over before.
+   * @param bytes The length of the record.
+   */
+  public void recordRelocation(int fragmentCount, int bytes) {
+    relocatedRecords.increment();
+    relocatedBytes.add(bytes);
+    removedFragments.add(fragmentCount - 1);
+  }
+
+  /**
+   * Record that the compactor cut the data file off.
+   *
+   * @param bytes The amount of bytes cut off.
+   */
+  public void recordTruncation(long bytes) {
+    truncatedBytes.add(bytes);
+  }
+
+  /**
+   * Get the latency of getting a value.
+   *
+   * @return The histogram.
+   */
+  public Histogram getGetLatency() {
+    return getLatency;
+  }
+
+  /**
+   * Get the latency of saving a value.
+   *
+   * @return The histogram.
+   */
+  public Histogram getSaveLatency() {
+    return saveLatency;
+  }
+
+  /**
+   * Get the latency of getting a batch of values.
+   *
+   * @return The histogram.
+   */
+  public Histogram getGetAllLatency() {
+    return getAllLatency;
+  }
+
+  /**
+   * Get the latency of saving a batch of values.
+   *
+   * @return The histogram.
+   */
+  public Histogram getSaveAllLatency() {
+    return saveAllLatency;
+  }
+
+  /**
+   * Get the latency of updating a value.
+   *
+   * @return The histogram.
+   */
+  public Histogram getUpdateLatency() {
+    return updateLatency;
+  }
+
+  /**
+   * Get the latency of removing a value.
+   *
+   * @return The histogram.
+   */
+  public Histogram getRemoveLatency() {
+    return removeLatency;
+  }
+
+  /**
+   * Get the latency of single file reads.
+   *
+   * @return The histogram.
+   */
+  public Histogram getReadLatency() {
+    return readLatency;
+  }
+
+  /**
+   * Get the latency of single file writes.
+   *
+   * @return The histogram.
+   */
+  public Histogram getWriteLatency() {
+    return writeLatency;
+  }
+
+  /**
+   * Get the latency of writing an index.
+   *
+   * @return The histogram.
+   */
+  public Histogram getIndexWriteLatency() {
+    return indexWriteLatency;
+  }
+
+  /**
+   * Get the amount of data blocks of every data record read.
+   *
+   * @return The histogram.
+   */
+  public Histogram getBlocksPerRecord() {
+    return blocksPerRecord;
+  }
+
+  @Override
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  @Override
+  public long getReadCount() {
+    return readCount.sum();
+  }
+
+  @Override
+  public long getWriteCount() {
+    return writeCount.sum();
+  }
+
+  @Override
+  public long getPendingReads() {
+    return pendingReads.sum();
+  }
+
+  @Override
+  public long getPendingWrites() {
+    return pendingWrites.sum();
+  }
+
+  @Override
+  public long getRelocatedRecords() {
+    return relocatedRecords.sum();
+  }
+
+  @Override
+  public long getRelocatedBytes() {
+    return relocatedBytes.sum();
+  }
+
+  @Override
+  public long getRemovedFragments() {
+    return removedFragments.sum();
+  }
+
+  @Override
+  public long getTruncatedBytes() {
+    return truncatedBytes.sum();
+  }
+
+  /**
+   * Register these metrics and all histograms at the platform MBean server under the given
+   * database name.
+   *
+   * @param databaseName The name of the database, usually its folder.
+   * @throws JMException If the beans cannot be registered.
+   */
+  public synchronized void registerMBeans(String databaseName) throws JMException {
+    registerMBeans(databaseName, null);
+  }
+
+  /**
+   * Register these metrics, all histograms and the given I/O executor at the platform MBean
+   * server under the given database name.
+   *
+   * @param databaseName The name of the database, usually its folder.
+   * @param ioExecutor The executor the database runs its file operations on or null if it uses
+   *     the JVM's default pool.
+   * @throws JMException If the beans cannot be registered.
+   */
+  public synchronized void registerMBeans(String databaseName, IoExecutorMXBean ioExecutor)
+      throws JMException {
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    String quotedName = ObjectName.quote(databaseName);
+
+    Map<String, Object> beans = new LinkedHashMap<>();
+    beans.put("type=Metrics", this);
+    beans.put("type=Histogram,histogram=getLatency", getLatency);
+    beans.put("type=Histogram,histogram=saveLatency", saveLatency);
+    beans.put("type=Histogram,histogram=getAllLatency", getAllLatency);
+    beans.put("type=Histogram,histogram=saveAllLatency", saveAllLatency);
+    beans.put("type=Histogram,histogram=updateLatency", updateLatency);
+    beans.put("type=Histogram,histogram=removeLatency", removeLatency);
+    beans.put("type=Histogram,histogram=readLatency", readLatency);
+    beans.put("type=Histogram,histogram=writeLatency", writeLatency);
+    beans.put("type=Histogram,histogram=indexWriteLatency", indexWriteLatency);
+    beans.put("type=Histogram,histogram=blocksPerRecord", blocksPerRecord);
+    if (ioExecutor != null) {
+      beans.put("type=IoExecutor", ioExecutor);
+    }
+
+    List<ObjectName> names = new ArrayList<>(beans.size());
+    try {
+      for (Map.Entry<String, Object> bean : beans.entrySet()) {
+        ObjectName objectName =
+            new ObjectName(JMX_DOMAIN + ":" + bean.getKey() + ",database=" + quotedName);
+        mbeanServer.registerMBean(bean.getValue(), objectName);
+        names.add(objectName);
+      }
+    } catch (JMException e) {
+      unregisterMBeans(mbeanServer, names);
+      throw e;
+    }
+
+    registeredNames.addAll(names);
+  }
+
+  /**
+   * Unregister all beans registered by {@link #registerMBeans(String, IoExecutorMXBean)}.
+   */
+  public synchronized void unregisterMBeans() {
+    unregisterMBeans(ManagementFactory.getPlatformMBeanServer(), registeredNames);
+    registeredNames.clear();
+  }
+
+  /**
+   * Unregister the beans with the given names.
+   *
+   * @param mbeanServer The MBean server.
+   * @param names The names of the beans.
+   */
+  private static void unregisterMBeans(MBeanServer mbeanServer, List<ObjectName> names) {
+    for (ObjectName objectName : names) {
+      try {
+        mbeanServer.unregisterMBean(objectName);
+      } catch (JMException e) {
+        // Someone else unregistered it already.
+      }
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package io.electra.core.metrics;
+
+/**
+ * The management interface of the {@link Metrics} of a database. The histograms are registered as
+ * beans of their own.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public interface MetricsMXBean {
+
+  /**
+   * Get the amount of bytes read from the data and index files.
+   *
+   * @return The amount of bytes.
+   */
+  long getBytesRead();
+
+  /**
+   * Get the amount of bytes written to the data and index files.
+   *
+   * @return The amount of bytes.
+   */
+  long getBytesWritten();
+
+  /**
+   * Get the amount of reads from the data and index files.
+   *
+   * @return The amount of reads.
+   */
+  long getReadCount();
+
+  /**
+   * Get the amount of writes to the data and index files.
+   *
+   * @return The amount of writes.
+   */
+  long getWriteCount();
+
+  /**
+   * Get the amount of reads that were issued but didn't complete yet.
+   *
+   * @return The amount of reads.
+   */
+  long getPendingReads();
+
+  /**
+   * Get the amount of writes that were issued but didn't complete yet.
+   *
+   * @return The amount of writes.
+   */
+  long getPendingWrites();
+
+  /**
+   * Get the amount of records the compactor moved.
+   *
+   * @return The amount of records.
+   */
+  long getRelocatedRecords();
+
+  /**
+   * Get the amount of bytes the compactor moved.
+   *
+   * @return The amount of bytes.
+   */
+  long getRelocatedBytes();
+
+  /**
+   * Get the amount of fragments the compactor removed by moving records into one contiguous run.
+   *
+   * @return The amount of fragments.
+   */
+  long getRemovedFragments();
+
+  /**
+   * Get the amount of bytes the compactor cut off the end of the data file.
+   *
+   * @return The amount of bytes.
+   */
+  long getTruncatedBytes();
+}
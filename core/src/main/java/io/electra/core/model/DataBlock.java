@@ -18,6 +18,13 @@ public class DataBlock {
    */
   public static final int DATA_BLOCK_CONTENT_SECTION_SIZE = 120;
 
+  /**
+   * The maximum content length of a data block that spans multiple contiguous blocks, a so called
+   * extent. The whole extent including its header will fill up to 8 MiB.
+   */
+  public static final int MAX_EXTENT_CONTENT_LENGTH =
+      8 * 1024 * 1024 - DataBlockHeader.DATA_BLOCK_HEADER_SIZE;
+
   /**
    * The header of the data block.
    */
@@ -78,6 +85,46 @@ public class DataBlock {
     return dataBlock;
   }
 
+  /**
+   * Create a new data block from a buffer that holds the whole block, header and content. The
+   * content is parsed in place, bytes after the content section are ignored.
+   *
+   * @param byteBuffer The buffer of the data block.
+   * @return The data block instance.
+   */
+  public static DataBlock fromByteBuffer(ByteBuffer byteBuffer) {
+    DataBlockHeader dataBlockHeader = DataBlockHeader.fromByteBuffer(byteBuffer);
+    int contentLength = dataBlockHeader.getContentLength();
+
+    ByteBuffer contentBuffer = byteBuffer.slice();
+    if (contentLength >= 0 && contentLength < contentBuffer.remaining()) {
+      contentBuffer.limit(contentLength);
+    }
+
+    return fromDataBlockHeaderAndContentBuffer(dataBlockHeader, contentBuffer);
+  }
+
+  /**
+   * Get the amount of contiguous blocks a data block with the given content length occupies.
+   * Content of up to {@link #DATA_BLOCK_CONTENT_SECTION_SIZE} bytes will always fit in one block.
+   *
+   * @param contentLength The length of the content.
+   * @return The amount of blocks.
+   */
+  public static int getBlockCount(int contentLength) {
+    int length = DataBlockHeader.DATA_BLOCK_HEADER_SIZE + contentLength;
+    return Math.max(1, (length + DATA_BLOCK_SIZE - 1) / DATA_BLOCK_SIZE);
+  }
+
+  /**
+   * Get the amount of contiguous blocks this data block occupies.
+   *
+   * @return The amount of blocks.
+   */
+  public int getBlockCount() {
+    return getBlockCount(getContentLength());
+  }
+
   /**
    * Get the length of the content of this block.
    *
@@ -120,10 +167,36 @@ public class DataBlock {
    * @return The byte buffer.
    */
   public ByteBuffer toByteBuffer() {
-    ByteBuffer byteBuffer = ByteBuffer.allocate(DATA_BLOCK_SIZE);
+    ByteBuffer byteBuffer = toByteBuffer(ByteBuffer.allocate(getByteBufferLength()));
+    byteBuffer.flip();
+    return byteBuffer;
+  }
+
+  /**
+   * Convert the data block to a byte buffer. Blocks shorter than the data block size are padded
+   * with zeros. The byte buffer will remain in write state.
+   *
+   * @param byteBuffer A given byte buffer with at least {@link #getByteBufferLength()} bytes
+   * remaining.
+   * @return The byte buffer.
+   */
+  public ByteBuffer toByteBuffer(ByteBuffer byteBuffer) {
     dataBlockHeader.toByteBuffer(byteBuffer);
     byteBuffer.put(content);
-    byteBuffer.flip();
+
+    for (int i = DataBlockHeader.DATA_BLOCK_HEADER_SIZE + content.length; i < DATA_BLOCK_SIZE;
+        i++) {
+      byteBuffer.put((byte) 0);
+    }
     return byteBuffer;
   }
+
+  /**
+   * Get the amount of bytes this block occupies in a byte buffer.
+   *
+   * @return The length.
+   */
+  public int getByteBufferLength() {
+    return Math.max(DATA_BLOCK_SIZE, DataBlockHeader.DATA_BLOCK_HEADER_SIZE + content.length);
+  }
 }
@@ -9,6 +9,11 @@ import java.nio.ByteBuffer;
  */
 public class DataBlockHeader {
 
+  /**
+   * How big a data block header will be in bytes in its byte buffer representation.
+   */
+  public static final int DATA_BLOCK_HEADER_SIZE = 8;
+
   /**
    * The index of the next data block or -1.
    */
@@ -53,7 +58,7 @@ public class DataBlockHeader {
    * @return The byte buffer.
    */
   public ByteBuffer toByteBuffer() {
-    ByteBuffer byteBuffer = toByteBuffer(ByteBuffer.allocate(8));
+    ByteBuffer byteBuffer = toByteBuffer(ByteBuffer.allocate(DATA_BLOCK_HEADER_SIZE));
     byteBuffer.flip();
     return byteBuffer;
   }
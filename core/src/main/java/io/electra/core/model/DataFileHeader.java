@@ -0,0 +1,81 @@
+package io.electra.core.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The header stored in the first data block of a data file. It tells which on disk layout the
+ * records of the file use. Files written before the header was introduced don't carry it and are
+ * treated as {@link #FORMAT_VERSION_BLOCK_CHAIN}.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class DataFileHeader {
+
+  /**
+   * Records are chains of data blocks that each hold up to {@link
+   * DataBlock#DATA_BLOCK_CONTENT_SECTION_SIZE} bytes.
+   */
+  public static final int FORMAT_VERSION_BLOCK_CHAIN = 1;
+
+  /**
+   * Records are chains of extents, each extent may span multiple contiguous data blocks.
+   */
+  public static final int FORMAT_VERSION_EXTENT = 2;
+
+  /**
+   * The magic number identifying a data file header ("LCTR").
+   */
+  static final int MAGIC = 0x4C435452;
+
+  /**
+   * The on disk format version of the file.
+   */
+  private final int formatVersion;
+
+  /**
+   * Create a new data file header.
+   *
+   * @param formatVersion The on disk format version of the file.
+   */
+  public DataFileHeader(int formatVersion) {
+    this.formatVersion = formatVersion;
+  }
+
+  /**
+   * Read a data file header from the given buffer. Buffers that don't start with a header will
+   * result in a header of {@link #FORMAT_VERSION_BLOCK_CHAIN}.
+   *
+   * @param byteBuffer The buffer of the first data block.
+   * @return The data file header.
+   */
+  public static DataFileHeader fromByteBuffer(ByteBuffer byteBuffer) {
+    if (byteBuffer.remaining() < 8 || byteBuffer.getInt() != MAGIC) {
+      return new DataFileHeader(FORMAT_VERSION_BLOCK_CHAIN);
+    }
+
+    return new DataFileHeader(byteBuffer.getInt());
+  }
+
+  /**
+   * Get the on disk format version of the file.
+   *
+   * @return The format version.
+   */
+  public int getFormatVersion() {
+    return formatVersion;
+  }
+
+  /**
+   * Convert the header to a byte buffer that fills a whole data block. The byte buffer is ready
+   * for reading.
+   *
+   * @return The byte buffer.
+   */
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
+    byteBuffer.putInt(MAGIC);
+    byteBuffer.putInt(formatVersion);
+    byteBuffer.clear();
+    return byteBuffer;
+  }
+}
@@ -1,7 +1,6 @@
 package io.electra.core.model;
 
-import com.google.common.primitives.Bytes;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -17,7 +16,7 @@ public class DataRecord {
   /**
    * The data blocks of this data record.
    */
-  private final LinkedList<DataBlock> dataBlocks = new LinkedList<>();
+  private final List<DataBlock> dataBlocks = new ArrayList<>(1);
 
   /**
    * Create a new data record.
@@ -47,7 +46,7 @@ public class DataRecord {
       return null;
     }
 
-    return dataBlocks.getLast();
+    return dataBlocks.get(dataBlocks.size() - 1);
   }
 
   /**
@@ -69,14 +68,33 @@ public class DataRecord {
   }
 
   /**
-   * Get the raw content of the data record.
+   * Get the raw content of the data record. The content of a record with a single data block is
+   * returned as is, the content of all others is copied once into an array of the summed length.
    *
-   * @return The content.
+   * @return The content or null if there are no data blocks.
    */
   public byte[] getContent() {
-    return dataBlocks.stream()
-        .map(DataBlock::getContent)
-        .reduce((bytes, bytes2) -> Bytes.concat(bytes, bytes2))
-        .orElse(null);
+    if (dataBlocks.isEmpty()) {
+      return null;
+    }
+
+    if (dataBlocks.size() == 1) {
+      return dataBlocks.get(0).getContent();
+    }
+
+    int length = 0;
+    for (DataBlock dataBlock : dataBlocks) {
+      length += dataBlock.getContent().length;
+    }
+
+    byte[] content = new byte[length];
+    int position = 0;
+    for (DataBlock dataBlock : dataBlocks) {
+      byte[] blockContent = dataBlock.getContent();
+      System.arraycopy(blockContent, 0, content, position, blockContent.length);
+      position += blockContent.length;
+    }
+
+    return content;
   }
 }
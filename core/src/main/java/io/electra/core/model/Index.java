@@ -111,11 +111,21 @@ public class Index {
    * @return The byte buffer.
    */
   public ByteBuffer toByteBuffer() {
-    ByteBuffer byteBuffer = ByteBuffer.allocate(INDEX_BLOCK_SIZE);
+    ByteBuffer byteBuffer = toByteBuffer(ByteBuffer.allocate(INDEX_BLOCK_SIZE));
+    byteBuffer.flip();
+    return byteBuffer;
+  }
+
+  /**
+   * Write this index to the given byte buffer. The byte buffer will remain in write state.
+   *
+   * @param byteBuffer A given byte buffer.
+   * @return The byte buffer.
+   */
+  public ByteBuffer toByteBuffer(ByteBuffer byteBuffer) {
     byteBuffer.putInt(keyHash);
     byteBuffer.putInt(blockIndex);
     byteBuffer.put((byte) (empty ? 1 : 0));
-    byteBuffer.flip();
     return byteBuffer;
   }
 }
@@ -1,8 +1,9 @@
 package io.electra.core.storage;
 
+import io.electra.core.configuration.ElectraConfiguration;
 import io.electra.core.exception.FileSystemAccessException;
-import io.electra.core.filesystem.DuplexAsynchronousFileChannelFileSystemAccessor;
 import io.electra.core.filesystem.FileSystemAccessor;
+import io.electra.core.filesystem.FileSystemAccessorFactory;
 import java.io.IOException;
 import java.nio.file.Path;
 
@@ -22,7 +23,19 @@ public abstract class AbstractFileSystemStorage implements Storage {
    * @param filePath The path of the target file.
    */
   public AbstractFileSystemStorage(Path filePath) throws FileSystemAccessException {
-    this.fileSystemAccessor = new DuplexAsynchronousFileChannelFileSystemAccessor(filePath);
+    this(filePath, new ElectraConfiguration());
+  }
+
+  /**
+   * Create a new file system based storage that accesses its file the configured way.
+   *
+   * @param filePath The path of the target file.
+   * @param configuration The configuration.
+   */
+  public AbstractFileSystemStorage(Path filePath, ElectraConfiguration configuration)
+      throws FileSystemAccessException {
+    this.fileSystemAccessor = FileSystemAccessorFactory
+        .createFileSystemAccessor(filePath, configuration);
   }
 
   @Override
@@ -32,6 +45,11 @@ public abstract class AbstractFileSystemStorage implements Storage {
     doClear();
   }
 
+  @Override
+  public void force() throws FileSystemAccessException {
+    getFileSystemAccessor().force();
+  }
+
   @Override
   public void close() throws IOException {
     getFileSystemAccessor().close();
@@ -17,4 +17,11 @@ public interface Storage extends Closeable {
    * loss.
    */
   void clear() throws FileSystemAccessException;
+
+  /**
+   * Force everything written so far down to the storage device.
+   *
+   * @throws FileSystemAccessException If syncing fails.
+   */
+  void force() throws FileSystemAccessException;
 }
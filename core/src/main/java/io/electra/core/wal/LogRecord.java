@@ -0,0 +1,111 @@
+package io.electra.core.wal;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * One operation in the write ahead log. In its byte buffer representation a record starts with a
+ * checksum of the rest of the record, so torn writes at the end of the log can be detected.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class LogRecord {
+
+  /**
+   * The size of the header in front of the value: checksum, type, key hash and value length.
+   */
+  public static final int LOG_RECORD_HEADER_SIZE = 13;
+
+  /**
+   * The type of the operation.
+   */
+  private final LogRecordType type;
+
+  /**
+   * The hash of the key the operation affects.
+   */
+  private final int keyHash;
+
+  /**
+   * The value of the operation, empty for removals.
+   */
+  private final byte[] value;
+
+  /**
+   * Create a new log record by its underlying values.
+   *
+   * @param type The type of the operation.
+   * @param keyHash The hash of the key.
+   * @param value The value.
+   */
+  public LogRecord(LogRecordType type, int keyHash, byte[] value) {
+    this.type = type;
+    this.keyHash = keyHash;
+    this.value = value;
+  }
+
+  /**
+   * Compute the checksum of a record from its parts.
+   *
+   * @param header The header without the checksum.
+   * @param value The value.
+   * @return The checksum.
+   */
+  static int computeChecksum(ByteBuffer header, byte[] value) {
+    CRC32C crc32c = new CRC32C();
+    crc32c.update(header);
+    crc32c.update(value);
+    return (int) crc32c.getValue();
+  }
+
+  /**
+   * Get the type of the operation.
+   *
+   * @return The type.
+   */
+  public LogRecordType getType() {
+    return type;
+  }
+
+  /**
+   * Get the hash of the key the operation affects.
+   *
+   * @return The key hash.
+   */
+  public int getKeyHash() {
+    return keyHash;
+  }
+
+  /**
+   * Get the value of the operation.
+   *
+   * @return The value.
+   */
+  public byte[] getValue() {
+    return value;
+  }
+
+  /**
+   * Write this record to a byte buffer, that will be ready for reading.
+   *
+   * @return The byte buffer.
+   */
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(LOG_RECORD_HEADER_SIZE + value.length);
+    byteBuffer.position(Integer.BYTES);
+    byteBuffer.put(type.getId());
+    byteBuffer.putInt(keyHash);
+    byteBuffer.putInt(value.length);
+
+    byteBuffer.flip();
+    byteBuffer.position(Integer.BYTES);
+    int checksum = computeChecksum(byteBuffer, value);
+
+    byteBuffer.clear();
+    byteBuffer.putInt(checksum);
+    byteBuffer.position(LOG_RECORD_HEADER_SIZE);
+    byteBuffer.put(value);
+    byteBuffer.flip();
+    return byteBuffer;
+  }
+}
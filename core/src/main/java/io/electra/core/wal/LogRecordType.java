@@ -0,0 +1,64 @@
+package io.electra.core.wal;
+
+/**
+ * The operations that are recorded in the write ahead log.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public enum LogRecordType {
+
+  /**
+   * A value was saved for a new key hash.
+   */
+  SAVE((byte) 1),
+
+  /**
+   * The value of a key hash was replaced.
+   */
+  UPDATE((byte) 2),
+
+  /**
+   * The value of a key hash was removed.
+   */
+  REMOVE((byte) 3),
+
+  /**
+   * A value was saved for a new key hash by streaming it into data blocks that were synced before
+   * the record was logged. The value of the record holds the index of the first data block.
+   */
+  LINK((byte) 4);
+
+  /**
+   * The id of the type in the byte buffer representation of a record.
+   */
+  private final byte id;
+
+  LogRecordType(byte id) {
+    this.id = id;
+  }
+
+  /**
+   * Get the type with the given id.
+   *
+   * @param id The id.
+   * @return The type or null if there is no type with that id.
+   */
+  public static LogRecordType fromId(byte id) {
+    for (LogRecordType logRecordType : values()) {
+      if (logRecordType.id == id) {
+        return logRecordType;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the id of the type in the byte buffer representation of a record.
+   *
+   * @return The id.
+   */
+  public byte getId() {
+    return id;
+  }
+}
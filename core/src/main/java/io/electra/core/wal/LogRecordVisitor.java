@@ -0,0 +1,17 @@
+package io.electra.core.wal;
+
+/**
+ * Visits the records of a {@link WriteAheadLog} while it is replayed.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+@FunctionalInterface
+public interface LogRecordVisitor {
+
+  /**
+   * Visit one record.
+   *
+   * @param logRecord The log record.
+   */
+  void visit(LogRecord logRecord);
+}
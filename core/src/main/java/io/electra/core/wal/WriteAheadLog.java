@@ -0,0 +1,47 @@
+package io.electra.core.wal;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.exception.WriteAheadLogException;
+import java.io.Closeable;
+
+/**
+ * A sequential log of all modifying operations. An operation is only applied to the data and index
+ * storages once its record is durable, so every operation interrupted by a crash can be replayed.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public interface WriteAheadLog extends Closeable {
+
+  /**
+   * Append the given record to the log. Records appended concurrently are written and synced
+   * together, so they share one fsync.
+   *
+   * @param logRecord The log record.
+   * @return The future that completes once the record is durable.
+   */
+  ListenableFuture<Void> append(LogRecord logRecord);
+
+  /**
+   * Visit all intact records of the log in the order they were appended. A torn record at the end
+   * of the log and everything behind it will be cut off.
+   *
+   * @param logRecordVisitor The visitor.
+   * @throws WriteAheadLogException If the log cannot be read.
+   */
+  void replay(LogRecordVisitor logRecordVisitor) throws WriteAheadLogException;
+
+  /**
+   * Drop all records. Should only be called once all operations in the log are durable in the
+   * data and index storages.
+   *
+   * @throws WriteAheadLogException If the log cannot be truncated.
+   */
+  void truncate() throws WriteAheadLogException;
+
+  /**
+   * Get the size of all records in the log.
+   *
+   * @return The size in bytes.
+   */
+  long getSize();
+}
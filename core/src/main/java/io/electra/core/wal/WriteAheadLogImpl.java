@@ -0,0 +1,337 @@
+package io.electra.core.wal;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.electra.core.exception.WriteAheadLogException;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A write ahead log with group commit. Appended records are queued and a single flush thread
+ * writes everything that queued up with one gathering write followed by one fsync. While a sync
+ * is in flight the next batch collects, so the amount of syncs adapts to the load by itself.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+public class WriteAheadLogImpl implements WriteAheadLog {
+
+  /**
+   * Marks the end of the queue when the log gets closed.
+   */
+  private static final PendingAppend CLOSE_MARKER = new PendingAppend(null, null);
+
+  /**
+   * The channel of the log file.
+   */
+  private final FileChannel fileChannel;
+
+  /**
+   * The records waiting to be written.
+   */
+  private final BlockingQueue<PendingAppend> pendingAppends = new LinkedBlockingQueue<>();
+
+  /**
+   * The size of all written records.
+   */
+  private final AtomicLong size;
+
+  /**
+   * The thread writing and syncing the pending records.
+   */
+  private final Thread flushThread;
+
+  /**
+   * If the log was closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * The error that left bytes of a failed batch in the log file that could not be cut off again.
+   * No record is acknowledged anymore once it is set, as it would be appended behind them.
+   */
+  private volatile IOException failure;
+
+  public WriteAheadLogImpl(Path logFilePath) throws WriteAheadLogException {
+    this(openFileChannel(logFilePath));
+  }
+
+  WriteAheadLogImpl(FileChannel fileChannel) throws WriteAheadLogException {
+    this.fileChannel = fileChannel;
+    try {
+      size = new AtomicLong(fileChannel.size());
+      fileChannel.position(size.get());
+    } catch (IOException e) {
+      throw new WriteAheadLogException("Error opening write ahead log", e);
+    }
+
+    flushThread = new Thread(this::flushPendingAppends, "electra-wal-flush");
+    flushThread.setDaemon(true);
+    flushThread.start();
+  }
+
+  /**
+   * Open the log file at the given path, it is created if it doesn't exist yet.
+   *
+   * @param logFilePath The path of the log file.
+   * @return The channel of the log file.
+   * @throws WriteAheadLogException If the file cannot be opened.
+   */
+  private static FileChannel openFileChannel(Path logFilePath) throws WriteAheadLogException {
+    try {
+      return FileChannel.open(logFilePath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new WriteAheadLogException("Error opening write ahead log", e);
+    }
+  }
+
+  @Override
+  public ListenableFuture<Void> append(LogRecord logRecord) {
+    if (closed) {
+      return Futures.immediateFailedFuture(new ClosedChannelException());
+    }
+
+    SettableFuture<Void> resultFuture = SettableFuture.create();
+    pendingAppends.add(new PendingAppend(logRecord.toByteBuffer(), resultFuture));
+    return resultFuture;
+  }
+
+  /**
+   * Take batches of pending records from the queue until the log gets closed.
+   */
+  private void flushPendingAppends() {
+    List<PendingAppend> batch = new ArrayList<>();
+
+    while (true) {
+      try {
+        batch.add(pendingAppends.take());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      pendingAppends.drainTo(batch);
+
+      boolean closeMarkerReached = batch.remove(CLOSE_MARKER);
+      if (!batch.isEmpty()) {
+        writeBatch(batch);
+      }
+      batch.clear();
+
+      if (closeMarkerReached) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Write the given records and sync the log once for all of them. If that fails, the bytes that
+   * may have been written are cut off again, so the next batch directly follows the last one that
+   * was acknowledged.
+   *
+   * @param batch The pending records.
+   */
+  private synchronized void writeBatch(List<PendingAppend> batch) {
+    if (failure != null) {
+      failBatch(batch, new IOException("Write ahead log failed earlier", failure));
+      return;
+    }
+
+    ByteBuffer[] byteBuffers = new ByteBuffer[batch.size()];
+    long length = 0;
+    for (int i = 0; i < byteBuffers.length; i++) {
+      byteBuffers[i] = batch.get(i).byteBuffer;
+      length += byteBuffers[i].remaining();
+    }
+
+    try {
+      long written = 0;
+      while (written < length) {
+        written += fileChannel.write(byteBuffers);
+      }
+
+      fileChannel.force(false);
+      size.addAndGet(length);
+    } catch (IOException e) {
+      try {
+        fileChannel.truncate(size.get());
+        fileChannel.position(size.get());
+      } catch (IOException truncateException) {
+        e.addSuppressed(truncateException);
+        failure = e;
+      }
+
+      failBatch(batch, e);
+      return;
+    }
+
+    for (PendingAppend pendingAppend : batch) {
+      pendingAppend.resultFuture.set(null);
+    }
+  }
+
+  /**
+   * Fail all given records with the given error.
+   *
+   * @param batch The pending records.
+   * @param cause The error.
+   */
+  private static void failBatch(List<PendingAppend> batch, IOException cause) {
+    for (PendingAppend pendingAppend : batch) {
+      pendingAppend.resultFuture.setException(cause);
+    }
+  }
+
+  @Override
+  public synchronized void replay(LogRecordVisitor logRecordVisitor)
+      throws WriteAheadLogException {
+    long validLength = 0;
+
+    try {
+      fileChannel.position(0);
+      DataInputStream inputStream = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(fileChannel)));
+
+      while (validLength < size.get()) {
+        LogRecord logRecord = readLogRecord(inputStream, size.get() - validLength);
+        if (logRecord == null) {
+          break;
+        }
+
+        logRecordVisitor.visit(logRecord);
+        validLength += LogRecord.LOG_RECORD_HEADER_SIZE + logRecord.getValue().length;
+      }
+
+      if (validLength < size.get()) {
+        fileChannel.truncate(validLength);
+        size.set(validLength);
+      }
+
+      fileChannel.position(validLength);
+    } catch (IOException e) {
+      throw new WriteAheadLogException("Error replaying write ahead log", e);
+    }
+  }
+
+  /**
+   * Read the next record from the given stream.
+   *
+   * @param inputStream The input stream.
+   * @param available The amount of bytes left in the log.
+   * @return The log record or null if the record is torn or corrupted.
+   * @throws IOException If the log cannot be read.
+   */
+  private LogRecord readLogRecord(DataInputStream inputStream, long available)
+      throws IOException {
+    if (available < LogRecord.LOG_RECORD_HEADER_SIZE) {
+      return null;
+    }
+
+    byte[] header = new byte[LogRecord.LOG_RECORD_HEADER_SIZE];
+    byte[] value;
+    try {
+      inputStream.readFully(header);
+
+      ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+      int checksum = headerBuffer.getInt();
+      LogRecordType type = LogRecordType.fromId(headerBuffer.get());
+      int keyHash = headerBuffer.getInt();
+      int valueLength = headerBuffer.getInt();
+
+      if (type == null || valueLength < 0
+          || valueLength > available - LogRecord.LOG_RECORD_HEADER_SIZE) {
+        return null;
+      }
+
+      value = new byte[valueLength];
+      inputStream.readFully(value);
+
+      headerBuffer.position(Integer.BYTES);
+      if (LogRecord.computeChecksum(headerBuffer, value) != checksum) {
+        return null;
+      }
+
+      return new LogRecord(type, keyHash, value);
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public synchronized void truncate() throws WriteAheadLogException {
+    try {
+      fileChannel.truncate(0);
+      fileChannel.position(0);
+      fileChannel.force(true);
+      size.set(0);
+    } catch (IOException e) {
+      throw new WriteAheadLogException("Error truncating write ahead log", e);
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return size.get();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    pendingAppends.add(CLOSE_MARKER);
+
+    try {
+      flushThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    // Records appended concurrently to closing missed the last batch.
+    PendingAppend pendingAppend;
+    while ((pendingAppend = pendingAppends.poll()) != null) {
+      if (pendingAppend != CLOSE_MARKER) {
+        pendingAppend.resultFuture.setException(new ClosedChannelException());
+      }
+    }
+
+    fileChannel.close();
+  }
+
+  /**
+   * A record waiting to be written together with the future of its append.
+   */
+  private static final class PendingAppend {
+
+    /**
+     * The byte buffer representation of the record.
+     */
+    private final ByteBuffer byteBuffer;
+
+    /**
+     * The future to complete once the record is durable.
+     */
+    private final SettableFuture<Void> resultFuture;
+
+    PendingAppend(ByteBuffer byteBuffer, SettableFuture<Void> resultFuture) {
+      this.byteBuffer = byteBuffer;
+      this.resultFuture = resultFuture;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package io.electra.core.engine;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors that run every task on a virtual thread of its own. This is the variant of the
+ * multi release jar that is used on Java 21 and newer.
+ *
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+final class VirtualThreads {
+
+  VirtualThreads() {
+    throw new AssertionError("Can't instantiate utility classes.");
+  }
+
+  /**
+   * Check if the running JVM supports virtual threads.
+   *
+   * @return If virtual threads are supported.
+   */
+  static boolean isSupported() {
+    return true;
+  }
+
+  /**
+   * Create a new executor that starts a virtual thread for every task.
+   *
+   * @return The executor.
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("electra-virtual-", 0).factory());
+  }
+}
@@ -37,5 +37,8 @@ class DatabaseFactoryTest {
   void tearDown() throws IOException {
     Files.deleteIfExists(Paths.get("index.lctr"));
     Files.deleteIfExists(Paths.get("data.lctr"));
+    Files.deleteIfExists(Paths.get("wal.lctr"));
+    Files.deleteIfExists(Paths.get("index.lctr.snapshot"));
+    Files.deleteIfExists(Paths.get("index.lctr.snapshot.tail"));
   }
 }
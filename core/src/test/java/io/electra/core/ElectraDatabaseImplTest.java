@@ -1,12 +1,25 @@
 package io.electra.core;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.engine.VirtualThreadStorageEngine;
 import io.electra.core.exception.DatabaseInitializationException;
+import io.electra.core.filesystem.FileSystemAccessorType;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,6 +45,7 @@ class ElectraDatabaseImplTest {
   void tearDown() throws IOException {
     Files.delete(Paths.get("index.lctr"));
     Files.delete(Paths.get("data.lctr"));
+    Files.deleteIfExists(Paths.get("wal.lctr"));
   }
 
   @Test
@@ -47,6 +61,76 @@ class ElectraDatabaseImplTest {
     assertThrows(IllegalArgumentException.class, executable);
   }
 
+  @Test
+  void testGetMetrics() throws Exception {
+    Path databaseFolder = Files.createDirectories(Paths.get("test-metrics-database"));
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName("io.electra:type=Metrics,database="
+        + ObjectName.quote(databaseFolder.toAbsolutePath().toString()));
+
+    try {
+      try (ElectraDatabase database = DatabaseFactory.createDatabase(databaseFolder)) {
+        assertNotNull(database.getMetrics());
+        assertTrue(mbeanServer.isRegistered(objectName));
+      }
+
+      assertFalse(mbeanServer.isRegistered(objectName));
+    } finally {
+      try (Stream<Path> paths = Files.walk(databaseFolder)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testShardedDatabase() throws Exception {
+    Path databaseFolder = Files.createDirectories(Paths.get("test-database"));
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setShardCount(4);
+
+    try {
+      DatabaseFactory.createDatabase(databaseFolder, configuration).close();
+
+      assertTrue(Files.isDirectory(databaseFolder.resolve("shard-3")));
+      assertTrue(Files.exists(databaseFolder.resolve("shard-0").resolve("data.lctr")));
+
+      configuration.setShardCount(2);
+      Executable executable = () -> DatabaseFactory.createDatabase(databaseFolder, configuration);
+      assertThrows(DatabaseInitializationException.class, executable);
+    } finally {
+      try (Stream<Path> paths = Files.walk(databaseFolder)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testVirtualThreads() throws Exception {
+    Path databaseFolder = Files.createDirectories(Paths.get("test-virtual-database"));
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.FILE_CHANNEL);
+    configuration.setVirtualThreadsEnabled(true);
+
+    try {
+      if (VirtualThreadStorageEngine.isSupported()) {
+        DatabaseFactory.createDatabase(databaseFolder, configuration).close();
+      } else {
+        Executable executable = () -> DatabaseFactory.createDatabase(databaseFolder, configuration);
+        assertThrows(DatabaseInitializationException.class, executable);
+      }
+    } finally {
+      try (Stream<Path> paths = Files.walk(databaseFolder)) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
   @Test
   void testClose() {
     try {
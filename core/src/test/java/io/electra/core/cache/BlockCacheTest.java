@@ -0,0 +1,113 @@
+package io.electra.core.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class BlockCacheTest {
+
+  private static final long TEST_CACHE_SIZE = 16 * BlockCache.PAGE_SIZE;
+  private static final long TEST_PAGE_POSITION = 3 * BlockCache.PAGE_SIZE;
+
+  private static ByteBuffer createPage(byte value, int length) {
+    ByteBuffer page = ByteBuffer.allocate(length);
+    for (int i = 0; i < length; i++) {
+      page.put(value);
+    }
+    page.flip();
+    return page;
+  }
+
+  private static ByteBuffer read(BlockCache blockCache, long position, int length) {
+    ByteBuffer content = ByteBuffer.allocate(length);
+    return blockCache.read(position, content) ? content : null;
+  }
+
+  @Test
+  void testFillAndRead() {
+    BlockCache blockCache = new BlockCache(TEST_CACHE_SIZE);
+
+    assertNull(read(blockCache, TEST_PAGE_POSITION + 128, 128));
+    blockCache.fill(TEST_PAGE_POSITION, createPage((byte) 7, BlockCache.PAGE_SIZE),
+        blockCache.getGeneration(TEST_PAGE_POSITION));
+
+    ByteBuffer content = read(blockCache, TEST_PAGE_POSITION + 128, 128);
+    assertNotNull(content);
+    assertEquals(128, content.remaining());
+    assertEquals(7, content.get(0));
+    assertEquals(1, blockCache.getHitCount());
+    assertEquals(1, blockCache.getMissCount());
+  }
+
+  @Test
+  void testReadBeyondEndOfFile() {
+    BlockCache blockCache = new BlockCache(TEST_CACHE_SIZE);
+    blockCache.fill(TEST_PAGE_POSITION, createPage((byte) 7, 200),
+        blockCache.getGeneration(TEST_PAGE_POSITION));
+
+    assertEquals(72, read(blockCache, TEST_PAGE_POSITION + 128, 128).remaining());
+    assertEquals(0, read(blockCache, TEST_PAGE_POSITION + 256, 128).remaining());
+  }
+
+  @Test
+  void testWrite() {
+    BlockCache blockCache = new BlockCache(TEST_CACHE_SIZE);
+    blockCache.fill(TEST_PAGE_POSITION, createPage((byte) 7, 256),
+        blockCache.getGeneration(TEST_PAGE_POSITION));
+
+    blockCache.write(TEST_PAGE_POSITION + 128, createPage((byte) 9, 256));
+
+    ByteBuffer content = read(blockCache, TEST_PAGE_POSITION, 384);
+    assertEquals(384, content.remaining());
+    assertEquals(7, content.get(0));
+    assertEquals(9, content.get(383));
+  }
+
+  @Test
+  void testFillAfterWrite() {
+    BlockCache blockCache = new BlockCache(TEST_CACHE_SIZE);
+    long generation = blockCache.getGeneration(TEST_PAGE_POSITION);
+
+    blockCache.write(TEST_PAGE_POSITION, createPage((byte) 9, 128));
+    blockCache.fill(TEST_PAGE_POSITION, createPage((byte) 7, BlockCache.PAGE_SIZE), generation);
+
+    assertNull(read(blockCache, TEST_PAGE_POSITION, 128));
+  }
+
+  @Test
+  void testEviction() {
+    BlockCache blockCache = new BlockCache(TEST_CACHE_SIZE);
+
+    for (int i = 0; i < 1000; i++) {
+      long pagePosition = (long) i * BlockCache.PAGE_SIZE;
+      blockCache.fill(pagePosition, createPage((byte) i, BlockCache.PAGE_SIZE),
+          blockCache.getGeneration(pagePosition));
+    }
+
+    int cachedPages = 0;
+    for (int i = 0; i < 1000; i++) {
+      ByteBuffer content = read(blockCache, (long) i * BlockCache.PAGE_SIZE, 1);
+      if (content != null) {
+        assertEquals((byte) i, content.get(0));
+        cachedPages++;
+      }
+    }
+
+    assertTrue(cachedPages <= TEST_CACHE_SIZE / BlockCache.PAGE_SIZE);
+  }
+
+  @Test
+  void testIsCacheable() {
+    assertTrue(BlockCache.isCacheable(BlockCache.PAGE_SIZE - 128, 128));
+    assertFalse(BlockCache.isCacheable(BlockCache.PAGE_SIZE - 64, 128));
+    assertFalse(BlockCache.isCacheable(0, BlockCache.PAGE_SIZE + 1));
+  }
+}
@@ -0,0 +1,66 @@
+package io.electra.core.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DataCacheTest {
+
+  private static final int TEST_KEY_HASH = 90;
+  private static final byte[] TEST_VALUE = "I am a tester moarfuckn king.".getBytes();
+  private static final long TEST_CACHE_SIZE = 64 * 1024;
+
+  @Test
+  void testPutAndGet() {
+    DataCache dataCache = new DataCache(TEST_CACHE_SIZE);
+
+    assertNull(dataCache.get(TEST_KEY_HASH));
+    dataCache.put(TEST_KEY_HASH, TEST_VALUE, dataCache.getGeneration(TEST_KEY_HASH));
+
+    byte[] value = dataCache.get(TEST_KEY_HASH);
+    assertArrayEquals(TEST_VALUE, value);
+    assertNotSame(value, dataCache.get(TEST_KEY_HASH));
+    assertEquals(2, dataCache.getHitCount());
+    assertEquals(1, dataCache.getMissCount());
+  }
+
+  @Test
+  void testPutAfterInvalidation() {
+    DataCache dataCache = new DataCache(TEST_CACHE_SIZE);
+    long generation = dataCache.getGeneration(TEST_KEY_HASH);
+
+    dataCache.invalidate(TEST_KEY_HASH);
+    dataCache.put(TEST_KEY_HASH, TEST_VALUE, generation);
+
+    assertNull(dataCache.get(TEST_KEY_HASH));
+  }
+
+  @Test
+  void testInvalidate() {
+    DataCache dataCache = new DataCache(TEST_CACHE_SIZE);
+    dataCache.put(TEST_KEY_HASH, TEST_VALUE, dataCache.getGeneration(TEST_KEY_HASH));
+
+    dataCache.invalidate(TEST_KEY_HASH);
+
+    assertNull(dataCache.get(TEST_KEY_HASH));
+  }
+
+  @Test
+  void testMaximumSize() {
+    DataCache dataCache = new DataCache(TEST_CACHE_SIZE);
+    byte[] value = new byte[1024];
+
+    for (int i = 0; i < 1000; i++) {
+      dataCache.put(i, value, dataCache.getGeneration(i));
+    }
+
+    assertTrue(dataCache.getWeightedSize() <= TEST_CACHE_SIZE);
+  }
+}
@@ -0,0 +1,109 @@
+package io.electra.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DataBlockAllocatorTest {
+
+  private static final int TEST_END_OF_FILE_BLOCK_INDEX = 20;
+  private DataBlockAllocator dataBlockAllocator;
+
+  @BeforeEach
+  void setUp() {
+    dataBlockAllocator = new DataBlockAllocator(TEST_END_OF_FILE_BLOCK_INDEX);
+    dataBlockAllocator.free(2, 1);
+    dataBlockAllocator.free(5, 3);
+  }
+
+  @Test
+  void testAllocateContiguousFromFreeRun() {
+    assertEquals(5, dataBlockAllocator.allocateContiguous(2));
+    assertEquals(2, dataBlockAllocator.allocateContiguous(1));
+    assertEquals(7, dataBlockAllocator.allocateContiguous(1));
+    assertEquals(0, dataBlockAllocator.getFreeBlockCount());
+  }
+
+  @Test
+  void testAllocateContiguousAtEndOfFile() {
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX, dataBlockAllocator.allocateContiguous(4));
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX + 4, dataBlockAllocator.getEndOfFileBlockIndex());
+  }
+
+  @Test
+  void testAllocate() {
+    int[] blockIndices = dataBlockAllocator.allocate(6);
+
+    assertArrayEquals(new int[]{2, 5, 6, 7, 20, 21}, blockIndices);
+    assertEquals(0, dataBlockAllocator.getFreeBlockCount());
+  }
+
+  @Test
+  void testAllocatePartOfRun() {
+    assertArrayEquals(new int[]{2, 5}, dataBlockAllocator.allocate(2));
+    assertEquals(2, dataBlockAllocator.getFreeBlockCount());
+    assertEquals(Integer.valueOf(2), dataBlockAllocator.getFreeRuns().get(6));
+  }
+
+  @Test
+  void testHasFreeRun() {
+    assertTrue(dataBlockAllocator.hasFreeRun(3, 10));
+    assertTrue(dataBlockAllocator.hasFreeRun(1, 3));
+    assertFalse(dataBlockAllocator.hasFreeRun(3, 5));
+    assertFalse(dataBlockAllocator.hasFreeRun(4, 10));
+  }
+
+  @Test
+  void testFreeMergesRuns() {
+    dataBlockAllocator.free(3, 2);
+
+    assertEquals(Integer.valueOf(6), dataBlockAllocator.getFreeRuns().get(2));
+    assertEquals(1, dataBlockAllocator.getFreeRuns().size());
+  }
+
+  @Test
+  void testFreeShrinksEndOfFile() {
+    dataBlockAllocator.free(8, 12);
+
+    assertEquals(5, dataBlockAllocator.getEndOfFileBlockIndex());
+    assertEquals(1, dataBlockAllocator.getFreeBlockCount());
+  }
+
+  @Test
+  void testFreeTwice() {
+    Executable executable = () -> dataBlockAllocator.free(6, 1);
+    assertThrows(IllegalStateException.class, executable);
+  }
+
+  @Test
+  void testFreeSameRunTwice() {
+    Executable executable = () -> dataBlockAllocator.free(5, 3);
+    assertThrows(IllegalStateException.class, executable);
+
+    assertEquals(4, dataBlockAllocator.getFreeBlockCount());
+  }
+
+  @Test
+  void testFreeOverlappingHigherRun() {
+    Executable executable = () -> dataBlockAllocator.free(3, 3);
+    assertThrows(IllegalStateException.class, executable);
+
+    assertEquals(4, dataBlockAllocator.getFreeBlockCount());
+    assertEquals(Integer.valueOf(3), dataBlockAllocator.getFreeRuns().get(5));
+  }
+
+  @Test
+  void testAllocateWithInvalidBlockCount() {
+    Executable executable = () -> dataBlockAllocator.allocate(0);
+    assertThrows(IllegalArgumentException.class, executable);
+  }
+}
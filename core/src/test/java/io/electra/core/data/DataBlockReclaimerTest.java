@@ -0,0 +1,86 @@
+package io.electra.core.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DataBlockReclaimerTest {
+
+  private DataBlockReclaimer dataBlockReclaimer;
+  private AtomicInteger freeCount;
+
+  @BeforeEach
+  void setUp() {
+    dataBlockReclaimer = new DataBlockReclaimer();
+    freeCount = new AtomicInteger();
+  }
+
+  @Test
+  void testRetireWithoutReaders() {
+    dataBlockReclaimer.retire(freeCount::incrementAndGet);
+
+    assertEquals(1, freeCount.get());
+    assertEquals(0, dataBlockReclaimer.getPendingFreeCount());
+  }
+
+  @Test
+  void testRetireWaitsForEarlierReaders() {
+    DataBlockReclaimer.Epoch first = dataBlockReclaimer.enter();
+    DataBlockReclaimer.Epoch second = dataBlockReclaimer.enter();
+    dataBlockReclaimer.retire(freeCount::incrementAndGet);
+
+    dataBlockReclaimer.exit(first);
+    assertEquals(0, freeCount.get());
+
+    dataBlockReclaimer.exit(second);
+    assertEquals(1, freeCount.get());
+    assertEquals(0, dataBlockReclaimer.getActiveReaderCount());
+  }
+
+  @Test
+  void testRetireIgnoresLaterReaders() {
+    DataBlockReclaimer.Epoch earlier = dataBlockReclaimer.enter();
+    dataBlockReclaimer.retire(freeCount::incrementAndGet);
+
+    // Readers keep coming, but none of them can see the freed blocks anymore.
+    DataBlockReclaimer.Epoch later = dataBlockReclaimer.enter();
+    dataBlockReclaimer.exit(earlier);
+
+    assertEquals(1, freeCount.get());
+    assertEquals(1, dataBlockReclaimer.getActiveReaderCount());
+    dataBlockReclaimer.exit(later);
+  }
+
+  @Test
+  void testRetireWaitsForOlderEpochs() {
+    DataBlockReclaimer.Epoch first = dataBlockReclaimer.enter();
+    dataBlockReclaimer.retire(freeCount::incrementAndGet);
+    DataBlockReclaimer.Epoch second = dataBlockReclaimer.enter();
+    dataBlockReclaimer.retire(freeCount::incrementAndGet);
+
+    dataBlockReclaimer.exit(second);
+    assertEquals(0, freeCount.get());
+    assertEquals(2, dataBlockReclaimer.getPendingFreeCount());
+
+    dataBlockReclaimer.exit(first);
+    assertEquals(2, freeCount.get());
+    assertEquals(0, dataBlockReclaimer.getPendingFreeCount());
+  }
+
+  @Test
+  void testReclaimAll() {
+    dataBlockReclaimer.enter();
+    dataBlockReclaimer.retire(freeCount::incrementAndGet);
+    dataBlockReclaimer.retire(freeCount::incrementAndGet);
+
+    dataBlockReclaimer.reclaimAll();
+
+    assertEquals(2, freeCount.get());
+    assertEquals(0, dataBlockReclaimer.getPendingFreeCount());
+  }
+}
@@ -2,25 +2,46 @@ package io.electra.core.data;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import com.google.common.primitives.Bytes;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.electra.core.cache.BlockCache;
+import io.electra.core.configuration.ElectraConfiguration;
 import io.electra.core.exception.FileSystemAccessException;
 import io.electra.core.filesystem.FileSystemAccessor;
+import io.electra.core.filesystem.FileSystemAccessorType;
+import io.electra.core.metrics.Metrics;
 import io.electra.core.model.DataBlock;
+import io.electra.core.model.DataFileHeader;
 import io.electra.core.model.DataRecord;
 import io.electra.core.model.Index;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
 
 /**
  * @author Felix Klauke <info@felix-klauke.de>
@@ -31,6 +52,8 @@ class DataStorageImplTest {
   private static final int TEST_CHAIN_BLOCK_INDEX1 = 0;
   private static final int TEST_CHAIN_BLOCK_INDEX2 = 2;
   private static final int TEST_SINGLE_BLOCK_INDEX = 1;
+  private static final int TEST_FREE_BLOCK_INDEX = 3;
+  private static final int TEST_END_OF_FILE_BLOCK_INDEX = 8;
   private static final byte[] TEST_SINGLE_BLOCK_CONTENT = "I am a tester moarfuckn king."
       .getBytes();
   private static final byte[] TEST_CHAIN_BLOCK_CONTENT1 = "IjajajajajajajajajajajajajjajaIjajajajajajajajajajajajajjajaIjajajajajajajajajajajajajjajaIjajajajajajajajajajajajajjaja"
@@ -78,7 +101,7 @@ class DataStorageImplTest {
 
     byteBuffer = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
     byteBuffer.putInt(5);
-    byteBuffer.putInt(0);
+    byteBuffer.putInt(-1);
     byteBuffer.flip();
 
     Futures.getUnchecked(fileSystemAccessor.write(DataBlock.DATA_BLOCK_SIZE * 3, byteBuffer));
@@ -92,7 +115,7 @@ class DataStorageImplTest {
 
     byteBuffer = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
     byteBuffer.putInt(8);
-    byteBuffer.putInt(0);
+    byteBuffer.putInt(-1);
     byteBuffer.flip();
 
     Futures.getUnchecked(fileSystemAccessor.write(DataBlock.DATA_BLOCK_SIZE * 5, byteBuffer));
@@ -113,10 +136,12 @@ class DataStorageImplTest {
 
     byteBuffer = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
     byteBuffer.putInt(56);
-    byteBuffer.putInt(0);
+    byteBuffer.putInt(-1);
     byteBuffer.flip();
 
     Futures.getUnchecked(fileSystemAccessor.write(DataBlock.DATA_BLOCK_SIZE * 8, byteBuffer));
+
+    dataStorage.loadFreeDataBlocks(TEST_FREE_BLOCK_INDEX);
   }
 
   @Test
@@ -175,18 +200,131 @@ class DataStorageImplTest {
     assertArrayEquals(TEST_CHAIN_BLOCK_CONTENT2, dataBlock.getContent());
   }
 
+  @Test
+  void testReadDataRecords() {
+    Random random = new Random(42);
+    // Extents ending inside and behind one batched read, followed by a gap too large to batch.
+    int[] lengths = {300, 50, 10 * 1024, 100 * 1024, 20};
+    byte[][] contents = new byte[lengths.length][];
+    Index[] writtenIndices = new Index[lengths.length];
+    for (int i = 0; i < lengths.length; i++) {
+      contents[i] = new byte[lengths[i]];
+      random.nextBytes(contents[i]);
+      writtenIndices[i] = Futures.getUnchecked(
+          dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1), contents[i]));
+    }
+
+    List<Index> indices = Arrays.asList(writtenIndices[4], writtenIndices[1],
+        new Index(DUMMY_KEY_HASH, TEST_CHAIN_BLOCK_INDEX1), writtenIndices[3], writtenIndices[0],
+        new Index(DUMMY_KEY_HASH, TEST_SINGLE_BLOCK_INDEX), writtenIndices[2], writtenIndices[1]);
+
+    List<DataRecord> dataRecords = Futures.getUnchecked(dataStorage.readDataRecords(indices));
+
+    assertEquals(indices.size(), dataRecords.size());
+    assertArrayEquals(contents[4], dataRecords.get(0).getContent());
+    assertArrayEquals(contents[1], dataRecords.get(1).getContent());
+    assertArrayEquals(Bytes.concat(TEST_CHAIN_BLOCK_CONTENT1, TEST_CHAIN_BLOCK_CONTENT2),
+        dataRecords.get(2).getContent());
+    assertArrayEquals(contents[3], dataRecords.get(3).getContent());
+    assertArrayEquals(contents[0], dataRecords.get(4).getContent());
+    assertArrayEquals(TEST_SINGLE_BLOCK_CONTENT, dataRecords.get(5).getContent());
+    assertArrayEquals(contents[2], dataRecords.get(6).getContent());
+    assertArrayEquals(contents[1], dataRecords.get(7).getContent());
+  }
+
+  @Test
+  void testReadNoDataRecords() {
+    assertTrue(Futures.getUnchecked(dataStorage.readDataRecords(Collections.emptyList()))
+        .isEmpty());
+  }
+
+  @Test
+  void testOpenDataRecordChannelWithDataBlockChain() throws IOException {
+    Index index = new Index(DUMMY_KEY_HASH, TEST_CHAIN_BLOCK_INDEX1);
+
+    try (ReadableByteChannel channel = dataStorage.openDataRecordChannel(index)) {
+      assertArrayEquals(Bytes.concat(TEST_CHAIN_BLOCK_CONTENT1, TEST_CHAIN_BLOCK_CONTENT2),
+          readFully(channel, 50));
+    }
+  }
+
+  @Test
+  void testOpenDataRecordChannelWithLargeExtent() throws IOException {
+    byte[] content = new byte[DataRecordChannel.CHUNK_SIZE * 3 + 17];
+    new Random(42).nextBytes(content);
+    Index index = Futures
+        .getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1), content));
+
+    ReadableByteChannel channel = dataStorage.openDataRecordChannel(index);
+    assertArrayEquals(content, readFully(channel, 1000));
+
+    channel.close();
+    Executable executable = () -> channel.read(ByteBuffer.allocate(1));
+
+    assertThrows(ClosedChannelException.class, executable);
+  }
+
+  private static byte[] readFully(ReadableByteChannel channel, int bufferSize) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ByteBuffer byteBuffer = ByteBuffer.allocate(bufferSize);
+
+    while (channel.read(byteBuffer) != -1) {
+      byteBuffer.flip();
+      outputStream.write(byteBuffer.array(), 0, byteBuffer.limit());
+      byteBuffer.clear();
+    }
+
+    return outputStream.toByteArray();
+  }
+
   @Test
   void testWriteData() {
-    Index index = new Index(DUMMY_KEY_HASH, 3);
+    Index index = new Index(DUMMY_KEY_HASH, -1);
 
     Index resultIndex = Futures
         .getUnchecked(dataStorage.writeData(index, TEST_CHAIN_BLOCK_CONTENT3));
 
-    Future<DataRecord> dataRecordFuture = dataStorage.readDataRecord(new Index(DUMMY_KEY_HASH, 3));
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX, resultIndex.getBlockIndex());
+
+    Future<DataRecord> dataRecordFuture = dataStorage.readDataRecord(resultIndex);
     DataRecord dataRecord = Futures.getUnchecked(dataRecordFuture);
 
-    assertArrayEquals(Arrays.copyOfRange(TEST_CHAIN_BLOCK_CONTENT3, 0, 120),
-        dataRecord.getDataBlocks().get(0).getContent());
+    assertArrayEquals(TEST_CHAIN_BLOCK_CONTENT3, dataRecord.getContent());
+  }
+
+  @Test
+  void testWriteDataIntoFreeDataBlock() {
+    Index resultIndex = Futures
+        .getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+            TEST_SINGLE_BLOCK_CONTENT));
+
+    assertEquals(TEST_FREE_BLOCK_INDEX, resultIndex.getBlockIndex());
+
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(resultIndex));
+    assertArrayEquals(TEST_SINGLE_BLOCK_CONTENT, dataRecord.getContent());
+  }
+
+  @Test
+  void testWriteAndLoadFreeDataBlocks() throws FileSystemAccessException {
+    Index freeIndex = Futures.getUnchecked(dataStorage.writeFreeDataBlocks());
+    assertEquals(TEST_FREE_BLOCK_INDEX, freeIndex.getBlockIndex());
+
+    dataStorage.loadFreeDataBlocks(freeIndex.getBlockIndex());
+
+    DataBlockAllocator dataBlockAllocator = ((DataStorageImpl) dataStorage)
+        .getDataBlockAllocator();
+    assertEquals(2, dataBlockAllocator.getFreeBlockCount());
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX, dataBlockAllocator.getEndOfFileBlockIndex());
+  }
+
+  @Test
+  void testLoadFreeDataBlocksStopsAtUsedDataBlock() throws FileSystemAccessException {
+    dataStorage.loadFreeDataBlocks(TEST_SINGLE_BLOCK_INDEX);
+
+    DataBlockAllocator dataBlockAllocator = ((DataStorageImpl) dataStorage)
+        .getDataBlockAllocator();
+    assertEquals(0, dataBlockAllocator.getFreeBlockCount());
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX + 1, dataBlockAllocator.getEndOfFileBlockIndex());
   }
 
   @Test
@@ -197,6 +335,309 @@ class DataStorageImplTest {
         .getUnchecked(dataStorage.writeData(index, TEST_CHAIN_BLOCK_CONTENT3));
   }
 
+  @Test
+  void testReadDataRecordWithLongDataBlockChain() throws IOException, FileSystemAccessException {
+    dataStorage.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.MEMORY_MAPPED);
+    dataStorage = new DataStorageImpl(Paths.get(TEST_FILE), configuration);
+
+    byte[] content = new byte[DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE * 20000];
+    Arrays.fill(content, (byte) 7);
+    Index resultIndex = Futures
+        .getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1), content));
+
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(resultIndex));
+
+    assertEquals(20000, dataRecord.getDataBlocks().size());
+    assertEquals(-1, dataRecord.getLastDataBlock().getNextDataBlockIndex());
+  }
+
+  @Test
+  void testWriteDataAsExtent() {
+    byte[] content = new byte[DataBlock.DATA_BLOCK_SIZE * 100];
+    Arrays.fill(content, (byte) 3);
+
+    Index resultIndex = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        content));
+
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX, resultIndex.getBlockIndex());
+
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(resultIndex));
+
+    assertEquals(1, dataRecord.getDataBlocks().size());
+    assertArrayEquals(content, dataRecord.getContent());
+  }
+
+  @Test
+  void testWriteDataFromChannel() {
+    byte[] content = new byte[1536 * 1024 + 17];
+    new Random(42).nextBytes(content);
+
+    Index resultIndex = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        Channels.newChannel(new ByteArrayInputStream(content))));
+
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX, resultIndex.getBlockIndex());
+
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(resultIndex));
+
+    assertEquals(2, dataRecord.getDataBlocks().size());
+    assertArrayEquals(content, dataRecord.getContent());
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX + DataBlock.getBlockCount(1024 * 1024 - 8)
+            + DataBlock.getBlockCount(content.length - (1024 * 1024 - 8)),
+        ((DataStorageImpl) dataStorage).getDataBlockAllocator().getEndOfFileBlockIndex());
+  }
+
+  @Test
+  void testWriteDataFromShortChannel() {
+    Index resultIndex = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        Channels.newChannel(new ByteArrayInputStream(TEST_SINGLE_BLOCK_CONTENT))));
+
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(resultIndex));
+
+    assertArrayEquals(TEST_SINGLE_BLOCK_CONTENT, dataRecord.getContent());
+  }
+
+  @Test
+  void testWriteDataFromFailingChannel() {
+    DataBlockAllocator dataBlockAllocator = ((DataStorageImpl) dataStorage)
+        .getDataBlockAllocator();
+    int endOfFileBlockIndex = dataBlockAllocator.getEndOfFileBlockIndex();
+    InputStream inputStream = new SequenceInputStream(
+        new ByteArrayInputStream(new byte[200 * 1024]), new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Broken stream");
+      }
+    });
+
+    Executable executable = () -> Futures.getUnchecked(dataStorage
+        .writeData(new Index(DUMMY_KEY_HASH, -1), Channels.newChannel(inputStream)));
+
+    assertThrows(UncheckedExecutionException.class, executable);
+    assertEquals(endOfFileBlockIndex, dataBlockAllocator.getEndOfFileBlockIndex());
+  }
+
+  @Test
+  void testUpdateDataInPlace() {
+    byte[] content = new byte[1000];
+    Arrays.fill(content, (byte) 3);
+    Index index = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        content));
+
+    Index resultIndex = Futures.getUnchecked(dataStorage.updateData(index,
+        TEST_SINGLE_BLOCK_CONTENT));
+
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX, resultIndex.getBlockIndex());
+    assertArrayEquals(TEST_SINGLE_BLOCK_CONTENT,
+        Futures.getUnchecked(dataStorage.readDataRecord(resultIndex)).getContent());
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX + 1,
+        ((DataStorageImpl) dataStorage).getDataBlockAllocator().getEndOfFileBlockIndex());
+  }
+
+  @Test
+  void testUpdateDataWithRelocation() {
+    Index index = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        TEST_SINGLE_BLOCK_CONTENT));
+    assertEquals(TEST_FREE_BLOCK_INDEX, index.getBlockIndex());
+
+    byte[] content = new byte[1000];
+    Arrays.fill(content, (byte) 3);
+    Index resultIndex = Futures.getUnchecked(dataStorage.updateData(index, content));
+
+    assertEquals(TEST_END_OF_FILE_BLOCK_INDEX, resultIndex.getBlockIndex());
+    assertArrayEquals(content,
+        Futures.getUnchecked(dataStorage.readDataRecord(resultIndex)).getContent());
+
+    // The old data is only freed once its index got replaced.
+    DataBlockAllocator dataBlockAllocator = ((DataStorageImpl) dataStorage)
+        .getDataBlockAllocator();
+    assertFalse(dataBlockAllocator.getFreeRuns().containsKey(TEST_FREE_BLOCK_INDEX));
+    Futures.getUnchecked(dataStorage.removeData(new Index(DUMMY_KEY_HASH,
+        TEST_FREE_BLOCK_INDEX)));
+    assertTrue(dataBlockAllocator.getFreeRuns().containsKey(TEST_FREE_BLOCK_INDEX));
+  }
+
+  @Test
+  void testRemoveDataWithActiveReader() {
+    Index index = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        TEST_SINGLE_BLOCK_CONTENT));
+    DataBlockAllocator dataBlockAllocator = ((DataStorageImpl) dataStorage)
+        .getDataBlockAllocator();
+    long freeBlockCount = dataBlockAllocator.getFreeBlockCount();
+
+    DataBlockReclaimer.Epoch epoch = dataStorage.getDataBlockReclaimer().enter();
+    Futures.getUnchecked(dataStorage.removeData(index));
+
+    assertEquals(freeBlockCount, dataBlockAllocator.getFreeBlockCount());
+    assertArrayEquals(TEST_SINGLE_BLOCK_CONTENT,
+        Futures.getUnchecked(dataStorage.readDataRecord(index)).getContent());
+
+    dataStorage.getDataBlockReclaimer().exit(epoch);
+
+    assertEquals(freeBlockCount + 1, dataBlockAllocator.getFreeBlockCount());
+  }
+
+  @Test
+  void testRemoveData() {
+    Index index = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        TEST_SINGLE_BLOCK_CONTENT));
+    long freeBlockCount = ((DataStorageImpl) dataStorage).getDataBlockAllocator()
+        .getFreeBlockCount();
+
+    Futures.getUnchecked(dataStorage.removeData(index));
+
+    assertEquals(freeBlockCount + 1,
+        ((DataStorageImpl) dataStorage).getDataBlockAllocator().getFreeBlockCount());
+  }
+
+  @Test
+  void testRemoveFreeData() {
+    Executable executable = () -> Futures
+        .getUnchecked(dataStorage.removeData(new Index(DUMMY_KEY_HASH, TEST_FREE_BLOCK_INDEX)));
+
+    assertThrows(UncheckedExecutionException.class, executable);
+  }
+
+  @Test
+  void testReadDataRecordFromBlockCache() {
+    Index index = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        TEST_CHAIN_BLOCK_CONTENT3));
+    BlockCache blockCache = ((DataStorageImpl) dataStorage).getBlockCache();
+    long hitCount = blockCache.getHitCount();
+
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(index));
+
+    assertArrayEquals(TEST_CHAIN_BLOCK_CONTENT3, dataRecord.getContent());
+    assertTrue(blockCache.getHitCount() > hitCount);
+  }
+
+  @Test
+  void testWriteDataWithBlockChainFormat() throws IOException, FileSystemAccessException {
+    dataStorage.close();
+    Files.delete(Paths.get(TEST_FILE));
+    Files.write(Paths.get(TEST_FILE), new byte[DataBlock.DATA_BLOCK_SIZE]);
+
+    DataStorageImpl blockChainDataStorage = new DataStorageImpl(Paths.get(TEST_FILE));
+    dataStorage = blockChainDataStorage;
+    assertEquals(DataFileHeader.FORMAT_VERSION_BLOCK_CHAIN,
+        blockChainDataStorage.getFormatVersion());
+
+    byte[] content = new byte[DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE * 3];
+    Index resultIndex = Futures
+        .getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1), content));
+
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(resultIndex));
+
+    assertEquals(3, dataRecord.getDataBlocks().size());
+    assertArrayEquals(content, dataRecord.getContent());
+
+    content = new byte[DataRecordWriter.CHUNK_SIZE + 1000];
+    new Random(42).nextBytes(content);
+    resultIndex = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        Channels.newChannel(new ByteArrayInputStream(content))));
+
+    assertArrayEquals(content,
+        Futures.getUnchecked(dataStorage.readDataRecord(resultIndex)).getContent());
+  }
+
+  @Test
+  void testWriteDataGathersBlockChain() throws IOException, FileSystemAccessException {
+    dataStorage.close();
+    Files.delete(Paths.get(TEST_FILE));
+    Files.write(Paths.get(TEST_FILE), new byte[DataBlock.DATA_BLOCK_SIZE]);
+
+    Metrics metrics = new Metrics();
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setMetrics(metrics);
+    dataStorage = new DataStorageImpl(Paths.get(TEST_FILE), configuration);
+
+    // The blocks of a fresh file follow each other, so they are written at once.
+    byte[] content = new byte[64 * 1024];
+    new Random(42).nextBytes(content);
+    Index resultIndex = Futures
+        .getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1), content));
+
+    assertEquals(1, metrics.getWriteCount());
+    DataRecord dataRecord = Futures.getUnchecked(dataStorage.readDataRecord(resultIndex));
+    assertEquals((content.length + DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE - 1)
+        / DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE, dataRecord.getDataBlocks().size());
+    assertArrayEquals(content, dataRecord.getContent());
+
+    // Updates in place are gathered as well.
+    new Random(43).nextBytes(content);
+    Futures.getUnchecked(dataStorage.updateData(resultIndex, content));
+
+    assertEquals(2, metrics.getWriteCount());
+    assertArrayEquals(content,
+        Futures.getUnchecked(dataStorage.readDataRecord(resultIndex)).getContent());
+  }
+
+  @Test
+  void testRelocateData() throws IOException, FileSystemAccessException {
+    dataStorage.close();
+    Files.delete(Paths.get(TEST_FILE));
+    Files.write(Paths.get(TEST_FILE), new byte[DataBlock.DATA_BLOCK_SIZE]);
+    dataStorage = new DataStorageImpl(Paths.get(TEST_FILE));
+
+    Index first = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        TEST_SINGLE_BLOCK_CONTENT));
+    Index second = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        TEST_SINGLE_BLOCK_CONTENT));
+    Index third = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        TEST_SINGLE_BLOCK_CONTENT));
+    Futures.getUnchecked(dataStorage.removeData(first));
+    Futures.getUnchecked(dataStorage.removeData(third));
+
+    // The block chain takes the free blocks around the second value.
+    byte[] content = Bytes.concat(TEST_CHAIN_BLOCK_CONTENT1, TEST_CHAIN_BLOCK_CONTENT2);
+    Index index = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        content));
+    Futures.getUnchecked(dataStorage.removeData(second));
+    assertTrue(Futures.getUnchecked(dataStorage.isRelocatable(index)));
+
+    Relocation relocation = Futures.getUnchecked(dataStorage.relocateData(index));
+
+    assertEquals(index.getBlockIndex(), relocation.getPreviousBlockIndex());
+    assertEquals(2, relocation.getFragmentCount());
+    assertEquals(content.length, relocation.getLength());
+    assertArrayEquals(content, Futures.getUnchecked(dataStorage.readDataRecord(
+        new Index(DUMMY_KEY_HASH, relocation.getBlockIndex()))).getContent());
+    assertArrayEquals(content, Futures.getUnchecked(dataStorage.readDataRecord(index))
+        .getContent());
+  }
+
+  @Test
+  void testRelocateContiguousData() {
+    Index index = new Index(DUMMY_KEY_HASH, TEST_SINGLE_BLOCK_INDEX);
+
+    assertFalse(Futures.getUnchecked(dataStorage.isRelocatable(index)));
+    assertNull(Futures.getUnchecked(dataStorage.relocateData(index)));
+  }
+
+  @Test
+  void testTruncateFreeDataBlocks() throws IOException, FileSystemAccessException {
+    Index index = Futures.getUnchecked(dataStorage.writeData(new Index(DUMMY_KEY_HASH, -1),
+        new byte[1000]));
+    long fileLength = Files.size(Paths.get(TEST_FILE));
+    Futures.getUnchecked(dataStorage.removeData(index));
+
+    long truncatedBytes = dataStorage.truncateFreeDataBlocks();
+
+    assertTrue(truncatedBytes > 0);
+    assertEquals(fileLength - truncatedBytes, Files.size(Paths.get(TEST_FILE)));
+    assertEquals(0, dataStorage.truncateFreeDataBlocks());
+    assertArrayEquals(TEST_SINGLE_BLOCK_CONTENT, Futures.getUnchecked(dataStorage.readDataRecord(
+        new Index(DUMMY_KEY_HASH, TEST_SINGLE_BLOCK_INDEX))).getContent());
+  }
+
+  @Test
+  void testFormatVersion() {
+    assertEquals(DataFileHeader.FORMAT_VERSION_EXTENT,
+        ((DataStorageImpl) dataStorage).getFormatVersion());
+  }
+
   @AfterEach
   void tearDown() throws IOException {
     Files.delete(Paths.get(TEST_FILE));
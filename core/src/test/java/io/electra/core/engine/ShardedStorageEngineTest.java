@@ -0,0 +1,145 @@
+package io.electra.core.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.exception.EngineInitializationException;
+import io.electra.core.index.IndexSnapshot;
+import io.electra.core.model.Index;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class ShardedStorageEngineTest {
+
+  private static final int TEST_SHARD_COUNT = 4;
+  private static final int TEST_KEY_COUNT = 1000;
+  private static final int TEST_KEY_HASH = 90;
+  private ShardedStorageEngine storageEngine;
+
+  @BeforeEach
+  void setUp() throws EngineInitializationException {
+    storageEngine = createStorageEngine();
+  }
+
+  private ShardedStorageEngine createStorageEngine() throws EngineInitializationException {
+    List<StorageEngine> shards = new ArrayList<>();
+    for (int i = 0; i < TEST_SHARD_COUNT; i++) {
+      shards.add(new SimpleStorageEngine(getDataPath(i), getIndexPath(i)));
+    }
+
+    return new ShardedStorageEngine(shards);
+  }
+
+  private static Path getDataPath(int shard) {
+    return Paths.get("test" + shard + ".data");
+  }
+
+  private static Path getIndexPath(int shard) {
+    return Paths.get("test" + shard + ".index");
+  }
+
+  @Test
+  void testSaveAndGetAfterReopen() throws EngineInitializationException, IOException {
+    List<ListenableFuture<Index>> saveFutures = new ArrayList<>();
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      saveFutures.add(storageEngine.save(i, String.valueOf(i).getBytes()));
+    }
+    Futures.getUnchecked(Futures.allAsList(saveFutures));
+
+    storageEngine.close();
+    storageEngine = createStorageEngine();
+
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      assertArrayEquals(String.valueOf(i).getBytes(), Futures.getUnchecked(storageEngine.get(i)));
+    }
+  }
+
+  @Test
+  void testSaveAllAndGetAll() {
+    int[] keyHashes = new int[TEST_KEY_COUNT];
+    List<byte[]> values = new ArrayList<>();
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      keyHashes[i] = TEST_KEY_COUNT - i;
+      values.add(String.valueOf(keyHashes[i]).getBytes());
+    }
+
+    List<Index> indices = Futures.getUnchecked(storageEngine.saveAll(keyHashes, values));
+
+    assertEquals(TEST_KEY_COUNT, indices.size());
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      assertEquals(keyHashes[i], indices.get(i).getKeyHash());
+    }
+
+    int[] getKeyHashes = {TEST_KEY_COUNT + 1, 1, TEST_KEY_COUNT, 2};
+    List<byte[]> result = Futures.getUnchecked(storageEngine.getAll(getKeyHashes));
+
+    assertNull(result.get(0));
+    assertArrayEquals("1".getBytes(), result.get(1));
+    assertArrayEquals(String.valueOf(TEST_KEY_COUNT).getBytes(), result.get(2));
+    assertArrayEquals("2".getBytes(), result.get(3));
+  }
+
+  @Test
+  void testUpdateAndRemove() {
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, "ihafi".getBytes()));
+    Futures.getUnchecked(storageEngine.update(TEST_KEY_HASH, "ihafu".getBytes()));
+
+    assertArrayEquals("ihafu".getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+
+    Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH));
+
+    assertNull(Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testKeysAreSpreadAcrossShards() {
+    Set<StorageEngine> usedShards = new HashSet<>();
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      usedShards.add(storageEngine.getShard(i * TEST_SHARD_COUNT));
+    }
+
+    assertEquals(TEST_SHARD_COUNT, usedShards.size());
+    assertSame(storageEngine.getShard(TEST_KEY_HASH), storageEngine.getShard(TEST_KEY_HASH));
+  }
+
+  @Test
+  void testInitWithoutShards() {
+    Executable executable = () -> new ShardedStorageEngine(Collections.emptyList());
+
+    assertThrows(IllegalArgumentException.class, executable);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    storageEngine.close();
+
+    for (int i = 0; i < TEST_SHARD_COUNT; i++) {
+      Files.delete(getDataPath(i));
+      Files.delete(getIndexPath(i));
+      Files.deleteIfExists(IndexSnapshot.getSnapshotPath(getIndexPath(i)));
+      Files.deleteIfExists(IndexSnapshot.getTailPath(getIndexPath(i)));
+      assertTrue(Files.deleteIfExists(Paths.get(getDataPath(i) + ".wal")));
+    }
+  }
+}
@@ -1,17 +1,42 @@
 package io.electra.core.engine;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.data.DataBlockAllocator;
+import io.electra.core.data.DataBlockReclaimer;
+import io.electra.core.data.DataStorageImpl;
 import io.electra.core.exception.EngineInitializationException;
+import io.electra.core.filesystem.FileSystemAccessorType;
+import io.electra.core.index.IndexSnapshot;
+import io.electra.core.metrics.Metrics;
 import io.electra.core.model.Index;
+import io.electra.core.wal.LogRecord;
+import io.electra.core.wal.LogRecordType;
+import io.electra.core.wal.WriteAheadLog;
+import io.electra.core.wal.WriteAheadLogImpl;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -25,6 +50,7 @@ class SimpleStorageEngineTest {
 
   private static final Path TEST_INDEX_FILE_PATH = Paths.get("test.index");
   private static final Path TEST_DATA_FILE_PATH = Paths.get("test.data");
+  private static final Path TEST_WAL_FILE_PATH = Paths.get("test.data.wal");
   private static final int TEST_KEY_HASH = Integer.MAX_VALUE;
   private static final int TEST_KEY_HASH_PRESET = Integer.MIN_VALUE;
   private static final String TEST_CONTENT = "ugewoighewügh9w8gw+9ghw+gehwg+qwhe0g+qwe0+ghwe9qg´´0qwe0hgew9ghewqg0ewqgewuwghsaügoucr6d67guizfzrdtf687gizvhghctzfzgivutf79687gpzutcdif687gzft7d6r807ozuf767tg9z7d96rt7ßgf867d56rt79gf867rt79gfz86t798g7f860t79g87zf8607t9gzf8607t98hogupi79t8zguizf87t9ßg88f70tß98zg78f0tß98gu780ft98zhgu78t98guiz87ftg98zhugz78t9z8huoip798zh0ioug79ß8hüu";
@@ -83,6 +109,56 @@ class SimpleStorageEngineTest {
     assertArrayEquals(TEST_CONTENT.getBytes(), content);
   }
 
+  @Test
+  void testGetAll() {
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+
+    List<byte[]> values = Futures.getUnchecked(storageEngine.getAll(
+        new int[]{TEST_KEY_HASH, 0, TEST_KEY_HASH_PRESET, TEST_KEY_HASH}));
+
+    assertEquals(4, values.size());
+    assertArrayEquals(test.getBytes(), values.get(0));
+    assertNull(values.get(1));
+    assertArrayEquals(TEST_CONTENT.getBytes(), values.get(2));
+    assertArrayEquals(test.getBytes(), values.get(3));
+  }
+
+  @Test
+  void testSaveAll() throws EngineInitializationException, IOException {
+    List<byte[]> values = Arrays.asList("ihafi".getBytes(), TEST_CONTENT.getBytes(), new byte[0]);
+
+    List<Index> indices =
+        Futures.getUnchecked(storageEngine.saveAll(new int[]{1, 2, 3}, values));
+
+    assertEquals(3, indices.size());
+    assertEquals(2, indices.get(1).getKeyHash());
+
+    storageEngine.close();
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    List<byte[]> result = Futures.getUnchecked(storageEngine.getAll(new int[]{1, 2, 3}));
+    for (int i = 0; i < values.size(); i++) {
+      assertArrayEquals(values.get(i), result.get(i));
+    }
+  }
+
+  @Test
+  void testSaveAllWithDuplicateKey() {
+    List<byte[]> values = Arrays.asList("ihafi".getBytes(), "ihafu".getBytes());
+
+    Executable executable = () -> storageEngine.saveAll(new int[]{TEST_KEY_HASH,
+        TEST_KEY_HASH_PRESET}, values);
+
+    assertThrows(IllegalStateException.class, executable);
+
+    // The key hashes reserved before the duplicate was found are released again.
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, "ihafi".getBytes()));
+    assertArrayEquals("ihafi".getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+    assertArrayEquals(TEST_CONTENT.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
   @Test
   void testSaveWithDuplicateKey() {
     Executable executable = () -> {
@@ -114,6 +190,517 @@ class SimpleStorageEngineTest {
     storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
   }
 
+  @Test
+  void testSaveWithMemoryMappedFileSystemAccessor()
+      throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.MEMORY_MAPPED);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+
+    assertArrayEquals(test.getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+    assertArrayEquals(TEST_CONTENT.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testSaveWithFileChannelFileSystemAccessor()
+      throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.FILE_CHANNEL);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+    Futures.getUnchecked(storageEngine.update(TEST_KEY_HASH_PRESET, test.getBytes()));
+
+    assertArrayEquals(test.getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+    assertArrayEquals(test.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testMetrics() throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    Metrics metrics = new Metrics();
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setMetrics(metrics);
+    configuration.setDataCacheSize(0);
+    configuration.setBlockCacheSize(0);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, TEST_CONTENT.getBytes()));
+    Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH));
+    Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH));
+
+    assertEquals(1, metrics.getSaveLatency().getCount());
+    assertEquals(1, metrics.getGetLatency().getCount());
+    assertEquals(1, metrics.getRemoveLatency().getCount());
+    assertEquals(1, metrics.getBlocksPerRecord().getCount());
+    assertTrue(metrics.getIndexWriteLatency().getCount() >= 2);
+    assertTrue(metrics.getBytesRead() >= TEST_CONTENT.getBytes().length);
+    assertTrue(metrics.getBytesWritten() >= TEST_CONTENT.getBytes().length);
+    assertEquals(0, metrics.getPendingReads());
+    assertEquals(0, metrics.getPendingWrites());
+  }
+
+  @Test
+  void testCompact() throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    Metrics metrics = new Metrics();
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setMetrics(metrics);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    byte[] value = new byte[1000];
+    for (int keyHash = 0; keyHash < 10; keyHash++) {
+      Arrays.fill(value, (byte) keyHash);
+      Futures.getUnchecked(storageEngine.save(keyHash, value));
+    }
+    for (int keyHash = 0; keyHash < 5; keyHash++) {
+      Futures.getUnchecked(storageEngine.remove(keyHash));
+    }
+    long fileLength = Files.size(TEST_DATA_FILE_PATH);
+
+    storageEngine.compact();
+
+    assertTrue(Files.size(TEST_DATA_FILE_PATH) < fileLength);
+    assertTrue(metrics.getRelocatedRecords() > 0);
+    assertTrue(metrics.getTruncatedBytes() > 0);
+    for (int keyHash = 5; keyHash < 10; keyHash++) {
+      Arrays.fill(value, (byte) keyHash);
+      assertArrayEquals(value, Futures.getUnchecked(storageEngine.get(keyHash)));
+    }
+
+    storageEngine.close();
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    for (int keyHash = 5; keyHash < 10; keyHash++) {
+      Arrays.fill(value, (byte) keyHash);
+      assertArrayEquals(value, Futures.getUnchecked(storageEngine.get(keyHash)));
+    }
+    assertArrayEquals(TEST_CONTENT.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testCompactWithSteadyReads() throws IOException {
+    byte[] value = new byte[1000];
+    for (int keyHash = 0; keyHash < 10; keyHash++) {
+      Arrays.fill(value, (byte) keyHash);
+      Futures.getUnchecked(storageEngine.save(keyHash, value));
+    }
+    for (int keyHash = 0; keyHash < 5; keyHash++) {
+      Futures.getUnchecked(storageEngine.remove(keyHash));
+    }
+
+    DataBlockReclaimer dataBlockReclaimer = storageEngine.getDataStorage()
+        .getDataBlockReclaimer();
+    DataBlockReclaimer.Epoch earlierRead = dataBlockReclaimer.enter();
+    storageEngine.compact();
+    DataBlockReclaimer.Epoch laterRead = dataBlockReclaimer.enter();
+
+    assertTrue(dataBlockReclaimer.getPendingFreeCount() > 0);
+
+    // Reads that started after the moves never hold the old blocks back.
+    dataBlockReclaimer.exit(earlierRead);
+    assertEquals(0, dataBlockReclaimer.getPendingFreeCount());
+    dataBlockReclaimer.exit(laterRead);
+
+    for (int keyHash = 5; keyHash < 10; keyHash++) {
+      Arrays.fill(value, (byte) keyHash);
+      assertArrayEquals(value, Futures.getUnchecked(storageEngine.get(keyHash)));
+    }
+  }
+
+  @Test
+  void testSaveAfterReopen() throws EngineInitializationException, IOException {
+    storageEngine.close();
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+
+    assertArrayEquals(test.getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+    assertArrayEquals(TEST_CONTENT.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testUpdate() {
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.update(TEST_KEY_HASH_PRESET, test.getBytes()));
+
+    assertArrayEquals(test.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testUpdateWithLargerValueAfterReopen() throws EngineInitializationException, IOException {
+    byte[] value = new byte[TEST_CONTENT.getBytes().length * 4];
+    Arrays.fill(value, (byte) 7);
+    Futures.getUnchecked(storageEngine.update(TEST_KEY_HASH_PRESET, value));
+
+    storageEngine.close();
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    assertArrayEquals(value, Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testUpdateWithoutIndex() {
+    Executable executable = () -> storageEngine.update(TEST_KEY_HASH, TEST_CONTENT.getBytes());
+
+    assertThrows(IllegalStateException.class, executable);
+  }
+
+  @Test
+  void testRemove() {
+    Index index = Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH_PRESET));
+
+    assertTrue(index.isEmpty());
+    assertNull(Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+    assertNull(Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testUpdateBeforeSaveIsApplied() {
+    Future<Index> saveFuture = storageEngine.save(TEST_KEY_HASH, TEST_CONTENT.getBytes());
+    Future<Index> updateFuture = storageEngine.update(TEST_KEY_HASH, "ihafi".getBytes());
+
+    Futures.getUnchecked(saveFuture);
+    Futures.getUnchecked(updateFuture);
+    assertArrayEquals("ihafi".getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testRemoveBeforeSaveIsApplied() {
+    Future<Index> saveFuture = storageEngine.save(TEST_KEY_HASH, TEST_CONTENT.getBytes());
+    Index index = Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH));
+
+    Futures.getUnchecked(saveFuture);
+    assertTrue(index.isEmpty());
+    assertNull(Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testRemoveAndSaveAfterReopen() throws EngineInitializationException, IOException {
+    Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH_PRESET));
+
+    storageEngine.close();
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    assertNull(Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH_PRESET, test.getBytes()));
+    assertArrayEquals(test.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testReplayWriteAheadLog() throws Exception {
+    storageEngine.close();
+
+    String test = "ihafi";
+    try (WriteAheadLog writeAheadLog = new WriteAheadLogImpl(TEST_WAL_FILE_PATH)) {
+      Futures.getUnchecked(writeAheadLog.append(
+          new LogRecord(LogRecordType.SAVE, TEST_KEY_HASH, test.getBytes())));
+      Futures.getUnchecked(writeAheadLog.append(
+          new LogRecord(LogRecordType.REMOVE, TEST_KEY_HASH_PRESET, new byte[0])));
+    }
+
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    assertArrayEquals(test.getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+    assertNull(Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+    assertEquals(0, Files.size(TEST_WAL_FILE_PATH));
+  }
+
+  @Test
+  void testSaveWithoutWriteAheadLog() throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setWriteAheadLogEnabled(false);
+    Files.deleteIfExists(TEST_WAL_FILE_PATH);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+
+    assertArrayEquals(test.getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+    assertFalse(Files.exists(TEST_WAL_FILE_PATH));
+  }
+
+  @Test
+  void testCheckpoint() throws Exception {
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+    assertTrue(Files.size(TEST_WAL_FILE_PATH) > 0);
+
+    storageEngine.checkpoint();
+
+    assertEquals(0, Files.size(TEST_WAL_FILE_PATH));
+  }
+
+  @Test
+  void testCheckpointWritesIndexSnapshot() throws Exception {
+    storageEngine.checkpoint();
+
+    assertTrue(Files.exists(IndexSnapshot.getSnapshotPath(TEST_INDEX_FILE_PATH)));
+  }
+
+  @Test
+  void testReopenFromIndexSnapshot() throws EngineInitializationException, IOException {
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+    storageEngine.close();
+    assertTrue(Files.exists(IndexSnapshot.getSnapshotPath(TEST_INDEX_FILE_PATH)));
+
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+    Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH_PRESET));
+    storageEngine.close();
+
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    assertArrayEquals(test.getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+    assertNull(Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+    assertEquals(1, storageEngine.getIndices().size());
+  }
+
+  @Test
+  void testReopenWithDirtyIndexSnapshot() throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setWriteAheadLogEnabled(false);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, test.getBytes()));
+
+    // Without a write ahead log the snapshot of an engine that didn't close isn't trusted.
+    SimpleStorageEngine reopenedStorageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH,
+        TEST_INDEX_FILE_PATH, configuration);
+
+    assertArrayEquals(test.getBytes(),
+        Futures.getUnchecked(reopenedStorageEngine.get(TEST_KEY_HASH)));
+    assertArrayEquals(TEST_CONTENT.getBytes(),
+        Futures.getUnchecked(reopenedStorageEngine.get(TEST_KEY_HASH_PRESET)));
+    reopenedStorageEngine.close();
+  }
+
+  @Test
+  void testReopenAfterCrashDoesNotReuseFreeList()
+      throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setWriteAheadLogEnabled(false);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+    Futures.getUnchecked(storageEngine.save(1, "ihafi".getBytes()));
+    Futures.getUnchecked(storageEngine.remove(1));
+    storageEngine.close();
+
+    // The free list written on close is used up by a value that is never closed.
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+    byte[] value = new byte[300];
+    Arrays.fill(value, (byte) 3);
+    Futures.getUnchecked(storageEngine.save(3, value));
+
+    SimpleStorageEngine reopenedStorageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH,
+        TEST_INDEX_FILE_PATH, configuration);
+    Futures.getUnchecked(reopenedStorageEngine.save(4, "ihafu".getBytes()));
+
+    assertArrayEquals(value, Futures.getUnchecked(reopenedStorageEngine.get(3)));
+    assertArrayEquals("ihafu".getBytes(), Futures.getUnchecked(reopenedStorageEngine.get(4)));
+    assertArrayEquals(TEST_CONTENT.getBytes(),
+        Futures.getUnchecked(reopenedStorageEngine.get(TEST_KEY_HASH_PRESET)));
+    reopenedStorageEngine.close();
+  }
+
+  @Test
+  void testReopenWithoutIndexSnapshot() throws EngineInitializationException, IOException {
+    storageEngine.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setIndexSnapshotEnabled(false);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    assertFalse(Files.exists(IndexSnapshot.getSnapshotPath(TEST_INDEX_FILE_PATH)));
+    assertArrayEquals(TEST_CONTENT.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testGetFromDataCache() {
+    Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET));
+    byte[] content = Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET));
+
+    assertArrayEquals(TEST_CONTENT.getBytes(), content);
+    assertEquals(1, storageEngine.getDataCache().getHitCount());
+  }
+
+  @Test
+  void testUpdateInvalidatesDataCache() {
+    Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET));
+
+    String test = "ihafi";
+    Futures.getUnchecked(storageEngine.update(TEST_KEY_HASH_PRESET, test.getBytes()));
+
+    assertArrayEquals(test.getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH_PRESET)));
+  }
+
+  @Test
+  void testGetChannel() throws IOException {
+    try (InputStream inputStream = Channels
+        .newInputStream(storageEngine.getChannel(TEST_KEY_HASH_PRESET))) {
+      assertArrayEquals(TEST_CONTENT.getBytes(), inputStream.readAllBytes());
+    }
+
+    assertNull(storageEngine.getChannel(-1));
+  }
+
+  @Test
+  void testSaveFromChannel() throws EngineInitializationException, IOException {
+    byte[] value = new byte[200 * 1024];
+    Arrays.fill(value, (byte) 7);
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH,
+        Channels.newChannel(new ByteArrayInputStream(value))));
+
+    assertArrayEquals(value, Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+
+    storageEngine.close();
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    assertArrayEquals(value, Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testReplayLinkedData() throws Exception {
+    byte[] value = new byte[200 * 1024];
+    Arrays.fill(value, (byte) 7);
+    Index index = Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH,
+        Channels.newChannel(new ByteArrayInputStream(value))));
+    storageEngine.close();
+
+    byte[] blockIndex = ByteBuffer.allocate(4).putInt(index.getBlockIndex()).array();
+    try (WriteAheadLog writeAheadLog = new WriteAheadLogImpl(TEST_WAL_FILE_PATH)) {
+      Futures.getUnchecked(writeAheadLog.append(
+          new LogRecord(LogRecordType.REMOVE, TEST_KEY_HASH, new byte[0])));
+      Futures.getUnchecked(writeAheadLog.append(
+          new LogRecord(LogRecordType.LINK, TEST_KEY_HASH, blockIndex)));
+    }
+
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH);
+
+    assertArrayEquals(value, Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testConcurrentUpdateAndRemoveOfSameKey() throws Exception {
+    storageEngine.close();
+
+    // Without the log, blocks freed twice are handed out again right away.
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setWriteAheadLogEnabled(false);
+    configuration.setIndexSnapshotEnabled(false);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    byte[][] values = new byte[3][];
+    int[] lengths = {10, 1000, 10000};
+    for (int i = 0; i < values.length; i++) {
+      values[i] = new byte[lengths[i]];
+      Arrays.fill(values[i], (byte) (i + 1));
+    }
+    byte[][] otherValues = new byte[8][];
+    for (int keyHash = 0; keyHash < otherValues.length; keyHash++) {
+      otherValues[keyHash] = new byte[lengths[keyHash % lengths.length]];
+      Arrays.fill(otherValues[keyHash], (byte) (keyHash + 10));
+      Futures.getUnchecked(storageEngine.save(keyHash, otherValues[keyHash]));
+    }
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, values[0]));
+
+    ExecutorService executorService = Executors.newFixedThreadPool(6);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < 4; thread++) {
+      int seed = thread;
+      futures.add(executorService.submit(() -> {
+        Random random = new Random(seed);
+        for (int i = 0; i < 300; i++) {
+          byte[] value = values[random.nextInt(values.length)];
+          try {
+            switch (random.nextInt(4)) {
+              case 0:
+                Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH));
+                break;
+              case 1:
+                Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, value));
+                break;
+              default:
+                Futures.getUnchecked(storageEngine.update(TEST_KEY_HASH, value));
+                break;
+            }
+          } catch (IllegalStateException | UncheckedExecutionException e) {
+            // The key was removed or saved by another thread in between.
+            Throwable cause = e instanceof UncheckedExecutionException ? e.getCause() : e;
+            if (!(cause instanceof IllegalStateException)
+                || !cause.getMessage().contains("key hash")) {
+              throw e;
+            }
+          }
+        }
+      }));
+    }
+    for (int thread = 0; thread < 2; thread++) {
+      futures.add(executorService.submit(() -> {
+        for (int i = 0; i < 600; i++) {
+          byte[] value = Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH));
+          assertTrue(value == null || Arrays.stream(values).anyMatch(
+              candidate -> Arrays.equals(candidate, value)));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    for (int keyHash = 0; keyHash < otherValues.length; keyHash++) {
+      assertArrayEquals(otherValues[keyHash], Futures.getUnchecked(storageEngine.get(keyHash)));
+    }
+
+    // Once everything is removed, every block but the file header has to be free exactly once.
+    Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH));
+    Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH_PRESET));
+    for (int keyHash = 0; keyHash < otherValues.length; keyHash++) {
+      Futures.getUnchecked(storageEngine.remove(keyHash));
+    }
+    DataBlockAllocator dataBlockAllocator = ((DataStorageImpl) storageEngine.getDataStorage())
+        .getDataBlockAllocator();
+    assertEquals(0, dataBlockAllocator.getFreeBlockCount());
+    assertEquals(1, dataBlockAllocator.getEndOfFileBlockIndex());
+  }
+
   @Test
   void testGetOnNullIndex() {
     Future<byte[]> future = storageEngine.get(-1);
@@ -125,5 +712,8 @@ class SimpleStorageEngineTest {
   void tearDown() throws IOException {
     Files.delete(TEST_INDEX_FILE_PATH);
     Files.delete(TEST_DATA_FILE_PATH);
+    Files.deleteIfExists(TEST_WAL_FILE_PATH);
+    Files.deleteIfExists(IndexSnapshot.getSnapshotPath(TEST_INDEX_FILE_PATH));
+    Files.deleteIfExists(IndexSnapshot.getTailPath(TEST_INDEX_FILE_PATH));
   }
 }
@@ -0,0 +1,239 @@
+package io.electra.core.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.exception.EngineInitializationException;
+import io.electra.core.filesystem.FileSystemAccessorType;
+import io.electra.core.index.IndexSnapshot;
+import io.electra.core.model.Index;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class VirtualThreadStorageEngineTest {
+
+  private static final Path TEST_INDEX_FILE_PATH = Paths.get("test.virtual.index");
+  private static final Path TEST_DATA_FILE_PATH = Paths.get("test.virtual.data");
+  private static final Path TEST_WAL_FILE_PATH = Paths.get("test.virtual.data.wal");
+  private static final String TEST_THREAD_NAME = "test-operation";
+  private static final int TEST_KEY_HASH = 90;
+  private static final int TEST_KEY_COUNT = 100;
+  private SimpleStorageEngine simpleStorageEngine;
+  private StorageEngine storageEngine;
+
+  @BeforeEach
+  void setUp() throws EngineInitializationException {
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.FILE_CHANNEL);
+    simpleStorageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    ExecutorService executorService = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat(TEST_THREAD_NAME).setDaemon(true).build());
+    storageEngine = new VirtualThreadStorageEngine(simpleStorageEngine, executorService);
+  }
+
+  /**
+   * Save a value via a channel that reports the name of the thread the save reads it on.
+   *
+   * @param storageEngine The engine to save the value with.
+   * @return The name of the thread.
+   */
+  private static String getOperationThreadName(StorageEngine storageEngine) {
+    AtomicReference<String> threadName = new AtomicReference<>();
+    InputStream inputStream = new ByteArrayInputStream("ihafi".getBytes()) {
+      @Override
+      public synchronized int read(byte[] bytes, int offset, int length) {
+        threadName.compareAndSet(null, Thread.currentThread().getName());
+        return super.read(bytes, offset, length);
+      }
+    };
+
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, Channels.newChannel(inputStream)));
+    return threadName.get();
+  }
+
+  @Test
+  void testOperations() {
+    Futures.getUnchecked(storageEngine.save(TEST_KEY_HASH, "ihafi".getBytes()));
+    assertArrayEquals("ihafi".getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+
+    Futures.getUnchecked(storageEngine.update(TEST_KEY_HASH, "ihafu".getBytes()));
+    assertArrayEquals("ihafu".getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+
+    Futures.getUnchecked(storageEngine.remove(TEST_KEY_HASH));
+    assertNull(Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testOperationsRunOnExecutor() {
+    assertEquals(TEST_THREAD_NAME, getOperationThreadName(storageEngine));
+    assertArrayEquals("ihafi".getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testConcurrentSavesAndBatches() {
+    List<ListenableFuture<?>> saveFutures = new ArrayList<>();
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      saveFutures.add(storageEngine.save(i, String.valueOf(i).getBytes()));
+    }
+    Futures.getUnchecked(Futures.allAsList(saveFutures));
+
+    List<byte[]> values = Futures.getUnchecked(storageEngine.getAll(new int[] {3, 1}));
+
+    assertArrayEquals("3".getBytes(), values.get(0));
+    assertArrayEquals("1".getBytes(), values.get(1));
+
+    Futures.getUnchecked(storageEngine.saveAll(new int[] {TEST_KEY_COUNT, TEST_KEY_COUNT + 1},
+        Arrays.asList("a".getBytes(), "b".getBytes())));
+
+    assertArrayEquals("b".getBytes(),
+        Futures.getUnchecked(storageEngine.get(TEST_KEY_COUNT + 1)));
+  }
+
+  @Test
+  void testOperationsAreNotAppliedOnLogFlushThread() {
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    List<ListenableFuture<?>> saveFutures = new ArrayList<>();
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      ListenableFuture<Index> saveFuture = simpleStorageEngine.save(i, new byte[1000]);
+      saveFuture.addListener(() -> threadNames.add(Thread.currentThread().getName()),
+          MoreExecutors.directExecutor());
+      saveFutures.add(saveFuture);
+    }
+    Futures.getUnchecked(Futures.allAsList(saveFutures));
+
+    assertFalse(threadNames.contains("electra-wal-flush"));
+  }
+
+  @Test
+  void testCancelDoesNotInterruptOperation() throws InterruptedException, IOException,
+      EngineInitializationException {
+    CountDownLatch readStarted = new CountDownLatch(1);
+    CountDownLatch cancelled = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    InputStream inputStream = new ByteArrayInputStream("ihafi".getBytes()) {
+      @Override
+      public synchronized int read(byte[] bytes, int offset, int length) {
+        readStarted.countDown();
+        try {
+          cancelled.await();
+        } catch (InterruptedException e) {
+          interrupted.set(true);
+        }
+        return super.read(bytes, offset, length);
+      }
+    };
+
+    ListenableFuture<Index> saveFuture =
+        storageEngine.save(TEST_KEY_HASH, Channels.newChannel(inputStream));
+    readStarted.await();
+    saveFuture.cancel(true);
+    cancelled.countDown();
+
+    // Closing waits for the operation, which went on with the file channel it writes with open.
+    storageEngine.close();
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.FILE_CHANNEL);
+    storageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+
+    assertFalse(interrupted.get());
+    assertArrayEquals("ihafi".getBytes(), Futures.getUnchecked(storageEngine.get(TEST_KEY_HASH)));
+  }
+
+  @Test
+  void testOperationAfterClose() throws IOException {
+    storageEngine.close();
+
+    Executable executable = () -> storageEngine.get(TEST_KEY_HASH);
+    assertThrows(RejectedExecutionException.class, executable);
+  }
+
+  @Test
+  void testVirtualThreads() {
+    // The jdk21 profile runs this test against the multi release jar, where it must not be skipped.
+    if (Boolean.getBoolean("electra.virtualThreadsRequired")) {
+      assertTrue(VirtualThreadStorageEngine.isSupported());
+    }
+    assumeTrue(VirtualThreadStorageEngine.isSupported());
+
+    StorageEngine virtualThreadStorageEngine = new VirtualThreadStorageEngine(simpleStorageEngine);
+
+    assertTrue(getOperationThreadName(virtualThreadStorageEngine).startsWith("electra-virtual-"));
+  }
+
+  @Test
+  void testOperationsAppliedOnVirtualThreads() throws EngineInitializationException,
+      IOException {
+    assumeTrue(VirtualThreadStorageEngine.isSupported());
+    storageEngine.close();
+
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.FILE_CHANNEL);
+    configuration.setVirtualThreadsEnabled(true);
+    simpleStorageEngine = new SimpleStorageEngine(TEST_DATA_FILE_PATH, TEST_INDEX_FILE_PATH,
+        configuration);
+    storageEngine = new VirtualThreadStorageEngine(simpleStorageEngine);
+
+    Set<String> threadNames = ConcurrentHashMap.newKeySet();
+    List<ListenableFuture<?>> saveFutures = new ArrayList<>();
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      ListenableFuture<Index> saveFuture = simpleStorageEngine.save(i, String.valueOf(i)
+          .getBytes());
+      saveFuture.addListener(() -> threadNames.add(Thread.currentThread().getName()),
+          MoreExecutors.directExecutor());
+      saveFutures.add(saveFuture);
+    }
+    Futures.getUnchecked(Futures.allAsList(saveFutures));
+
+    assertFalse(threadNames.contains("electra-wal-flush"));
+    for (int i = 0; i < TEST_KEY_COUNT; i++) {
+      assertArrayEquals(String.valueOf(i).getBytes(), Futures.getUnchecked(storageEngine.get(i)));
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    storageEngine.close();
+
+    Files.delete(TEST_INDEX_FILE_PATH);
+    Files.delete(TEST_DATA_FILE_PATH);
+    Files.deleteIfExists(TEST_WAL_FILE_PATH);
+    Files.deleteIfExists(IndexSnapshot.getSnapshotPath(TEST_INDEX_FILE_PATH));
+    Files.deleteIfExists(IndexSnapshot.getTailPath(TEST_INDEX_FILE_PATH));
+  }
+}
@@ -0,0 +1,95 @@
+package io.electra.core.filesystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DirectByteBufferPoolTest {
+
+  private DirectByteBufferPool byteBufferPool;
+
+  @BeforeEach
+  void setUp() {
+    byteBufferPool = new DirectByteBufferPool();
+  }
+
+  @Test
+  void testAcquire() {
+    ByteBuffer byteBuffer = byteBufferPool.acquire(100);
+
+    assertTrue(byteBuffer.isDirect());
+    assertEquals(0, byteBuffer.position());
+    assertEquals(100, byteBuffer.limit());
+    assertEquals(128, byteBuffer.capacity());
+  }
+
+  @Test
+  void testAcquireReleased() {
+    ByteBuffer byteBuffer = byteBufferPool.acquire(100);
+    byteBuffer.putInt(1);
+    byteBufferPool.release(byteBuffer);
+
+    assertEquals(1, byteBufferPool.getPooledBufferCount(100));
+
+    ByteBuffer reusedByteBuffer = byteBufferPool.acquire(128);
+    assertSame(byteBuffer, reusedByteBuffer);
+    assertEquals(0, reusedByteBuffer.position());
+    assertEquals(128, reusedByteBuffer.limit());
+    assertEquals(0, byteBufferPool.getPooledBufferCount(100));
+  }
+
+  @Test
+  void testAcquireOversized() {
+    ByteBuffer byteBuffer = byteBufferPool.acquire(8 * 1024 * 1024);
+
+    assertFalse(byteBuffer.isDirect());
+    assertEquals(8 * 1024 * 1024, byteBuffer.limit());
+  }
+
+  @Test
+  void testReleaseForeignBuffer() {
+    byteBufferPool.release(ByteBuffer.allocate(128));
+    byteBufferPool.release(ByteBuffer.allocateDirect(100));
+    byteBufferPool.release(null);
+
+    assertEquals(0, byteBufferPool.getPooledBufferCount(128));
+  }
+
+  @Test
+  void testReleaseBounded() {
+    for (int i = 0; i < 10; i++) {
+      byteBufferPool.release(ByteBuffer.allocateDirect(1024 * 1024));
+    }
+
+    assertEquals(2, byteBufferPool.getPooledBufferCount(1024 * 1024));
+  }
+
+  @Test
+  void testAcquireAligned() {
+    DirectByteBufferPool alignedByteBufferPool = new DirectByteBufferPool(4096);
+
+    ByteBuffer byteBuffer = alignedByteBufferPool.acquire(4096);
+    ByteBuffer oversizedByteBuffer = alignedByteBufferPool.acquire(8 * 1024 * 1024);
+
+    assertEquals(0, byteBuffer.alignmentOffset(0, 4096));
+    assertEquals(4096, byteBuffer.capacity());
+    assertTrue(oversizedByteBuffer.isDirect());
+    assertEquals(0, oversizedByteBuffer.alignmentOffset(0, 4096));
+  }
+
+  @Test
+  void testCreationWithInvalidAlignment() {
+    Executable executable = () -> new DirectByteBufferPool(100);
+    assertThrows(IllegalArgumentException.class, executable);
+  }
+}
@@ -0,0 +1,173 @@
+package io.electra.core.filesystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.electra.core.exception.FileSystemAccessException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DirectIoFileSystemAccessorTest {
+
+  private static final String TEST_FILE = "test.acc";
+  private static final int TEST_CONTENT = 15;
+  private static final int TEST_BLOCK_SIZE = 128;
+  private static final int TEST_BLOCK_COUNT = 64;
+  private DirectIoFileSystemAccessor fileSystemAccessor;
+
+  @BeforeEach
+  void setUp() throws ExecutionException, InterruptedException {
+    try {
+      fileSystemAccessor = new DirectIoFileSystemAccessor(Paths.get(TEST_FILE));
+    } catch (FileSystemAccessException e) {
+      // The file system of the working directory doesn't support direct I/O.
+    }
+    assumeTrue(fileSystemAccessor != null);
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+    byteBuffer.putInt(TEST_CONTENT);
+    byteBuffer.flip();
+    fileSystemAccessor.write(4, byteBuffer).get();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (fileSystemAccessor != null) {
+      fileSystemAccessor.close();
+    }
+
+    Path path = Paths.get(TEST_FILE);
+    Files.deleteIfExists(path);
+  }
+
+  @Test
+  void testCreationWithInvalidFileAccess() {
+    Executable runnable = () -> new DirectIoFileSystemAccessor(Paths.get("/"));
+    assertThrows(FileSystemAccessException.class, runnable);
+  }
+
+  @Test
+  void testRead() throws ExecutionException, InterruptedException {
+    ByteBuffer result = fileSystemAccessor.read(4, 4).get();
+    assertEquals(4, result.remaining());
+    assertEquals(TEST_CONTENT, result.getInt());
+  }
+
+  @Test
+  void testReadWithPendingInterrupt() throws ExecutionException, InterruptedException {
+    Thread.currentThread().interrupt();
+    Future<ByteBuffer> read = fileSystemAccessor.read(4, 4);
+
+    // The interrupt is kept for the caller, but must not close the channel.
+    assertTrue(Thread.interrupted());
+    assertEquals(TEST_CONTENT, read.get().getInt());
+    assertEquals(TEST_CONTENT, fileSystemAccessor.read(4, 4).get().getInt());
+  }
+
+  @Test
+  void testReadBeyondEndOfFile() throws ExecutionException, InterruptedException {
+    ByteBuffer result = fileSystemAccessor.read(6, 4).get();
+    assertEquals(2, result.remaining());
+
+    assertEquals(0, fileSystemAccessor.read(4096, 4).get().remaining());
+  }
+
+  @Test
+  void testFileLength() throws FileSystemAccessException, ExecutionException,
+      InterruptedException, IOException {
+    assertEquals(8, fileSystemAccessor.getFileLength());
+    assertEquals(8, Files.size(Paths.get(TEST_FILE)));
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+    byteBuffer.putInt(TEST_CONTENT);
+    byteBuffer.flip();
+    fileSystemAccessor.write(0, byteBuffer).get();
+
+    assertEquals(8, fileSystemAccessor.getFileLength());
+
+    fileSystemAccessor.truncate(2);
+
+    assertEquals(2, fileSystemAccessor.getFileLength());
+  }
+
+  @Test
+  void testWriteAndReadAcrossBlocks() throws ExecutionException, InterruptedException {
+    int alignment = fileSystemAccessor.getAlignment();
+    ByteBuffer byteBuffer = ByteBuffer.allocate(8);
+    byteBuffer.putInt(TEST_CONTENT + 1).putInt(TEST_CONTENT + 2);
+    byteBuffer.flip();
+
+    assertEquals(8, fileSystemAccessor.write(alignment - 4, byteBuffer).get().intValue());
+
+    ByteBuffer result = fileSystemAccessor.read(alignment - 4, 8).get();
+    assertEquals(TEST_CONTENT + 1, result.getInt());
+    assertEquals(TEST_CONTENT + 2, result.getInt());
+    fileSystemAccessor.release(result);
+
+    ByteBuffer head = fileSystemAccessor.read(4, 4).get();
+    assertEquals(TEST_CONTENT, head.getInt());
+  }
+
+  @Test
+  void testConcurrentWritesOfAdjacentBlocks() throws ExecutionException, InterruptedException {
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    List<ListenableFuture<Integer>> writeFutures = new ArrayList<>();
+    for (int i = 0; i < TEST_BLOCK_COUNT; i++) {
+      ByteBuffer byteBuffer = ByteBuffer.allocate(TEST_BLOCK_SIZE);
+      while (byteBuffer.hasRemaining()) {
+        byteBuffer.put((byte) i);
+      }
+      byteBuffer.flip();
+
+      long offset = (long) i * TEST_BLOCK_SIZE;
+      writeFutures.add(Futures.submitAsync(() -> fileSystemAccessor.write(offset, byteBuffer),
+          executorService));
+    }
+    Futures.allAsList(writeFutures).get();
+    executorService.shutdown();
+
+    ByteBuffer result = fileSystemAccessor.read(0, TEST_BLOCK_SIZE * TEST_BLOCK_COUNT).get();
+    assertEquals(TEST_BLOCK_SIZE * TEST_BLOCK_COUNT, result.remaining());
+    for (int i = 0; i < TEST_BLOCK_COUNT * TEST_BLOCK_SIZE; i++) {
+      assertEquals(i / TEST_BLOCK_SIZE, result.get(i));
+    }
+  }
+
+  @Test
+  void testReadWithClosedChannel() throws IOException {
+    fileSystemAccessor.close();
+
+    Executable executable = () -> fileSystemAccessor.read(0, 4).get();
+    assertThrows(ExecutionException.class, executable);
+  }
+
+  @Test
+  void testClearWithClosedChannelException() {
+    Executable executable = () -> {
+      fileSystemAccessor.close();
+      fileSystemAccessor.clear();
+    };
+
+    assertThrows(FileSystemAccessException.class, executable);
+  }
+}
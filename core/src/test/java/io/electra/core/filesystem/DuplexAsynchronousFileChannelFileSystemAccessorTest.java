@@ -2,13 +2,20 @@ package io.electra.core.filesystem;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.metrics.Metrics;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import org.junit.jupiter.api.AfterEach;
@@ -26,13 +33,13 @@ class DuplexAsynchronousFileChannelFileSystemAccessorTest {
   private FileSystemAccessor fileSystemAccessor;
 
   @BeforeEach
-  void setUp() throws FileSystemAccessException {
+  void setUp() throws FileSystemAccessException, ExecutionException, InterruptedException {
     fileSystemAccessor = new DuplexAsynchronousFileChannelFileSystemAccessor(Paths.get(TEST_FILE));
 
     ByteBuffer byteBuffer = ByteBuffer.allocate(4);
     byteBuffer.putInt(TEST_CONTENT);
     byteBuffer.flip();
-    fileSystemAccessor.write(4, byteBuffer);
+    fileSystemAccessor.write(4, byteBuffer).get();
   }
 
   @Test
@@ -73,6 +80,34 @@ class DuplexAsynchronousFileChannelFileSystemAccessorTest {
     assertEquals(TEST_CONTENT, result.getInt());
   }
 
+  @Test
+  void testReadOnIoExecutor() throws FileSystemAccessException, IOException {
+    IoExecutor ioExecutor = new IoExecutor(1);
+    try (FileSystemAccessor executorFileSystemAccessor =
+        new DuplexAsynchronousFileChannelFileSystemAccessor(Paths.get(TEST_FILE),
+            new DirectByteBufferPool(), new Metrics(), ioExecutor)) {
+      // Keep the only I/O thread busy, so the read can't complete before the listener is added.
+      CountDownLatch ioThreadBlocked = new CountDownLatch(1);
+      ioExecutor.acquire().execute(() -> Uninterruptibles.awaitUninterruptibly(ioThreadBlocked));
+      ListenableFuture<String> threadNameFuture = Futures.transform(
+          executorFileSystemAccessor.read(4, 4), byteBuffer -> Thread.currentThread().getName(),
+          MoreExecutors.directExecutor());
+      ioThreadBlocked.countDown();
+      ioExecutor.release();
+
+      assertTrue(Futures.getUnchecked(threadNameFuture).startsWith("electra-io-"));
+      assertEquals(1, ioExecutor.getThreadCount());
+    }
+
+    assertEquals(0, ioExecutor.getThreadCount());
+  }
+
+  @Test
+  void testReadBeyondEndOfFile() throws ExecutionException, InterruptedException {
+    ByteBuffer result = fileSystemAccessor.read(6, 4).get();
+    assertEquals(2, result.remaining());
+  }
+
   @Test
   void testClear() throws FileSystemAccessException {
     fileSystemAccessor.clear();
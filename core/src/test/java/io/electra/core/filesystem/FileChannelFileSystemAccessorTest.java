@@ -0,0 +1,130 @@
+package io.electra.core.filesystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.electra.core.exception.FileSystemAccessException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class FileChannelFileSystemAccessorTest {
+
+  private static final String TEST_FILE = "test.acc";
+  private static final int TEST_CONTENT = 15;
+  private FileSystemAccessor fileSystemAccessor;
+
+  @BeforeEach
+  void setUp() throws FileSystemAccessException, ExecutionException, InterruptedException {
+    fileSystemAccessor = new FileChannelFileSystemAccessor(Paths.get(TEST_FILE));
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+    byteBuffer.putInt(TEST_CONTENT);
+    byteBuffer.flip();
+    fileSystemAccessor.write(4, byteBuffer).get();
+  }
+
+  @Test
+  void testClose() throws IOException {
+    fileSystemAccessor.close();
+  }
+
+  @Test
+  void testCreationWithInvalidFileAccess() {
+    Executable runnable = () -> new FileChannelFileSystemAccessor(Paths.get("/"));
+    assertThrows(FileSystemAccessException.class, runnable);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Path path = Paths.get(TEST_FILE);
+    Files.delete(path);
+  }
+
+  @Test
+  void testWrite() throws ExecutionException, InterruptedException {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+    byteBuffer.putInt(5);
+
+    byteBuffer.flip();
+
+    Future<Integer> write = fileSystemAccessor.write(0, byteBuffer);
+
+    byteBuffer.rewind();
+
+    assertEquals(4, write.get().intValue());
+  }
+
+  @Test
+  void testRead() throws ExecutionException, InterruptedException {
+    Future<ByteBuffer> read = fileSystemAccessor.read(4, 4);
+    ByteBuffer result = read.get();
+    assertEquals(TEST_CONTENT, result.getInt());
+  }
+
+  @Test
+  void testReadWithPendingInterrupt() throws ExecutionException, InterruptedException {
+    Thread.currentThread().interrupt();
+    Future<ByteBuffer> read = fileSystemAccessor.read(4, 4);
+
+    // The interrupt is kept for the caller, but must not close the channel.
+    assertTrue(Thread.interrupted());
+    assertEquals(TEST_CONTENT, read.get().getInt());
+    assertEquals(TEST_CONTENT, fileSystemAccessor.read(4, 4).get().getInt());
+  }
+
+  @Test
+  void testReadBeyondEndOfFile() throws ExecutionException, InterruptedException {
+    ByteBuffer result = fileSystemAccessor.read(6, 4).get();
+    assertEquals(2, result.remaining());
+  }
+
+  @Test
+  void testWriteAndReadInPlace() throws ExecutionException, InterruptedException {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(8);
+    byteBuffer.putInt(TEST_CONTENT + 1).putInt(TEST_CONTENT + 2);
+    byteBuffer.flip();
+
+    assertEquals(8, fileSystemAccessor.write(2, byteBuffer).get().intValue());
+
+    ByteBuffer result = fileSystemAccessor.read(2, 8).get();
+    assertEquals(TEST_CONTENT + 1, result.getInt());
+    assertEquals(TEST_CONTENT + 2, result.getInt());
+    fileSystemAccessor.release(result);
+  }
+
+  @Test
+  void testReadWithClosedChannel() throws IOException {
+    fileSystemAccessor.close();
+
+    Executable executable = () -> fileSystemAccessor.read(0, 4).get();
+    assertThrows(ExecutionException.class, executable);
+  }
+
+  @Test
+  void testClear() throws FileSystemAccessException {
+    fileSystemAccessor.clear();
+  }
+
+  @Test
+  void testClearWithClosedChannelException() {
+    Executable executable = () -> {
+      fileSystemAccessor.close();
+      fileSystemAccessor.clear();
+    };
+
+    assertThrows(FileSystemAccessException.class, executable);
+  }
+}
@@ -0,0 +1,62 @@
+package io.electra.core.filesystem;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.electra.core.configuration.ElectraConfiguration;
+import io.electra.core.exception.FileSystemAccessException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class FileSystemAccessorFactoryTest {
+
+  private static final String TEST_FILE = "test.acc";
+
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(Paths.get(TEST_FILE));
+  }
+
+  @Test
+  void testCreateDefaultFileSystemAccessor() throws FileSystemAccessException, IOException {
+    try (FileSystemAccessor fileSystemAccessor = FileSystemAccessorFactory
+        .createFileSystemAccessor(Paths.get(TEST_FILE), new ElectraConfiguration())) {
+      assertTrue(fileSystemAccessor instanceof DuplexAsynchronousFileChannelFileSystemAccessor);
+    }
+  }
+
+  @Test
+  void testCreateFileChannelFileSystemAccessor() throws FileSystemAccessException, IOException {
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.FILE_CHANNEL);
+
+    try (FileSystemAccessor fileSystemAccessor = FileSystemAccessorFactory
+        .createFileSystemAccessor(Paths.get(TEST_FILE), configuration)) {
+      assertTrue(fileSystemAccessor instanceof FileChannelFileSystemAccessor);
+    }
+  }
+
+  @Test
+  void testCreateMemoryMappedFileSystemAccessor() throws FileSystemAccessException, IOException {
+    ElectraConfiguration configuration = new ElectraConfiguration();
+    configuration.setFileSystemAccessorType(FileSystemAccessorType.MEMORY_MAPPED);
+
+    try (FileSystemAccessor fileSystemAccessor = FileSystemAccessorFactory
+        .createFileSystemAccessor(Paths.get(TEST_FILE), configuration)) {
+      assertTrue(fileSystemAccessor instanceof MemoryMappedFileSystemAccessor);
+    }
+  }
+
+  @Test
+  void testAssertionErrorOnInit() {
+    Executable executable = FileSystemAccessorFactory::new;
+    assertThrows(AssertionError.class, executable);
+  }
+}
@@ -0,0 +1,90 @@
+package io.electra.core.filesystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class IoExecutorTest {
+
+  private static final int TEST_THREAD_COUNT = 2;
+  private IoExecutor ioExecutor;
+
+  @BeforeEach
+  void setUp() {
+    ioExecutor = new IoExecutor(TEST_THREAD_COUNT);
+  }
+
+  @Test
+  void testAcquireAndRelease() {
+    ExecutorService executorService = ioExecutor.acquire();
+    assertSame(executorService, ioExecutor.acquire());
+
+    ioExecutor.release();
+    assertFalse(executorService.isShutdown());
+
+    ioExecutor.release();
+    assertTrue(executorService.isShutdown());
+
+    ExecutorService nextExecutorService = ioExecutor.acquire();
+    assertNotSame(executorService, nextExecutorService);
+    ioExecutor.release();
+  }
+
+  @Test
+  void testReleaseWithoutAcquire() {
+    Executable executable = () -> ioExecutor.release();
+
+    assertThrows(IllegalStateException.class, executable);
+  }
+
+  @Test
+  void testInitWithoutThreads() {
+    Executable executable = () -> new IoExecutor(0);
+
+    assertThrows(IllegalArgumentException.class, executable);
+  }
+
+  @Test
+  void testQueueDepthAndActiveThreads() throws Exception {
+    ExecutorService executorService = ioExecutor.acquire();
+    try {
+      CountDownLatch startedLatch = new CountDownLatch(TEST_THREAD_COUNT);
+      CountDownLatch blockingLatch = new CountDownLatch(1);
+      Future<?> lastTask = null;
+      for (int i = 0; i < TEST_THREAD_COUNT + 3; i++) {
+        lastTask = executorService.submit(() -> {
+          startedLatch.countDown();
+          blockingLatch.await();
+          return null;
+        });
+      }
+
+      startedLatch.await();
+      assertEquals(TEST_THREAD_COUNT, ioExecutor.getMaxThreadCount());
+      assertEquals(TEST_THREAD_COUNT, ioExecutor.getThreadCount());
+      assertEquals(TEST_THREAD_COUNT, ioExecutor.getActiveThreadCount());
+      assertEquals(3, ioExecutor.getQueueDepth());
+
+      blockingLatch.countDown();
+      lastTask.get();
+    } finally {
+      ioExecutor.release();
+    }
+
+    assertEquals(0, ioExecutor.getThreadCount());
+    assertEquals(0, ioExecutor.getQueueDepth());
+  }
+}
@@ -0,0 +1,146 @@
+package io.electra.core.filesystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.electra.core.exception.FileSystemAccessException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class MemoryMappedFileSystemAccessorTest {
+
+  private static final String TEST_FILE = "test.acc";
+  private static final int TEST_CONTENT = 15;
+  private static final int TEST_SEGMENT_SIZE = 16;
+  private static final int TEST_LARGE_SEGMENT_SIZE = 4096;
+  private FileSystemAccessor fileSystemAccessor;
+
+  @BeforeEach
+  void setUp() throws FileSystemAccessException, ExecutionException, InterruptedException {
+    fileSystemAccessor = new MemoryMappedFileSystemAccessor(Paths.get(TEST_FILE),
+        TEST_SEGMENT_SIZE);
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+    byteBuffer.putInt(TEST_CONTENT);
+    byteBuffer.flip();
+    fileSystemAccessor.write(4, byteBuffer).get();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    fileSystemAccessor.close();
+
+    Path path = Paths.get(TEST_FILE);
+    Files.delete(path);
+  }
+
+  @Test
+  void testClose() throws IOException {
+    fileSystemAccessor.close();
+  }
+
+  @Test
+  void testCreationWithInvalidFileAccess() {
+    Executable runnable = () -> new MemoryMappedFileSystemAccessor(Paths.get("/"),
+        TEST_SEGMENT_SIZE);
+    assertThrows(FileSystemAccessException.class, runnable);
+  }
+
+  @Test
+  void testWrite() throws ExecutionException, InterruptedException {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+    byteBuffer.putInt(5);
+    byteBuffer.flip();
+
+    Future<Integer> write = fileSystemAccessor.write(0, byteBuffer);
+
+    assertEquals(4, write.get().intValue());
+    assertEquals(5, fileSystemAccessor.read(0, 4).get().getInt());
+  }
+
+  @Test
+  void testRead() throws ExecutionException, InterruptedException {
+    Future<ByteBuffer> read = fileSystemAccessor.read(4, 4);
+    ByteBuffer result = read.get();
+    assertEquals(TEST_CONTENT, result.getInt());
+  }
+
+  @Test
+  void testReadBeyondEndOfFile() throws ExecutionException, InterruptedException {
+    ByteBuffer result = fileSystemAccessor.read(8, 4).get();
+    assertFalse(result.hasRemaining());
+  }
+
+  @Test
+  void testWriteAndReadAcrossSegments() throws ExecutionException, InterruptedException,
+      FileSystemAccessException {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(TEST_SEGMENT_SIZE * 3);
+    for (int i = 0; i < byteBuffer.capacity() / 4; i++) {
+      byteBuffer.putInt(i);
+    }
+    byteBuffer.flip();
+
+    fileSystemAccessor.write(8, byteBuffer).get();
+    assertEquals(8 + TEST_SEGMENT_SIZE * 3, fileSystemAccessor.getFileLength());
+
+    byteBuffer.rewind();
+    fileSystemAccessor.write(8, byteBuffer).get();
+
+    ByteBuffer result = fileSystemAccessor.read(8, TEST_SEGMENT_SIZE * 3).get();
+    for (int i = 0; i < byteBuffer.capacity() / 4; i++) {
+      assertEquals(i, result.getInt());
+    }
+  }
+
+  @Test
+  void testAppendRemapsGeometrically() throws FileSystemAccessException, ExecutionException,
+      InterruptedException, IOException {
+    fileSystemAccessor.close();
+    Files.delete(Paths.get(TEST_FILE));
+    MemoryMappedFileSystemAccessor memoryMappedFileSystemAccessor =
+        new MemoryMappedFileSystemAccessor(Paths.get(TEST_FILE), TEST_LARGE_SEGMENT_SIZE);
+    fileSystemAccessor = memoryMappedFileSystemAccessor;
+
+    for (int i = 0; i < TEST_LARGE_SEGMENT_SIZE / 4; i++) {
+      ByteBuffer byteBuffer = ByteBuffer.allocate(4);
+      byteBuffer.putInt(i).flip();
+      fileSystemAccessor.write(i * 4L, byteBuffer).get();
+
+      assertEquals(i, fileSystemAccessor.read(i * 4L, 4).get().getInt());
+      assertEquals(0, fileSystemAccessor.read(0, 4).get().getInt());
+    }
+
+    // One mapping per doubling instead of one per append.
+    assertTrue(memoryMappedFileSystemAccessor.getMapCount() <= 12);
+  }
+
+  @Test
+  void testClear() throws FileSystemAccessException {
+    fileSystemAccessor.clear();
+    assertEquals(0, fileSystemAccessor.getFileLength());
+  }
+
+  @Test
+  void testClearWithClosedChannelException() {
+    Executable executable = () -> {
+      fileSystemAccessor.close();
+      fileSystemAccessor.clear();
+    };
+
+    assertThrows(FileSystemAccessException.class, executable);
+  }
+}
@@ -0,0 +1,225 @@
+package io.electra.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class IndexMapTest {
+
+  private static final Path TEST_FILE_PATH = Paths.get("test.indexmap");
+  private static final int TEST_KEY = 42;
+  private static final int TEST_VALUE = 1337;
+  private static final int TEST_VALUE2 = 7;
+
+  @Test
+  void testPutAndGet() {
+    IndexMap indexMap = new IndexMap(0, false);
+
+    assertEquals(IndexMap.NO_VALUE, indexMap.get(TEST_KEY));
+    assertEquals(IndexMap.NO_VALUE, indexMap.put(TEST_KEY, TEST_VALUE));
+    assertEquals(TEST_VALUE, indexMap.get(TEST_KEY));
+    assertTrue(indexMap.containsKey(TEST_KEY));
+    assertEquals(1, indexMap.size());
+
+    assertEquals(TEST_VALUE, indexMap.put(TEST_KEY, TEST_VALUE2));
+    assertEquals(TEST_VALUE2, indexMap.get(TEST_KEY));
+    assertEquals(1, indexMap.size());
+  }
+
+  @Test
+  void testPutIfAbsent() {
+    IndexMap indexMap = new IndexMap(0, false);
+
+    assertEquals(IndexMap.NO_VALUE, indexMap.putIfAbsent(TEST_KEY, TEST_VALUE));
+    assertEquals(TEST_VALUE, indexMap.putIfAbsent(TEST_KEY, TEST_VALUE2));
+    assertEquals(TEST_VALUE, indexMap.get(TEST_KEY));
+  }
+
+  @Test
+  void testReplace() {
+    IndexMap indexMap = new IndexMap(0, false);
+
+    assertFalse(indexMap.replace(TEST_KEY, TEST_VALUE, TEST_VALUE2));
+    indexMap.put(TEST_KEY, TEST_VALUE);
+    assertFalse(indexMap.replace(TEST_KEY, TEST_VALUE2, TEST_VALUE2));
+    assertTrue(indexMap.replace(TEST_KEY, TEST_VALUE, TEST_VALUE2));
+    assertEquals(TEST_VALUE2, indexMap.get(TEST_KEY));
+  }
+
+  @Test
+  void testPutNegativeValue() {
+    IndexMap indexMap = new IndexMap(0, false);
+
+    Executable executable = () -> indexMap.put(TEST_KEY, -1);
+
+    assertThrows(IllegalArgumentException.class, executable);
+  }
+
+  @Test
+  void testRemove() {
+    IndexMap indexMap = new IndexMap(0, false);
+    indexMap.put(TEST_KEY, TEST_VALUE);
+
+    assertEquals(TEST_VALUE, indexMap.remove(TEST_KEY));
+    assertEquals(IndexMap.NO_VALUE, indexMap.remove(TEST_KEY));
+    assertFalse(indexMap.containsKey(TEST_KEY));
+    assertEquals(0, indexMap.size());
+  }
+
+  @Test
+  void testRandomOperationsOffHeap() {
+    IndexMap indexMap = new IndexMap(16, true);
+    Map<Integer, Integer> expected = new HashMap<>();
+    Random random = new Random(1);
+
+    for (int i = 0; i < 200000; i++) {
+      int key = random.nextInt(20000) - 10000;
+
+      if (random.nextInt(3) == 0) {
+        Integer previous = expected.remove(key);
+        assertEquals(previous == null ? IndexMap.NO_VALUE : previous, indexMap.remove(key));
+      } else {
+        int value = random.nextInt(Integer.MAX_VALUE - 1);
+        Integer previous = expected.put(key, value);
+        assertEquals(previous == null ? IndexMap.NO_VALUE : previous, indexMap.put(key, value));
+      }
+    }
+
+    assertEquals(expected.size(), indexMap.size());
+    for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+      assertEquals((int) entry.getValue(), indexMap.get(entry.getKey()));
+    }
+
+    Map<Integer, Integer> visited = new HashMap<>();
+    indexMap.forEach(visited::put);
+    assertEquals(expected, visited);
+  }
+
+  @Test
+  void testConcurrentPuts() throws Exception {
+    IndexMap indexMap = new IndexMap(0, true);
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int thread = 0; thread < 4; thread++) {
+      int offset = thread * 50000;
+      futures.add(executorService.submit(() -> {
+        for (int i = offset; i < offset + 50000; i++) {
+          indexMap.put(i, i);
+          assertEquals(i, indexMap.get(i));
+        }
+      }));
+    }
+
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executorService.shutdown();
+
+    assertEquals(200000, indexMap.size());
+    for (int i = 0; i < 200000; i++) {
+      assertEquals(i, indexMap.get(i));
+    }
+  }
+
+  @Test
+  void testClear() {
+    IndexMap indexMap = new IndexMap(1000, false);
+    for (int i = 0; i < 1000; i++) {
+      indexMap.put(i, i);
+    }
+
+    indexMap.clear();
+
+    assertEquals(0, indexMap.size());
+    assertEquals(IndexMap.NO_VALUE, indexMap.get(1));
+  }
+
+  @Test
+  void testWriteToAndReadFromHeap() throws IOException {
+    testWriteToAndReadFrom(false);
+  }
+
+  @Test
+  void testWriteToAndReadFromOffHeap() throws IOException {
+    testWriteToAndReadFrom(true);
+  }
+
+  @Test
+  void testReadFromTruncatedFile() throws IOException {
+    IndexMap indexMap = new IndexMap(1000, false);
+    for (int i = 0; i < 1000; i++) {
+      indexMap.put(i, i);
+    }
+
+    try (FileChannel fileChannel = FileChannel.open(TEST_FILE_PATH, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long end = indexMap.writeTo(fileChannel, 0);
+      fileChannel.truncate(end - 1);
+
+      Executable executable = () -> new IndexMap(0, false).readFrom(fileChannel, 0);
+
+      assertThrows(IOException.class, executable);
+    } finally {
+      Files.delete(TEST_FILE_PATH);
+    }
+  }
+
+  private void testWriteToAndReadFrom(boolean offHeap) throws IOException {
+    // Large enough for the tables of an off heap map to be mapped.
+    IndexMap indexMap = new IndexMap(0, offHeap);
+    for (int i = 0; i < 500000; i++) {
+      indexMap.put(i, i + 1);
+    }
+    indexMap.remove(TEST_KEY);
+
+    IndexMap loadedIndexMap = new IndexMap(0, offHeap);
+    loadedIndexMap.put(-TEST_KEY, TEST_VALUE);
+
+    try (FileChannel fileChannel = FileChannel.open(TEST_FILE_PATH, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long end = indexMap.writeTo(fileChannel, Integer.BYTES);
+      assertEquals(end, fileChannel.size());
+      assertEquals(end, loadedIndexMap.readFrom(fileChannel, Integer.BYTES));
+    } finally {
+      Files.delete(TEST_FILE_PATH);
+    }
+
+    assertEquals(indexMap.size(), loadedIndexMap.size());
+    assertFalse(loadedIndexMap.containsKey(TEST_KEY));
+    assertFalse(loadedIndexMap.containsKey(-TEST_KEY));
+    for (int i = 0; i < 500000; i++) {
+      if (i != TEST_KEY) {
+        assertEquals(i + 1, loadedIndexMap.get(i));
+      }
+    }
+
+    // The loaded map stays writable and can grow.
+    for (int i = 500000; i < 1000000; i++) {
+      loadedIndexMap.put(i, i + 1);
+    }
+    assertEquals(TEST_VALUE + 1, loadedIndexMap.remove(TEST_VALUE));
+    assertEquals(1000000 - 2, loadedIndexMap.size());
+  }
+}
@@ -0,0 +1,235 @@
+package io.electra.core.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.electra.core.exception.FileSystemAccessException;
+import io.electra.core.model.Index;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class IndexSnapshotTest {
+
+  private static final Path TEST_INDEX_FILE_PATH = Paths.get("test.snapshot.index");
+  private static final int TEST_KEY_HASH = 90;
+  private static final int TEST_DATA_BLOCK_INDEX = 200;
+  private static final int TEST_KEY_HASH2 = 100;
+  private static final int TEST_DATA_BLOCK_INDEX2 = 250;
+  // Large enough for the tables of an off heap map to be mapped.
+  private static final int TEST_KEY_COUNT = 500000;
+  private IndexMap indices;
+  private IndexMap indexSlots;
+  private Queue<Integer> freeIndexSlots;
+  private AtomicInteger nextIndexSlot;
+
+  @BeforeEach
+  void setUp() {
+    indices = new IndexMap(0, false);
+    indexSlots = new IndexMap(0, false);
+    freeIndexSlots = new ArrayDeque<>();
+    nextIndexSlot = new AtomicInteger(1);
+  }
+
+  @Test
+  void testWriteAndLoad() throws FileSystemAccessException, IOException {
+    testWriteAndLoad(false);
+  }
+
+  @Test
+  void testWriteAndLoadOffHeap() throws FileSystemAccessException, IOException {
+    testWriteAndLoad(true);
+  }
+
+  private void testWriteAndLoad(boolean offHeap) throws FileSystemAccessException, IOException {
+    indices = new IndexMap(0, offHeap);
+    indexSlots = new IndexMap(0, offHeap);
+    for (int i = 1; i <= TEST_KEY_COUNT; i++) {
+      indices.put(i, i * 2);
+      indexSlots.put(i, i);
+    }
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      assertFalse(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+      assertTrue(indexSnapshot.isSnapshotNeeded(Long.MAX_VALUE));
+
+      indexSnapshot.close(indices, indexSlots, Collections.singletonList(TEST_KEY_COUNT + 1),
+          TEST_KEY_COUNT + 2, Long.MAX_VALUE);
+    }
+
+    assertTrue(Files.exists(IndexSnapshot.getSnapshotPath(TEST_INDEX_FILE_PATH)));
+
+    setUp();
+    indices = new IndexMap(0, offHeap);
+    indexSlots = new IndexMap(0, offHeap);
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      assertTrue(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+      assertFalse(indexSnapshot.isSnapshotNeeded(Long.MAX_VALUE));
+    }
+
+    assertEquals(TEST_KEY_COUNT, indices.size());
+    for (int i = 1; i <= TEST_KEY_COUNT; i++) {
+      assertEquals(i * 2, indices.get(i));
+      assertEquals(i, indexSlots.get(i));
+    }
+    assertEquals(TEST_KEY_COUNT + 1, freeIndexSlots.poll());
+    assertTrue(freeIndexSlots.isEmpty());
+    assertEquals(TEST_KEY_COUNT + 2, nextIndexSlot.get());
+  }
+
+  @Test
+  void testApplyTail() throws FileSystemAccessException, IOException {
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot);
+      indexSnapshot.write(indices, indexSlots, freeIndexSlots, nextIndexSlot.get());
+
+      // Save two keys, remove the first one and save the second one again into the freed slot.
+      indexSnapshot.append(1, new Index(TEST_KEY_HASH, TEST_DATA_BLOCK_INDEX));
+      indexSnapshot.append(2, new Index(TEST_KEY_HASH2, TEST_DATA_BLOCK_INDEX2));
+      Index emptyIndex = new Index(TEST_KEY_HASH, TEST_DATA_BLOCK_INDEX);
+      emptyIndex.setEmpty(true);
+      indexSnapshot.append(1, emptyIndex);
+      indexSnapshot.append(1, new Index(TEST_KEY_HASH2, TEST_DATA_BLOCK_INDEX));
+      Index emptyIndex2 = new Index(TEST_KEY_HASH2, TEST_DATA_BLOCK_INDEX2);
+      emptyIndex2.setEmpty(true);
+      indexSnapshot.append(2, emptyIndex2);
+      assertEquals(5, indexSnapshot.getTailLength());
+      assertTrue(indexSnapshot.isSnapshotNeeded(5));
+
+      indexSnapshot.close(indices, indexSlots, freeIndexSlots, nextIndexSlot.get(),
+          Long.MAX_VALUE);
+    }
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      assertTrue(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+      assertEquals(5, indexSnapshot.getTailLength());
+    }
+
+    assertEquals(1, indices.size());
+    assertEquals(TEST_DATA_BLOCK_INDEX, indices.get(TEST_KEY_HASH2));
+    assertEquals(1, indexSlots.get(TEST_KEY_HASH2));
+    assertEquals(IndexMap.NO_VALUE, indices.get(TEST_KEY_HASH));
+    assertEquals(new HashSet<>(Collections.singletonList(2)), new HashSet<>(freeIndexSlots));
+    assertEquals(3, nextIndexSlot.get());
+  }
+
+  @Test
+  void testLoadDirtySnapshot() throws FileSystemAccessException, IOException {
+    indices.put(TEST_KEY_HASH, TEST_DATA_BLOCK_INDEX);
+    indexSlots.put(TEST_KEY_HASH, 1);
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      indexSnapshot.write(indices, indexSlots, freeIndexSlots, 2);
+    }
+
+    // Without a write ahead log a snapshot that wasn't closed cleanly may miss index writes.
+    setUp();
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      assertFalse(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+    }
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, true)) {
+      assertFalse(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+    }
+  }
+
+  @Test
+  void testLoadLoggedSnapshot() throws FileSystemAccessException, IOException {
+    indices.put(TEST_KEY_HASH, TEST_DATA_BLOCK_INDEX);
+    indexSlots.put(TEST_KEY_HASH, 1);
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, true)) {
+      indexSnapshot.write(indices, indexSlots, freeIndexSlots, 2);
+      indexSnapshot.append(2, new Index(TEST_KEY_HASH2, TEST_DATA_BLOCK_INDEX2));
+      indexSnapshot.force();
+    }
+
+    setUp();
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, true)) {
+      assertTrue(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+    }
+
+    assertEquals(TEST_DATA_BLOCK_INDEX, indices.get(TEST_KEY_HASH));
+    assertEquals(TEST_DATA_BLOCK_INDEX2, indices.get(TEST_KEY_HASH2));
+    assertEquals(3, nextIndexSlot.get());
+  }
+
+  @Test
+  void testDropTailOfOlderSnapshot() throws FileSystemAccessException, IOException {
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, true)) {
+      indexSnapshot.write(indices, indexSlots, freeIndexSlots, 1);
+      indexSnapshot.append(1, new Index(TEST_KEY_HASH, TEST_DATA_BLOCK_INDEX));
+      indexSnapshot.force();
+    }
+
+    // A snapshot of another generation that is still unaware of the key.
+    Path copyPath = Paths.get(TEST_INDEX_FILE_PATH + ".copy");
+    Files.copy(IndexSnapshot.getTailPath(TEST_INDEX_FILE_PATH), copyPath);
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, true)) {
+      indexSnapshot.load(new IndexMap(0, false), new IndexMap(0, false), new ArrayDeque<>(),
+          new AtomicInteger(1));
+      indexSnapshot.write(indices, indexSlots, freeIndexSlots, 1);
+    }
+    Files.move(copyPath, IndexSnapshot.getTailPath(TEST_INDEX_FILE_PATH),
+        StandardCopyOption.REPLACE_EXISTING);
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, true)) {
+      assertTrue(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+      assertEquals(0, indexSnapshot.getTailLength());
+    }
+
+    assertEquals(0, indices.size());
+    assertEquals(1, nextIndexSlot.get());
+  }
+
+  @Test
+  void testMarkOpenDeletesStaleSnapshot() throws FileSystemAccessException, IOException {
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      indexSnapshot.write(indices, indexSlots, freeIndexSlots, 1);
+    }
+
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      assertFalse(indexSnapshot.load(indices, indexSlots, freeIndexSlots, nextIndexSlot));
+      indexSnapshot.markOpen();
+    }
+
+    assertFalse(Files.exists(IndexSnapshot.getSnapshotPath(TEST_INDEX_FILE_PATH)));
+  }
+
+  @Test
+  void testForceWithFailedTail() throws FileSystemAccessException, IOException {
+    try (IndexSnapshot indexSnapshot = new IndexSnapshot(TEST_INDEX_FILE_PATH, false)) {
+      indexSnapshot.write(indices, indexSlots, freeIndexSlots, 1);
+      indexSnapshot.append(1, new Index(TEST_KEY_HASH, TEST_DATA_BLOCK_INDEX));
+      indexSnapshot.close();
+
+      Executable executable = indexSnapshot::force;
+      FileSystemAccessException exception = assertThrows(FileSystemAccessException.class,
+          executable);
+      assertTrue(exception.getCause() instanceof ClosedChannelException);
+      assertTrue(indexSnapshot.isSnapshotNeeded(Long.MAX_VALUE));
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws FileSystemAccessException {
+    IndexSnapshot.delete(TEST_INDEX_FILE_PATH);
+  }
+}
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
 import org.junit.jupiter.api.AfterEach;
@@ -95,6 +96,29 @@ class IndexStorageImplTest {
     assertEquals(3, unchecked.size());
   }
 
+  @Test
+  void testScanIndices() throws IndexScanException {
+    int indexCount = 70000;
+    ByteBuffer byteBuffer = ByteBuffer.allocate(indexCount * Index.INDEX_BLOCK_SIZE);
+    for (int i = 0; i < indexCount; i++) {
+      byteBuffer.put(new Index(i, i * 2).toByteBuffer());
+    }
+    byteBuffer.flip();
+
+    Futures.getUnchecked(((AbstractFileSystemStorage) indexStorage).getFileSystemAccessor()
+        .write(0, byteBuffer));
+
+    List<Index> indices = new ArrayList<>();
+    indexStorage.scanIndices((indexBlockIndex, index) -> {
+      assertEquals(indices.size(), indexBlockIndex);
+      indices.add(index);
+    });
+
+    assertEquals(indexCount, indices.size());
+    assertEquals(indexCount - 1, indices.get(indexCount - 1).getKeyHash());
+    assertEquals((indexCount - 1) * 2, indices.get(indexCount - 1).getBlockIndex());
+  }
+
   @Test
   void testWriteIndex() {
     Index index = new Index(TEST_KEY_HASH + 1, TEST_DATA_BLOCK_INDEX + 1);
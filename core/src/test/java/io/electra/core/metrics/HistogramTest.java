@@ -0,0 +1,85 @@
+package io.electra.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class HistogramTest {
+
+  private Histogram histogram;
+
+  @BeforeEach
+  void setUp() {
+    histogram = new Histogram();
+  }
+
+  @Test
+  void testEmpty() {
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMean());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile99());
+  }
+
+  @Test
+  void testRecord() {
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500.5, histogram.getMean());
+    assertEquals(1000, histogram.getMax());
+    assertPercentile(500, histogram.getPercentile50());
+    assertPercentile(990, histogram.getPercentile99());
+    assertEquals(1000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  void testRecordSmallValuesExactly() {
+    histogram.record(3);
+    histogram.record(3);
+    histogram.record(7);
+
+    assertEquals(3, histogram.getPercentile50());
+    assertEquals(7, histogram.getPercentile99());
+  }
+
+  @Test
+  void testRecordNegative() {
+    histogram.record(-5);
+
+    assertEquals(1, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+  }
+
+  @Test
+  void testRecordLarge() {
+    histogram.record(Long.MAX_VALUE);
+
+    assertEquals(Long.MAX_VALUE, histogram.getMax());
+    assertEquals(Long.MAX_VALUE, histogram.getPercentile999());
+  }
+
+  @Test
+  void testBucketBounds() {
+    for (long value : new long[]{0, 1, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE}) {
+      int bucketIndex = Histogram.getBucketIndex(value);
+
+      assertTrue(Histogram.getHighestValue(bucketIndex) >= value);
+      if (bucketIndex > 0) {
+        assertTrue(Histogram.getHighestValue(bucketIndex - 1) < value);
+      }
+    }
+  }
+
+  private static void assertPercentile(long expected, long actual) {
+    assertTrue(Math.abs(expected - actual) <= expected / 16, "Expected about " + expected
+        + " but was " + actual);
+  }
+}
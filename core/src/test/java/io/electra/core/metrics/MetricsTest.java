@@ -0,0 +1,114 @@
+package io.electra.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.electra.core.filesystem.IoExecutor;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class MetricsTest {
+
+  private static final String TEST_DATABASE_NAME = "metrics-test";
+
+  private Metrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    metrics = new Metrics();
+  }
+
+  @Test
+  void testRead() {
+    metrics.readStarted();
+    assertEquals(1, metrics.getPendingReads());
+
+    metrics.readCompleted(System.nanoTime(), 128);
+    metrics.readStarted();
+    metrics.readFailed();
+
+    assertEquals(0, metrics.getPendingReads());
+    assertEquals(1, metrics.getReadCount());
+    assertEquals(128, metrics.getBytesRead());
+    assertEquals(1, metrics.getReadLatency().getCount());
+  }
+
+  @Test
+  void testWrite() {
+    metrics.writeStarted();
+    assertEquals(1, metrics.getPendingWrites());
+
+    metrics.writeCompleted(System.nanoTime(), 64);
+    metrics.writeStarted();
+    metrics.writeFailed();
+
+    assertEquals(0, metrics.getPendingWrites());
+    assertEquals(1, metrics.getWriteCount());
+    assertEquals(64, metrics.getBytesWritten());
+    assertEquals(1, metrics.getWriteLatency().getCount());
+  }
+
+  @Test
+  void testRegisterMBeans() throws JMException {
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName metricsName = new ObjectName("io.electra:type=Metrics,database="
+        + ObjectName.quote(TEST_DATABASE_NAME));
+    ObjectName histogramName = new ObjectName("io.electra:type=Histogram,"
+        + "histogram=getLatency,database=" + ObjectName.quote(TEST_DATABASE_NAME));
+
+    metrics.registerMBeans(TEST_DATABASE_NAME);
+    try {
+      metrics.getGetLatency().record(42);
+
+      assertEquals(0L, mbeanServer.getAttribute(metricsName, "BytesRead"));
+      assertEquals(1L, mbeanServer.getAttribute(histogramName, "Count"));
+    } finally {
+      metrics.unregisterMBeans();
+    }
+
+    assertFalse(mbeanServer.isRegistered(metricsName));
+    assertFalse(mbeanServer.isRegistered(histogramName));
+  }
+
+  @Test
+  void testRegisterMBeansWithIoExecutor() throws JMException {
+    MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName ioExecutorName = new ObjectName("io.electra:type=IoExecutor,database="
+        + ObjectName.quote(TEST_DATABASE_NAME));
+
+    metrics.registerMBeans(TEST_DATABASE_NAME, new IoExecutor(2));
+    try {
+      assertEquals(2, mbeanServer.getAttribute(ioExecutorName, "MaxThreadCount"));
+      assertEquals(0, mbeanServer.getAttribute(ioExecutorName, "QueueDepth"));
+    } finally {
+      metrics.unregisterMBeans();
+    }
+
+    assertFalse(mbeanServer.isRegistered(ioExecutorName));
+  }
+
+  @Test
+  void testRegisterMBeansTwice() throws JMException {
+    metrics.registerMBeans(TEST_DATABASE_NAME);
+    try {
+      Metrics otherMetrics = new Metrics();
+      Executable executable = () -> otherMetrics.registerMBeans(TEST_DATABASE_NAME);
+      assertThrows(JMException.class, executable);
+
+      assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(
+          "io.electra:type=Metrics,database=" + ObjectName.quote(TEST_DATABASE_NAME))));
+    } finally {
+      metrics.unregisterMBeans();
+    }
+  }
+}
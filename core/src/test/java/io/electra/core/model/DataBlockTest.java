@@ -58,6 +58,40 @@ class DataBlockTest {
     assertThrows(MalformedDataException.class, executable);
   }
 
+  @Test
+  void testFromByteBuffer() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
+    byteBuffer.putInt(TEST_NEXT_BLOCK_INDEX);
+    byteBuffer.putInt(3);
+    byteBuffer.put(new byte[]{1, 2, 3, 4, 5});
+    byteBuffer.rewind();
+
+    DataBlock dataBlock = DataBlock.fromByteBuffer(byteBuffer);
+
+    assertEquals(TEST_NEXT_BLOCK_INDEX, dataBlock.getNextDataBlockIndex());
+    assertArrayEquals(new byte[]{1, 2, 3}, dataBlock.getContent());
+  }
+
+  @Test
+  void testFromByteBufferWithTruncatedContent() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(10);
+    byteBuffer.putInt(TEST_NEXT_BLOCK_INDEX);
+    byteBuffer.putInt(TEST_CONTENT_LENGTH);
+    byteBuffer.rewind();
+
+    Executable executable = () -> DataBlock.fromByteBuffer(byteBuffer);
+
+    assertThrows(MalformedDataException.class, executable);
+  }
+
+  @Test
+  void testGetBlockCount() {
+    assertEquals(1, DataBlock.getBlockCount(0));
+    assertEquals(1, DataBlock.getBlockCount(DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE));
+    assertEquals(2, DataBlock.getBlockCount(DataBlock.DATA_BLOCK_CONTENT_SECTION_SIZE + 1));
+    assertEquals(1, dataBlock.getBlockCount());
+  }
+
   @Test
   void testToByteBuffer() {
     ByteBuffer test = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
@@ -69,4 +103,24 @@ class DataBlockTest {
 
     assertArrayEquals(test.array(), byteBuffer.array());
   }
+
+  @Test
+  void testToByteBufferWithPadding() {
+    DataBlock smallDataBlock = new DataBlock(-1, 2);
+    smallDataBlock.setContent(new byte[]{1, 2});
+
+    ByteBuffer byteBuffer = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
+    for (int i = 0; i < byteBuffer.capacity(); i++) {
+      byteBuffer.put((byte) 9);
+    }
+    byteBuffer.clear();
+
+    smallDataBlock.toByteBuffer(byteBuffer);
+
+    assertEquals(DataBlock.DATA_BLOCK_SIZE, smallDataBlock.getByteBufferLength());
+    assertEquals(DataBlock.DATA_BLOCK_SIZE, byteBuffer.position());
+    assertEquals(2, byteBuffer.get(9));
+    assertEquals(0, byteBuffer.get(10));
+    assertEquals(0, byteBuffer.get(DataBlock.DATA_BLOCK_SIZE - 1));
+  }
 }
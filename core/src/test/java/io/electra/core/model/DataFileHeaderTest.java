@@ -0,0 +1,39 @@
+package io.electra.core.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class DataFileHeaderTest {
+
+  @Test
+  void testToAndFromByteBuffer() {
+    DataFileHeader dataFileHeader = new DataFileHeader(DataFileHeader.FORMAT_VERSION_EXTENT);
+
+    ByteBuffer byteBuffer = dataFileHeader.toByteBuffer();
+
+    assertEquals(DataBlock.DATA_BLOCK_SIZE, byteBuffer.remaining());
+    assertEquals(DataFileHeader.FORMAT_VERSION_EXTENT,
+        DataFileHeader.fromByteBuffer(byteBuffer).getFormatVersion());
+  }
+
+  @Test
+  void testFromByteBufferWithoutHeader() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(DataBlock.DATA_BLOCK_SIZE);
+
+    assertEquals(DataFileHeader.FORMAT_VERSION_BLOCK_CHAIN,
+        DataFileHeader.fromByteBuffer(byteBuffer).getFormatVersion());
+  }
+
+  @Test
+  void testFromEmptyByteBuffer() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(0);
+
+    assertEquals(DataFileHeader.FORMAT_VERSION_BLOCK_CHAIN,
+        DataFileHeader.fromByteBuffer(byteBuffer).getFormatVersion());
+  }
+}
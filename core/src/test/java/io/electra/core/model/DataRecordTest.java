@@ -1,6 +1,8 @@
 package io.electra.core.model;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import java.util.Arrays;
 import org.junit.jupiter.api.BeforeEach;
@@ -51,4 +53,18 @@ class DataRecordTest {
   void testGetContent() {
     assertEquals(dataBlock.getContent(), dataRecord.getContent());
   }
+
+  @Test
+  void testGetContentOfMultipleDataBlocks() {
+    DataBlock secondDataBlock = new DataBlock(-1, 3);
+    secondDataBlock.setContent("llo".getBytes());
+    dataRecord.addDataBlock(secondDataBlock);
+
+    assertArrayEquals("hello".getBytes(), dataRecord.getContent());
+  }
+
+  @Test
+  void testGetContentWithoutDataBlocks() {
+    assertNull(new DataRecord(TEST_FIRST_BLOCK_INDEX).getContent());
+  }
 }
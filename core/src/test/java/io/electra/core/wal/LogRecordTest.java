@@ -0,0 +1,46 @@
+package io.electra.core.wal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class LogRecordTest {
+
+  private static final int TEST_KEY_HASH = 90;
+  private static final byte[] TEST_VALUE = "I am a tester moarfuckn king.".getBytes();
+
+  @Test
+  void testToByteBuffer() {
+    LogRecord logRecord = new LogRecord(LogRecordType.UPDATE, TEST_KEY_HASH, TEST_VALUE);
+
+    ByteBuffer byteBuffer = logRecord.toByteBuffer();
+
+    assertEquals(LogRecord.LOG_RECORD_HEADER_SIZE + TEST_VALUE.length, byteBuffer.remaining());
+    byteBuffer.getInt();
+    assertEquals(LogRecordType.UPDATE, LogRecordType.fromId(byteBuffer.get()));
+    assertEquals(TEST_KEY_HASH, byteBuffer.getInt());
+    assertEquals(TEST_VALUE.length, byteBuffer.getInt());
+  }
+
+  @Test
+  void testChecksum() {
+    ByteBuffer byteBuffer = new LogRecord(LogRecordType.SAVE, TEST_KEY_HASH, TEST_VALUE)
+        .toByteBuffer();
+    int checksum = byteBuffer.getInt();
+
+    ByteBuffer header = byteBuffer.duplicate();
+    header.limit(LogRecord.LOG_RECORD_HEADER_SIZE);
+
+    assertEquals(checksum, LogRecord.computeChecksum(header, TEST_VALUE));
+  }
+
+  @Test
+  void testFromUnknownId() {
+    assertNull(LogRecordType.fromId((byte) 0));
+  }
+}
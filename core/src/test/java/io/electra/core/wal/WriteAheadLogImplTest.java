@@ -0,0 +1,275 @@
+package io.electra.core.wal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.electra.core.exception.WriteAheadLogException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * @author Felix Klauke <info@felix-klauke.de>
+ */
+class WriteAheadLogImplTest {
+
+  private static final Path TEST_FILE_PATH = Paths.get("test.wal");
+  private static final int TEST_KEY_HASH = 90;
+  private static final byte[] TEST_VALUE = "I am a tester moarfuckn king.".getBytes();
+  private WriteAheadLog writeAheadLog;
+
+  @BeforeEach
+  void setUp() throws WriteAheadLogException {
+    writeAheadLog = new WriteAheadLogImpl(TEST_FILE_PATH);
+  }
+
+  @Test
+  void testAppendAndReplay() throws WriteAheadLogException, IOException {
+    List<ListenableFuture<Void>> appendFutures = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      appendFutures.add(writeAheadLog.append(new LogRecord(LogRecordType.SAVE, i, TEST_VALUE)));
+    }
+    Futures.getUnchecked(Futures.allAsList(appendFutures));
+
+    writeAheadLog.close();
+    writeAheadLog = new WriteAheadLogImpl(TEST_FILE_PATH);
+
+    List<LogRecord> logRecords = new ArrayList<>();
+    writeAheadLog.replay(logRecords::add);
+
+    assertEquals(1000, logRecords.size());
+    for (int i = 0; i < logRecords.size(); i++) {
+      assertEquals(i, logRecords.get(i).getKeyHash());
+      assertEquals(LogRecordType.SAVE, logRecords.get(i).getType());
+      assertArrayEquals(TEST_VALUE, logRecords.get(i).getValue());
+    }
+  }
+
+  @Test
+  void testReplayWithTornRecord() throws WriteAheadLogException, IOException {
+    Futures.getUnchecked(writeAheadLog.append(
+        new LogRecord(LogRecordType.SAVE, TEST_KEY_HASH, TEST_VALUE)));
+    Futures.getUnchecked(writeAheadLog.append(
+        new LogRecord(LogRecordType.REMOVE, TEST_KEY_HASH, new byte[0])));
+    writeAheadLog.close();
+
+    long intactLength = LogRecord.LOG_RECORD_HEADER_SIZE + TEST_VALUE.length;
+    try (FileChannel fileChannel = FileChannel.open(TEST_FILE_PATH, StandardOpenOption.WRITE)) {
+      fileChannel.truncate(intactLength + 5);
+    }
+
+    writeAheadLog = new WriteAheadLogImpl(TEST_FILE_PATH);
+    List<LogRecord> logRecords = new ArrayList<>();
+    writeAheadLog.replay(logRecords::add);
+
+    assertEquals(1, logRecords.size());
+    assertEquals(intactLength, writeAheadLog.getSize());
+    assertEquals(intactLength, Files.size(TEST_FILE_PATH));
+  }
+
+  @Test
+  void testTruncate() throws WriteAheadLogException {
+    Futures.getUnchecked(writeAheadLog.append(
+        new LogRecord(LogRecordType.SAVE, TEST_KEY_HASH, TEST_VALUE)));
+
+    writeAheadLog.truncate();
+
+    assertEquals(0, writeAheadLog.getSize());
+    List<LogRecord> logRecords = new ArrayList<>();
+    writeAheadLog.replay(logRecords::add);
+    assertEquals(0, logRecords.size());
+  }
+
+  @Test
+  void testAppendAfterFailedSync() throws WriteAheadLogException, IOException {
+    writeAheadLog.close();
+    FailingFileChannel fileChannel = new FailingFileChannel(FileChannel.open(TEST_FILE_PATH,
+        StandardOpenOption.READ, StandardOpenOption.WRITE));
+    writeAheadLog = new WriteAheadLogImpl(fileChannel);
+
+    Futures.getUnchecked(writeAheadLog.append(new LogRecord(LogRecordType.SAVE, 1, TEST_VALUE)));
+    fileChannel.failForce = true;
+    assertThrows(UncheckedExecutionException.class, () -> Futures.getUnchecked(
+        writeAheadLog.append(new LogRecord(LogRecordType.SAVE, 2, TEST_VALUE))));
+    fileChannel.failForce = false;
+    Futures.getUnchecked(writeAheadLog.append(new LogRecord(LogRecordType.SAVE, 3, TEST_VALUE)));
+    writeAheadLog.close();
+
+    // The failed record was written but not acknowledged, it must not come back.
+    writeAheadLog = new WriteAheadLogImpl(TEST_FILE_PATH);
+    List<LogRecord> logRecords = new ArrayList<>();
+    writeAheadLog.replay(logRecords::add);
+
+    assertEquals(2, logRecords.size());
+    assertEquals(1, logRecords.get(0).getKeyHash());
+    assertEquals(3, logRecords.get(1).getKeyHash());
+  }
+
+  @Test
+  void testAppendAfterFailedTruncate() throws WriteAheadLogException, IOException {
+    writeAheadLog.close();
+    FailingFileChannel fileChannel = new FailingFileChannel(FileChannel.open(TEST_FILE_PATH,
+        StandardOpenOption.READ, StandardOpenOption.WRITE));
+    writeAheadLog = new WriteAheadLogImpl(fileChannel);
+
+    fileChannel.failForce = true;
+    fileChannel.failTruncate = true;
+    assertThrows(UncheckedExecutionException.class, () -> Futures.getUnchecked(
+        writeAheadLog.append(new LogRecord(LogRecordType.SAVE, 1, TEST_VALUE))));
+    fileChannel.failForce = false;
+    fileChannel.failTruncate = false;
+
+    // The bytes of the failed record are still there, so nothing may be acknowledged after them.
+    Executable executable = () -> Futures.getUnchecked(
+        writeAheadLog.append(new LogRecord(LogRecordType.SAVE, 2, TEST_VALUE)));
+    UncheckedExecutionException exception =
+        assertThrows(UncheckedExecutionException.class, executable);
+    assertTrue(exception.getCause() instanceof IOException);
+  }
+
+  @Test
+  void testAppendAfterClose() throws IOException {
+    writeAheadLog.close();
+
+    Executable executable = () -> Futures.getUnchecked(writeAheadLog.append(
+        new LogRecord(LogRecordType.SAVE, TEST_KEY_HASH, TEST_VALUE)));
+
+    assertThrows(UncheckedExecutionException.class, executable);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    writeAheadLog.close();
+    Files.delete(TEST_FILE_PATH);
+  }
+
+  /**
+   * A file channel that fails syncs and truncations on demand.
+   */
+  private static final class FailingFileChannel extends FileChannel {
+
+    private final FileChannel fileChannel;
+    private volatile boolean failForce;
+    private volatile boolean failTruncate;
+
+    private FailingFileChannel(FileChannel fileChannel) {
+      this.fileChannel = fileChannel;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+      return fileChannel.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+      return fileChannel.read(dsts, offset, length);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      return fileChannel.write(src);
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+      return fileChannel.write(srcs, offset, length);
+    }
+
+    @Override
+    public long position() throws IOException {
+      return fileChannel.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+      fileChannel.position(newPosition);
+      return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+      return fileChannel.size();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+      if (failTruncate) {
+        throw new IOException("Truncate failed");
+      }
+
+      fileChannel.truncate(size);
+      return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+      if (failForce) {
+        throw new IOException("Force failed");
+      }
+
+      fileChannel.force(metaData);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+        throws IOException {
+      return fileChannel.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count)
+        throws IOException {
+      return fileChannel.transferFrom(src, position, count);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+      return fileChannel.read(dst, position);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+      return fileChannel.write(src, position);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+      return fileChannel.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+      return fileChannel.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+      return fileChannel.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+      fileChannel.close();
+    }
+  }
+}